@@ -2,8 +2,10 @@ package com.thenormancoder.aitestgen;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class AiTestGeneratorApplication {
     public static void main(String[] args) {
         SpringApplication.run(AiTestGeneratorApplication.class, args);
@@ -0,0 +1,45 @@
+package com.thenormancoder.aitestgen.archive;
+
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Formati dell'archivio con cui viene scaricata una suite di test generata.
+ */
+public enum ArchiveFormat {
+    ZIP("zip", "application/zip"),
+    TAR_GZ("tar.gz", "application/gzip");
+
+    private final String extension;
+    private final String contentType;
+
+    ArchiveFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Formato dal nome usato nelle richieste: "zip", "tar.gz" o "tgz".
+     *
+     * @throws IllegalArgumentException se il formato non è supportato
+     */
+    public static ArchiveFormat fromName(String name) {
+        return switch (name == null ? "" : name.toLowerCase(Locale.ROOT)) {
+            case "zip" -> ZIP;
+            case "tar.gz", "tgz" -> TAR_GZ;
+            default -> throw new IllegalArgumentException("Unsupported archive format: " + name);
+        };
+    }
+
+    public TestArchiveWriter open(OutputStream out) {
+        return this == ZIP ? new ZipTestArchiveWriter(out) : new TarGzTestArchiveWriter(out);
+    }
+}
@@ -0,0 +1,133 @@
+package com.thenormancoder.aitestgen.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tar in formato ustar compresso con gzip, senza stato tra una voce e l'altra. I percorsi
+ * che non stanno nei campi ustar (oltre 255 byte o non ASCII) sono scritti in un header
+ * esteso PAX, letto da tutti i tar moderni.
+ */
+final class TarGzTestArchiveWriter implements TestArchiveWriter {
+
+    private static final int BLOCK = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final int PREFIX_LENGTH = 155;
+
+    private final GZIPOutputStream gzip;
+    private final long modified = System.currentTimeMillis() / 1000;
+
+    TarGzTestArchiveWriter(OutputStream out) {
+        try {
+            // syncFlush: ogni flush porta sullo stream tutto ciò che è stato scritto finora
+            this.gzip = new GZIPOutputStream(out, 8192, true);
+        } catch (IOException e) {
+            // Il costruttore scrive l'header gzip: un errore qui è un client già disconnesso
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void add(String name, byte[] content) throws IOException {
+        byte[] header = ustarHeader(name);
+        if (header == null) {
+            byte[] record = paxRecord("path", name);
+            gzip.write(header(paxName(name), "", record.length, 'x'));
+            writePadded(record);
+            header = header(paxName(name), "", content.length, '0');
+        } else {
+            setSize(header, content.length);
+        }
+        gzip.write(header);
+        writePadded(content);
+        gzip.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        gzip.write(new byte[2 * BLOCK]);
+        gzip.finish();
+        gzip.flush();
+    }
+
+    /**
+     * Header ustar con il percorso diviso tra prefisso e nome; null se non ci sta.
+     */
+    private byte[] ustarHeader(String name) {
+        if (!StandardCharsets.US_ASCII.newEncoder().canEncode(name)) {
+            return null;
+        }
+        if (name.length() <= NAME_LENGTH) {
+            return header(name, "", 0, '0');
+        }
+        for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+            if (slash <= PREFIX_LENGTH && name.length() - slash - 1 <= NAME_LENGTH) {
+                return header(name.substring(slash + 1), name.substring(0, slash), 0, '0');
+            }
+        }
+        return null;
+    }
+
+    private byte[] header(String name, String prefix, long size, char type) {
+        byte[] header = new byte[BLOCK];
+        put(header, 0, NAME_LENGTH, name);
+        put(header, 100, 8, "0000644");
+        put(header, 108, 8, "0000000");
+        put(header, 116, 8, "0000000");
+        put(header, 136, 12, String.format("%011o", modified));
+        header[156] = (byte) type;
+        put(header, 257, 6, "ustar");
+        put(header, 263, 2, "00");
+        put(header, 345, PREFIX_LENGTH, prefix);
+        setSize(header, size);
+        return header;
+    }
+
+    /**
+     * Imposta la dimensione e ricalcola il checksum, che la comprende.
+     */
+    private static void setSize(byte[] header, long size) {
+        put(header, 124, 12, String.format("%011o", size));
+        int checksum = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            // Durante il calcolo il campo del checksum vale otto spazi
+            checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+        }
+        put(header, 148, 8, String.format("%06o", checksum));
+        header[155] = ' ';
+    }
+
+    private static void put(byte[] header, int offset, int length, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, length));
+    }
+
+    private void writePadded(byte[] content) throws IOException {
+        gzip.write(content);
+        int padding = (BLOCK - content.length % BLOCK) % BLOCK;
+        gzip.write(new byte[padding]);
+    }
+
+    /**
+     * Nome ASCII di ripiego, usato solo dai tar che non conoscono PAX.
+     */
+    private static String paxName(String name) {
+        String ascii = name.replaceAll("[^\\x20-\\x7e]", "_");
+        return ascii.length() <= NAME_LENGTH ? ascii : ascii.substring(ascii.length() - NAME_LENGTH);
+    }
+
+    /**
+     * Record PAX "lunghezza chiave=valore\n", dove la lunghezza comprende le sue stesse cifre.
+     */
+    private static byte[] paxRecord(String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length++;
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
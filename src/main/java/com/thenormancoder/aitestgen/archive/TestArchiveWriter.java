@@ -0,0 +1,21 @@
+package com.thenormancoder.aitestgen.archive;
+
+import java.io.IOException;
+
+/**
+ * Scrive un archivio una voce alla volta direttamente sullo stream di destinazione, che
+ * riceve ogni voce appena aggiunta: in memoria resta solo quella corrente. Lo stream di
+ * destinazione non viene chiuso.
+ */
+public interface TestArchiveWriter {
+
+    /**
+     * @param name percorso della voce con separatori "/", senza "/" iniziale
+     */
+    void add(String name, byte[] content) throws IOException;
+
+    /**
+     * Chiude l'archivio: directory centrale per lo zip, blocchi finali e trailer gzip per il tar.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.thenormancoder.aitestgen.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Lo zip tiene in memoria solo i metadati delle voci già scritte, che servono per la
+ * directory centrale in fondo all'archivio.
+ */
+final class ZipTestArchiveWriter implements TestArchiveWriter {
+
+    private final ZipOutputStream zip;
+
+    ZipTestArchiveWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void add(String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        // Chiudere la voce svuota il deflater: dopo il flush la voce è tutta sullo stream
+        zip.closeEntry();
+        zip.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        zip.finish();
+        zip.flush();
+    }
+}
@@ -0,0 +1,107 @@
+package com.thenormancoder.aitestgen.cache;
+
+import com.thenormancoder.aitestgen.config.AnalysisCacheProperties;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache delle {@link CompilationUnitAnalysis} indirizzata per contenuto: la chiave è
+ * l'impronta del sorgente normalizzato più le opzioni di parsing. Le analisi
+ * concorrenti dello stesso sorgente vengono eseguite una volta sola, anche a cache disabilitata.
+ */
+@Component
+public class AnalysisCache {
+
+    // Overhead approssimativo di un record e della sua lista contenitore
+    private static final long RECORD_OVERHEAD_BYTES = 48;
+
+    private final boolean enabled;
+    private final BoundedCache<String, CompilationUnitAnalysis> cache;
+    private final SingleFlight<String, CompilationUnitAnalysis> inFlight = new SingleFlight<>();
+
+    public AnalysisCache(AnalysisCacheProperties properties) {
+        this.enabled = properties.enabled();
+        this.cache = new BoundedCache<>(
+            properties.maxEntries(),
+            properties.maxWeightBytes(),
+            properties.ttl(),
+            AnalysisCache::estimateWeight
+        );
+    }
+
+    public CompilationUnitAnalysis getOrAnalyze(String sourceCode, ParseOptions options,
+                                                Supplier<CompilationUnitAnalysis> analyzer) {
+        String key = SourceFingerprint.of(sourceCode) + "|" + options;
+        if (!enabled) {
+            return inFlight.execute(key, analyzer);
+        }
+        CompilationUnitAnalysis cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return inFlight.execute(key, () -> {
+            CompilationUnitAnalysis analysis = analyzer.get();
+            cache.put(key, analysis);
+            return analysis;
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public SingleFlightStats coalescingStats() {
+        return inFlight.stats();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    static long estimateWeight(CompilationUnitAnalysis analysis) {
+        // Package e import sono condivisi da tutti i tipi del file: contati una volta
+        long weight = RECORD_OVERHEAD_BYTES + sizeOf(analysis.packageName());
+        for (String importName : analysis.imports()) {
+            weight += RECORD_OVERHEAD_BYTES + sizeOf(importName);
+        }
+        for (CodeAnalysisResult type : analysis.types()) {
+            weight += estimateWeight(type);
+        }
+        return weight;
+    }
+
+    static long estimateWeight(CodeAnalysisResult result) {
+        long weight = RECORD_OVERHEAD_BYTES + sizeOf(result.className()) + sizeOf(result.classType());
+        for (CodeAnalysisResult.FieldInfo field : result.fields()) {
+            weight += RECORD_OVERHEAD_BYTES + sizeOf(field.name()) + sizeOf(field.type());
+        }
+        for (CodeAnalysisResult.MethodInfo method : result.methods()) {
+            weight += RECORD_OVERHEAD_BYTES + sizeOf(method.name()) + sizeOf(method.returnType()) + sizeOf(method.javadoc());
+            for (CodeAnalysisResult.ParameterInfo parameter : method.parameters()) {
+                weight += RECORD_OVERHEAD_BYTES + sizeOf(parameter.name()) + sizeOf(parameter.type());
+            }
+            if (method.metrics() != null) {
+                weight += RECORD_OVERHEAD_BYTES;
+                for (CodeAnalysisResult.ThrowSite throwSite : method.metrics().throwSites()) {
+                    weight += RECORD_OVERHEAD_BYTES + sizeOf(throwSite.exceptionType()) + sizeOf(throwSite.condition());
+                }
+            }
+        }
+        for (CodeAnalysisResult.ConstructorInfo constructor : result.constructors()) {
+            weight += RECORD_OVERHEAD_BYTES;
+            for (CodeAnalysisResult.ParameterInfo parameter : constructor.parameters()) {
+                weight += RECORD_OVERHEAD_BYTES + sizeOf(parameter.name()) + sizeOf(parameter.type());
+            }
+        }
+        return weight;
+    }
+
+    private static long sizeOf(String value) {
+        // Header della stringa + contenuto (stima prudente: 2 byte per carattere)
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
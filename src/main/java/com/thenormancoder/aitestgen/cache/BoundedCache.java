@@ -0,0 +1,170 @@
+package com.thenormancoder.aitestgen.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache in memoria LRU limitata per numero di voci e per peso complessivo,
+ * con TTL opzionale e contatori di hit/miss/eviction.
+ *
+ * I valori devono essere immutabili: vengono restituiti condivisi a tutti i chiamanti.
+ */
+public class BoundedCache<K, V> {
+
+    private final long maxEntries;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+    private final BiConsumer<K, V> evictionListener;
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedCache(long maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher) {
+        this(maxEntries, maxWeight, ttl, weigher, (key, value) -> {});
+    }
+
+    /**
+     * @param evictionListener chiamato fuori dal lock per ogni voce rimossa dai limiti o
+     *                         dal TTL, non per {@link #invalidate} né per le sostituzioni
+     */
+    public BoundedCache(long maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher,
+                        BiConsumer<K, V> evictionListener) {
+        this(maxEntries, maxWeight, ttl, weigher, evictionListener, System::nanoTime);
+    }
+
+    BoundedCache(long maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher, LongSupplier nanoClock) {
+        this(maxEntries, maxWeight, ttl, weigher, (key, value) -> {}, nanoClock);
+    }
+
+    BoundedCache(long maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher,
+                 BiConsumer<K, V> evictionListener, LongSupplier nanoClock) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttl == null || ttl.isZero() || ttl.isNegative() ? 0 : ttl.toNanos();
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.nanoClock = nanoClock;
+    }
+
+    public V get(K key) {
+        Entry<V> expired = null;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                removeEntry(key, entry);
+                evictions.incrementAndGet();
+                expired = entry;
+            } else if (entry != null) {
+                hits.incrementAndGet();
+                return entry.value();
+            }
+            misses.incrementAndGet();
+        }
+        if (expired != null) {
+            evictionListener.accept(key, expired.value());
+        }
+        return null;
+    }
+
+    /**
+     * Restituisce il valore in cache o lo calcola fuori dal lock e lo memorizza.
+     * Le eccezioni del calcolo non vengono mai messe in cache.
+     */
+    public V getOrCompute(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    public void put(K key, V value) {
+        long weight = Math.max(0, weigher.applyAsLong(value));
+        if (weight > maxWeight) {
+            // Un valore più grande dell'intera cache non viene memorizzato
+            return;
+        }
+        List<Map.Entry<K, V>> evicted;
+        synchronized (entries) {
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight, nanoClock.getAsLong()));
+            if (previous != null) {
+                totalWeight -= previous.weight();
+            }
+            totalWeight += weight;
+            evicted = evictIfNeeded();
+        }
+        evicted.forEach(entry -> evictionListener.accept(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * @return il valore rimosso, null se la chiave non era in cache
+     */
+    public V invalidate(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            removeEntry(key, entry);
+            return entry.value();
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+    public CacheStats stats() {
+        synchronized (entries) {
+            return CacheStats.of(hits.get(), misses.get(), evictions.get(), entries.size(), totalWeight);
+        }
+    }
+
+    private List<Map.Entry<K, V>> evictIfNeeded() {
+        List<Map.Entry<K, V>> evicted = new ArrayList<>(0);
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<K, Entry<V>> next = eldest.next();
+            Entry<V> entry = next.getValue();
+            eldest.remove();
+            totalWeight -= entry.weight();
+            evictions.incrementAndGet();
+            evicted.add(Map.entry(next.getKey(), entry.value()));
+        }
+        return evicted;
+    }
+
+    private void removeEntry(K key, Entry<V> entry) {
+        entries.remove(key);
+        totalWeight -= entry.weight();
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && nanoClock.getAsLong() - entry.insertedAt() > ttlNanos;
+    }
+
+    private record Entry<V>(V value, long weight, long insertedAt) {}
+}
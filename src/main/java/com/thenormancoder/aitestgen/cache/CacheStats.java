@@ -0,0 +1,15 @@
+package com.thenormancoder.aitestgen.cache;
+
+public record CacheStats(
+    long hits,
+    long misses,
+    long evictions,
+    long size,
+    long weight,
+    double hitRatio
+) {
+    public static CacheStats of(long hits, long misses, long evictions, long size, long weight) {
+        long requests = hits + misses;
+        return new CacheStats(hits, misses, evictions, size, weight, requests == 0 ? 0.0 : (double) hits / requests);
+    }
+}
@@ -0,0 +1,225 @@
+package com.thenormancoder.aitestgen.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thenormancoder.aitestgen.config.TestCacheProperties;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache a due livelli dei test generati dal modello: LRU in memoria davanti a una
+ * cartella con un file JSON per chiave. Su disco l'ordine LRU segue la data di
+ * modifica dei file, aggiornata a ogni lettura; oltre {@code maxDiskBytes} si
+ * eliminano i file meno recenti. Le chiavi sono impronte del contenuto, quindi
+ * le voci non scadono: vengono solo sostituite o rimosse per spazio.
+ */
+@Component
+public class GeneratedTestCache {
+
+    private static final String SUFFIX = ".json";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final ObjectMapper objectMapper;
+    private final BoundedCache<String, TestGenerationResponse> memory;
+
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskMisses = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    private final Object diskLock = new Object();
+    private long diskBytes = -1;
+
+    public GeneratedTestCache(TestCacheProperties properties, ObjectMapper objectMapper) {
+        this.enabled = properties.enabled();
+        this.directory = Paths.get(properties.directory());
+        this.maxDiskBytes = properties.maxDiskBytes();
+        this.objectMapper = objectMapper;
+        this.memory = new BoundedCache<>(
+            properties.maxEntries(),
+            properties.maxMemoryBytes(),
+            null,
+            GeneratedTestCache::estimateWeight
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return la risposta in cache o null; un hit su disco viene riportato in memoria
+     */
+    public TestGenerationResponse get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        TestGenerationResponse cached = memory.get(key);
+        if (cached != null || maxDiskBytes <= 0) {
+            return cached;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        try {
+            TestGenerationResponse stored = objectMapper.readValue(file.toFile(), TestGenerationResponse.class);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            diskHits.incrementAndGet();
+            memory.put(key, stored);
+            return stored;
+        } catch (IOException e) {
+            // File assente, illeggibile o di una versione precedente del formato: è un miss
+            diskMisses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String key, TestGenerationResponse response) {
+        if (!enabled) {
+            return;
+        }
+        memory.put(key, response);
+        if (maxDiskBytes <= 0) {
+            return;
+        }
+        try {
+            writeToDisk(key, response);
+        } catch (IOException e) {
+            // La cache su disco è un'ottimizzazione: la risposta resta valida anche se non persistita
+        }
+    }
+
+    public void clear() {
+        memory.invalidateAll();
+        synchronized (diskLock) {
+            for (Path file : listFiles()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // Ignorato: verrà sovrascritto o eliminato alla prossima pulizia
+                }
+            }
+            diskBytes = 0;
+        }
+    }
+
+    public TieredCacheStats stats() {
+        long files;
+        long bytes;
+        synchronized (diskLock) {
+            files = maxDiskBytes > 0 ? listFiles().size() : 0;
+            bytes = Math.max(diskBytes, 0);
+        }
+        CacheStats disk = CacheStats.of(diskHits.get(), diskMisses.get(), diskEvictions.get(), files, bytes);
+        return TieredCacheStats.of(memory.stats(), disk);
+    }
+
+    private void writeToDisk(String key, TestGenerationResponse response) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        Files.createDirectories(directory);
+        Path file = directory.resolve(key + SUFFIX);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        synchronized (diskLock) {
+            try {
+                Files.write(temp, json);
+                long previous = Files.isRegularFile(file) ? Files.size(file) : 0;
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                diskBytes = currentDiskBytes() - previous + json.length;
+                evictIfNeeded();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private long currentDiskBytes() {
+        if (diskBytes < 0) {
+            // Prima scrittura dall'avvio: si misura la cartella una volta sola
+            diskBytes = 0;
+            for (Path file : listFiles()) {
+                diskBytes += sizeOf(file);
+            }
+        }
+        return diskBytes;
+    }
+
+    private void evictIfNeeded() {
+        if (diskBytes <= maxDiskBytes) {
+            return;
+        }
+        List<Path> files = listFiles();
+        files.sort(Comparator.comparingLong(GeneratedTestCache::lastModified));
+        // Si scende sotto il 90% del limite per non ripetere la scansione a ogni scrittura
+        long target = maxDiskBytes - maxDiskBytes / 10;
+        for (Path file : files) {
+            if (diskBytes <= target) {
+                break;
+            }
+            long size = sizeOf(file);
+            try {
+                Files.deleteIfExists(file);
+                diskBytes -= size;
+                diskEvictions.incrementAndGet();
+            } catch (IOException e) {
+                // File in uso o già rimosso: si passa al successivo
+            }
+        }
+    }
+
+    private List<Path> listFiles() {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static long estimateWeight(TestGenerationResponse response) {
+        long weight = 256 + 2L * response.generatedTestCode().length();
+        for (String method : response.testMethods()) {
+            weight += 40 + 2L * method.length();
+        }
+        for (String suggestion : response.suggestions()) {
+            weight += 40 + 2L * suggestion.length();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,61 @@
+package com.thenormancoder.aitestgen.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalescenza delle chiamate concorrenti con la stessa chiave: il primo chiamante
+ * esegue il calcolo sul proprio thread, gli altri attendono e ricevono lo stesso
+ * risultato o la stessa eccezione. Nulla viene memorizzato: appena il calcolo
+ * termina la chiave è di nuovo libera, quindi un fallimento non viene riproposto
+ * ai chiamanti successivi.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        executions.incrementAndGet();
+        V value;
+        try {
+            value = task.get();
+        } catch (RuntimeException | Error e) {
+            // Rimossa prima di completare: chi arriva dopo ricalcola invece di ricevere l'errore
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, created);
+        created.complete(value);
+        return value;
+    }
+
+    public SingleFlightStats stats() {
+        return new SingleFlightStats(executions.get(), coalesced.get(), inFlight.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.thenormancoder.aitestgen.cache;
+
+/**
+ * @param executions calcoli effettivamente eseguiti
+ * @param coalesced  chiamate che hanno atteso il risultato di un calcolo già in corso
+ * @param inFlight   calcoli in corso in questo momento
+ */
+public record SingleFlightStats(long executions, long coalesced, int inFlight) {}
@@ -0,0 +1,61 @@
+package com.thenormancoder.aitestgen.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Impronta SHA-256 del sorgente normalizzato: fine riga uniformate, spazi
+ * finali e righe vuote in coda ignorati, così lo stesso codice incollato da
+ * editor diversi produce la stessa chiave.
+ */
+public final class SourceFingerprint {
+
+    private SourceFingerprint() {
+    }
+
+    public static String of(String sourceCode) {
+        return sha256(normalize(sourceCode));
+    }
+
+    static String normalize(String sourceCode) {
+        StringBuilder normalized = new StringBuilder(sourceCode.length());
+        int lineStart = 0;
+        int length = sourceCode.length();
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && sourceCode.charAt(lineEnd) != '\n' && sourceCode.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            while (contentEnd > lineStart && Character.isWhitespace(sourceCode.charAt(contentEnd - 1))) {
+                contentEnd--;
+            }
+            normalized.append(sourceCode, lineStart, contentEnd).append('\n');
+            if (lineEnd < length && sourceCode.charAt(lineEnd) == '\r'
+                    && lineEnd + 1 < length && sourceCode.charAt(lineEnd + 1) == '\n') {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == '\n') {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    public static String sha256(String text) {
+        return HexFormat.of().formatHex(sha256(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.thenormancoder.aitestgen.cache;
+
+/**
+ * Statistiche di una cache a due livelli. {@code hitRatio} è calcolato sulle
+ * richieste complessive: un miss in memoria seguito da un hit su disco conta come hit.
+ */
+public record TieredCacheStats(
+    CacheStats memory,
+    CacheStats disk,
+    double hitRatio
+) {
+    public static TieredCacheStats of(CacheStats memory, CacheStats disk) {
+        long requests = memory.hits() + memory.misses();
+        long hits = memory.hits() + disk.hits();
+        return new TieredCacheStats(memory, disk, requests == 0 ? 0.0 : (double) hits / requests);
+    }
+}
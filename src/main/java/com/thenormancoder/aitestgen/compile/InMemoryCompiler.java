@@ -0,0 +1,234 @@
+package com.thenormancoder.aitestgen.compile;
+
+import com.thenormancoder.aitestgen.config.CompileVerificationProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compilatore Java in processo per i test generati. Il compilatore di sistema e un pool
+ * di {@link StandardJavaFileManager} restano caldi tra una compilazione e l'altra: i
+ * file manager tengono aperti e indicizzati i jar del classpath, che è il costo
+ * principale di una compilazione a freddo. Sorgenti e classi prodotte restano in memoria.
+ *
+ * Il classpath di base (JUnit, AssertJ, Mockito e le voci configurate) viene risolto
+ * una sola volta; i jar annidati nel jar eseguibile di Spring Boot vengono estratti
+ * nella cartella di cache perché il compilatore legge solo file.
+ */
+@Component
+public class InMemoryCompiler {
+
+    // Una classe per ogni libreria che i test generati possono usare
+    private static final List<String> TEST_LIBRARY_ANCHORS = List.of(
+        "org.junit.jupiter.api.Test",
+        "org.junit.jupiter.params.ParameterizedTest",
+        "org.opentest4j.AssertionFailedError",
+        "org.apiguardian.api.API",
+        "org.assertj.core.api.Assertions",
+        "org.mockito.Mockito",
+        "org.mockito.junit.jupiter.MockitoExtension"
+    );
+
+    private static final List<String> OPTIONS = List.of("-proc:none", "-implicit:none", "-Xlint:none", "-g");
+
+    public record Source(String className, String code) {}
+
+    public record Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                         Map<String, byte[]> classes, long compileMillis) {}
+
+    private final CompileVerificationProperties properties;
+    private final JavaCompiler compiler;
+    private final BlockingQueue<StandardJavaFileManager> fileManagers;
+    private volatile List<Path> baseClasspath;
+
+    public InMemoryCompiler(CompileVerificationProperties properties) {
+        this.properties = properties;
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.fileManagers = new ArrayBlockingQueue<>(Math.max(1, properties.fileManagers()));
+    }
+
+    /**
+     * @return false su un runtime senza JDK (nessun compilatore di sistema)
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * Compila i sorgenti insieme, con il classpath di base più {@code extraClasspath}.
+     */
+    public Result compile(List<Source> sources, List<Path> extraClasspath) {
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler: run on a JDK");
+        }
+        long start = System.nanoTime();
+        List<Path> classpath = new ArrayList<>(baseClasspath());
+        for (Path entry : extraClasspath) {
+            if (Files.exists(entry)) {
+                classpath.add(entry);
+            }
+        }
+        List<JavaFileObject> units = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            units.add(MemoryFileManager.source(source.className(), source.code()));
+        }
+
+        StandardJavaFileManager fileManager = acquire();
+        boolean pooled = true;
+        try {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            MemoryFileManager memory = new MemoryFileManager(fileManager);
+            boolean success = compiler.getTask(null, memory, diagnostics, OPTIONS, null, units).call();
+            return new Result(success, diagnostics.getDiagnostics(), memory.classes(),
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // Stato del file manager incerto: non torna nel pool
+            pooled = false;
+            throw e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+        } finally {
+            release(fileManager, pooled);
+        }
+    }
+
+    /**
+     * Classpath di base, risolto alla prima compilazione.
+     */
+    public List<Path> baseClasspath() {
+        List<Path> classpath = baseClasspath;
+        if (classpath == null) {
+            synchronized (this) {
+                if (baseClasspath == null) {
+                    baseClasspath = resolveBaseClasspath();
+                }
+                classpath = baseClasspath;
+            }
+        }
+        return classpath;
+    }
+
+    @PreDestroy
+    void close() {
+        StandardJavaFileManager fileManager;
+        while ((fileManager = fileManagers.poll()) != null) {
+            closeQuietly(fileManager);
+        }
+    }
+
+    private StandardJavaFileManager acquire() {
+        try {
+            StandardJavaFileManager fileManager = fileManagers.poll(properties.acquireWait().toMillis(),
+                TimeUnit.MILLISECONDS);
+            return fileManager != null
+                ? fileManager
+                : compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a compiler file manager", e);
+        }
+    }
+
+    private void release(StandardJavaFileManager fileManager, boolean reusable) {
+        // Oltre la capienza del pool (file manager temporaneo) viene chiuso
+        if (!reusable || !fileManagers.offer(fileManager)) {
+            closeQuietly(fileManager);
+        }
+    }
+
+    private List<Path> resolveBaseClasspath() {
+        Set<Path> entries = new LinkedHashSet<>();
+        for (String anchor : TEST_LIBRARY_ANCHORS) {
+            Path location = locate(anchor);
+            if (location != null) {
+                entries.add(location);
+            }
+        }
+        for (String entry : properties.classpath()) {
+            entries.add(Paths.get(entry));
+        }
+        // Riempie il pool solo ora, quando serve davvero
+        for (int i = fileManagers.size(); i < Math.max(1, properties.fileManagers()); i++) {
+            fileManagers.offer(compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+        }
+        return List.copyOf(entries);
+    }
+
+    /**
+     * Jar o cartella da cui è stata caricata la classe; null se la libreria non è presente.
+     */
+    private Path locate(String className) {
+        try {
+            Class<?> type = Class.forName(className, false, getClass().getClassLoader());
+            CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return null;
+            }
+            URL location = codeSource.getLocation();
+            if ("file".equals(location.getProtocol())) {
+                return Paths.get(location.toURI());
+            }
+            return extract(location);
+        } catch (ClassNotFoundException | LinkageError | URISyntaxException | IOException e) {
+            // Libreria assente o non leggibile: i test che la usano non compileranno
+            return null;
+        }
+    }
+
+    /**
+     * Copia un jar annidato (URL {@code nested:} di Spring Boot) nella cartella di cache.
+     * Il nome del file contiene la versione, quindi una copia esistente è già aggiornata.
+     */
+    private Path extract(URL location) throws IOException {
+        String path = location.getPath();
+        while (path.endsWith("/") || path.endsWith("!")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        Path target = Paths.get(properties.cacheDirectory()).resolve(fileName);
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), fileName, ".tmp");
+        try (InputStream in = location.openStream()) {
+            Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return target;
+    }
+
+    private static void closeQuietly(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            // Chiusura dei jar aperti: niente da recuperare
+        }
+    }
+}
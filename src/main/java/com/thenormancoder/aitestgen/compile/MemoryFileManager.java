@@ -0,0 +1,65 @@
+package com.thenormancoder.aitestgen.compile;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * File manager di una singola compilazione: i sorgenti arrivano da stringhe e le classi
+ * prodotte restano in memoria. Tutto il resto (classpath, classi della piattaforma) è
+ * delegato al file manager condiviso, che non viene chiuso insieme a questo.
+ */
+final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager delegate) {
+        super(delegate);
+    }
+
+    static JavaFileObject source(String className, String code) {
+        URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) throws IOException {
+        if (kind != JavaFileObject.Kind.CLASS) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+        URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+        return new SimpleJavaFileObject(uri, kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                classes.put(className, out);
+                return out;
+            }
+        };
+    }
+
+    Map<String, byte[]> classes() {
+        Map<String, byte[]> bytes = new LinkedHashMap<>();
+        classes.forEach((name, out) -> bytes.put(name, out.toByteArray()));
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        // Il file manager delegato appartiene al pool
+    }
+}
@@ -0,0 +1,24 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Cache dei risultati di analisi (prefisso {@code aitestgen.analysis-cache}).
+ *
+ * @param maxWeightBytes peso massimo stimato in byte dei risultati in cache
+ * @param ttl            durata di una voce; 0 = nessuna scadenza
+ */
+@ConfigurationProperties(prefix = "aitestgen.analysis-cache")
+public record AnalysisCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("1000") long maxEntries,
+    @DefaultValue("67108864") long maxWeightBytes,
+    @DefaultValue("1h") Duration ttl
+) {
+    public static AnalysisCacheProperties defaults() {
+        return new AnalysisCacheProperties(true, 1000, 64L * 1024 * 1024, Duration.ofHours(1));
+    }
+}
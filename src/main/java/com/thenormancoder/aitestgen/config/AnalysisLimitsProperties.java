@@ -0,0 +1,28 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Controllo di ammissione per le analisi richieste via API (prefisso {@code aitestgen.analysis-limits}).
+ *
+ * @param maxSourceChars      sorgenti più lunghi vengono rifiutati con 413; 0 = nessun limite
+ * @param maxConcurrentParses parsing contemporanei ammessi; 0 = due per CPU
+ * @param admissionWait       attesa massima di un posto libero prima di rifiutare con 429
+ */
+@ConfigurationProperties(prefix = "aitestgen.analysis-limits")
+public record AnalysisLimitsProperties(
+    @DefaultValue("2000000") int maxSourceChars,
+    @DefaultValue("0") int maxConcurrentParses,
+    @DefaultValue("100ms") Duration admissionWait
+) {
+    public static AnalysisLimitsProperties defaults() {
+        return new AnalysisLimitsProperties(2_000_000, 0, Duration.ofMillis(100));
+    }
+
+    public int effectiveMaxConcurrentParses() {
+        return maxConcurrentParses > 0 ? maxConcurrentParses : 2 * Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,20 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Generazione a lotti (prefisso {@code aitestgen.batch}).
+ *
+ * @param parallelism classi generate contemporaneamente, per tutta l'applicazione
+ * @param maxItems    classi massime in una richiesta
+ */
+@ConfigurationProperties(prefix = "aitestgen.batch")
+public record BatchGenerationProperties(
+    @DefaultValue("4") int parallelism,
+    @DefaultValue("500") int maxItems
+) {
+    public static BatchGenerationProperties defaults() {
+        return new BatchGenerationProperties(4, 500);
+    }
+}
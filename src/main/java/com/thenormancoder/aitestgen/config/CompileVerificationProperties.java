@@ -0,0 +1,41 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Verifica di compilazione dei test generati (prefisso {@code aitestgen.compile-verification}).
+ *
+ * @param enabled          se false i test vengono esportati senza compilarli
+ * @param fileManagers     file manager del compilatore tenuti caldi e riusati; limitano
+ *                         anche le compilazioni contemporanee
+ * @param acquireWait      attesa massima di un file manager libero, poi se ne usa uno temporaneo
+ * @param classpath        voci aggiuntive del classpath di compilazione (jar o cartelle)
+ * @param cacheDirectory   dove estrarre i jar annidati nel jar dell'applicazione; se assente
+ *                         {@code ~/.ai-test-generator/classpath}
+ * @param maxDiagnostics   diagnostiche riportate al massimo per compilazione
+ */
+@ConfigurationProperties(prefix = "aitestgen.compile-verification")
+public record CompileVerificationProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("2") int fileManagers,
+    @DefaultValue("5s") Duration acquireWait,
+    @DefaultValue List<String> classpath,
+    String cacheDirectory,
+    @DefaultValue("50") int maxDiagnostics
+) {
+    public CompileVerificationProperties {
+        classpath = classpath == null ? List.of() : List.copyOf(classpath);
+        if (cacheDirectory == null || cacheDirectory.isBlank()) {
+            cacheDirectory = Paths.get(System.getProperty("user.home"), ".ai-test-generator", "classpath").toString();
+        }
+    }
+
+    public static CompileVerificationProperties defaults() {
+        return new CompileVerificationProperties(true, 2, Duration.ofSeconds(5), List.of(), null, 50);
+    }
+}
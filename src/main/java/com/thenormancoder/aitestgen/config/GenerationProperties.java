@@ -0,0 +1,36 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Generazione dei test tramite modello linguistico (prefisso {@code aitestgen.generation}).
+ *
+ * @param enabled             se false si usa sempre il template di base
+ * @param model               modello richiesto al provider
+ * @param temperature         temperatura di campionamento
+ * @param maxPromptTokens     budget di token per il prompt: il contesto viene ridotto fino a rientrarvi
+ * @param maxCompletionTokens token massimi della risposta
+ * @param fanOutMinMethods    classi con almeno tanti metodi pubblici vengono generate a gruppi
+ *                            di metodi in parallelo; 0 = sempre una sola chiamata
+ * @param methodsPerTask      metodi pubblici per ogni chiamata al modello in modalità fan-out
+ * @param fanOutParallelism   chiamate al modello contemporanee in modalità fan-out (per tutta l'applicazione)
+ * @param templateForTrivialClasses con copertura BASIC, le classi con soli accessor pubblici
+ *                            vengono servite dal template senza chiamare il modello
+ */
+@ConfigurationProperties(prefix = "aitestgen.generation")
+public record GenerationProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("gpt-4") String model,
+    @DefaultValue("0.3") double temperature,
+    @DefaultValue("6000") int maxPromptTokens,
+    @DefaultValue("2000") int maxCompletionTokens,
+    @DefaultValue("8") int fanOutMinMethods,
+    @DefaultValue("3") int methodsPerTask,
+    @DefaultValue("4") int fanOutParallelism,
+    @DefaultValue("true") boolean templateForTrivialClasses
+) {
+    public static GenerationProperties defaults() {
+        return new GenerationProperties(true, "gpt-4", 0.3, 6000, 2000, 8, 3, 4, true);
+    }
+}
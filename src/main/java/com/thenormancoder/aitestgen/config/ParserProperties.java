@@ -0,0 +1,34 @@
+package com.thenormancoder.aitestgen.config;
+
+import com.github.javaparser.ParserConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configurazione condivisa dei parser JavaParser (prefisso {@code aitestgen.parser}).
+ *
+ * @param languageLevel          livello di linguaggio usato da tutti i parser del pool
+ * @param attributeComments      se false i commenti non vengono associati ai nodi (niente javadoc)
+ * @param poolSize               parser inattivi trattenuti e worker di parsing; 0 = numero di CPU
+ * @param skeletonThresholdChars sorgenti più lunghi vengono analizzati in modalità scheletro;
+ *                               0 = mai automaticamente
+ * @param parseTimeout           tempo massimo di un singolo parsing; 0 = nessun limite
+ */
+@ConfigurationProperties(prefix = "aitestgen.parser")
+public record ParserProperties(
+    @DefaultValue("JAVA_17") ParserConfiguration.LanguageLevel languageLevel,
+    @DefaultValue("true") boolean attributeComments,
+    @DefaultValue("0") int poolSize,
+    @DefaultValue("200000") int skeletonThresholdChars,
+    @DefaultValue("10s") Duration parseTimeout
+) {
+    public static ParserProperties defaults() {
+        return new ParserProperties(ParserConfiguration.LanguageLevel.JAVA_17, true, 0, 200_000, Duration.ofSeconds(10));
+    }
+
+    public int effectivePoolSize() {
+        return poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,20 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Analisi di interi progetti (prefisso {@code aitestgen.project-analysis}).
+ *
+ * @param parallelism  thread dedicati al parsing; 0 = numero di CPU
+ * @param maxFailures  numero massimo di errori riportati nel riepilogo
+ */
+@ConfigurationProperties(prefix = "aitestgen.project-analysis")
+public record ProjectAnalysisProperties(
+    @DefaultValue("0") int parallelism,
+    @DefaultValue("100") int maxFailures
+) {
+    public int effectiveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,24 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Cache della struttura dei progetti (prefisso {@code aitestgen.project-descriptor}).
+ *
+ * @param maxProjects numero massimo di progetti descritti in memoria
+ * @param ttl         durata massima di un descrittore; 0 = nessuna scadenza
+ * @param watchFiles  invalida il descrittore quando cambia un file di build nella radice del progetto
+ */
+@ConfigurationProperties(prefix = "aitestgen.project-descriptor")
+public record ProjectDescriptorProperties(
+    @DefaultValue("32") int maxProjects,
+    @DefaultValue("30m") Duration ttl,
+    @DefaultValue("true") boolean watchFiles
+) {
+    public static ProjectDescriptorProperties defaults() {
+        return new ProjectDescriptorProperties(32, Duration.ofMinutes(30), true);
+    }
+}
@@ -0,0 +1,26 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Paths;
+
+/**
+ * Indice persistente delle analisi di progetto (prefisso {@code aitestgen.project-index}).
+ *
+ * @param directory   cartella in cui salvare un file indice per ogni progetto analizzato;
+ *                    se assente {@code ~/.ai-test-generator/index}
+ * @param maxProjects numero massimo di indici tenuti in memoria; gli altri vengono riletti da disco
+ */
+@ConfigurationProperties(prefix = "aitestgen.project-index")
+public record ProjectIndexProperties(
+    @DefaultValue("true") boolean enabled,
+    String directory,
+    @DefaultValue("16") int maxProjects
+) {
+    public ProjectIndexProperties {
+        if (directory == null || directory.isBlank()) {
+            directory = Paths.get(System.getProperty("user.home"), ".ai-test-generator", "index").toString();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Limiti lato client per le chiamate al modello (prefisso {@code aitestgen.rate-limit}).
+ *
+ * @param enabled            se false le chiamate passano direttamente al provider
+ * @param requestsPerMinute  richieste al minuto ammesse; 0 = nessun limite
+ * @param tokensPerMinute    token (prompt + risposta massima) al minuto ammessi; 0 = nessun limite
+ * @param initialConcurrency chiamate contemporanee all'avvio
+ * @param maxConcurrency     tetto della concorrenza adattiva
+ * @param latencyTarget      chiamate più lente riducono la concorrenza
+ * @param queueTimeout       attesa massima di una chiamata in coda, tentativi inclusi
+ * @param maxRetries         nuovi tentativi dopo un 429 del provider
+ * @param backoff            pausa dopo un 429 senza Retry-After; raddoppia a ogni 429 consecutivo
+ */
+@ConfigurationProperties(prefix = "aitestgen.rate-limit")
+public record RateLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("500") int requestsPerMinute,
+    @DefaultValue("90000") int tokensPerMinute,
+    @DefaultValue("4") int initialConcurrency,
+    @DefaultValue("16") int maxConcurrency,
+    @DefaultValue("30s") Duration latencyTarget,
+    @DefaultValue("30s") Duration queueTimeout,
+    @DefaultValue("2") int maxRetries,
+    @DefaultValue("1s") Duration backoff
+) {
+    public static RateLimitProperties defaults() {
+        return new RateLimitProperties(true, 500, 90_000, 4, 16,
+            Duration.ofSeconds(30), Duration.ofSeconds(30), 2, Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,26 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Risoluzione dei simboli sui sorgenti di progetto (prefisso {@code aitestgen.symbol-resolution}).
+ *
+ * @param enabled     se false i tipi restano stringhe non risolte
+ * @param maxProjects numero massimo di type solver di progetto mantenuti in memoria
+ * @param ttl         durata massima di un type solver; 0 = nessuna scadenza
+ * @param watchFiles  invalida il type solver quando cambia un file sotto i sorgenti del progetto
+ */
+@ConfigurationProperties(prefix = "aitestgen.symbol-resolution")
+public record SymbolResolutionProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("8") int maxProjects,
+    @DefaultValue("30m") Duration ttl,
+    @DefaultValue("true") boolean watchFiles
+) {
+    public static SymbolResolutionProperties defaults() {
+        return new SymbolResolutionProperties(true, 8, Duration.ofMinutes(30), true);
+    }
+}
@@ -0,0 +1,30 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Paths;
+
+/**
+ * Cache dei test generati dal modello (prefisso {@code aitestgen.test-cache}).
+ *
+ * @param maxEntries     voci massime in memoria
+ * @param maxMemoryBytes peso massimo stimato delle voci in memoria
+ * @param directory      cartella dei risultati persistiti; se assente {@code ~/.ai-test-generator/tests}
+ * @param maxDiskBytes   dimensione massima della cartella, oltre la quale si eliminano
+ *                       i file usati meno di recente; 0 = nessuna persistenza su disco
+ */
+@ConfigurationProperties(prefix = "aitestgen.test-cache")
+public record TestCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("500") int maxEntries,
+    @DefaultValue("33554432") long maxMemoryBytes,
+    String directory,
+    @DefaultValue("268435456") long maxDiskBytes
+) {
+    public TestCacheProperties {
+        if (directory == null || directory.isBlank()) {
+            directory = Paths.get(System.getProperty("user.home"), ".ai-test-generator", "tests").toString();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.thenormancoder.aitestgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Esecuzione dei test generati con copertura misurata (prefisso {@code aitestgen.test-execution}).
+ *
+ * @param enabled      se false la copertura resta quella stimata dal codice del test; anche
+ *                     se true un test viene eseguito solo su richiesta ({@code execute=true}),
+ *                     perché il codice ricevuto gira nel processo del server
+ * @param runners      esecutori (launcher JUnit e runtime di copertura) tenuti caldi e
+ *                     riusati; limitano anche le esecuzioni contemporanee
+ * @param acquireWait  attesa massima di un esecutore libero, poi il test non viene eseguito
+ * @param timeout      durata massima di un'esecuzione; oltre il test viene interrotto
+ * @param maxFailures  fallimenti riportati al massimo per esecuzione
+ * @param maxAbandoned test scaduti che ignorano l'interruzione e restano in esecuzione;
+ *                     raggiunto il limite l'esecuzione è sospesa finché uno non termina
+ */
+@ConfigurationProperties(prefix = "aitestgen.test-execution")
+public record TestExecutionProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("2") int runners,
+    @DefaultValue("5s") Duration acquireWait,
+    @DefaultValue("10s") Duration timeout,
+    @DefaultValue("20") int maxFailures,
+    @DefaultValue("2") int maxAbandoned
+) {
+    public static TestExecutionProperties defaults() {
+        return new TestExecutionProperties(false, 2, Duration.ofSeconds(5), Duration.ofSeconds(10), 20, 2);
+    }
+}
@@ -1,16 +1,49 @@
 package com.thenormancoder.aitestgen.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thenormancoder.aitestgen.archive.ArchiveFormat;
+import com.thenormancoder.aitestgen.dto.BatchGenerationRequest;
+import com.thenormancoder.aitestgen.dto.BatchGenerationResponse;
 import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import com.thenormancoder.aitestgen.dto.ProjectAnalysisSummary;
+import com.thenormancoder.aitestgen.dto.ResolvedAnalysisResult;
+import com.thenormancoder.aitestgen.dto.TestBatchExportRequest;
+import com.thenormancoder.aitestgen.dto.TestExecutionReport;
+import com.thenormancoder.aitestgen.dto.TestExportResult;
 import com.thenormancoder.aitestgen.dto.TestExportRequest;
 import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
 import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.exception.AnalysisLimitException;
+import com.thenormancoder.aitestgen.llm.RateLimitedLlmClient;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import com.thenormancoder.aitestgen.project.ProjectType;
+import com.thenormancoder.aitestgen.service.BatchGenerationService;
+import com.thenormancoder.aitestgen.service.GenerateAndExportService;
+import com.thenormancoder.aitestgen.service.GenerationListener;
 import com.thenormancoder.aitestgen.service.JavaCodeAnalyzerService;
 import com.thenormancoder.aitestgen.service.TestGeneratorService;
 import com.thenormancoder.aitestgen.service.TestExportService;
 import com.thenormancoder.aitestgen.service.MCPTestGeneratorService;
+import com.thenormancoder.aitestgen.service.ProjectAnalysisService;
+import com.thenormancoder.aitestgen.service.SymbolResolutionService;
+import com.thenormancoder.aitestgen.service.TestArchiveService;
+import com.thenormancoder.aitestgen.service.TestCompilationService;
+import com.thenormancoder.aitestgen.service.TestExecutionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -22,27 +55,127 @@ public class TestGeneratorController {
     private final JavaCodeAnalyzerService codeAnalyzerService;
     private final TestExportService testExportService;
     private final MCPTestGeneratorService mcpTestGeneratorService;
+    private final ProjectAnalysisService projectAnalysisService;
+    private final SymbolResolutionService symbolResolutionService;
+    private final RateLimitedLlmClient llmClient;
+    private final TestCompilationService testCompilationService;
+    private final TestExecutionService testExecutionService;
+    private final GenerateAndExportService generateAndExportService;
+    private final TestArchiveService testArchiveService;
+    private final BatchGenerationService batchGenerationService;
+    private final ObjectMapper objectMapper;
 
     public TestGeneratorController(TestGeneratorService testGeneratorService, 
                                  JavaCodeAnalyzerService codeAnalyzerService,
                                  TestExportService testExportService,
-                                 MCPTestGeneratorService mcpTestGeneratorService) {
+                                 MCPTestGeneratorService mcpTestGeneratorService,
+                                 ProjectAnalysisService projectAnalysisService,
+                                 SymbolResolutionService symbolResolutionService,
+                                 RateLimitedLlmClient llmClient,
+                                 TestCompilationService testCompilationService,
+                                 TestExecutionService testExecutionService,
+                                 GenerateAndExportService generateAndExportService,
+                                 TestArchiveService testArchiveService,
+                                 BatchGenerationService batchGenerationService,
+                                 ObjectMapper objectMapper) {
         this.testGeneratorService = testGeneratorService;
         this.codeAnalyzerService = codeAnalyzerService;
         this.testExportService = testExportService;
         this.mcpTestGeneratorService = mcpTestGeneratorService;
+        this.projectAnalysisService = projectAnalysisService;
+        this.symbolResolutionService = symbolResolutionService;
+        this.llmClient = llmClient;
+        this.testCompilationService = testCompilationService;
+        this.testExecutionService = testExecutionService;
+        this.generateAndExportService = generateAndExportService;
+        this.testArchiveService = testArchiveService;
+        this.batchGenerationService = batchGenerationService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/generate")
-    public ResponseEntity<TestGenerationResponse> generateTests(@RequestBody TestGenerationRequest request) {
+    public ResponseEntity<TestGenerationResponse> generateTests(@RequestBody TestGenerationRequest request,
+                                                                @RequestParam(defaultValue = "false") boolean bypassCache,
+                                                                @RequestParam(defaultValue = "false") boolean execute) {
         try {
-            TestGenerationResponse response = testGeneratorService.generateTests(request);
-            return ResponseEntity.ok(response);
+            TestGenerationResponse response = testGeneratorService.generateTests(request, bypassCache);
+            return ResponseEntity.ok(testExecutionService.measure(response, request.sourceCode(), null, execute));
+        } catch (AnalysisLimitException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Variante in streaming di /generate (Server-Sent Events): "analysis" appena
+     * analizzato il sorgente, "testMethod" per ogni metodo prodotto dal modello, poi
+     * "execution" se il test è stato eseguito (solo con execute=true), "testClass", "suggestions" e "done" con le
+     * statistiche di generazione. Se il modello fallisce si passa al template con un evento
+     * "fallback": i "testMethod" ricevuti prima vanno scartati.
+     * Un errore durante la generazione viene inviato come evento "error".
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateTestsStream(@RequestBody TestGenerationRequest request,
+                                                                     @RequestParam(defaultValue = "false") boolean bypassCache,
+                                                                     @RequestParam(defaultValue = "false") boolean execute) {
+        if (request.sourceCode() == null || request.sourceCode().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            // Validazione anticipata: i limiti di analisi restano codici HTTP e non eventi
+            codeAnalyzerService.analyzeJavaCode(request.sourceCode());
+        } catch (AnalysisLimitException e) {
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                TestGenerationResponse generated = testGeneratorService.generateTests(request, bypassCache,
+                    new GenerationListener() {
+                        @Override
+                        public void onAnalysis(CodeAnalysisResult analysis) {
+                            writeSseEvent(outputStream, "analysis", analysis);
+                        }
+
+                        @Override
+                        public void onTestMethod(String name, String source) {
+                            writeSseEvent(outputStream, "testMethod", Map.of("name", name, "source", source));
+                        }
+
+                        @Override
+                        public void onFallback(String reason) {
+                            writeSseEvent(outputStream, "fallback", Map.of("reason", reason));
+                        }
+                    });
+                TestGenerationResponse response =
+                    testExecutionService.measure(generated, request.sourceCode(), null, execute);
+                if (response.execution() != null) {
+                    writeSseEvent(outputStream, "execution", response.execution());
+                }
+                writeSseEvent(outputStream, "testClass", Map.of(
+                    "testClassName", response.testClassName(),
+                    "generatedTestCode", response.generatedTestCode(),
+                    "testMethods", response.testMethods(),
+                    "estimatedCoverage", response.estimatedCoverage()
+                ));
+                writeSseEvent(outputStream, "suggestions", response.suggestions());
+                writeSseEvent(outputStream, "done", response.generationStats());
+            } catch (UncheckedIOException e) {
+                // Client disconnesso: non c'è più nessuno a cui inviare l'errore
+                throw e;
+            } catch (RuntimeException e) {
+                writeSseEvent(outputStream, "error", Map.of("message", String.valueOf(e.getMessage())));
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+            .body(body);
+    }
+
     @PostMapping("/analyze")
     public ResponseEntity<CodeAnalysisResult> analyzeCode(@RequestBody Map<String, String> request) {
         try {
@@ -51,8 +184,68 @@ public class TestGeneratorController {
                 return ResponseEntity.badRequest().build();
             }
             
-            CodeAnalysisResult analysis = codeAnalyzerService.analyzeJavaCode(sourceCode);
+            CodeAnalysisResult analysis = codeAnalyzerService.analyzeJavaCode(sourceCode, parseOptions(request));
             return ResponseEntity.ok(analysis);
+        } catch (AnalysisLimitException e) {
+            // Gestita da GlobalExceptionHandler con 413/429/422
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Compila in memoria "testCode" insieme a "sourceCode" (più le classi compilate di
+     * "projectPath", se indicato) e restituisce le diagnostiche del compilatore.
+     */
+    @PostMapping("/verify")
+    public ResponseEntity<CompilationReport> verifyCompilation(@RequestBody Map<String, String> request) {
+        String sourceCode = request.get("sourceCode");
+        String testCode = request.get("testCode");
+        if (sourceCode == null || sourceCode.isBlank() || testCode == null || testCode.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(testCompilationService.verify(sourceCode, testCode, request.get("projectPath")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Compila ed esegue in memoria "testCode" contro "sourceCode" e restituisce esito dei
+     * test e copertura misurata della classe sotto test.
+     */
+    @PostMapping("/execute")
+    public ResponseEntity<TestExecutionReport> executeTests(@RequestBody Map<String, String> request) {
+        String sourceCode = request.get("sourceCode");
+        String testCode = request.get("testCode");
+        if (sourceCode == null || sourceCode.isBlank() || testCode == null || testCode.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(testExecutionService.execute(sourceCode, testCode, request.get("projectPath"), true));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Come /analyze, ma risolve anche i tipi usati rispetto ai sorgenti del progetto
+     * in "projectPath" e al JDK.
+     */
+    @PostMapping("/analyze-resolved")
+    public ResponseEntity<ResolvedAnalysisResult> analyzeResolved(@RequestBody Map<String, String> request) {
+        try {
+            String sourceCode = request.get("sourceCode");
+            String projectPath = request.get("projectPath");
+            if (sourceCode == null || sourceCode.trim().isEmpty() || projectPath == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(symbolResolutionService.analyzeResolved(sourceCode, projectPath));
+        } catch (AnalysisLimitException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -67,48 +260,118 @@ public class TestGeneratorController {
         ));
     }
 
+    /**
+     * Analizza tutti i sorgenti di un progetto e restituisce un oggetto JSON per riga
+     * (NDJSON): {"file": ...} per ogni file appena analizzato, {"summary": ...} alla fine.
+     */
+    @PostMapping(value = "/analyze-project", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> analyzeProject(@RequestBody Map<String, String> request) {
+        String projectPath = request.get("projectPath");
+        if (projectPath == null || !testExportService.isValidProjectStructure(projectPath)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ParseOptions options = parseOptions(request);
+        // "incremental": "false" forza la rianalisi di tutti i file ignorando l'indice
+        boolean incremental = !"false".equalsIgnoreCase(request.get("incremental"));
+
+        StreamingResponseBody body = outputStream -> {
+            ProjectAnalysisSummary summary = projectAnalysisService.analyzeProject(projectPath, options, incremental,
+                fileAnalysis -> writeNdjsonLine(outputStream, Map.of("file", fileAnalysis)));
+            writeNdjsonLine(outputStream, Map.of("summary", summary));
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Opzioni di parsing dal body: "includeJavadoc": "false" salta l'attribuzione
+     * dei commenti, "skeleton": "true" analizza solo le firme ignorando i corpi.
+     */
+    private static ParseOptions parseOptions(Map<String, String> request) {
+        return new ParseOptions(
+            !"false".equalsIgnoreCase(request.get("includeJavadoc")),
+            "true".equalsIgnoreCase(request.get("skeleton"))
+        );
+    }
+
+    private void writeNdjsonLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeSseEvent(OutputStream outputStream, String event, Object data) {
+        try {
+            // Il JSON serializzato non contiene a capo, quindi basta una sola riga "data:"
+            outputStream.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            outputStream.write(objectMapper.writeValueAsBytes(data));
+            outputStream.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(Map.of(
+            "analysisCache", codeAnalyzerService.cacheStats(),
+            "typeSolverCache", symbolResolutionService.solverCacheStats(),
+            "projectDescriptorCache", testExportService.projectDescriptorStats(),
+            "testCache", testGeneratorService.testCacheStats(),
+            "coalescing", Map.of(
+                "analysis", codeAnalyzerService.coalescingStats(),
+                "generation", testGeneratorService.coalescingStats()
+            ),
+            "llmRateLimiter", llmClient.stats()
+        ));
+    }
+
     @PostMapping("/generate-and-export")
-    public ResponseEntity<Map<String, Object>> generateAndExportTests(@RequestBody TestExportRequest request) {
+    public ResponseEntity<Map<String, Object>> generateAndExportTests(@RequestBody TestExportRequest request,
+                                                                      @RequestParam(defaultValue = "false") boolean bypassCache,
+                                                                      @RequestParam(defaultValue = "false") boolean merge,
+                                                                      @RequestParam(defaultValue = "false") boolean execute) {
         try {
-            // Verifica se il progetto ha una struttura valida
-            if (!testExportService.isValidProjectStructure(request.projectPath())) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "error", "Invalid project structure. No pom.xml or build.gradle found."
+            GenerateAndExportService.Result result =
+                generateAndExportService.generateAndExport(request, merge, bypassCache, execute);
+            if (result.status() == GenerateAndExportService.Status.INVALID_PROJECT) {
+                return ResponseEntity.badRequest().body(Map.of("error", result.error()));
+            }
+            TestGenerationResponse response = result.response();
+            CompilationReport compilation = result.execution().compilation();
+            if (result.status() == GenerateAndExportService.Status.NOT_COMPILED) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+                    "error", result.error(),
+                    "compilation", compilation,
+                    "generatedTestCode", response.generatedTestCode()
                 ));
             }
+
+            ProjectType projectType = testExportService.detectProjectType(request.projectPath());
+
+            // Ordine dei campi stabile; put accetta anche valori null
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", "Test generated and exported successfully");
+            body.put("filePath", result.filePath());
+            body.put("exportStatus", result.exportStatus());
+            body.put("projectType", projectType);
+            body.put("testClassName", response.testClassName());
+            body.put("testMethods", response.testMethods());
+            body.put("estimatedCoverage", response.estimatedCoverage());
+            body.put("suggestions", response.suggestions());
+            body.put("compilation", compilation);
+            body.put("execution", result.execution());
+            if (merge) {
+                body.put("merge", result.merge());
+            }
+            return ResponseEntity.ok(body);
             
-            // Genera i test
-            TestGenerationRequest genRequest = new TestGenerationRequest(
-                request.sourceCode(), request.className(), request.packageName(),
-                request.testType(), request.coverageLevel()
-            );
-            
-            TestGenerationResponse response = testGeneratorService.generateTests(genRequest);
-            
-            // Esporta i test nel file system
-            testExportService.exportTestToFile(
-                response.generatedTestCode(), 
-                request.packageName(), 
-                request.className(), 
-                request.projectPath()
-            );
-            
-            String filePath = testExportService.buildTestFilePath(
-                request.packageName(), request.className(), request.projectPath()
-            ).toString();
-            
-            TestExportService.ProjectType projectType = testExportService.detectProjectType(request.projectPath());
-            
-            return ResponseEntity.ok(Map.of(
-                "message", "Test generated and exported successfully",
-                "filePath", filePath,
-                "projectType", projectType,
-                "testClassName", response.testClassName(),
-                "testMethods", response.testMethods(),
-                "estimatedCoverage", response.estimatedCoverage(),
-                "suggestions", response.suggestions()
-            ));
-            
+        } catch (AnalysisLimitException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Failed to generate and export tests: " + e.getMessage()
@@ -116,6 +379,64 @@ public class TestGeneratorController {
         }
     }
 
+    /**
+     * Scrive nel progetto più test già generati; i file con contenuto identico
+     * non vengono riscritti.
+     */
+    @PostMapping("/export-batch")
+    public ResponseEntity<TestExportResult> exportBatch(@RequestBody TestBatchExportRequest request) {
+        if (request.projectPath() == null || !testExportService.isValidProjectStructure(request.projectPath())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(testExportService.exportAll(request));
+    }
+
+    /**
+     * Genera più classi in una sola richiesta, in parallelo fino a {@code aitestgen.batch.parallelism}.
+     * Le voci con projectPath vengono anche esportate come da generate-and-export. Ogni voce
+     * ha il proprio esito: gli errori non fanno fallire le altre.
+     */
+    @PostMapping("/generate-batch")
+    public ResponseEntity<BatchGenerationResponse> generateBatch(@RequestBody BatchGenerationRequest request,
+                                                                 @RequestParam(defaultValue = "false") boolean bypassCache,
+                                                                 @RequestParam(defaultValue = "false") boolean merge,
+                                                                 @RequestParam(defaultValue = "false") boolean execute) {
+        if (request.items() == null || request.items().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(batchGenerationService.generateAll(request.items(), merge, bypassCache, execute));
+    }
+
+    /**
+     * Genera i test di più classi e li restituisce come archivio zip o tar.gz, con la stessa
+     * struttura di cartelle dell'esportazione. Il body è un array JSON di richieste di
+     * generazione, letto un elemento alla volta; ogni test finisce nell'archivio appena
+     * generato, così la memoria usata non dipende dal numero di classi.
+     */
+    @PostMapping(value = "/generate-archive", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateArchive(InputStream requestBody,
+                                                                 @RequestParam(defaultValue = "zip") String format,
+                                                                 @RequestParam(required = false) String projectPath,
+                                                                 @RequestParam(defaultValue = "false") boolean bypassCache) {
+        ArchiveFormat archiveFormat;
+        try {
+            archiveFormat = ArchiveFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (MappingIterator<TestGenerationRequest> classes =
+                     objectMapper.readerFor(TestGenerationRequest.class).readValues(requestBody)) {
+                testArchiveService.writeSuite(classes, archiveFormat, projectPath, bypassCache, outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(archiveFormat.contentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"generated-tests." + archiveFormat.extension() + "\"")
+            .body(body);
+    }
+
     @GetMapping("/templates")
     public ResponseEntity<Map<String, Object>> getTestTemplates() {
         return ResponseEntity.ok(Map.of(
@@ -142,10 +463,13 @@ public class TestGeneratorController {
     // ==================== MCP ENDPOINTS ====================
 
     @PostMapping("/mcp/generate")
-    public ResponseEntity<TestGenerationResponse> generateTestsWithMCP(@RequestBody TestGenerationRequest request) {
+    public ResponseEntity<TestGenerationResponse> generateTestsWithMCP(@RequestBody TestGenerationRequest request,
+                                                                       @RequestParam(defaultValue = "false") boolean execute) {
         try {
             TestGenerationResponse response = mcpTestGeneratorService.generateTestsWithMCP(request);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(testExecutionService.measure(response, request.sourceCode(), null, execute));
+        } catch (AnalysisLimitException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -0,0 +1,11 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Più classi da generare in una sola richiesta. Le voci con {@code projectPath} vengono
+ * anche esportate come da generate-and-export, le altre solo generate come da generate.
+ */
+public record BatchGenerationRequest(
+    List<TestExportRequest> items
+) {}
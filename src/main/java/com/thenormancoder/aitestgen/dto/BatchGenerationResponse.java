@@ -0,0 +1,45 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Esito di una generazione a lotti, voce per voce nell'ordine della richiesta.
+ *
+ * @param succeeded     voci generate (ed esportate, se richiesto)
+ * @param failed        voci non riuscite, ciascuna con il proprio errore
+ * @param elapsedMillis durata complessiva
+ */
+public record BatchGenerationResponse(
+    List<ItemResult> items,
+    int succeeded,
+    int failed,
+    long elapsedMillis
+) {
+    public BatchGenerationResponse {
+        items = List.copyOf(items);
+    }
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED
+    }
+
+    /**
+     * @param index        posizione della voce nella richiesta
+     * @param response     test generato; presente anche quando non compila e non viene esportato
+     * @param filePath     file del test, solo per le voci con projectPath
+     * @param exportStatus esito della scrittura; null se la voce non è stata esportata
+     * @param merge        esito dell'unione, solo con merge=true
+     * @param error        motivo del fallimento; null se riuscita
+     */
+    public record ItemResult(
+        int index,
+        String className,
+        Status status,
+        TestGenerationResponse response,
+        String filePath,
+        TestExportResult.Status exportStatus,
+        TestMergeReport merge,
+        String error
+    ) {}
+}
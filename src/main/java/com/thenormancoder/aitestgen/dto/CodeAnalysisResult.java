@@ -2,6 +2,12 @@ package com.thenormancoder.aitestgen.dto;
 
 import java.util.List;
 
+/**
+ * Risultato immutabile dell'analisi: le liste vengono copiate in costruzione
+ * così un'istanza può essere condivisa (ad esempio dalla cache) tra richieste.
+ *
+ * @param isAbstract true per le classi dichiarate {@code abstract}, che non si possono istanziare
+ */
 public record CodeAnalysisResult(
     String className,
     String packageName,
@@ -9,15 +15,71 @@ public record CodeAnalysisResult(
     List<FieldInfo> fields,
     List<String> imports,
     boolean hasConstructors,
-    String classType
+    String classType,
+    List<ConstructorInfo> constructors,
+    boolean isAbstract
 ) {
+    public CodeAnalysisResult {
+        methods = List.copyOf(methods);
+        fields = List.copyOf(fields);
+        imports = List.copyOf(imports);
+        constructors = List.copyOf(constructors);
+    }
+
+    /**
+     * @param metrics metriche del corpo; null se il corpo non è stato analizzato (metodi
+     *                astratti o nativi, analisi in modalità scheletro)
+     */
     public record MethodInfo(
         String name,
         String returnType,
         List<ParameterInfo> parameters,
         boolean isPublic,
         boolean isStatic,
-        String javadoc
+        String javadoc,
+        MethodMetrics metrics
+    ) {
+        public MethodInfo {
+            parameters = List.copyOf(parameters);
+        }
+    }
+
+    /**
+     * Metriche del corpo di un metodo, calcolate nello stesso attraversamento dell'AST.
+     *
+     * @param cyclomaticComplexity 1 + punti di decisione (if, cicli, case, catch, ?:, &amp;&amp;, ||):
+     *                             il numero di cammini indipendenti da esercitare
+     * @param branches             esiti delle decisioni, contati come fa JaCoCo (due per
+     *                             condizione, uno per case più il default)
+     * @param throwSites           throw raggiungibili dal corpo (escluse classi locali e anonime)
+     * @param testPriority         complessità più throw: più è alta, più il metodo va testato per primo
+     */
+    public record MethodMetrics(
+        int cyclomaticComplexity,
+        int branches,
+        List<ThrowSite> throwSites,
+        int testPriority
+    ) {
+        public MethodMetrics {
+            throwSites = List.copyOf(throwSites);
+        }
+
+        public static MethodMetrics of(int cyclomaticComplexity, int branches, List<ThrowSite> throwSites) {
+            return new MethodMetrics(cyclomaticComplexity, branches, throwSites,
+                cyclomaticComplexity + throwSites.size());
+        }
+    }
+
+    /**
+     * @param exceptionType nome semplice del tipo lanciato, o l'espressione se non è un {@code new}
+     * @param line          riga del throw
+     * @param condition     condizione dell'if che porta al throw ({@code !(...)} nel ramo else);
+     *                      null se il throw non è sotto un if del metodo
+     */
+    public record ThrowSite(
+        String exceptionType,
+        int line,
+        String condition
     ) {}
     
     public record ParameterInfo(
@@ -32,4 +94,16 @@ public record CodeAnalysisResult(
         boolean isStatic,
         boolean isFinal
     ) {}
-}
\ No newline at end of file
+
+    /**
+     * Costruttore dichiarato; per i record anche quello canonico implicito.
+     */
+    public record ConstructorInfo(
+        List<ParameterInfo> parameters,
+        boolean isPrivate
+    ) {
+        public ConstructorInfo {
+            parameters = List.copyOf(parameters);
+        }
+    }
+}
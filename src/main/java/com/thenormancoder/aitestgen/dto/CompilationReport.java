@@ -0,0 +1,47 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Esito della compilazione del test generato insieme alla classe sotto test.
+ *
+ * @param status        esito complessivo
+ * @param diagnostics   errori e avvisi del compilatore (al più {@code maxDiagnostics})
+ * @param compileMillis durata della compilazione
+ */
+public record CompilationReport(
+    Status status,
+    List<CompilationDiagnostic> diagnostics,
+    long compileMillis
+) {
+    public CompilationReport {
+        diagnostics = List.copyOf(diagnostics);
+    }
+
+    public enum Status {
+        /** Compila senza errori */
+        PASSED,
+        /** Errori nel test mentre la classe sotto test compila: il test è da correggere */
+        FAILED,
+        /** Errori anche nella classe sotto test, tipicamente dipendenze assenti dal classpath */
+        INCONCLUSIVE,
+        /** Verifica disabilitata o compilatore non disponibile (runtime senza JDK) */
+        SKIPPED
+    }
+
+    /**
+     * @param kind   ERROR, WARNING, ...
+     * @param origin {@code TEST} se nel test generato, {@code SOURCE} se nella classe sotto test
+     */
+    public record CompilationDiagnostic(
+        String kind,
+        String origin,
+        long line,
+        long column,
+        String message
+    ) {}
+
+    public static CompilationReport skipped() {
+        return new CompilationReport(Status.SKIPPED, List.of(), 0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Analisi di un intero file sorgente: tutti i tipi dichiarati (top-level e
+ * annidati, in ordine di dichiarazione). I tipi annidati hanno nome qualificato
+ * rispetto al file, ad esempio {@code Outer.Inner}.
+ *
+ * @param primaryTypeName tipo principale del file: il primo tipo top-level
+ *                        pubblico, altrimenti il primo tipo top-level
+ */
+public record CompilationUnitAnalysis(
+    String packageName,
+    List<String> imports,
+    List<CodeAnalysisResult> types,
+    String primaryTypeName
+) {
+    public CompilationUnitAnalysis {
+        imports = List.copyOf(imports);
+        types = List.copyOf(types);
+    }
+
+    public Optional<CodeAnalysisResult> primaryType() {
+        for (CodeAnalysisResult type : types) {
+            if (type.className().equals(primaryTypeName)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,42 @@
+package com.thenormancoder.aitestgen.dto;
+
+/**
+ * Come è stato generato un test.
+ *
+ * @param engine           {@code LLM}, {@code TEMPLATE} oppure {@code NONE} se i test esistenti
+ *                         erano già aggiornati e non è stato generato nulla
+ * @param model            modello usato; null per il template
+ * @param promptTokens     token del prompt riportati dal provider (stimati se non disponibili)
+ * @param completionTokens token della risposta; -1 se il provider non li riporta
+ * @param latencyMillis    durata della chiamata al modello (o della generazione da template)
+ * @param contextMode      quanto contesto è entrato nel budget del prompt
+ * @param compressionRatio token stimati del sorgente completo diviso token del contesto
+ *                         inviato al suo posto (per tutte le chiamate); 0 per il template
+ * @param fallbackReason   perché si è ripiegato sul template; null altrimenti
+ * @param cached           true se la risposta proviene dalla cache dei test generati
+ *                         (le altre statistiche sono quelle della generazione originale)
+ */
+public record GenerationStats(
+    String engine,
+    String model,
+    long promptTokens,
+    long completionTokens,
+    long latencyMillis,
+    String contextMode,
+    double compressionRatio,
+    String fallbackReason,
+    boolean cached
+) {
+    public static GenerationStats template(long latencyMillis, String fallbackReason) {
+        return new GenerationStats("TEMPLATE", null, 0, 0, latencyMillis, null, 0, fallbackReason, false);
+    }
+
+    public static GenerationStats none(long latencyMillis) {
+        return new GenerationStats("NONE", null, 0, 0, latencyMillis, null, 0, null, false);
+    }
+
+    public GenerationStats asCached() {
+        return new GenerationStats(engine, model, promptTokens, completionTokens, latencyMillis, contextMode,
+            compressionRatio, fallbackReason, true);
+    }
+}
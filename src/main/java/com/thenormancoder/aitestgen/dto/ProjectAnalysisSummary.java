@@ -0,0 +1,14 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+public record ProjectAnalysisSummary(
+    String projectPath,
+    int totalFiles,
+    int analyzedFiles,
+    int reusedFiles,
+    int failedFiles,
+    long elapsedMillis,
+    double filesPerSecond,
+    List<String> failures
+) {}
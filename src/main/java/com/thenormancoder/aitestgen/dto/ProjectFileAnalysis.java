@@ -0,0 +1,18 @@
+package com.thenormancoder.aitestgen.dto;
+
+/**
+ * Esito dell'analisi di un singolo file durante la scansione di un progetto:
+ * {@code analysis} è valorizzato in caso di successo, {@code error} altrimenti.
+ * {@code cached} indica che il risultato proviene dall'indice del progetto.
+ */
+public record ProjectFileAnalysis(
+    String path,
+    CompilationUnitAnalysis analysis,
+    String error,
+    long parseMillis,
+    boolean cached
+) {
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
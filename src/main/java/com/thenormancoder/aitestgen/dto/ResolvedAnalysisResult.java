@@ -0,0 +1,23 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Analisi del tipo principale arricchita con la risoluzione dei tipi usati da
+ * campi, parametri e valori di ritorno, indicizzata per tipo come scritto nel sorgente.
+ *
+ * @param solverReused     true se il type solver del progetto era già in cache
+ * @param resolutionMillis tempo speso nella risoluzione (esclusa l'analisi)
+ */
+public record ResolvedAnalysisResult(
+    CodeAnalysisResult analysis,
+    Map<String, TypeResolution> types,
+    boolean solverReused,
+    long resolutionMillis
+) {
+    public ResolvedAnalysisResult {
+        types = Collections.unmodifiableMap(new LinkedHashMap<>(types));
+    }
+}
@@ -0,0 +1,24 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Più test da esportare nello stesso progetto con una sola chiamata.
+ */
+public record TestBatchExportRequest(
+    String projectPath,
+    List<TestFile> files
+) {
+    public TestBatchExportRequest {
+        files = files == null ? List.of() : List.copyOf(files);
+    }
+
+    /**
+     * @param className classe sotto test; il file è {@code <className>Test.java}
+     */
+    public record TestFile(
+        String packageName,
+        String className,
+        String testCode
+    ) {}
+}
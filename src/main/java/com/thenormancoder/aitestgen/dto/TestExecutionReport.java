@@ -0,0 +1,76 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Esito dell'esecuzione del test generato, con la copertura misurata sulla classe sotto test.
+ *
+ * @param status          esito complessivo
+ * @param compilation     esito della compilazione che precede l'esecuzione
+ * @param testsFound      test individuati dal launcher
+ * @param testsSucceeded  test superati
+ * @param testsFailed     test falliti (asserzioni o eccezioni)
+ * @param testsSkipped    test disabilitati o interrotti da un'assunzione
+ * @param failures        dettaglio dei fallimenti (al più {@code maxFailures}); per
+ *                        {@code REJECTED} le chiamate non consentite
+ * @param lineCoverage    percentuale di righe eseguite; 0 se il test non è stato eseguito
+ * @param branchCoverage  percentuale di rami eseguiti; 0 anche senza rami
+ * @param coveredLines    righe eseguite
+ * @param totalLines      righe con codice eseguibile
+ * @param coveredBranches rami eseguiti
+ * @param totalBranches   rami totali
+ * @param executionMillis durata dell'esecuzione, strumentazione inclusa
+ */
+public record TestExecutionReport(
+    Status status,
+    CompilationReport compilation,
+    long testsFound,
+    long testsSucceeded,
+    long testsFailed,
+    long testsSkipped,
+    List<TestFailure> failures,
+    double lineCoverage,
+    double branchCoverage,
+    int coveredLines,
+    int totalLines,
+    int coveredBranches,
+    int totalBranches,
+    long executionMillis
+) {
+    public TestExecutionReport {
+        failures = List.copyOf(failures);
+    }
+
+    public enum Status {
+        /** Tutti i test superati */
+        PASSED,
+        /** Almeno un test fallito; la copertura è comunque misurata */
+        FAILED,
+        /** Il test non compila (o non compila la classe sotto test): niente da eseguire */
+        NOT_COMPILED,
+        /** Il test usa API non consentite durante l'esecuzione (processi, rete, uscita dalla JVM) */
+        REJECTED,
+        /** Esecuzione interrotta allo scadere del timeout; il fallimento dice se il thread è stato abbandonato */
+        TIMED_OUT,
+        /** Esecuzione disabilitata o non richiesta, compilatore non disponibile, esecutori occupati o sospesi */
+        SKIPPED
+    }
+
+    /**
+     * @param test    nome visualizzato del test (o della classe per {@code REJECTED})
+     * @param message messaggio dell'eccezione
+     */
+    public record TestFailure(String test, String message) {}
+
+    /**
+     * true se il test è stato eseguito e la copertura misurata.
+     */
+    public boolean measured() {
+        return status == Status.PASSED || status == Status.FAILED;
+    }
+
+    public static TestExecutionReport notRun(Status status, CompilationReport compilation,
+                                             List<TestFailure> failures) {
+        return new TestExecutionReport(status, compilation, 0, 0, 0, 0, failures, 0, 0, 0, 0, 0, 0, 0);
+    }
+}
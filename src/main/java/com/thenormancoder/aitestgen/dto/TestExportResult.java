@@ -0,0 +1,41 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Esito di un'esportazione a lotti, file per file nell'ordine della richiesta.
+ *
+ * @param written       file creati o aggiornati
+ * @param unchanged     file saltati perché il contenuto era già identico
+ * @param failed        file non scritti
+ * @param elapsedMillis durata complessiva
+ */
+public record TestExportResult(
+    List<ExportedFile> files,
+    int written,
+    int unchanged,
+    int failed,
+    long elapsedMillis
+) {
+    public TestExportResult {
+        files = List.copyOf(files);
+    }
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        /** Contenuto identico: il file non è stato toccato */
+        UNCHANGED,
+        FAILED
+    }
+
+    /**
+     * @param error motivo del fallimento; null se scritto o saltato
+     */
+    public record ExportedFile(
+        String className,
+        String filePath,
+        Status status,
+        String error
+    ) {}
+}
@@ -9,5 +9,17 @@ public record TestGenerationResponse(
     String testClassName,
     double estimatedCoverage,
     LocalDateTime generatedAt,
-    List<String> suggestions
-) {}
\ No newline at end of file
+    List<String> suggestions,
+    GenerationStats generationStats,
+    // Esecuzione del test con copertura misurata; null se non eseguito
+    TestExecutionReport execution
+) {
+    /**
+     * Copia con l'esito dell'esecuzione; se la copertura è stata misurata sostituisce la stima.
+     */
+    public TestGenerationResponse withExecution(TestExecutionReport execution) {
+        double coverage = execution.measured() ? execution.lineCoverage() : estimatedCoverage;
+        return new TestGenerationResponse(generatedTestCode, testMethods, testClassName, coverage, generatedAt,
+            suggestions, generationStats, execution);
+    }
+}
@@ -0,0 +1,26 @@
+package com.thenormancoder.aitestgen.dto;
+
+import java.util.List;
+
+/**
+ * Esito dell'unione dei test generati con la classe di test esistente.
+ *
+ * @param existingFile       false se non c'era un test da unire
+ * @param regeneratedMethods metodi sotto test nuovi o cambiati, i soli per cui sono stati generati test
+ * @param addedTests         test aggiunti
+ * @param removedTests       test generati in precedenza per metodi cambiati o rimossi
+ * @param preservedTests     test scritti o modificati a mano, lasciati com'erano
+ */
+public record TestMergeReport(
+    boolean existingFile,
+    List<String> regeneratedMethods,
+    List<String> addedTests,
+    List<String> removedTests,
+    int preservedTests
+) {
+    public TestMergeReport {
+        regeneratedMethods = List.copyOf(regeneratedMethods);
+        addedTests = List.copyOf(addedTests);
+        removedTests = List.copyOf(removedTests);
+    }
+}
@@ -0,0 +1,30 @@
+package com.thenormancoder.aitestgen.dto;
+
+/**
+ * Risoluzione di un tipo così come compare nel sorgente (campo, parametro o ritorno).
+ *
+ * @param type          tipo come scritto nel sorgente, ad esempio {@code List<Order>}
+ * @param qualifiedName nome qualificato del tipo risolto (per gli array del tipo
+ *                      componente); null se non risolto
+ * @param origin        provenienza del tipo
+ */
+public record TypeResolution(
+    String type,
+    String qualifiedName,
+    Origin origin
+) {
+    public enum Origin {
+        PRIMITIVE,
+        JDK,
+        PROJECT,
+        TYPE_VARIABLE,
+        UNRESOLVED
+    }
+
+    /**
+     * I tipi di progetto sono i candidati naturali per i mock nei test generati.
+     */
+    public boolean isProjectType() {
+        return origin == Origin.PROJECT;
+    }
+}
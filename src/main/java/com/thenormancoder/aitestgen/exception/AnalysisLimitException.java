@@ -0,0 +1,12 @@
+package com.thenormancoder.aitestgen.exception;
+
+/**
+ * Richiesta di analisi rifiutata dal controllo di ammissione. Non è un errore del
+ * sorgente: i controller la lasciano passare fino a {@link GlobalExceptionHandler}.
+ */
+public abstract class AnalysisLimitException extends RuntimeException {
+
+    protected AnalysisLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.thenormancoder.aitestgen.exception;
+
+public class AnalysisOverloadedException extends AnalysisLimitException {
+
+    public AnalysisOverloadedException() {
+        super("Too many concurrent analyses, retry later");
+    }
+}
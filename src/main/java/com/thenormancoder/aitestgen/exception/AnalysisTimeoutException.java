@@ -0,0 +1,10 @@
+package com.thenormancoder.aitestgen.exception;
+
+import java.time.Duration;
+
+public class AnalysisTimeoutException extends AnalysisLimitException {
+
+    public AnalysisTimeoutException(Duration timeout) {
+        super("Parsing exceeded the deadline of " + timeout.toMillis() + " ms");
+    }
+}
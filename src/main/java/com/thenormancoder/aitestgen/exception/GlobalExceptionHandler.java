@@ -1,5 +1,6 @@
 package com.thenormancoder.aitestgen.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,6 +22,38 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(SourceTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handleSourceTooLargeException(SourceTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+            "error", "Source code too large",
+            "message", e.getMessage(),
+            "timestamp", LocalDateTime.now(),
+            "status", HttpStatus.PAYLOAD_TOO_LARGE.value()
+        ));
+    }
+
+    @ExceptionHandler(AnalysisOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleAnalysisOverloadedException(AnalysisOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of(
+                "error", "Too many requests",
+                "message", e.getMessage(),
+                "timestamp", LocalDateTime.now(),
+                "status", HttpStatus.TOO_MANY_REQUESTS.value()
+            ));
+    }
+
+    @ExceptionHandler(AnalysisTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleAnalysisTimeoutException(AnalysisTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+            "error", "Analysis timed out",
+            "message", e.getMessage(),
+            "timestamp", LocalDateTime.now(),
+            "status", HttpStatus.UNPROCESSABLE_ENTITY.value()
+        ));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
@@ -0,0 +1,8 @@
+package com.thenormancoder.aitestgen.exception;
+
+public class SourceTooLargeException extends AnalysisLimitException {
+
+    public SourceTooLargeException(int length, int maxLength) {
+        super("Source code too large: " + length + " characters (max " + maxLength + ")");
+    }
+}
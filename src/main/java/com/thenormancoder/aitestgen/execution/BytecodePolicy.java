@@ -0,0 +1,188 @@
+package com.thenormancoder.aitestgen.execution;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Controllo del bytecode prima di eseguirlo nel processo del server: rifiuta le chiamate
+ * che avviano processi o thread, aprono connessioni, leggono, scrivono o cancellano file
+ * (comprese le risorse del classpath), leggono l'ambiente o le proprietà di sistema,
+ * modificano lo stato globale della JVM o aggirano i controlli di accesso.
+ * Vale per tutte le classi compilate, test e classe sotto test, perché entrambe arrivano
+ * dal chiamante.
+ *
+ * È una lista di divieti e non un isolamento del processo: chiamate indirette (per esempio
+ * attraverso una sottoclasse di Thread o una libreria del classpath) non vengono viste.
+ * Per questo l'esecuzione è disabilitata per default.
+ */
+final class BytecodePolicy {
+
+    private static final Set<String> DENIED_OWNERS = Set.of(
+        "java/lang/Runtime",
+        "java/lang/ProcessBuilder",
+        "java/lang/ProcessHandle",
+        "java/lang/ClassLoader",
+        "java/lang/ThreadGroup",
+        "java/util/Timer",
+        "java/util/concurrent/Executors",
+        "java/util/concurrent/ForkJoinPool",
+        "java/util/concurrent/ThreadPoolExecutor",
+        "java/util/concurrent/ScheduledThreadPoolExecutor",
+        "java/io/File",
+        "java/io/FileDescriptor",
+        "java/io/FileInputStream",
+        "java/io/FileReader",
+        "java/io/FileOutputStream",
+        "java/io/FileWriter",
+        "java/io/RandomAccessFile",
+        "java/io/Console",
+        "java/io/ObjectInputStream",
+        "java/lang/Module",
+        "java/lang/ModuleLayer",
+        "java/nio/file/Files",
+        "java/nio/file/FileSystem",
+        "java/nio/file/FileSystems",
+        "sun/misc/Unsafe"
+    );
+
+    private static final List<String> DENIED_PACKAGES = List.of(
+        "java/net/",
+        "java/nio/channels/",
+        "java/nio/file/spi/",
+        "java/lang/invoke/",
+        "java/lang/instrument/",
+        "java/rmi/",
+        "javax/naming/",
+        "javax/script/",
+        "jdk/internal/"
+    );
+
+    // Anche la riflessione, che altrimenti raggiungerebbe per nome le classi negate
+    private static final Set<String> DENIED_METHODS = Set.of(
+        "java/lang/System.exit",
+        "java/lang/System.getenv",
+        "java/lang/System.getProperty",
+        "java/lang/System.getProperties",
+        "java/lang/System.console",
+        "java/lang/Integer.getInteger",
+        "java/lang/Long.getLong",
+        "java/lang/Boolean.getBoolean",
+        "java/lang/System.setProperty",
+        "java/lang/System.setProperties",
+        "java/lang/System.clearProperty",
+        "java/lang/System.setIn",
+        "java/lang/System.setOut",
+        "java/lang/System.setErr",
+        "java/lang/System.setSecurityManager",
+        "java/lang/System.load",
+        "java/lang/System.loadLibrary",
+        "java/lang/Thread.start",
+        "java/lang/Thread.startVirtualThread",
+        "java/lang/Thread.ofPlatform",
+        "java/lang/Thread.ofVirtual",
+        "java/lang/Thread.setDefaultUncaughtExceptionHandler",
+        "java/util/concurrent/CompletableFuture.runAsync",
+        "java/util/concurrent/CompletableFuture.supplyAsync",
+        "java/io/File.delete",
+        "java/io/File.deleteOnExit",
+        "java/io/File.renameTo",
+        "java/io/File.mkdir",
+        "java/io/File.mkdirs",
+        "java/io/File.createNewFile",
+        "java/io/File.createTempFile",
+        "java/io/File.setReadable",
+        "java/io/File.setWritable",
+        "java/io/File.setExecutable",
+        "java/io/File.setLastModified",
+        "java/nio/file/Path.toFile",
+        "java/lang/Class.getResource",
+        "java/lang/Class.getResourceAsStream",
+        "java/lang/Class.forName",
+        "java/lang/reflect/Method.invoke",
+        "java/lang/reflect/AccessibleObject.setAccessible",
+        "java/lang/reflect/Method.setAccessible",
+        "java/lang/reflect/Field.setAccessible",
+        "java/lang/reflect/Constructor.setAccessible"
+    );
+
+    // Costruttori che aprono un file indicato per nome, come File o come Path
+    private static final Set<String> DENIED_FILE_CONSTRUCTORS = Set.of(
+        "java/io/PrintStream",
+        "java/io/PrintWriter",
+        "java/util/Formatter",
+        "java/util/Scanner"
+    );
+
+    private BytecodePolicy() {
+    }
+
+    /**
+     * @return le chiamate non consentite ({@code proprietario.metodo}), vuoto se nessuna
+     */
+    static Set<String> violations(byte[] classBytes) {
+        Set<String> violations = new TreeSet<>();
+        new ClassReader(classBytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String method, String methodDescriptor,
+                                                boolean isInterface) {
+                        check(owner, method, violations);
+                        if (method.equals("<init>") && DENIED_FILE_CONSTRUCTORS.contains(owner)
+                            && opensFile(owner, methodDescriptor)) {
+                            violations.add(owner.replace('/', '.') + ".<init>");
+                        }
+                    }
+
+                    @Override
+                    public void visitInvokeDynamicInsn(String method, String methodDescriptor, Handle bootstrap,
+                                                       Object... arguments) {
+                        // Riferimenti a metodo (Runtime::exit) passati alla lambda factory
+                        for (Object argument : arguments) {
+                            if (argument instanceof Handle handle) {
+                                check(handle.getOwner(), handle.getName(), violations);
+                            }
+                        }
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return violations;
+    }
+
+    /**
+     * Scanner(String) legge il testo stesso, gli altri costruttori con una String aprono il file.
+     */
+    private static boolean opensFile(String owner, String descriptor) {
+        boolean path = descriptor.startsWith("(Ljava/io/File;") || descriptor.startsWith("(Ljava/nio/file/Path;");
+        boolean name = descriptor.startsWith("(Ljava/lang/String;") && !owner.equals("java/util/Scanner");
+        return path || name;
+    }
+
+    private static void check(String owner, String method, Set<String> violations) {
+        String call = owner + "." + method;
+        if (DENIED_METHODS.contains(call)) {
+            violations.add(call.replace('/', '.'));
+            return;
+        }
+        if (DENIED_OWNERS.contains(owner)) {
+            violations.add(call.replace('/', '.'));
+            return;
+        }
+        for (String denied : DENIED_PACKAGES) {
+            if (owner.startsWith(denied)) {
+                violations.add(call.replace('/', '.'));
+                return;
+            }
+        }
+    }
+}
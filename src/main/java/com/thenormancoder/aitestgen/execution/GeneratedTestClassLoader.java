@@ -0,0 +1,58 @@
+package com.thenormancoder.aitestgen.execution;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class loader di una singola esecuzione: definisce le classi compilate in memoria (la
+ * classe sotto test già strumentata) prima di delegare al padre, così una classe con lo
+ * stesso nome nell'applicazione non le nasconde. Le librerie di test arrivano dal padre,
+ * condiviso e già caldo; le classi del progetto dalle voci di {@code classpath}.
+ */
+final class GeneratedTestClassLoader extends URLClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+
+    GeneratedTestClassLoader(Map<String, byte[]> classes, List<Path> classpath, ClassLoader parent) {
+        super("generated-test", urls(classpath), parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!classes.containsKey(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> type = findLoadedClass(name);
+            if (type == null) {
+                byte[] bytes = classes.get(name);
+                type = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(type);
+            }
+            return type;
+        }
+    }
+
+    private static URL[] urls(List<Path> classpath) {
+        return classpath.stream()
+            .map(entry -> {
+                try {
+                    return entry.toUri().toURL();
+                } catch (MalformedURLException e) {
+                    throw new IllegalArgumentException("Invalid classpath entry: " + entry, e);
+                }
+            })
+            .toArray(URL[]::new);
+    }
+}
@@ -0,0 +1,301 @@
+package com.thenormancoder.aitestgen.execution;
+
+import com.thenormancoder.aitestgen.config.TestExecutionProperties;
+import jakarta.annotation.PreDestroy;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Esegue nel processo del server i test compilati in memoria con il JUnit Platform Launcher e misura
+ * la copertura con JaCoCo, strumentando il bytecode della classe sotto test al caricamento.
+ *
+ * Launcher e runtime di copertura sono costosi da creare (scansione dei motori, agganci
+ * del runtime) e restano in un pool; ogni esecuzione ha invece un proprio class loader,
+ * leggero perché contiene solo le classi generate: JUnit, AssertJ e Mockito vengono dal
+ * class loader dell'applicazione, già caricati e compilati dal JIT dopo la prima esecuzione.
+ *
+ * Il codice eseguito ha gli stessi permessi del server: il class loader separa i nomi delle
+ * classi, non le risorse. Le classi passano prima da {@link BytecodePolicy}.
+ */
+@Component
+public class TestRunner {
+
+    /**
+     * @param violations    chiamate non consentite trovate nelle classi; se presenti non è stato eseguito nulla
+     * @param timedOut      true se l'esecuzione è stata interrotta allo scadere del timeout
+     * @param abandoned     true se dopo il timeout il thread del test non si è fermato ed è
+     *                      stato abbandonato: continua a girare finché il test non termina
+     * @param summary       conteggi e fallimenti del launcher; null se non eseguito o interrotto
+     */
+    public record Result(Set<String> violations, boolean timedOut, boolean abandoned, TestExecutionSummary summary,
+                         Coverage coverage, long executionMillis) {}
+
+    public record Coverage(int coveredLines, int totalLines, int coveredBranches, int totalBranches) {
+        static final Coverage NONE = new Coverage(0, 0, 0, 0);
+    }
+
+    // Attesa dopo l'interruzione prima di considerare abbandonato il thread del test
+    private static final long STOP_GRACE_MILLIS = 200;
+
+    private final TestExecutionProperties properties;
+    private final BlockingQueue<Slot> slots;
+    private final ExecutorService executor;
+    private final AtomicInteger abandoned = new AtomicInteger();
+    private volatile boolean filled;
+
+    public TestRunner(TestExecutionProperties properties) {
+        this.properties = properties;
+        this.slots = new ArrayBlockingQueue<>(Math.max(1, properties.runners()));
+        AtomicInteger threadCount = new AtomicInteger();
+        // Un thread per esecutore più quelli che possono restare bloccati da test abbandonati
+        // prima che l'esecuzione venga sospesa
+        int threads = Math.max(1, properties.runners()) + maxAbandoned();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "test-execution-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Esegue la classe di test {@code testClass}.
+     *
+     * @param classes        classi compilate per nome binario, test compreso
+     * @param testClass      nome della classe di test; le sue classi annidate non sono strumentate
+     * @param extraClasspath classi del progetto visibili ai test
+     * @throws TestRunnerUnavailableException se non c'è un esecutore libero o l'esecuzione è sospesa
+     */
+    public Result run(Map<String, byte[]> classes, String testClass, List<Path> extraClasspath) {
+        if (abandoned.get() >= maxAbandoned()) {
+            throw new TestRunnerUnavailableException("Test execution suspended: " + abandoned.get()
+                + " timed out tests did not stop and are still running");
+        }
+        long start = System.nanoTime();
+        Set<String> violations = new TreeSet<>();
+        for (byte[] bytes : classes.values()) {
+            violations.addAll(BytecodePolicy.violations(bytes));
+        }
+        if (!violations.isEmpty()) {
+            return new Result(violations, false, false, null, Coverage.NONE, millisSince(start));
+        }
+        List<Path> classpath = new ArrayList<>();
+        for (Path entry : extraClasspath) {
+            if (Files.exists(entry)) {
+                classpath.add(entry);
+            }
+        }
+
+        Slot slot = acquire();
+        boolean reusable = true;
+        try {
+            RuntimeData data = new RuntimeData();
+            slot.runtime.startup(data);
+            try {
+                AtomicBoolean started = new AtomicBoolean();
+                CountDownLatch finished = new CountDownLatch(1);
+                // Lo imposta per primo chi arriva prima tra la fine del test e il suo abbandono
+                AtomicBoolean settled = new AtomicBoolean();
+                Future<TestExecutionSummary> execution = executor.submit(() -> {
+                    started.set(true);
+                    try {
+                        return slot.execute(instrument(slot, classes, testClass), testClass, classpath);
+                    } finally {
+                        finished.countDown();
+                        if (!settled.compareAndSet(false, true)) {
+                            // Un test abbandonato alla fine si è fermato: il suo thread torna libero
+                            abandoned.decrementAndGet();
+                        }
+                    }
+                });
+                TestExecutionSummary summary;
+                try {
+                    summary = execution.get(properties.timeout().toMillis(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // L'interruzione ferma solo il codice che la controlla: un ciclo che la ignora
+                    // tiene occupati thread e runtime, che non torna nel pool
+                    execution.cancel(true);
+                    reusable = false;
+                    boolean stopped = finished.await(STOP_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+                    // Un test mai partito non parte più dopo cancel
+                    boolean leaked = started.get() && !stopped && settled.compareAndSet(false, true);
+                    if (leaked) {
+                        abandoned.incrementAndGet();
+                    }
+                    return new Result(Set.of(), true, leaked, null, Coverage.NONE, millisSince(start));
+                }
+                return new Result(Set.of(), false, false, summary, coverage(data, classes, testClass),
+                    millisSince(start));
+            } finally {
+                slot.runtime.shutdown();
+            }
+        } catch (ExecutionException e) {
+            reusable = false;
+            throw new IllegalStateException("Test execution failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the generated test", e);
+        } catch (Exception e) {
+            reusable = false;
+            throw e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+        } finally {
+            release(slot, reusable);
+        }
+    }
+
+    /**
+     * @return test scaduti che non si sono ancora fermati
+     */
+    public int abandonedRuns() {
+        return abandoned.get();
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+        slots.clear();
+    }
+
+    private static boolean isTestClass(String className, String testClass) {
+        return className.equals(testClass) || className.startsWith(testClass + "$");
+    }
+
+    /**
+     * Classi da caricare: quelle sotto test strumentate, il test così com'è.
+     */
+    private static Map<String, byte[]> instrument(Slot slot, Map<String, byte[]> classes, String testClass)
+        throws IOException {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            loaded.put(entry.getKey(), isTestClass(entry.getKey(), testClass)
+                ? entry.getValue()
+                : slot.instrumenter.instrument(entry.getValue(), entry.getKey()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Copertura delle classi sotto test, analizzando il bytecode originale rispetto
+     * alle sonde raccolte durante l'esecuzione.
+     */
+    private static Coverage coverage(RuntimeData data, Map<String, byte[]> classes, String testClass)
+        throws IOException {
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        data.collect(executionData, new SessionInfoStore(), false);
+        CoverageBuilder builder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(executionData, builder);
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            if (!isTestClass(entry.getKey(), testClass)) {
+                analyzer.analyzeClass(entry.getValue(), entry.getKey());
+            }
+        }
+        int coveredLines = 0;
+        int totalLines = 0;
+        int coveredBranches = 0;
+        int totalBranches = 0;
+        for (IClassCoverage type : builder.getClasses()) {
+            coveredLines += type.getLineCounter().getCoveredCount();
+            totalLines += type.getLineCounter().getTotalCount();
+            coveredBranches += type.getBranchCounter().getCoveredCount();
+            totalBranches += type.getBranchCounter().getTotalCount();
+        }
+        return new Coverage(coveredLines, totalLines, coveredBranches, totalBranches);
+    }
+
+    private Slot acquire() {
+        if (!filled) {
+            synchronized (this) {
+                // Il pool si riempie alla prima esecuzione, quando serve davvero
+                for (int i = slots.size(); !filled && i < Math.max(1, properties.runners()); i++) {
+                    slots.offer(new Slot());
+                }
+                filled = true;
+            }
+        }
+        try {
+            Slot slot = slots.poll(properties.acquireWait().toMillis(), TimeUnit.MILLISECONDS);
+            if (slot == null) {
+                throw new TestRunnerUnavailableException("All test runners are busy, retry later");
+            }
+            return slot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a test runner", e);
+        }
+    }
+
+    private void release(Slot slot, boolean reusable) {
+        // Uno slot non riusabile viene sostituito
+        slots.offer(reusable ? slot : new Slot());
+    }
+
+    private int maxAbandoned() {
+        return Math.max(1, properties.maxAbandoned());
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Launcher JUnit e runtime JaCoCo riusabili. Ogni runtime ha una propria chiave, per
+     * cui le classi strumentate da uno slot registrano le sonde solo nei suoi dati.
+     */
+    private static final class Slot {
+        final Launcher launcher = LauncherFactory.create();
+        final IRuntime runtime = new LoggerRuntime();
+        final Instrumenter instrumenter = new Instrumenter(runtime);
+
+        TestExecutionSummary execute(Map<String, byte[]> classes, String testClass, List<Path> classpath)
+            throws Exception {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            try (GeneratedTestClassLoader loader =
+                     new GeneratedTestClassLoader(classes, classpath, TestRunner.class.getClassLoader())) {
+                // Mockito ed estensioni JUnit cercano le classi nel class loader del thread
+                thread.setContextClassLoader(loader);
+                SummaryGeneratingListener listener = new SummaryGeneratingListener();
+                launcher.execute(LauncherDiscoveryRequestBuilder.request()
+                    .selectors(DiscoverySelectors.selectClass(loader.loadClass(testClass)))
+                    .build(), listener);
+                return listener.getSummary();
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        }
+    }
+}
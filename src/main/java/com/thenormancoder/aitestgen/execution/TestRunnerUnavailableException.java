@@ -0,0 +1,12 @@
+package com.thenormancoder.aitestgen.execution;
+
+/**
+ * Nessun esecutore libero entro l'attesa massima, oppure esecuzione sospesa perché troppi
+ * test scaduti non si sono fermati.
+ */
+public class TestRunnerUnavailableException extends RuntimeException {
+
+    public TestRunnerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,235 @@
+package com.thenormancoder.aitestgen.index;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rappresentazione compatta di una {@link CompilationUnitAnalysis} come array
+ * di interi che riferiscono una {@link SymbolTable}. Su progetti grandi le
+ * stesse stringhe (String, List&lt;Foo&gt;, import, package) si ripetono migliaia
+ * di volte: qui vengono memorizzate una volta sola e i record originali sono
+ * ricostruiti solo quando servono.
+ *
+ * Layout: package, tipo principale, n. import, import..., n. tipi, e per ogni
+ * tipo: nome, kind, flag (ha costruttori, astratto), n. costruttori, (flag, n. parametri, (nome, tipo)...)...,
+ * n. campi, (nome, tipo, flag)..., n. metodi,
+ * (nome, tipo di ritorno, flag, javadoc, n. parametri, (nome, tipo)..., metriche)...
+ *
+ * Metriche: complessità (-1 se assenti, e nient'altro), rami, n. throw, (tipo, riga, condizione)...
+ */
+final class CompactAnalysis {
+
+    private CompactAnalysis() {
+    }
+
+    static int[] encode(CompilationUnitAnalysis analysis, SymbolTable symbols) {
+        IntBuffer out = new IntBuffer(64);
+        out.add(symbols.intern(analysis.packageName()));
+        out.add(symbols.intern(analysis.primaryTypeName()));
+        out.add(analysis.imports().size());
+        for (String importName : analysis.imports()) {
+            out.add(symbols.intern(importName));
+        }
+        out.add(analysis.types().size());
+        for (CodeAnalysisResult type : analysis.types()) {
+            out.add(symbols.intern(type.className()));
+            out.add(symbols.intern(type.classType()));
+            out.add(flags(type.hasConstructors(), type.isAbstract(), false));
+            out.add(type.constructors().size());
+            for (CodeAnalysisResult.ConstructorInfo constructor : type.constructors()) {
+                out.add(flags(constructor.isPrivate(), false, false));
+                encodeParameters(out, constructor.parameters(), symbols);
+            }
+            out.add(type.fields().size());
+            for (CodeAnalysisResult.FieldInfo field : type.fields()) {
+                out.add(symbols.intern(field.name()));
+                out.add(symbols.intern(field.type()));
+                out.add(flags(field.isPrivate(), field.isStatic(), field.isFinal()));
+            }
+            out.add(type.methods().size());
+            for (CodeAnalysisResult.MethodInfo method : type.methods()) {
+                out.add(symbols.intern(method.name()));
+                out.add(symbols.intern(method.returnType()));
+                out.add(flags(method.isPublic(), method.isStatic(), false));
+                out.add(symbols.intern(method.javadoc()));
+                encodeParameters(out, method.parameters(), symbols);
+                encodeMetrics(out, method.metrics(), symbols);
+            }
+        }
+        return out.toArray();
+    }
+
+    static CompilationUnitAnalysis decode(int[] data, SymbolTable symbols) {
+        Reader in = new Reader(data, symbols);
+        String packageName = in.symbol();
+        String primaryTypeName = in.symbol();
+        int importCount = in.count();
+        List<String> imports = new ArrayList<>(importCount);
+        for (int i = 0; i < importCount; i++) {
+            imports.add(in.symbol());
+        }
+        List<String> sharedImports = List.copyOf(imports);
+
+        int typeCount = in.count();
+        List<CodeAnalysisResult> types = new ArrayList<>(typeCount);
+        for (int t = 0; t < typeCount; t++) {
+            String className = in.symbol();
+            String classType = in.symbol();
+            int typeFlags = in.next();
+
+            int constructorCount = in.count();
+            List<CodeAnalysisResult.ConstructorInfo> constructors = new ArrayList<>(constructorCount);
+            for (int c = 0; c < constructorCount; c++) {
+                int flags = in.next();
+                constructors.add(new CodeAnalysisResult.ConstructorInfo(decodeParameters(in), flag(flags, 0)));
+            }
+
+            int fieldCount = in.count();
+            List<CodeAnalysisResult.FieldInfo> fields = new ArrayList<>(fieldCount);
+            for (int f = 0; f < fieldCount; f++) {
+                String name = in.symbol();
+                String type = in.symbol();
+                int flags = in.next();
+                fields.add(new CodeAnalysisResult.FieldInfo(name, type, flag(flags, 0), flag(flags, 1), flag(flags, 2)));
+            }
+
+            int methodCount = in.count();
+            List<CodeAnalysisResult.MethodInfo> methods = new ArrayList<>(methodCount);
+            for (int m = 0; m < methodCount; m++) {
+                String name = in.symbol();
+                String returnType = in.symbol();
+                int flags = in.next();
+                String javadoc = in.symbol();
+                List<CodeAnalysisResult.ParameterInfo> parameters = decodeParameters(in);
+                methods.add(new CodeAnalysisResult.MethodInfo(name, returnType, parameters,
+                    flag(flags, 0), flag(flags, 1), javadoc, decodeMetrics(in)));
+            }
+
+            types.add(new CodeAnalysisResult(className, packageName, methods, fields, sharedImports,
+                flag(typeFlags, 0), classType, constructors, flag(typeFlags, 1)));
+        }
+        return new CompilationUnitAnalysis(packageName, sharedImports, types, primaryTypeName);
+    }
+
+    private static void encodeParameters(IntBuffer out, List<CodeAnalysisResult.ParameterInfo> parameters,
+                                         SymbolTable symbols) {
+        out.add(parameters.size());
+        for (CodeAnalysisResult.ParameterInfo parameter : parameters) {
+            out.add(symbols.intern(parameter.name()));
+            out.add(symbols.intern(parameter.type()));
+        }
+    }
+
+    private static List<CodeAnalysisResult.ParameterInfo> decodeParameters(Reader in) {
+        int parameterCount = in.count();
+        List<CodeAnalysisResult.ParameterInfo> parameters = new ArrayList<>(parameterCount);
+        for (int p = 0; p < parameterCount; p++) {
+            parameters.add(new CodeAnalysisResult.ParameterInfo(in.symbol(), in.symbol()));
+        }
+        return parameters;
+    }
+
+    private static void encodeMetrics(IntBuffer out, CodeAnalysisResult.MethodMetrics metrics, SymbolTable symbols) {
+        if (metrics == null) {
+            out.add(-1);
+            return;
+        }
+        out.add(metrics.cyclomaticComplexity());
+        out.add(metrics.branches());
+        out.add(metrics.throwSites().size());
+        for (CodeAnalysisResult.ThrowSite throwSite : metrics.throwSites()) {
+            out.add(symbols.intern(throwSite.exceptionType()));
+            out.add(throwSite.line());
+            out.add(symbols.intern(throwSite.condition()));
+        }
+    }
+
+    private static CodeAnalysisResult.MethodMetrics decodeMetrics(Reader in) {
+        int complexity = in.next();
+        if (complexity < 0) {
+            return null;
+        }
+        int branches = in.next();
+        int throwSiteCount = in.count();
+        List<CodeAnalysisResult.ThrowSite> throwSites = new ArrayList<>(throwSiteCount);
+        for (int t = 0; t < throwSiteCount; t++) {
+            throwSites.add(new CodeAnalysisResult.ThrowSite(in.symbol(), in.next(), in.symbol()));
+        }
+        return CodeAnalysisResult.MethodMetrics.of(complexity, branches, throwSites);
+    }
+
+    private static int flags(boolean first, boolean second, boolean third) {
+        return (first ? 1 : 0) | (second ? 2 : 0) | (third ? 4 : 0);
+    }
+
+    private static boolean flag(int flags, int bit) {
+        return (flags & (1 << bit)) != 0;
+    }
+
+    private static final class IntBuffer {
+        private int[] values;
+        private int size;
+
+        IntBuffer(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Lettura verificata: dati troncati, conteggi impossibili o id fuori dalla tabella
+     * producono {@link IllegalArgumentException}.
+     */
+    private static final class Reader {
+        private final int[] data;
+        private final SymbolTable symbols;
+        private final int symbolCount;
+        private int position;
+
+        Reader(int[] data, SymbolTable symbols) {
+            this.data = data;
+            this.symbols = symbols;
+            this.symbolCount = symbols.size();
+        }
+
+        int next() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated compact analysis");
+            }
+            return data[position++];
+        }
+
+        /**
+         * Numero di elementi che seguono, ciascuno di almeno un intero.
+         */
+        int count() {
+            int count = next();
+            if (count < 0 || count > data.length - position) {
+                throw new IllegalArgumentException("Invalid count " + count + " in compact analysis");
+            }
+            return count;
+        }
+
+        String symbol() {
+            int id = next();
+            if (id < 0 || id > symbolCount) {
+                throw new IllegalArgumentException("Unknown symbol id " + id + " in compact analysis");
+            }
+            return symbols.symbol(id);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.thenormancoder.aitestgen.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Primitive di codifica del file indice: lunghezze e interi non negativi sono
+ * varint, le stringhe UTF-8 con lunghezza + 1 (0 = null).
+ *
+ * In lettura ogni lunghezza viene confrontata con i byte rimasti prima di allocare:
+ * un file corrotto produce {@link IllegalArgumentException}, non array enormi o negativi.
+ */
+final class IndexCodec {
+
+    private IndexCodec() {
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int encoded = readVarInt(in);
+        if (encoded == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[checkCount(encoded - 1, in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        writeVarInt(out, values.length);
+        for (int value : values) {
+            writeVarInt(out, value);
+        }
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        // Ogni varint occupa almeno un byte
+        int[] values = new int[checkCount(readVarInt(in), in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVarInt(in);
+        }
+        return values;
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Malformed varint in index file");
+            }
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Verifica che {@code count} elementi di almeno un byte ciascuno possano stare nei byte rimasti.
+     */
+    static int checkCount(int count, ByteBuffer in) {
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + count + " in index file, "
+                + in.remaining() + " bytes left");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,29 @@
+package com.thenormancoder.aitestgen.index;
+
+import java.util.Arrays;
+
+/**
+ * Voce dell'indice: identifica un file per path relativo, dimensione, mtime e
+ * hash SHA-256 del contenuto, insieme all'analisi in forma compatta
+ * (vedi {@link CompactAnalysis}); {@link ProjectIndex#analysis(IndexEntry)} la
+ * ricostruisce come record.
+ */
+public record IndexEntry(
+    String path,
+    long size,
+    long lastModified,
+    byte[] contentHash,
+    int[] compactAnalysis
+) {
+    public boolean matchesAttributes(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    public boolean matchesContent(byte[] contentHash) {
+        return Arrays.equals(this.contentHash, contentHash);
+    }
+
+    public IndexEntry withAttributes(long size, long lastModified) {
+        return new IndexEntry(path, size, lastModified, contentHash, compactAnalysis);
+    }
+}
@@ -0,0 +1,92 @@
+package com.thenormancoder.aitestgen.index;
+
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indice in memoria dei file analizzati di un progetto, per path relativo.
+ * Le analisi sono conservate in forma compatta su una tabella di simboli
+ * condivisa da tutte le voci del progetto.
+ */
+public class ProjectIndex {
+
+    private final SymbolTable symbols;
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+    // Ogni modifica incrementa la versione: l'indice è da salvare finché l'ultima
+    // versione scritta su disco non la raggiunge
+    private final AtomicLong version = new AtomicLong();
+    private volatile long savedVersion;
+
+    public ProjectIndex() {
+        this(new SymbolTable());
+    }
+
+    ProjectIndex(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public IndexEntry get(String path) {
+        return entries.get(path);
+    }
+
+    public void put(String path, long size, long lastModified, byte[] contentHash, CompilationUnitAnalysis analysis) {
+        put(new IndexEntry(path, size, lastModified, contentHash, CompactAnalysis.encode(analysis, symbols)));
+    }
+
+    public void put(IndexEntry entry) {
+        entries.put(entry.path(), entry);
+        version.incrementAndGet();
+    }
+
+    public CompilationUnitAnalysis analysis(IndexEntry entry) {
+        return CompactAnalysis.decode(entry.compactAnalysis(), symbols);
+    }
+
+    public void remove(String path) {
+        if (entries.remove(path) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Rimuove le voci dei file non più presenti nel progetto.
+     */
+    public void retainOnly(Set<String> paths) {
+        if (entries.keySet().retainAll(paths)) {
+            version.incrementAndGet();
+        }
+    }
+
+    public Collection<IndexEntry> entries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int symbolCount() {
+        return symbols.size();
+    }
+
+    public boolean isDirty() {
+        return version.get() != savedVersion;
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Segna come salvate le modifiche fino a {@code writtenVersion}, letta prima di iniziare
+     * la scrittura: quelle arrivate durante la scrittura restano da salvare.
+     */
+    void markClean(long writtenVersion) {
+        savedVersion = writtenVersion;
+    }
+}
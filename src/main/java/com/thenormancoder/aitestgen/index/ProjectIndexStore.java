@@ -0,0 +1,189 @@
+package com.thenormancoder.aitestgen.index;
+
+import com.thenormancoder.aitestgen.cache.BoundedCache;
+import com.thenormancoder.aitestgen.cache.SingleFlight;
+import com.thenormancoder.aitestgen.cache.SourceFingerprint;
+import com.thenormancoder.aitestgen.config.ProjectIndexProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistenza su disco degli indici di progetto, un file per progetto.
+ *
+ * Formato (big endian): magic "ATGI", versione int, tabella dei simboli
+ * (numero int, poi le stringhe in ordine di id), numero di voci int, poi per
+ * ogni voce path, size long, mtime long, hash SHA-256 (32 byte) e analisi
+ * compatta come sequenza di varint (vedi {@link CompactAnalysis}). Il file viene letto in un
+ * buffer sullo heap, liberato a fine decodifica, e scritto su un file temporaneo poi rinominato,
+ * così un crash non lascia mai un indice troncato. Un file con versione diversa viene ignorato
+ * e riscritto.
+ *
+ * In memoria restano solo gli indici dei progetti usati più di recente.
+ */
+@Component
+public class ProjectIndexStore {
+
+    static final int MAGIC = 0x41544749; // "ATGI"
+    static final int VERSION = 6;
+    private static final int HASH_LENGTH = 32;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final BoundedCache<String, ProjectIndex> loaded;
+    private final SingleFlight<String, ProjectIndex> loading = new SingleFlight<>();
+
+    public ProjectIndexStore(ProjectIndexProperties properties) {
+        this.enabled = properties.enabled();
+        this.directory = Paths.get(properties.directory());
+        // Peso unitario: il limite effettivo è il numero di progetti
+        this.loaded = new BoundedCache<>(properties.maxProjects(), properties.maxProjects(), Duration.ZERO,
+            index -> 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Restituisce l'indice del progetto, caricandolo da disco la prima volta.
+     * {@code variant} distingue indici costruiti con opzioni di parsing diverse.
+     */
+    public ProjectIndex indexFor(Path projectRoot, String variant) {
+        String key = indexKey(projectRoot, variant);
+        ProjectIndex cached = loaded.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Un solo caricamento per indice: le scansioni concorrenti condividono la stessa istanza
+        return loading.execute(key, () -> {
+            ProjectIndex current = loaded.get(key);
+            if (current == null) {
+                current = load(indexFile(key));
+                loaded.put(key, current);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Salva l'indice ottenuto da {@link #indexFor} se ha modifiche non ancora scritte,
+     * anche se nel frattempo è uscito dalla cache.
+     */
+    public void save(ProjectIndex index, Path projectRoot, String variant) throws IOException {
+        if (!index.isDirty()) {
+            return;
+        }
+        synchronized (index) {
+            long version = index.version();
+            write(index, indexFile(indexKey(projectRoot, variant)));
+            index.markClean(version);
+        }
+    }
+
+    ProjectIndex load(Path file) {
+        ProjectIndex index = new ProjectIndex();
+        if (!Files.isRegularFile(file)) {
+            return index;
+        }
+        try {
+            // Le stringhe e gli interi vengono copiati nella decodifica: il buffer non sopravvive al caricamento
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return index;
+            }
+            // Simboli distinti scritti in ordine: reinseriti riottengono gli stessi id
+            SymbolTable symbols = new SymbolTable();
+            int symbolCount = IndexCodec.checkCount(buffer.getInt(), buffer);
+            for (int i = 0; i < symbolCount; i++) {
+                symbols.intern(IndexCodec.readString(buffer));
+            }
+            index = new ProjectIndex(symbols);
+            int count = IndexCodec.checkCount(buffer.getInt(), buffer);
+            for (int i = 0; i < count; i++) {
+                IndexEntry entry = readEntry(buffer);
+                // Decodificata una volta per verificarla: un id di simbolo fuori tabella
+                // scarta l'indice qui invece di far fallire l'analisi del file più tardi
+                index.analysis(entry);
+                index.put(entry);
+            }
+            index.markClean(index.version());
+            return index;
+        } catch (IOException | RuntimeException e) {
+            // Indice corrotto o illeggibile: si riparte da zero e verrà riscritto
+            return new ProjectIndex();
+        }
+    }
+
+    void write(ProjectIndex index, Path file) throws IOException {
+        // Le voci vengono ricodificate su una tabella nuova così i simboli di file
+        // modificati o rimossi non sopravvivono nel file salvato
+        SymbolTable symbols = new SymbolTable();
+        List<IndexEntry> entries = new ArrayList<>(index.size());
+        for (IndexEntry entry : index.entries()) {
+            int[] compact = CompactAnalysis.encode(index.analysis(entry), symbols);
+            entries.add(new IndexEntry(entry.path(), entry.size(), entry.lastModified(), entry.contentHash(), compact));
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(symbols.size());
+                for (int id = 1; id <= symbols.size(); id++) {
+                    IndexCodec.writeString(out, symbols.symbol(id));
+                }
+                out.writeInt(entries.size());
+                for (IndexEntry entry : entries) {
+                    writeEntry(out, entry);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, IndexEntry entry) throws IOException {
+        IndexCodec.writeString(out, entry.path());
+        out.writeLong(entry.size());
+        out.writeLong(entry.lastModified());
+        out.write(entry.contentHash());
+        IndexCodec.writeInts(out, entry.compactAnalysis());
+    }
+
+    private static IndexEntry readEntry(ByteBuffer in) {
+        String path = IndexCodec.readString(in);
+        long size = in.getLong();
+        long lastModified = in.getLong();
+        byte[] hash = new byte[HASH_LENGTH];
+        in.get(hash);
+        return new IndexEntry(path, size, lastModified, hash, IndexCodec.readInts(in));
+    }
+
+    private Path indexFile(String key) {
+        return directory.resolve(key + ".idx");
+    }
+
+    private static String indexKey(Path projectRoot, String variant) {
+        String root = projectRoot.toAbsolutePath().normalize().toString();
+        return SourceFingerprint.sha256(root + "|" + variant).substring(0, 32);
+    }
+}
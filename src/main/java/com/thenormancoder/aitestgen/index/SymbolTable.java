@@ -0,0 +1,48 @@
+package com.thenormancoder.aitestgen.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabella di stringhe deduplicate: ogni stringa distinta (nomi di tipo, import,
+ * package, nomi di metodi e campi) viene memorizzata una sola volta e
+ * referenziata tramite un id intero. L'id 0 rappresenta {@code null}.
+ */
+public class SymbolTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] symbols = new String[256];
+    private int size = 1;
+
+    public synchronized int intern(String symbol) {
+        if (symbol == null) {
+            return 0;
+        }
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = symbols;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        int id = size++;
+        current[id] = symbol;
+        symbols = current;
+        ids.put(symbol, id);
+        return id;
+    }
+
+    /**
+     * Gli id vengono pubblicati ai lettori tramite strutture concorrenti
+     * (ad esempio la mappa dell'indice), quindi la lettura non richiede lock.
+     */
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public synchronized int size() {
+        return size - 1;
+    }
+}
@@ -0,0 +1,207 @@
+package com.thenormancoder.aitestgen.llm;
+
+import com.thenormancoder.aitestgen.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ammissione delle chiamate al modello: secchielli per richieste e token al minuto più
+ * un limite di concorrenza AIMD. Il limite cresce di circa uno per "finestra" di chiamate
+ * riuscite entro la latenza obiettivo, si riduce del 10% per le chiamate lente e si
+ * dimezza a ogni 429, che sospende anche le nuove ammissioni per il backoff.
+ * Le chiamate senza capacità attendono in coda fino alla scadenza indicata.
+ */
+final class AdaptiveRateLimiter {
+
+    private static final double SLOW_DECREASE = 0.9;
+    private static final double THROTTLE_DECREASE = 0.5;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition capacityChanged = lock.newCondition();
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+
+    private double concurrencyLimit;
+    private int inFlight;
+    private int queued;
+    private long pausedUntil;
+    private int consecutiveThrottles;
+    private long admitted;
+    private long throttled;
+    private long retries;
+    private long queueTimeouts;
+    private double averageLatencyNanos;
+
+    AdaptiveRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+        long now = System.nanoTime();
+        this.requests = properties.requestsPerMinute() > 0 ? new TokenBucket(properties.requestsPerMinute(), now) : null;
+        this.tokens = properties.tokensPerMinute() > 0 ? new TokenBucket(properties.tokensPerMinute(), now) : null;
+        this.concurrencyLimit = Math.max(1, Math.min(properties.initialConcurrency(), maxConcurrency()));
+        this.pausedUntil = now;
+    }
+
+    /**
+     * Attende capacità per una chiamata che consumerà circa {@code tokenCost} token.
+     *
+     * @throws LlmRateLimitedException se la capacità non si libera entro {@code deadline} ({@link System#nanoTime()})
+     */
+    void acquire(long tokenCost, long deadline) {
+        lock.lock();
+        queued++;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long wait = admissionWait(tokenCost, now);
+                if (wait == 0) {
+                    if (requests != null) {
+                        requests.take(1);
+                    }
+                    if (tokens != null) {
+                        tokens.take(tokenCost);
+                    }
+                    inFlight++;
+                    admitted++;
+                    return;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    queueTimeouts++;
+                    throw new LlmRateLimitedException("Timed out waiting for model capacity");
+                }
+                // wait < 0: si attende che una chiamata in corso termini
+                capacityChanged.awaitNanos(wait < 0 ? remaining : Math.min(wait, remaining));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmRateLimitedException("Interrupted while waiting for model capacity");
+        } finally {
+            queued--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chiamata riuscita: corregge il consumo di token con quello riportato dal provider
+     * (se noto) e aggiorna il limite di concorrenza in base alla latenza.
+     */
+    void onSuccess(long latencyNanos, long chargedTokens, long actualTokens) {
+        lock.lock();
+        try {
+            inFlight--;
+            consecutiveThrottles = 0;
+            if (tokens != null && actualTokens >= 0) {
+                if (actualTokens < chargedTokens) {
+                    tokens.refund(chargedTokens - actualTokens);
+                } else {
+                    tokens.take(actualTokens - chargedTokens);
+                }
+            }
+            averageLatencyNanos = averageLatencyNanos == 0
+                ? latencyNanos
+                : 0.8 * averageLatencyNanos + 0.2 * latencyNanos;
+            if (latencyNanos > properties.latencyTarget().toNanos()) {
+                concurrencyLimit = Math.max(1, concurrencyLimit * SLOW_DECREASE);
+            } else {
+                concurrencyLimit = Math.min(maxConcurrency(), concurrencyLimit + 1 / concurrencyLimit);
+            }
+            capacityChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Il provider ha risposto 429: dimezza la concorrenza e sospende le ammissioni per
+     * {@code retryAfter} o, se assente, per un backoff esponenziale.
+     */
+    void onThrottled(Duration retryAfter) {
+        lock.lock();
+        try {
+            inFlight--;
+            throttled++;
+            consecutiveThrottles++;
+            concurrencyLimit = Math.max(1, concurrencyLimit * THROTTLE_DECREASE);
+            long pause = retryAfter != null
+                ? retryAfter.toNanos()
+                : properties.backoff().toNanos() << Math.min(consecutiveThrottles - 1, 16);
+            pausedUntil = Math.max(pausedUntil, System.nanoTime() + Math.min(pause, MAX_BACKOFF_NANOS));
+            capacityChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chiamata fallita per altri motivi: libera solo il posto.
+     */
+    void onFailure() {
+        lock.lock();
+        try {
+            inFlight--;
+            capacityChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onRetry() {
+        lock.lock();
+        try {
+            retries++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    RateLimiterStats stats() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            return new RateLimiterStats(
+                (int) concurrencyLimit,
+                inFlight,
+                queued,
+                requests == null ? -1 : (long) requests.available(now),
+                tokens == null ? -1 : (long) tokens.available(now),
+                admitted,
+                throttled,
+                retries,
+                queueTimeouts,
+                (long) (averageLatencyNanos / 1_000_000)
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 0 se la chiamata può partire, i nanosecondi da attendere se manca solo tempo
+     *         (pausa o secchielli), -1 se serve che una chiamata in corso termini
+     */
+    private long admissionWait(long tokenCost, long now) {
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+        if (inFlight >= (int) concurrencyLimit) {
+            return -1;
+        }
+        long wait = 0;
+        if (requests != null) {
+            wait = Math.max(wait, requests.nanosUntil(1, now));
+        }
+        if (tokens != null) {
+            wait = Math.max(wait, tokens.nanosUntil(tokenCost, now));
+        }
+        return wait;
+    }
+
+    private int maxConcurrency() {
+        return Math.max(1, properties.maxConcurrency());
+    }
+}
@@ -0,0 +1,28 @@
+package com.thenormancoder.aitestgen.llm;
+
+import java.util.function.Consumer;
+
+/**
+ * Porta verso il modello linguistico. L'implementazione di produzione usa Spring AI,
+ * i test possono fornirne una locale senza rete.
+ */
+public interface LlmClient {
+
+    /**
+     * @return false se il modello non è configurato (ad esempio manca la API key):
+     *         il chiamante deve ripiegare sul template
+     */
+    boolean isAvailable();
+
+    LlmResponse complete(LlmRequest request);
+
+    /**
+     * Come {@link #complete(LlmRequest)}, ma consegna il testo a frammenti man mano che
+     * il modello lo produce. Di default la risposta arriva in un unico frammento.
+     */
+    default LlmResponse stream(LlmRequest request, Consumer<String> onChunk) {
+        LlmResponse response = complete(request);
+        onChunk.accept(response.content());
+        return response;
+    }
+}
@@ -0,0 +1,28 @@
+package com.thenormancoder.aitestgen.llm;
+
+import java.time.Duration;
+
+/**
+ * Il provider ha risposto 429, oppure la chiamata non ha trovato capacità libera
+ * entro il tempo massimo di attesa in coda.
+ */
+public class LlmRateLimitedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public LlmRateLimitedException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public LlmRateLimitedException(String message) {
+        this(message, null, null);
+    }
+
+    /**
+     * @return attesa suggerita dal provider, null se non indicata
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,9 @@
+package com.thenormancoder.aitestgen.llm;
+
+public record LlmRequest(
+    String systemPrompt,
+    String userPrompt,
+    String model,
+    double temperature,
+    int maxCompletionTokens
+) {}
@@ -0,0 +1,11 @@
+package com.thenormancoder.aitestgen.llm;
+
+/**
+ * Risposta del modello con i token effettivamente consumati, se il provider li riporta
+ * (altrimenti -1).
+ */
+public record LlmResponse(
+    String content,
+    long promptTokens,
+    long completionTokens
+) {}
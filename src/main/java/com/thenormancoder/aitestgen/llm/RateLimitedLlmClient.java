@@ -0,0 +1,93 @@
+package com.thenormancoder.aitestgen.llm;
+
+import com.thenormancoder.aitestgen.config.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link LlmClient} che fa passare ogni chiamata da un {@link AdaptiveRateLimiter}.
+ * Dopo un 429 la chiamata torna in coda e viene ritentata fino a {@code maxRetries}
+ * volte, purché resti tempo entro {@code queueTimeout} e, in streaming, nessun
+ * frammento sia già stato consegnato.
+ */
+@Primary
+@Component
+public class RateLimitedLlmClient implements LlmClient {
+
+    private final LlmClient delegate;
+    private final RateLimitProperties properties;
+    private final AdaptiveRateLimiter limiter;
+
+    @Autowired
+    public RateLimitedLlmClient(SpringAiLlmClient delegate, RateLimitProperties properties) {
+        this((LlmClient) delegate, properties);
+    }
+
+    public RateLimitedLlmClient(LlmClient delegate, RateLimitProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.limiter = new AdaptiveRateLimiter(properties);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public LlmResponse complete(LlmRequest request) {
+        return execute(request, () -> delegate.complete(request), () -> false);
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> onChunk) {
+        AtomicBoolean delivered = new AtomicBoolean();
+        return execute(request, () -> delegate.stream(request, chunk -> {
+            delivered.set(true);
+            onChunk.accept(chunk);
+        }), delivered::get);
+    }
+
+    public RateLimiterStats stats() {
+        return limiter.stats();
+    }
+
+    private LlmResponse execute(LlmRequest request, Supplier<LlmResponse> call, BooleanSupplier delivered) {
+        if (!properties.enabled()) {
+            return call.get();
+        }
+        long tokenCost = TokenEstimator.estimate(request.systemPrompt())
+            + TokenEstimator.estimate(request.userPrompt())
+            + request.maxCompletionTokens();
+        long deadline = System.nanoTime() + properties.queueTimeout().toNanos();
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(tokenCost, deadline);
+            long start = System.nanoTime();
+            LlmResponse response;
+            try {
+                response = call.get();
+            } catch (LlmRateLimitedException e) {
+                limiter.onThrottled(e.retryAfter());
+                if (attempt >= properties.maxRetries() || delivered.getAsBoolean()) {
+                    throw e;
+                }
+                limiter.onRetry();
+                continue;
+            } catch (RuntimeException | Error e) {
+                limiter.onFailure();
+                throw e;
+            }
+            long actualTokens = response.promptTokens() >= 0 && response.completionTokens() >= 0
+                ? response.promptTokens() + response.completionTokens()
+                : -1;
+            limiter.onSuccess(System.nanoTime() - start, tokenCost, actualTokens);
+            return response;
+        }
+    }
+}
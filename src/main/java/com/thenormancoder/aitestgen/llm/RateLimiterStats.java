@@ -0,0 +1,26 @@
+package com.thenormancoder.aitestgen.llm;
+
+/**
+ * @param concurrencyLimit   chiamate contemporanee ammesse in questo momento
+ * @param inFlight           chiamate in corso verso il provider
+ * @param queued             chiamate in attesa di capacità
+ * @param availableRequests  richieste ancora disponibili nel minuto; -1 = nessun limite
+ * @param availableTokens    token ancora disponibili nel minuto; -1 = nessun limite
+ * @param admitted           chiamate ammesse verso il provider, tentativi inclusi
+ * @param throttled          risposte 429 ricevute
+ * @param retries            nuovi tentativi dopo un 429
+ * @param queueTimeouts      chiamate rifiutate per attesa in coda scaduta
+ * @param averageLatencyMillis latenza media (esponenziale) delle chiamate riuscite
+ */
+public record RateLimiterStats(
+    int concurrencyLimit,
+    int inFlight,
+    int queued,
+    long availableRequests,
+    long availableTokens,
+    long admitted,
+    long throttled,
+    long retries,
+    long queueTimeouts,
+    long averageLatencyMillis
+) {}
@@ -0,0 +1,149 @@
+package com.thenormancoder.aitestgen.llm;
+
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptionsBuilder;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link LlmClient} basato sul {@link ChatModel} configurato dallo starter Spring AI OpenAI.
+ */
+@Component
+public class SpringAiLlmClient implements LlmClient {
+
+    // Valore di esempio presente in application.properties
+    private static final String PLACEHOLDER_API_KEY = "your-api-key-here";
+
+    private final ObjectProvider<ChatModel> chatModel;
+    private final String apiKey;
+
+    public SpringAiLlmClient(ObjectProvider<ChatModel> chatModel,
+                             @Value("${spring.ai.openai.api-key:}") String apiKey) {
+        this.chatModel = chatModel;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return apiKey != null && !apiKey.isBlank() && !PLACEHOLDER_API_KEY.equals(apiKey)
+            && chatModel.getIfAvailable() != null;
+    }
+
+    @Override
+    public LlmResponse complete(LlmRequest request) {
+        ChatResponse response;
+        try {
+            response = chatModel().call(prompt(request));
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+        if (response == null || response.getResult() == null) {
+            throw new IllegalStateException("Empty response from chat model");
+        }
+        Usage usage = usage(response);
+        return new LlmResponse(response.getResult().getOutput().getContent(),
+            tokens(usage == null ? null : usage.getPromptTokens()),
+            tokens(usage == null ? null : usage.getGenerationTokens()));
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> onChunk) {
+        StringBuilder content = new StringBuilder();
+        Usage usage = null;
+        try {
+            // Il thread della richiesta resta occupato fino all'ultimo frammento, come per call()
+            for (ChatResponse chunk : chatModel().stream(prompt(request)).toIterable()) {
+                if (chunk.getResult() != null && chunk.getResult().getOutput() != null) {
+                    String text = chunk.getResult().getOutput().getContent();
+                    if (text != null && !text.isEmpty()) {
+                        content.append(text);
+                        onChunk.accept(text);
+                    }
+                }
+                // L'utilizzo, se riportato, arriva con l'ultimo frammento
+                Usage chunkUsage = usage(chunk);
+                if (chunkUsage != null) {
+                    usage = chunkUsage;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+        if (content.isEmpty()) {
+            throw new IllegalStateException("Empty response from chat model");
+        }
+        return new LlmResponse(content.toString(),
+            tokens(usage == null ? null : usage.getPromptTokens()),
+            tokens(usage == null ? null : usage.getGenerationTokens()));
+    }
+
+    private ChatModel chatModel() {
+        ChatModel model = chatModel.getIfAvailable();
+        if (model == null) {
+            throw new IllegalStateException("No chat model configured");
+        }
+        return model;
+    }
+
+    private static Prompt prompt(LlmRequest request) {
+        return new Prompt(
+            List.of(new SystemMessage(request.systemPrompt()), new UserMessage(request.userPrompt())),
+            ChatOptionsBuilder.builder()
+                .withModel(request.model())
+                .withTemperature(request.temperature())
+                .withMaxTokens(request.maxCompletionTokens())
+                .build()
+        );
+    }
+
+    /**
+     * Riconosce i 429 del provider lungo la catena delle cause: dal client HTTP quando
+     * arrivano intatti, altrimenti dal messaggio, che Spring AI compone come "429 - ...".
+     */
+    private static RuntimeException translate(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientResponseException http && http.getStatusCode().value() == 429) {
+                return new LlmRateLimitedException("Model provider rate limit exceeded",
+                    retryAfter(http.getResponseHeaders()), e);
+            }
+            if (cause.getMessage() != null && cause.getMessage().startsWith("429")) {
+                return new LlmRateLimitedException("Model provider rate limit exceeded", null, e);
+            }
+        }
+        return e;
+    }
+
+    private static Duration retryAfter(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // Formato data HTTP: si ricade sul backoff del limitatore
+            return null;
+        }
+    }
+
+    private static Usage usage(ChatResponse response) {
+        return response.getMetadata() == null ? null : response.getMetadata().getUsage();
+    }
+
+    private static long tokens(Long count) {
+        // Senza usage il provider restituisce zero: si tratta come dato non disponibile
+        return count == null || count <= 0 ? -1 : count;
+    }
+}
@@ -0,0 +1,53 @@
+package com.thenormancoder.aitestgen.llm;
+
+/**
+ * Secchiello che si riempie in modo continuo fino a {@code perMinute} unità.
+ * Può andare in negativo quando il consumo reale supera quello stimato.
+ * Non è thread-safe: l'accesso è protetto dal lock di {@link AdaptiveRateLimiter}.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefill;
+
+    TokenBucket(long perMinute, long now) {
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / 60_000_000_000.0;
+        this.available = perMinute;
+        this.lastRefill = now;
+    }
+
+    /**
+     * @return nanosecondi da attendere perché {@code amount} unità siano disponibili; 0 se lo sono già
+     */
+    long nanosUntil(double amount, long now) {
+        refill(now);
+        double needed = Math.min(amount, capacity);
+        if (available >= needed) {
+            return 0;
+        }
+        return (long) Math.ceil((needed - available) / refillPerNano);
+    }
+
+    void take(double amount) {
+        available -= amount;
+    }
+
+    void refund(double amount) {
+        available = Math.min(capacity, available + amount);
+    }
+
+    double available(long now) {
+        refill(now);
+        return available;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
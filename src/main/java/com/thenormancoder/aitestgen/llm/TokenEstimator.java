@@ -0,0 +1,33 @@
+package com.thenormancoder.aitestgen.llm;
+
+/**
+ * Stima del numero di token senza tokenizer: ogni sequenza alfanumerica vale un
+ * token ogni quattro caratteri, ogni simbolo un token, gli spazi nulla. Sul codice
+ * Java sovrastima leggermente i tokenizer BPE, il che è il lato sicuro per un budget.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                wordLength++;
+                continue;
+            }
+            tokens += (wordLength + 3) / 4;
+            wordLength = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (wordLength + 3) / 4;
+    }
+}
@@ -0,0 +1,41 @@
+package com.thenormancoder.aitestgen.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Reader che smette di fornire input oltre la scadenza. Il lexer di JavaParser
+ * legge a blocchi e tratta un errore di lettura come fine del file, quindi il
+ * parsing termina in fretta; il chiamante deve controllare {@link #expired()}
+ * perché il risultato, anche se presente, sarebbe troncato.
+ */
+final class DeadlineReader extends Reader {
+
+    private final StringReader delegate;
+    private final long deadlineNanos;
+    private boolean expired;
+
+    DeadlineReader(String source, long deadlineNanos) {
+        this.delegate = new StringReader(source);
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (expired || System.nanoTime() - deadlineNanos > 0) {
+            expired = true;
+            throw new IOException("Parse deadline exceeded");
+        }
+        return delegate.read(buffer, offset, length);
+    }
+
+    boolean expired() {
+        return expired;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,179 @@
+package com.thenormancoder.aitestgen.parser;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Provider;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import com.thenormancoder.aitestgen.config.ParserProperties;
+import com.thenormancoder.aitestgen.exception.AnalysisTimeoutException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Pool di istanze {@link JavaParser} riutilizzabili.
+ *
+ * JavaParser non è thread-safe ma mantiene internamente il parser generato
+ * (token manager e buffer), quindi riusarlo evita di ricostruire configurazione,
+ * validatori e buffer ad ogni richiesta. Ogni parser viene preso in prestito
+ * da un solo thread alla volta; se il pool è vuoto se ne crea uno nuovo invece
+ * di bloccare il chiamante. Esiste un pool per ogni combinazione di {@link ParseOptions}.
+ *
+ * Ogni parsing ha una scadenza ({@link ParserProperties#parseTimeout()}) e viene
+ * eseguito da un numero limitato di worker: il chiamante attende il risultato solo
+ * fino alla scadenza, poi fallisce con {@link AnalysisTimeoutException}. Il lexer legge
+ * l'input a blocchi, quindi controllare la scadenza in lettura non basta per un
+ * sorgente piccolo che si analizza lentamente.
+ */
+@Component
+public class JavaParserPool {
+
+    private final ParserProperties properties;
+    private final BiFunction<JavaParser, Provider, ParseResult<CompilationUnit>> parseFunction;
+    private final Map<ParseOptions, ParserConfiguration> configurations = new ConcurrentHashMap<>();
+    private final Map<ParseOptions, BlockingQueue<JavaParser>> pools = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    public JavaParserPool(ParserProperties properties) {
+        this(properties, (parser, provider) -> parser.parse(ParseStart.COMPILATION_UNIT, provider));
+    }
+
+    JavaParserPool(ParserProperties properties,
+                   BiFunction<JavaParser, Provider, ParseResult<CompilationUnit>> parseFunction) {
+        this.properties = properties;
+        this.parseFunction = parseFunction;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(properties.effectivePoolSize(), runnable -> {
+            Thread thread = new Thread(runnable, "java-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Applica la modalità scheletro automatica ai sorgenti oltre la soglia configurata.
+     */
+    public ParseOptions effectiveOptions(String sourceCode, ParseOptions requested) {
+        int threshold = properties.skeletonThresholdChars();
+        if (!requested.skeleton() && threshold > 0 && sourceCode.length() > threshold) {
+            return requested.withSkeleton(true);
+        }
+        return requested;
+    }
+
+    /**
+     * Il parser recupera alcuni errori di sintassi: il risultato può contenere istruzioni
+     * non parsate, sufficienti per l'analisi ma non per chi riscrive il codice.
+     */
+    public CompilationUnit parse(String sourceCode, ParseOptions options) {
+        return parse(sourceCode, options, false);
+    }
+
+    /**
+     * Come {@link #parse}, ma rifiuta anche i sorgenti con errori recuperati dal parser.
+     */
+    public CompilationUnit parseStrict(String sourceCode, ParseOptions options) {
+        return parse(sourceCode, options, true);
+    }
+
+    private CompilationUnit parse(String sourceCode, ParseOptions options, boolean strict) {
+        BlockingQueue<JavaParser> pool = pools.computeIfAbsent(options,
+            o -> new ArrayBlockingQueue<>(properties.effectivePoolSize()));
+        JavaParser parser = pool.poll();
+        if (parser == null) {
+            parser = new JavaParser(configurations.computeIfAbsent(options, this::createConfiguration));
+        }
+        Duration timeout = properties.parseTimeout();
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            try {
+                String input = options.skeleton() ? SkeletonSource.elideBodies(sourceCode) : sourceCode;
+                return unit(parseFunction.apply(parser, Providers.provider(input)), strict);
+            } catch (StackOverflowError e) {
+                throw nestingTooDeep();
+            } finally {
+                // Se il pool è pieno il parser in eccesso viene semplicemente scartato
+                pool.offer(parser);
+            }
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        JavaParser borrowed = parser;
+        // La scadenza comprende anche l'attesa di un worker libero
+        Future<ParseResult<CompilationUnit>> parsing = workers.submit(() -> {
+            String input = options.skeleton() ? SkeletonSource.elideBodies(sourceCode) : sourceCode;
+            // Oltre la scadenza il reader smette di fornire input: un parsing abbandonato
+            // su un sorgente lungo si ferma alla lettura successiva e libera il worker
+            DeadlineReader reader = new DeadlineReader(input, deadline);
+            ParseResult<CompilationUnit> result = parseFunction.apply(borrowed, Providers.provider(reader));
+            // L'input è stato troncato: il risultato, anche se presente, non è affidabile
+            return reader.expired() ? null : result;
+        });
+        ParseResult<CompilationUnit> result;
+        try {
+            result = parsing.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // JavaParser non controlla l'interruzione: il parser è ancora in uso dal worker
+            // e non torna nel pool
+            parsing.cancel(true);
+            throw new AnalysisTimeoutException(timeout);
+        } catch (InterruptedException e) {
+            parsing.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            pool.offer(parser);
+            if (e.getCause() instanceof StackOverflowError) {
+                throw nestingTooDeep();
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+        pool.offer(parser);
+        if (result == null) {
+            throw new AnalysisTimeoutException(timeout);
+        }
+        return unit(result, strict);
+    }
+
+    private static IllegalArgumentException nestingTooDeep() {
+        // Annidamento patologico: il parser ricorsivo esaurisce lo stack
+        return new IllegalArgumentException("Invalid Java code: nesting too deep");
+    }
+
+    private static CompilationUnit unit(ParseResult<CompilationUnit> result, boolean strict) {
+        if (strict && !result.isSuccessful()) {
+            throw new IllegalArgumentException("Invalid Java code");
+        }
+        return result.getResult().orElseThrow(() -> new IllegalArgumentException("Invalid Java code"));
+    }
+
+    private ParserConfiguration createConfiguration(ParseOptions options) {
+        boolean attributeComments = properties.attributeComments() && options.attributeComments();
+        return new ParserConfiguration()
+            .setLanguageLevel(properties.languageLevel())
+            .setAttributeComments(attributeComments)
+            // I commenti vengono raccolti dalla lista dei token: senza javadoc in
+            // modalità scheletro si può evitare di conservarli
+            .setStoreTokens(!options.skeleton() || attributeComments);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
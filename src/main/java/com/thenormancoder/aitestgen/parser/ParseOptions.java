@@ -0,0 +1,21 @@
+package com.thenormancoder.aitestgen.parser;
+
+/**
+ * Opzioni per singola richiesta di parsing.
+ *
+ * @param attributeComments se false il parser salta l'attribuzione dei commenti:
+ *                          più veloce, ma i javadoc dei metodi risultano vuoti
+ * @param skeleton          se true i corpi dei metodi vengono scartati prima del
+ *                          parsing (vedi {@link SkeletonSource}): restano solo firme,
+ *                          campi e javadoc
+ */
+public record ParseOptions(boolean attributeComments, boolean skeleton) {
+
+    public static final ParseOptions DEFAULT = new ParseOptions(true, false);
+    public static final ParseOptions WITHOUT_COMMENTS = new ParseOptions(false, false);
+    public static final ParseOptions SKELETON = new ParseOptions(true, true);
+
+    public ParseOptions withSkeleton(boolean skeleton) {
+        return new ParseOptions(attributeComments, skeleton);
+    }
+}
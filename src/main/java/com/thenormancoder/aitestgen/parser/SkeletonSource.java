@@ -0,0 +1,250 @@
+package com.thenormancoder.aitestgen.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Riduce un sorgente Java al suo "scheletro": il contenuto dei corpi di metodi,
+ * costruttori e blocchi di inizializzazione viene rimosso lasciando solo
+ * {@code {}} e i ritorni a capo, così numeri di riga, firme, campi e javadoc
+ * restano intatti ma il parser non costruisce gli AST dei corpi.
+ *
+ * È un'analisi lessicale conservativa: stringhe, text block, caratteri e
+ * commenti vengono riconosciuti, e nei casi dubbi (inizializzatori di campo,
+ * lambda, classi anonime) il blocco viene lasciato com'è. Il risultato è
+ * sempre codice valido quanto l'originale.
+ */
+public final class SkeletonSource {
+
+    private final String source;
+    private final StringBuilder out;
+    private int pos;
+
+    // true = corpo di un tipo, false = altro blocco lasciato intatto
+    private final Deque<Boolean> blocks = new ArrayDeque<>();
+
+    // Stato della "testa" della dichiarazione corrente (dall'ultimo ; { o })
+    private boolean headHasTypeKeyword;
+    private boolean headHasAssignment;
+    private boolean headHasParameters;
+    private boolean headIsEmpty = true;
+    private boolean headIsStatic;
+    private int headParenDepth;
+
+    private SkeletonSource(String source) {
+        this.source = source;
+        this.out = new StringBuilder(source.length());
+    }
+
+    public static String elideBodies(String source) {
+        SkeletonSource skeleton = new SkeletonSource(source);
+        skeleton.scan();
+        return skeleton.out.toString();
+    }
+
+    private void scan() {
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '/' && peek(1) == '/') {
+                copyLineComment();
+            } else if (c == '/' && peek(1) == '*') {
+                copyBlockComment();
+            } else if (c == '"' || c == '\'') {
+                int start = pos;
+                skipLiteral();
+                out.append(source, start, pos);
+                markHeadToken();
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                while (pos < length && Character.isJavaIdentifierPart(source.charAt(pos))) {
+                    pos++;
+                }
+                String word = source.substring(start, pos);
+                out.append(word);
+                onIdentifier(word);
+            } else {
+                pos++;
+                onSymbol(c);
+            }
+        }
+    }
+
+    private void onIdentifier(String word) {
+        if (headParenDepth == 0) {
+            switch (word) {
+                case "class", "interface", "enum", "record" -> headHasTypeKeyword = true;
+                default -> {
+                }
+            }
+            headIsStatic = headIsEmpty && word.equals("static");
+        }
+        headIsEmpty = false;
+    }
+
+    private void onSymbol(char c) {
+        switch (c) {
+            case '{' -> {
+                out.append(c);
+                boolean inTypeBody = !blocks.isEmpty() && blocks.peek();
+                boolean elidable = inTypeBody && !headHasTypeKeyword && !headHasAssignment
+                    && (headHasParameters || headIsEmpty || headIsStatic);
+                if (elidable) {
+                    skipBody();
+                    out.append('}');
+                } else {
+                    // Corpo di tipo (o costante enum con corpo) oppure blocco da non toccare
+                    blocks.push(headHasTypeKeyword || (inTypeBody && !headHasAssignment && !headHasParameters));
+                }
+                resetHead();
+            }
+            case '}' -> {
+                out.append(c);
+                if (!blocks.isEmpty()) {
+                    blocks.pop();
+                }
+                resetHead();
+            }
+            case ';' -> {
+                out.append(c);
+                resetHead();
+            }
+            case '(' -> {
+                out.append(c);
+                headParenDepth++;
+                headHasParameters = true;
+                headIsEmpty = false;
+            }
+            case ')' -> {
+                out.append(c);
+                headParenDepth = Math.max(0, headParenDepth - 1);
+            }
+            case '=' -> {
+                out.append(c);
+                if (headParenDepth == 0) {
+                    headHasAssignment = true;
+                }
+                headIsEmpty = false;
+            }
+            default -> {
+                out.append(c);
+                if (!Character.isWhitespace(c)) {
+                    markHeadToken();
+                }
+            }
+        }
+    }
+
+    private void markHeadToken() {
+        headIsEmpty = false;
+        headIsStatic = false;
+    }
+
+    private void resetHead() {
+        headHasTypeKeyword = false;
+        headHasAssignment = false;
+        headHasParameters = false;
+        headIsEmpty = true;
+        headIsStatic = false;
+        headParenDepth = 0;
+    }
+
+    /**
+     * Salta il corpo fino alla graffa di chiusura corrispondente (esclusa),
+     * mantenendo solo i ritorni a capo.
+     */
+    private void skipBody() {
+        int depth = 1;
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '/' && peek(1) == '/') {
+                while (pos < length && source.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (c == '/' && peek(1) == '*') {
+                int end = source.indexOf("*/", pos + 2);
+                int stop = end < 0 ? length : end + 2;
+                keepNewlines(pos, stop);
+                pos = stop;
+            } else if (c == '"' || c == '\'') {
+                int start = pos;
+                skipLiteral();
+                keepNewlines(start, pos);
+            } else if (c == '{') {
+                depth++;
+                pos++;
+            } else if (c == '}') {
+                depth--;
+                pos++;
+                if (depth == 0) {
+                    return;
+                }
+            } else {
+                if (c == '\n') {
+                    out.append('\n');
+                }
+                pos++;
+            }
+        }
+    }
+
+    private void skipLiteral() {
+        int length = source.length();
+        char quote = source.charAt(pos);
+        if (quote == '"' && peek(1) == '"' && peek(2) == '"') {
+            pos += 3;
+            while (pos < length) {
+                char c = source.charAt(pos);
+                if (c == '\\') {
+                    pos += 2;
+                } else if (c == '"' && peek(1) == '"' && peek(2) == '"') {
+                    pos += 3;
+                    return;
+                } else {
+                    pos++;
+                }
+            }
+            return;
+        }
+        pos++;
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else {
+                pos++;
+                if (c == quote || c == '\n') {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void copyLineComment() {
+        int end = source.indexOf('\n', pos);
+        int stop = end < 0 ? source.length() : end;
+        out.append(source, pos, stop);
+        pos = stop;
+    }
+
+    private void copyBlockComment() {
+        int end = source.indexOf("*/", pos + 2);
+        int stop = end < 0 ? source.length() : end + 2;
+        out.append(source, pos, stop);
+        pos = stop;
+    }
+
+    private void keepNewlines(int from, int to) {
+        for (int i = from; i < Math.min(to, source.length()); i++) {
+            if (source.charAt(i) == '\n') {
+                out.append('\n');
+            }
+        }
+    }
+
+    private char peek(int offset) {
+        int index = pos + offset;
+        return index < source.length() ? source.charAt(index) : '\0';
+    }
+}
@@ -0,0 +1,223 @@
+package com.thenormancoder.aitestgen.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Legge dal file di build le source root di main e test, senza eseguire Maven o Gradle.
+ *
+ * Del pom.xml contano {@code <sourceDirectory>} e {@code <testSourceDirectory>} della
+ * {@code <build>} principale. Degli script Gradle (Groovy o Kotlin) contano le chiamate
+ * {@code srcDir}, {@code srcDirs} e {@code setSrcDirs} su {@code sourceSets.main.java} e
+ * {@code sourceSets.test.java}, sia in forma puntata sia annidata in blocchi. Percorsi
+ * con variabili diverse dalla radice di progetto non sono risolvibili e vengono ignorati.
+ */
+final class BuildLayout {
+
+    static final List<String> BUILD_FILES = List.of("pom.xml", "build.gradle", "build.gradle.kts");
+
+    private static final String MAIN_ROOT = "src/main/java";
+    private static final String TEST_ROOT = "src/test/java";
+
+    private static final Pattern XML_COMMENT = Pattern.compile("(?s)<!--.*?-->");
+    private static final Pattern BUILD = Pattern.compile("(?s)<build>(.*?)</build>");
+    private static final Pattern NESTED_CONFIGURATION =
+        Pattern.compile("(?s)<(profiles|plugins|pluginManagement|resources|testResources)>.*?</\\1>");
+    private static final Pattern SOURCE_DIRECTORY = Pattern.compile("<sourceDirectory>\\s*(.*?)\\s*</sourceDirectory>");
+    private static final Pattern TEST_SOURCE_DIRECTORY =
+        Pattern.compile("<testSourceDirectory>\\s*(.*?)\\s*</testSourceDirectory>");
+    private static final Pattern MAVEN_BASEDIR = Pattern.compile("^\\$\\{(?:project\\.)?basedir}/?");
+
+    private static final Pattern SRC_DIR_CALL = Pattern.compile("\\b(setSrcDirs|srcDirs|srcDir)\\b(\\s*=)?");
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|'([^']*)'|([A-Za-z_][A-Za-z0-9_]*)");
+    private static final Pattern GRADLE_PROJECT_DIR = Pattern.compile("^\\$\\{?projectDir}?/?");
+    // Parole dei DSL che introducono un nome di source set senza esserlo
+    private static final Set<String> DSL_NOISE = Set.of(
+        "val", "by", "getting", "creating", "getByName", "named", "maybeCreate", "create", "register", "file", "files");
+
+    private BuildLayout() {
+    }
+
+    static ProjectDescriptor read(Path root) {
+        Path pom = root.resolve("pom.xml");
+        if (Files.isRegularFile(pom)) {
+            return maven(root, readQuietly(pom));
+        }
+        for (String script : List.of("build.gradle", "build.gradle.kts")) {
+            Path gradle = root.resolve(script);
+            if (Files.isRegularFile(gradle)) {
+                return gradle(root, readQuietly(gradle));
+            }
+        }
+        return new ProjectDescriptor(root, ProjectType.UNKNOWN,
+            List.of(root.resolve(MAIN_ROOT)), List.of(root.resolve(TEST_ROOT)));
+    }
+
+    static ProjectDescriptor maven(Path root, String pom) {
+        String mainRoot = MAIN_ROOT;
+        String testRoot = TEST_ROOT;
+        Matcher build = BUILD.matcher(NESTED_CONFIGURATION.matcher(XML_COMMENT.matcher(pom).replaceAll(""))
+            .replaceAll(""));
+        if (build.find()) {
+            mainRoot = mavenPath(SOURCE_DIRECTORY.matcher(build.group(1)), mainRoot);
+            testRoot = mavenPath(TEST_SOURCE_DIRECTORY.matcher(build.group(1)), testRoot);
+        }
+        return new ProjectDescriptor(root, ProjectType.MAVEN,
+            List.of(root.resolve(mainRoot).normalize()), List.of(root.resolve(testRoot).normalize()));
+    }
+
+    static ProjectDescriptor gradle(Path root, String script) {
+        List<String> mainRoots = new ArrayList<>(List.of(MAIN_ROOT));
+        List<String> testRoots = new ArrayList<>(List.of(TEST_ROOT));
+        Deque<List<String>> blocks = new ArrayDeque<>();
+        StringBuilder statement = new StringBuilder();
+        // Dentro parentesi tonde o quadre l'istruzione continua oltre l'a capo
+        int brackets = 0;
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (c == '"' || c == '\'') {
+                int end = stringEnd(script, i);
+                statement.append(script, i, end + 1);
+                i = end;
+            } else if (c == '/' && i + 1 < script.length() && script.charAt(i + 1) == '/') {
+                while (i + 1 < script.length() && script.charAt(i + 1) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < script.length() && script.charAt(i + 1) == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? script.length() : end + 1;
+            } else if (c == '{') {
+                brackets = 0;
+                blocks.push(tokens(statement));
+                statement.setLength(0);
+            } else if (c == '(' || c == '[') {
+                brackets++;
+                statement.append(c);
+            } else if (c == ')' || c == ']') {
+                brackets = Math.max(0, brackets - 1);
+                statement.append(c);
+            } else if (c == '\n' && brackets > 0) {
+                statement.append(' ');
+            } else if (c == '}' || c == '\n' || c == ';') {
+                brackets = 0;
+                applySrcDirs(statement, blocks, mainRoots, testRoots);
+                statement.setLength(0);
+                if (c == '}' && !blocks.isEmpty()) {
+                    blocks.pop();
+                }
+            } else {
+                statement.append(c);
+            }
+        }
+        applySrcDirs(statement, blocks, mainRoots, testRoots);
+
+        List<Path> testPaths = resolveAll(root, testRoots);
+        return new ProjectDescriptor(root, ProjectType.GRADLE, resolveAll(root, mainRoots),
+            testPaths.isEmpty() ? List.of(root.resolve(TEST_ROOT)) : testPaths);
+    }
+
+    private static String mavenPath(Matcher matcher, String fallback) {
+        if (!matcher.find()) {
+            return fallback;
+        }
+        String path = MAVEN_BASEDIR.matcher(matcher.group(1)).replaceFirst("");
+        return path.isEmpty() || path.contains("${") ? fallback : path;
+    }
+
+    /**
+     * Applica una chiamata srcDir/srcDirs dell'istruzione, se riguarda il Java di main o test.
+     * L'assegnazione e setSrcDirs sostituiscono le root, le chiamate le aggiungono.
+     */
+    private static void applySrcDirs(CharSequence statement, Deque<List<String>> blocks,
+                                     List<String> mainRoots, List<String> testRoots) {
+        Matcher call = SRC_DIR_CALL.matcher(statement);
+        if (!call.find()) {
+            return;
+        }
+        List<String> path = new ArrayList<>();
+        blocks.descendingIterator().forEachRemaining(path::addAll);
+        path.addAll(tokens(statement.subSequence(0, call.start())));
+        int sourceSets = path.indexOf("sourceSets");
+        if (sourceSets < 0 || sourceSets + 1 >= path.size() || !path.subList(sourceSets + 2, path.size()).contains("java")) {
+            return;
+        }
+        List<String> roots = switch (path.get(sourceSets + 1)) {
+            case "main" -> mainRoots;
+            case "test" -> testRoots;
+            default -> null;
+        };
+        if (roots == null) {
+            return;
+        }
+        if (call.group(1).equals("setSrcDirs") || call.group(2) != null) {
+            roots.clear();
+        }
+        Matcher literal = TOKEN.matcher(statement);
+        literal.region(call.end(), statement.length());
+        while (literal.find()) {
+            String value = literal.group(1) != null ? literal.group(1) : literal.group(2);
+            if (value == null) {
+                continue;
+            }
+            value = GRADLE_PROJECT_DIR.matcher(value).replaceFirst("");
+            if (!value.isEmpty() && !value.contains("$") && !roots.contains(value)) {
+                roots.add(value);
+            }
+        }
+    }
+
+    /**
+     * Nomi dell'intestazione di un blocco o del prefisso di un'istruzione:
+     * {@code sourceSets.getByName("test")} e {@code sourceSets["test"]} danno [sourceSets, test].
+     */
+    private static List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher token = TOKEN.matcher(text);
+        while (token.find()) {
+            String value = token.group(3) != null ? token.group(3)
+                : token.group(1) != null ? token.group(1) : token.group(2);
+            if (!DSL_NOISE.contains(value)) {
+                tokens.add(value);
+            }
+        }
+        return tokens;
+    }
+
+    private static int stringEnd(String script, int start) {
+        char quote = script.charAt(start);
+        for (int i = start + 1; i < script.length(); i++) {
+            if (script.charAt(i) == '\\') {
+                i++;
+            } else if (script.charAt(i) == quote || script.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return script.length() - 1;
+    }
+
+    private static List<Path> resolveAll(Path root, List<String> paths) {
+        List<Path> resolved = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            resolved.add(root.resolve(path).normalize());
+        }
+        return resolved;
+    }
+
+    private static String readQuietly(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // File di build illeggibile: restano le root standard
+            return "";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.thenormancoder.aitestgen.project;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Struttura di un progetto: tipo di build e source root di main e test, comprese
+ * quelle non standard dichiarate nel file di build. Le cartelle di test per package
+ * vengono calcolate una volta e ricordate, così come quelle già create su disco.
+ *
+ * È condiviso tra le richieste: i campi sono immutabili, le due memo thread-safe.
+ */
+public final class ProjectDescriptor {
+
+    private final Path root;
+    private final ProjectType buildType;
+    private final List<Path> sourceRoots;
+    private final List<Path> testRoots;
+    private final Map<String, Path> packageDirectories = new ConcurrentHashMap<>();
+    private final Set<Path> existingDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param testRoots non vuota: la prima è quella in cui vengono esportati i test
+     */
+    public ProjectDescriptor(Path root, ProjectType buildType, List<Path> sourceRoots, List<Path> testRoots) {
+        if (testRoots.isEmpty()) {
+            throw new IllegalArgumentException("At least one test root is required");
+        }
+        this.root = root;
+        this.buildType = buildType;
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.testRoots = List.copyOf(testRoots);
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public ProjectType buildType() {
+        return buildType;
+    }
+
+    /**
+     * False se nella radice non c'è né un pom.xml né un build.gradle(.kts).
+     */
+    public boolean isValid() {
+        return buildType != ProjectType.UNKNOWN;
+    }
+
+    public List<Path> sourceRoots() {
+        return sourceRoots;
+    }
+
+    public List<Path> testRoots() {
+        return testRoots;
+    }
+
+    public Path testRoot() {
+        return testRoots.get(0);
+    }
+
+    /**
+     * Cartella dei test del package sotto la test root principale.
+     */
+    public Path testDirectory(String packageName) {
+        return packageDirectories.computeIfAbsent(packageName == null ? "" : packageName, name -> {
+            Path directory = testRoot();
+            if (!name.isEmpty()) {
+                for (String part : name.split("\\.")) {
+                    directory = directory.resolve(part);
+                }
+            }
+            return directory;
+        });
+    }
+
+    public Path testFile(String packageName, String className) {
+        return testDirectory(packageName).resolve(className + "Test.java");
+    }
+
+    /**
+     * Crea la cartella se non risulta già creata da questo descrittore. Se nel frattempo
+     * viene cancellata, chi scrive deve chiamare {@link #forgetDirectory} e riprovare.
+     */
+    public void ensureDirectory(Path directory) throws IOException {
+        if (!existingDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            existingDirectories.add(directory);
+        }
+    }
+
+    public void forgetDirectory(Path directory) {
+        existingDirectories.remove(directory);
+    }
+}
@@ -0,0 +1,80 @@
+package com.thenormancoder.aitestgen.project;
+
+import com.thenormancoder.aitestgen.cache.BoundedCache;
+import com.thenormancoder.aitestgen.cache.CacheStats;
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Un {@link ProjectDescriptor} per radice di progetto, letto dal file di build alla prima
+ * richiesta e poi servito dalla memoria: su workspace di rete ogni stat costa, e ogni
+ * esportazione chiedeva tipo di build e percorso dei test.
+ *
+ * La radice del progetto è osservata senza sottocartelle: solo la creazione, modifica o
+ * cancellazione di un file di build invalida il descrittore, non i test appena esportati.
+ */
+@Component
+public class ProjectDescriptorCache {
+
+    private final ProjectDescriptorProperties properties;
+    private final ProjectFileWatcher fileWatcher;
+    private final BoundedCache<Path, ProjectDescriptor> descriptors;
+
+    public ProjectDescriptorCache(ProjectDescriptorProperties properties, ProjectFileWatcher fileWatcher) {
+        this.properties = properties;
+        this.fileWatcher = fileWatcher;
+        // Peso unitario: il limite effettivo è il numero di progetti. Un descrittore rimosso
+        // dai limiti o dal TTL smette di essere osservato
+        this.descriptors = new BoundedCache<>(
+            properties.maxProjects(),
+            properties.maxProjects(),
+            properties.ttl(),
+            descriptor -> 1,
+            (root, descriptor) -> fileWatcher.unwatch(root)
+        );
+    }
+
+    public ProjectDescriptor descriptorFor(String projectPath) {
+        return descriptorFor(Paths.get(projectPath));
+    }
+
+    /**
+     * Restituisce il descrittore del progetto, leggendo il file di build se assente o invalidato.
+     * Una cartella inesistente ha un descrittore UNKNOWN che non viene messo in cache.
+     */
+    public ProjectDescriptor descriptorFor(Path projectRoot) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        ProjectDescriptor cached = descriptors.get(root);
+        if (cached != null) {
+            return cached;
+        }
+        ProjectDescriptor descriptor = BuildLayout.read(root);
+        if (!Files.isDirectory(root)) {
+            return descriptor;
+        }
+        descriptors.put(root, descriptor);
+        if (properties.watchFiles()) {
+            // Registrato dopo il put: una modifica concorrente invalida comunque il nuovo descrittore
+            fileWatcher.watchDirectory(root, changed -> {
+                if (BuildLayout.BUILD_FILES.contains(String.valueOf(changed.getFileName()))) {
+                    invalidate(root);
+                }
+            });
+        }
+        return descriptor;
+    }
+
+    public void invalidate(Path projectRoot) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        descriptors.invalidate(root);
+        fileWatcher.unwatch(root);
+    }
+
+    public CacheStats stats() {
+        return descriptors.stats();
+    }
+}
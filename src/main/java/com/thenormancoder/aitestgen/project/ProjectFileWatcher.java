@@ -0,0 +1,170 @@
+package com.thenormancoder.aitestgen.project;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Osserva ricorsivamente le cartelle registrate e notifica ogni file creato,
+ * modificato o cancellato. Un solo {@link WatchService} e un solo thread daemon
+ * servono tutte le registrazioni; le nuove sottocartelle vengono registrate
+ * appena compaiono, salvo per le cartelle osservate con {@link #watchDirectory}.
+ */
+@Component
+public class ProjectFileWatcher {
+
+    private final Map<Path, Consumer<Path>> listeners = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Registration> keys = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+
+    /**
+     * Registra {@code root} e tutte le sue sottocartelle. Se la cartella è già
+     * osservata il listener viene sostituito.
+     *
+     * @return false se la cartella non esiste o il file system non supporta la notifica
+     */
+    public boolean watch(Path root, Consumer<Path> listener) {
+        return watch(root, listener, true);
+    }
+
+    /**
+     * Come {@link #watch}, ma solo i file direttamente in {@code directory}: per i file
+     * di build nella radice di progetto senza registrare tutto l'albero sottostante.
+     */
+    public boolean watchDirectory(Path directory, Consumer<Path> listener) {
+        return watch(directory, listener, false);
+    }
+
+    private boolean watch(Path root, Consumer<Path> listener, boolean recursive) {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (!Files.isDirectory(normalized)) {
+            return false;
+        }
+        boolean alreadyWatched = listeners.put(normalized, listener) != null;
+        if (alreadyWatched) {
+            return true;
+        }
+        try {
+            if (recursive) {
+                registerTree(normalized, normalized);
+            } else {
+                register(new Registration(normalized, normalized, false));
+            }
+            return true;
+        } catch (IOException e) {
+            unwatch(normalized);
+            return false;
+        }
+    }
+
+    public void unwatch(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        listeners.remove(normalized);
+        keys.entrySet().removeIf(entry -> {
+            if (entry.getValue().root().equals(normalized)) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public boolean isWatching(Path root) {
+        return listeners.containsKey(root.toAbsolutePath().normalize());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    private void registerTree(Path root, Path start) throws IOException {
+        try (Stream<Path> directories = Files.walk(start)) {
+            for (Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                register(new Registration(root, directory, true));
+            }
+        }
+    }
+
+    private void register(Registration registration) throws IOException {
+        WatchKey key = registration.directory().register(watchService(),
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        keys.put(key, registration);
+    }
+
+    private synchronized WatchService watchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::processEvents, "project-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Registration registration = keys.get(key);
+            List<WatchEvent<?>> events = key.pollEvents();
+            if (registration != null) {
+                for (WatchEvent<?> event : events) {
+                    dispatch(registration, event);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    private void dispatch(Registration registration, WatchEvent<?> event) {
+        Consumer<Path> listener = listeners.get(registration.root());
+        if (listener == null) {
+            return;
+        }
+        // OVERFLOW: eventi persi, si notifica la cartella stessa
+        Path changed = event.context() instanceof Path name
+            ? registration.directory().resolve(name)
+            : registration.directory();
+        if (registration.recursive() && event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+            && Files.isDirectory(changed)) {
+            try {
+                registerTree(registration.root(), changed);
+            } catch (IOException e) {
+                // Cartella già sparita: l'evento di creazione viene comunque notificato
+            }
+        }
+        try {
+            listener.accept(changed);
+        } catch (RuntimeException e) {
+            // Un listener difettoso non deve fermare il thread di notifica
+        }
+    }
+
+    private record Registration(Path root, Path directory, boolean recursive) {}
+}
@@ -0,0 +1,5 @@
+package com.thenormancoder.aitestgen.project;
+
+public enum ProjectType {
+    MAVEN, GRADLE, UNKNOWN
+}
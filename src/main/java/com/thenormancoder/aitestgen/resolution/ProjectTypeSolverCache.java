@@ -0,0 +1,130 @@
+package com.thenormancoder.aitestgen.resolution;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.thenormancoder.aitestgen.cache.BoundedCache;
+import com.thenormancoder.aitestgen.cache.CacheStats;
+import com.thenormancoder.aitestgen.cache.SingleFlight;
+import com.thenormancoder.aitestgen.config.ParserProperties;
+import com.thenormancoder.aitestgen.config.SymbolResolutionProperties;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Un {@link TypeSolver} per progetto: JDK via reflection più le source root main del
+ * progetto, lette dal suo {@link com.thenormancoder.aitestgen.project.ProjectDescriptor}.
+ * Costruirlo è costoso (e il solver accumula i file già parsati), quindi viene creato una
+ * volta per radice di progetto, anche con richieste concorrenti, tenuto in una cache LRU
+ * con TTL e invalidato quando cambia un file sotto i sorgenti o cambiano le source root.
+ */
+@Component
+public class ProjectTypeSolverCache {
+
+    private final ParserProperties parserProperties;
+    private final SymbolResolutionProperties properties;
+    private final ProjectDescriptorCache descriptorCache;
+    private final ProjectFileWatcher fileWatcher;
+    private final BoundedCache<Path, ProjectTypeSolver> solvers;
+    private final SingleFlight<Path, ProjectTypeSolver> building = new SingleFlight<>();
+
+    public ProjectTypeSolverCache(ParserProperties parserProperties,
+                                  SymbolResolutionProperties properties,
+                                  ProjectDescriptorCache descriptorCache,
+                                  ProjectFileWatcher fileWatcher) {
+        this.parserProperties = parserProperties;
+        this.properties = properties;
+        this.descriptorCache = descriptorCache;
+        this.fileWatcher = fileWatcher;
+        // Peso unitario: il limite effettivo è il numero di progetti. Un solver rimosso
+        // dai limiti o dal TTL smette di essere osservato
+        this.solvers = new BoundedCache<>(
+            properties.maxProjects(),
+            properties.maxProjects(),
+            properties.ttl(),
+            solver -> 1,
+            (root, solver) -> unwatch(solver)
+        );
+    }
+
+    /**
+     * Restituisce il solver del progetto, costruendolo se assente o invalidato. Le richieste
+     * concorrenti sullo stesso progetto attendono la stessa costruzione.
+     */
+    public ProjectTypeSolver solverFor(Path projectRoot) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        List<Path> sourceRoots = descriptorCache.descriptorFor(root).sourceRoots();
+        ProjectTypeSolver cached = solvers.get(root);
+        if (cached != null && cached.sourceRoots().equals(sourceRoots)) {
+            return cached.reused();
+        }
+        if (cached != null) {
+            // Il file di build ha cambiato le source root
+            invalidate(root);
+        }
+        return building.execute(root, () -> build(root, sourceRoots));
+    }
+
+    public void invalidate(Path projectRoot) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        ProjectTypeSolver solver = solvers.invalidate(root);
+        if (solver != null) {
+            unwatch(solver);
+        }
+    }
+
+    public CacheStats stats() {
+        return solvers.stats();
+    }
+
+    private ProjectTypeSolver build(Path root, List<Path> sourceRoots) {
+        ProjectTypeSolver solver = new ProjectTypeSolver(root, sourceRoots, createTypeSolver(sourceRoots),
+            new ReentrantLock(), false);
+        solvers.put(root, solver);
+        if (properties.watchFiles()) {
+            // Registrato dopo il put: una modifica concorrente invalida comunque il nuovo solver
+            for (Path sourceRoot : sourceRoots) {
+                fileWatcher.watch(sourceRoot, changed -> invalidate(root));
+            }
+        }
+        return solver;
+    }
+
+    private void unwatch(ProjectTypeSolver solver) {
+        solver.sourceRoots().forEach(fileWatcher::unwatch);
+    }
+
+    private TypeSolver createTypeSolver(List<Path> sourceRoots) {
+        CombinedTypeSolver combined = new CombinedTypeSolver(new ReflectionTypeSolver(true));
+        ParserConfiguration configuration = new ParserConfiguration()
+            .setLanguageLevel(parserProperties.languageLevel())
+            .setAttributeComments(false);
+        for (Path sourceRoot : sourceRoots) {
+            if (Files.isDirectory(sourceRoot)) {
+                combined.add(new JavaParserTypeSolver(sourceRoot, configuration));
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Solver di un progetto. Il {@link JavaParserTypeSolver} usa internamente un
+     * solo parser, quindi le risoluzioni sullo stesso progetto vanno serializzate
+     * tramite {@code lock}.
+     */
+    public record ProjectTypeSolver(Path root, List<Path> sourceRoots, TypeSolver typeSolver, ReentrantLock lock,
+                                    boolean cached) {
+
+        ProjectTypeSolver reused() {
+            return new ProjectTypeSolver(root, sourceRoots, typeSolver, lock, true);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.config.BatchGenerationProperties;
+import com.thenormancoder.aitestgen.dto.BatchGenerationResponse;
+import com.thenormancoder.aitestgen.dto.TestExportRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera più classi in una sola richiesta, su un pool condiviso da tutte le richieste a
+ * lotti: al massimo {@code aitestgen.batch.parallelism} classi alla volta, oltre ai limiti
+ * già imposti dalla generazione (fan-out e rate limit verso il modello).
+ *
+ * Ogni voce segue lo stesso percorso della richiesta singola (generate, oppure
+ * generate-and-export se ha un projectPath) e ha il proprio esito: un errore, compreso
+ * un limite di analisi superato, fa fallire solo la sua voce.
+ */
+@Service
+public class BatchGenerationService {
+
+    private final TestGeneratorService testGeneratorService;
+    private final GenerateAndExportService generateAndExportService;
+    private final TestExecutionService testExecutionService;
+    private final TestExportService testExportService;
+    private final ExecutorService executor;
+    private final int maxItems;
+
+    public BatchGenerationService(TestGeneratorService testGeneratorService,
+                                  GenerateAndExportService generateAndExportService,
+                                  TestExecutionService testExecutionService,
+                                  TestExportService testExportService,
+                                  BatchGenerationProperties properties) {
+        this.testGeneratorService = testGeneratorService;
+        this.generateAndExportService = generateAndExportService;
+        this.testExecutionService = testExecutionService;
+        this.testExportService = testExportService;
+        this.maxItems = properties.maxItems();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, properties.parallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "batch-generation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Elabora le voci in parallelo e restituisce gli esiti nell'ordine della richiesta.
+     * Due voci che esporterebbero lo stesso file si escluderebbero a vicenda: vince la prima.
+     *
+     * @throws IllegalArgumentException se le voci superano {@code aitestgen.batch.max-items}
+     */
+    public BatchGenerationResponse generateAll(List<TestExportRequest> items, boolean merge, boolean bypassCache,
+                                               boolean execute) {
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch too large: " + items.size() + " items, at most " + maxItems);
+        }
+        long start = System.nanoTime();
+        Set<Path> targets = new HashSet<>();
+        List<Callable<BatchGenerationResponse.ItemResult>> tasks = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            TestExportRequest item = items.get(i);
+            String error = item == null || item.projectPath() == null ? null : claimTarget(item, targets);
+            tasks.add(error == null
+                ? () -> process(index, item, merge, bypassCache, execute)
+                : () -> failed(index, item, null, error));
+        }
+
+        List<BatchGenerationResponse.ItemResult> results = new ArrayList<>(items.size());
+        try {
+            for (Future<BatchGenerationResponse.ItemResult> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            // invokeAll ha già annullato le voci non terminate
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch generation failed", e.getCause());
+        }
+
+        int succeeded = (int) results.stream()
+            .filter(result -> result.status() == BatchGenerationResponse.Status.SUCCEEDED)
+            .count();
+        return new BatchGenerationResponse(results, succeeded, results.size() - succeeded,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Riserva il file di destinazione della voce; restituisce l'errore se non è possibile.
+     */
+    private String claimTarget(TestExportRequest item, Set<Path> targets) {
+        try {
+            Path target = testExportService.buildTestFilePath(item.packageName(), item.className(), item.projectPath());
+            return targets.add(target) ? null : "Duplicate target file in batch";
+        } catch (RuntimeException e) {
+            // Percorso del progetto o nomi di classe e package non validi
+            return "Invalid target file: " + e.getMessage();
+        }
+    }
+
+    private BatchGenerationResponse.ItemResult process(int index, TestExportRequest item, boolean merge,
+                                                       boolean bypassCache, boolean execute) {
+        if (item == null || item.sourceCode() == null || item.sourceCode().isBlank()) {
+            return failed(index, item, null, "Missing source code");
+        }
+        try {
+            if (item.projectPath() == null) {
+                TestGenerationRequest request = new TestGenerationRequest(
+                    item.sourceCode(), item.className(), item.packageName(), item.testType(), item.coverageLevel()
+                );
+                TestGenerationResponse response = testExecutionService.measure(
+                    testGeneratorService.generateTests(request, bypassCache), item.sourceCode(), null, execute);
+                return new BatchGenerationResponse.ItemResult(index, item.className(),
+                    BatchGenerationResponse.Status.SUCCEEDED, response, null, null, null, null);
+            }
+            return export(index, item, merge, bypassCache, execute);
+        } catch (IOException | RuntimeException e) {
+            return failed(index, item, null, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Come generate-and-export: il test viene scritto solo se compila.
+     */
+    private BatchGenerationResponse.ItemResult export(int index, TestExportRequest item, boolean merge,
+                                                      boolean bypassCache, boolean execute) throws IOException {
+        GenerateAndExportService.Result result =
+            generateAndExportService.generateAndExport(item, merge, bypassCache, execute);
+        if (result.status() != GenerateAndExportService.Status.EXPORTED) {
+            return failed(index, item, result.response(), result.error());
+        }
+        return new BatchGenerationResponse.ItemResult(index, item.className(), BatchGenerationResponse.Status.SUCCEEDED,
+            result.response(), result.filePath(), result.exportStatus(), result.merge(), null);
+    }
+
+    private static BatchGenerationResponse.ItemResult failed(int index, TestExportRequest item,
+                                                             TestGenerationResponse response, String error) {
+        return new BatchGenerationResponse.ItemResult(index, item == null ? null : item.className(),
+            BatchGenerationResponse.Status.FAILED, response, null, null, null, error);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stima statica, senza eseguire il test, di quanti cammini dei metodi pubblici il codice
+ * generato esercita. Ogni chiamata con argomenti distinti percorre al più un cammino in
+ * più, fino alla complessità ciclomatica del metodo; i metodi non chiamati contano zero.
+ * Un throw è esercitato se il test chiama il metodo e nomina il tipo dell'eccezione.
+ */
+final class CoverageEstimator {
+
+    /**
+     * @param coverage          percentuale stimata dei cammini esercitati, pesata sulla complessità
+     * @param unexercisedThrows throw dei metodi pubblici che nessun test si aspetta
+     */
+    record Estimate(double coverage, List<UnexercisedThrow> unexercisedThrows) {}
+
+    record UnexercisedThrow(String method, CodeAnalysisResult.ThrowSite throwSite) {
+        String describe() {
+            String condition = throwSite.condition() != null ? ", when " + throwSite.condition() : "";
+            return "No test expects " + throwSite.exceptionType() + " thrown by " + method
+                + " (line " + throwSite.line() + condition + ")";
+        }
+    }
+
+    private CoverageEstimator() {
+    }
+
+    static Estimate estimate(CodeAnalysisResult analysis, String code) {
+        // Gli overload condividono il nome e quindi le chiamate
+        Map<String, List<CodeAnalysisResult.MethodInfo>> byName = new LinkedHashMap<>();
+        for (CodeAnalysisResult.MethodInfo method : analysis.methods()) {
+            if (method.isPublic()) {
+                byName.computeIfAbsent(method.name(), name -> new ArrayList<>()).add(method);
+            }
+        }
+        if (byName.isEmpty()) {
+            return new Estimate(0.0, List.of());
+        }
+
+        long paths = 0;
+        long exercised = 0;
+        List<UnexercisedThrow> unexercisedThrows = new ArrayList<>();
+        for (Map.Entry<String, List<CodeAnalysisResult.MethodInfo>> entry : byName.entrySet()) {
+            int calls = distinctCalls(code, entry.getKey());
+            long methodPaths = 0;
+            for (CodeAnalysisResult.MethodInfo method : entry.getValue()) {
+                methodPaths += method.metrics() != null ? method.metrics().cyclomaticComplexity() : 1;
+                if (method.metrics() == null) {
+                    continue;
+                }
+                for (CodeAnalysisResult.ThrowSite throwSite : method.metrics().throwSites()) {
+                    if (calls == 0 || !Pattern.compile("\\b" + Pattern.quote(throwSite.exceptionType()) + "\\b")
+                        .matcher(code).find()) {
+                        unexercisedThrows.add(new UnexercisedThrow(method.name(), throwSite));
+                    }
+                }
+            }
+            paths += methodPaths;
+            exercised += Math.min(methodPaths, calls);
+        }
+        return new Estimate(Math.round(1000.0 * exercised / paths) / 10.0, unexercisedThrows);
+    }
+
+    /**
+     * Chiamate {@code .name(...)} con liste di argomenti distinte; un riferimento
+     * {@code ::name} conta come una chiamata.
+     */
+    static int distinctCalls(String code, String name) {
+        Set<String> argumentLists = new HashSet<>();
+        Matcher call = Pattern.compile("\\." + Pattern.quote(name) + "\\s*\\(").matcher(code);
+        while (call.find()) {
+            int close = closingParenthesis(code, call.end());
+            String arguments = close < 0 ? code.substring(call.end()) : code.substring(call.end(), close);
+            argumentLists.add(arguments.replaceAll("\\s+", ""));
+        }
+        if (Pattern.compile("::" + Pattern.quote(name) + "\\b").matcher(code).find()) {
+            argumentLists.add("::");
+        }
+        return argumentLists.size();
+    }
+
+    /**
+     * Indice della parentesi che chiude quella aperta prima di {@code from}, saltando
+     * stringhe e caratteri; -1 se manca.
+     */
+    private static int closingParenthesis(String code, int from) {
+        int depth = 1;
+        for (int i = from; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '"' || c == '\'') {
+                // Fino alla chiusura dello stesso apice, saltando i caratteri di escape
+                for (i++; i < code.length() && code.charAt(i) != c; i++) {
+                    if (code.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,99 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import com.thenormancoder.aitestgen.dto.TestExecutionReport;
+import com.thenormancoder.aitestgen.dto.TestExportRequest;
+import com.thenormancoder.aitestgen.dto.TestExportResult;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.dto.TestMergeReport;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Genera il test di una classe e lo scrive nel progetto, solo se compila: il percorso di
+ * generate-and-export, condiviso dall'endpoint e dalle voci dei lotti.
+ */
+@Service
+public class GenerateAndExportService {
+
+    public enum Status {
+        EXPORTED,
+        /** Nessun pom.xml o build.gradle in projectPath: non è stato generato nulla */
+        INVALID_PROJECT,
+        /** Il test generato non compila e non è stato scritto */
+        NOT_COMPILED
+    }
+
+    /**
+     * @param response     test generato, con l'esito di compilazione ed eventuale esecuzione;
+     *                     null per {@code INVALID_PROJECT}
+     * @param filePath     file scritto; null se non esportato
+     * @param exportStatus esito della scrittura; null se non esportato
+     * @param merge        esito dell'unione con il test esistente; null se non richiesta
+     */
+    public record Result(Status status, TestGenerationResponse response, String filePath,
+                         TestExportResult.Status exportStatus, TestMergeReport merge) {
+
+        /**
+         * @return il motivo per cui il test non è stato esportato, null se esportato
+         */
+        public String error() {
+            return switch (status) {
+                case EXPORTED -> null;
+                case INVALID_PROJECT -> "Invalid project structure. No pom.xml or build.gradle found.";
+                case NOT_COMPILED -> "Generated test does not compile: not exported";
+            };
+        }
+
+        public TestExecutionReport execution() {
+            return response == null ? null : response.execution();
+        }
+    }
+
+    private final TestMergeService testMergeService;
+    private final TestExecutionService testExecutionService;
+    private final TestExportService testExportService;
+
+    public GenerateAndExportService(TestMergeService testMergeService,
+                                    TestExecutionService testExecutionService,
+                                    TestExportService testExportService) {
+        this.testMergeService = testMergeService;
+        this.testExecutionService = testExecutionService;
+        this.testExportService = testExportService;
+    }
+
+    /**
+     * In modalità merge si rigenerano solo i metodi cambiati e si conservano gli altri test.
+     * Il test viene sempre compilato prima della scrittura; viene eseguito per misurarne la
+     * copertura solo con {@code execute}.
+     */
+    public Result generateAndExport(TestExportRequest request, boolean merge, boolean bypassCache, boolean execute)
+        throws IOException {
+        if (!testExportService.isValidProjectStructure(request.projectPath())) {
+            return new Result(Status.INVALID_PROJECT, null, null, null, null);
+        }
+        // Nomi non validi vengono rifiutati prima di generare
+        String filePath = testExportService.buildTestFilePath(
+            request.packageName(), request.className(), request.projectPath()).toString();
+        TestGenerationRequest generationRequest = new TestGenerationRequest(
+            request.sourceCode(), request.className(), request.packageName(),
+            request.testType(), request.coverageLevel()
+        );
+        TestMergeService.MergedGeneration merged =
+            testMergeService.generate(generationRequest, request.projectPath(), merge, bypassCache);
+        TestGenerationResponse generated = merged.response();
+        TestExecutionReport execution = testExecutionService.execute(
+            request.sourceCode(), generated.generatedTestCode(), request.projectPath(), execute);
+        TestGenerationResponse response = generated.withExecution(execution);
+        TestMergeReport mergeReport = merge ? merged.merge() : null;
+        if (execution.compilation().status() == CompilationReport.Status.FAILED) {
+            return new Result(Status.NOT_COMPILED, response, null, null, mergeReport);
+        }
+
+        TestExportResult.Status exportStatus = testExportService.exportTestToFile(
+            response.generatedTestCode(), request.packageName(), request.className(), request.projectPath());
+        return new Result(Status.EXPORTED, response, filePath, exportStatus, mergeReport);
+    }
+}
@@ -0,0 +1,29 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+
+/**
+ * Notifiche di avanzamento della generazione, usate dagli endpoint in streaming.
+ * Vengono invocate sul thread che esegue la generazione. Un'eccezione del listener fa
+ * fallire solo la richiesta a cui appartiene, non quelle che ne condividono la generazione.
+ */
+public interface GenerationListener {
+
+    GenerationListener NONE = new GenerationListener() {};
+
+    default void onAnalysis(CodeAnalysisResult analysis) {
+    }
+
+    /**
+     * Un metodo di test completo (annotazioni, firma e corpo) appena prodotto.
+     */
+    default void onTestMethod(String name, String source) {
+    }
+
+    /**
+     * Il modello ha fallito, anche dopo aver già prodotto dei metodi: quelli notificati finora
+     * vanno scartati, seguono i metodi generati dal template.
+     */
+    default void onFallback(String reason) {
+    }
+}
@@ -0,0 +1,458 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.comments.LineComment;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.thenormancoder.aitestgen.cache.SourceFingerprint;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Unisce test appena generati a una classe di test esistente, toccando solo i test generati.
+ *
+ * Ogni metodo di test generato porta un commento marcatore con la chiave del metodo sotto
+ * test, l'impronta del suo codice e quella del test stesso:
+ * <pre>// aitestgen: divide(int,int) source=3f2a9c1d04be test=9ab1c2d3e4f5</pre>
+ * Un metodo sotto test va rigenerato se nessun test ne ha l'impronta corrente (è nuovo o è
+ * cambiato). I test senza marcatore sono scritti a mano e non vengono mai toccati, così come
+ * i test generati modificati dopo la generazione (impronta del test diversa). Gli altri test
+ * generati vengono rimossi se il loro metodo è cambiato o non esiste più.
+ *
+ * La classe esistente viene stampata con {@link LexicalPreservingPrinter}: tutto ciò che non
+ * cambia resta carattere per carattere com'era. Un'istanza non è thread-safe.
+ */
+final class IncrementalTestMerger {
+
+    /**
+     * @param key        chiave del metodo sotto test, vedi {@link #methodKey(MethodDeclaration)}
+     * @param sourceHash impronta del metodo sotto test quando il test è stato generato
+     * @param testHash   impronta del test appena generato
+     */
+    record Marker(String key, String sourceHash, String testHash) {
+
+        private static final Pattern PATTERN =
+            Pattern.compile("^\\s*aitestgen:\\s+(\\S+)\\s+source=([0-9a-f]+)\\s+test=([0-9a-f]+)\\s*$");
+
+        static Marker parse(Comment comment) {
+            if (!(comment instanceof LineComment)) {
+                return null;
+            }
+            Matcher matcher = PATTERN.matcher(comment.getContent());
+            return matcher.matches() ? new Marker(matcher.group(1), matcher.group(2), matcher.group(3)) : null;
+        }
+
+        LineComment comment() {
+            return new LineComment(" aitestgen: " + key + " source=" + sourceHash + " test=" + testHash);
+        }
+    }
+
+    /**
+     * @param targets        metodi sotto test per chiave, con l'impronta corrente
+     * @param staleMethods   chiavi dei metodi nuovi o cambiati: i soli da generare
+     * @param existing       classe di test esistente pronta per la stampa che preserva la
+     *                       formattazione; null se il file manca o non si riesce a parsare
+     * @param obsoleteTests  test generati e mai modificati il cui metodo è cambiato o sparito
+     * @param preservedTests metodi scritti a mano o modificati dopo la generazione
+     */
+    record Plan(Map<String, Target> targets, List<String> staleMethods, ClassOrInterfaceDeclaration existing,
+                List<MethodDeclaration> obsoleteTests, int preservedTests) {}
+
+    record Target(String name, int parameterCount, String hash) {}
+
+    record Merged(String code, List<String> testMethods, List<String> addedTests, List<String> removedTests,
+                  int preservedTests) {}
+
+    private static final Set<String> TEST_ANNOTATIONS = Set.of("Test", "ParameterizedTest", "RepeatedTest");
+    private static final int HASH_LENGTH = 12;
+
+    private final JavaCodeAnalyzerService codeAnalyzer;
+    // Le impronte ignorano commenti e formattazione: cambiano solo se cambia il codice
+    private final DefaultPrettyPrinter codePrinter = new DefaultPrettyPrinter(new DefaultPrinterConfiguration()
+        .removeOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.PRINT_COMMENTS))
+        .removeOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.PRINT_JAVADOC)));
+
+    /**
+     * @param codeAnalyzer fonte dei parsing: parser del pool, livello di linguaggio configurato
+     *                     e limiti di analisi valgono anche per sorgente, test esistente e generato
+     */
+    IncrementalTestMerger(JavaCodeAnalyzerService codeAnalyzer) {
+        this.codeAnalyzer = codeAnalyzer;
+    }
+
+    /**
+     * Chiave di un metodo: nome e tipi dei parametri senza spazi, ad esempio
+     * {@code put(Map<String,Integer>,int)}.
+     */
+    static String methodKey(CodeAnalysisResult.MethodInfo method) {
+        return key(method.name(), method.parameters().stream().map(CodeAnalysisResult.ParameterInfo::type).toList());
+    }
+
+    static String methodKey(MethodDeclaration method) {
+        return key(method.getNameAsString(), method.getParameters().stream().map(Parameter::getTypeAsString).toList());
+    }
+
+    private static String key(String name, List<String> parameterTypes) {
+        return (name + "(" + String.join(",", parameterTypes) + ")").replaceAll("\\s+", "");
+    }
+
+    /**
+     * Confronta i metodi {@code targetKeys} della classe {@code className} con i marcatori del
+     * test esistente.
+     *
+     * @throws IllegalArgumentException se il sorgente non si riesce a parsare
+     * @throws com.thenormancoder.aitestgen.exception.AnalysisLimitException se un parsing supera i limiti
+     */
+    Plan plan(String sourceCode, String className, Collection<String> targetKeys, String existingTestCode) {
+        CompilationUnit source = codeAnalyzer.parse(sourceCode);
+        Map<String, Target> targets = new LinkedHashMap<>();
+        for (TypeDeclaration<?> type : source.findAll(TypeDeclaration.class)) {
+            if (!type.getNameAsString().equals(className)) {
+                continue;
+            }
+            // Classi, interfacce, record ed enum: la prima con il nome della classe analizzata
+            for (MethodDeclaration method : type.getMethods()) {
+                String key = methodKey(method);
+                if (targetKeys.contains(key)) {
+                    targets.putIfAbsent(key, new Target(method.getNameAsString(), method.getParameters().size(),
+                        hash(method)));
+                }
+            }
+            break;
+        }
+
+        ClassOrInterfaceDeclaration existing = existingTestCode == null ? null : parseForMerge(existingTestCode);
+        if (existing == null) {
+            return new Plan(targets, List.copyOf(targets.keySet()), null, List.of(), 0);
+        }
+        Set<String> covered = new HashSet<>();
+        List<MethodDeclaration> obsolete = new ArrayList<>();
+        int preserved = 0;
+        for (MethodDeclaration method : existing.getMethods()) {
+            Marker marker = method.getComment().map(Marker::parse).orElse(null);
+            if (marker == null) {
+                preserved += isTest(method) ? 1 : 0;
+                continue;
+            }
+            Target target = targets.get(marker.key());
+            boolean current = target != null && target.hash().equals(marker.sourceHash());
+            if (current) {
+                covered.add(marker.key());
+            }
+            if (!marker.testHash().equals(hash(method))) {
+                // Modificato a mano dopo la generazione: ora appartiene a chi l'ha modificato
+                preserved++;
+            } else if (!current) {
+                obsolete.add(method);
+            }
+        }
+        List<String> stale = targets.keySet().stream().filter(key -> !covered.contains(key)).toList();
+        return new Plan(targets, stale, existing, obsolete, preserved);
+    }
+
+    /**
+     * Applica il piano: senza classe esistente il risultato è il codice generato con i
+     * marcatori, altrimenti la classe esistente senza i test obsoleti e con quelli generati.
+     *
+     * @param generatedCode classe generata per {@code plan.staleMethods()}; null se non c'è nulla da generare
+     * @throws IllegalStateException se il codice generato non si riesce a parsare
+     */
+    Merged merge(Plan plan, String generatedCode) {
+        ClassOrInterfaceDeclaration generated = generatedCode == null ? null : parseForMerge(generatedCode);
+        if (generatedCode != null && generated == null) {
+            throw new IllegalStateException("Generated test is not valid Java and cannot be merged");
+        }
+        if (plan.existing() == null) {
+            if (generated == null) {
+                throw new IllegalStateException("Nothing to merge");
+            }
+            List<String> added = new ArrayList<>();
+            for (MethodDeclaration method : generated.getMethods()) {
+                if (isTest(method)) {
+                    mark(method, plan);
+                    added.add(method.getNameAsString());
+                }
+            }
+            return new Merged(print(generated), added, added, List.of(), 0);
+        }
+
+        List<String> removed = plan.obsoleteTests().stream().map(MethodDeclaration::getNameAsString).toList();
+        ClassOrInterfaceDeclaration existing = removeTests(plan.existing(), plan.obsoleteTests());
+        String original = print(existing);
+        List<String> added = new ArrayList<>();
+        if (generated != null) {
+            addSupport(existing, generated);
+            Set<String> names = existing.getMethods().stream()
+                .map(MethodDeclaration::getNameAsString)
+                .collect(Collectors.toCollection(HashSet::new));
+            for (MethodDeclaration method : generated.getMethods()) {
+                if (!isTest(method)) {
+                    continue;
+                }
+                MethodDeclaration test = method.clone();
+                String name = test.getNameAsString();
+                for (int suffix = 2; !names.add(name); suffix++) {
+                    name = test.getNameAsString() + suffix;
+                }
+                test.setName(name);
+                // Il commento va impostato dopo l'aggiunta, altrimenti la stampa lo perde
+                existing.addMember(test);
+                mark(test, plan);
+                added.add(name);
+            }
+        }
+        List<String> testMethods = existing.getMethods().stream()
+            .filter(IncrementalTestMerger::isTest)
+            .map(MethodDeclaration::getNameAsString)
+            .toList();
+        return new Merged(withoutIndentedBlankLines(print(existing), original), testMethods, added, removed,
+            plan.preservedTests());
+    }
+
+    /**
+     * Toglie i test dal testo della classe a righe intere, marcatore e riga vuota di
+     * separazione compresi, così non restano righe vuote o indentazioni orfane. Se un test
+     * condivide una riga con altro codice si ripiega sulla rimozione dall'albero sintattico.
+     */
+    private ClassOrInterfaceDeclaration removeTests(ClassOrInterfaceDeclaration existing, List<MethodDeclaration> tests) {
+        if (tests.isEmpty()) {
+            return existing;
+        }
+        List<String> lines = new ArrayList<>(List.of(print(existing).split("\n", -1)));
+        List<Range> ranges = new ArrayList<>();
+        for (MethodDeclaration test : tests) {
+            Range method = test.getRange().orElse(null);
+            Range comment = test.getComment().flatMap(Node::getRange).orElse(method);
+            if (method == null || comment == null
+                || !lines.get(comment.begin.line - 1).substring(0, comment.begin.column - 1).isBlank()
+                || !lines.get(method.end.line - 1).substring(method.end.column).isBlank()) {
+                tests.forEach(MethodDeclaration::remove);
+                return existing;
+            }
+            ranges.add(new Range(comment.begin, method.end));
+        }
+        ranges.sort((a, b) -> Integer.compare(b.begin.line, a.begin.line));
+        for (Range range : ranges) {
+            int first = range.begin.line - 1;
+            lines.subList(first, range.end.line).clear();
+            if (first > 0 && lines.get(first - 1).isBlank()
+                && (first == lines.size() || lines.get(first).isBlank() || lines.get(first).strip().startsWith("}"))) {
+                lines.remove(first - 1);
+            }
+        }
+        ClassOrInterfaceDeclaration reparsed = parseForMerge(String.join("\n", lines));
+        if (reparsed == null) {
+            tests.forEach(MethodDeclaration::remove);
+            return existing;
+        }
+        return reparsed;
+    }
+
+    /**
+     * Import, annotazioni di classe, campi, istruzioni di {@code @BeforeEach} e metodi di
+     * supporto del codice generato che mancano nella classe esistente; quelli presenti,
+     * anche se diversi, restano come sono.
+     */
+    private static void addSupport(ClassOrInterfaceDeclaration existing, ClassOrInterfaceDeclaration generated) {
+        CompilationUnit existingUnit = existing.findCompilationUnit().orElseThrow();
+        generated.findCompilationUnit().ifPresent(unit -> {
+            Set<String> imports = existingUnit.getImports().stream()
+                .map(IncrementalTestMerger::importKey)
+                .collect(Collectors.toCollection(HashSet::new));
+            for (ImportDeclaration importDeclaration : unit.getImports()) {
+                if (imports.add(importKey(importDeclaration))) {
+                    existingUnit.addImport(importDeclaration.clone());
+                }
+            }
+        });
+        Set<String> annotations = existing.getAnnotations().stream()
+            .map(AnnotationExpr::toString)
+            .collect(Collectors.toSet());
+        for (AnnotationExpr annotation : generated.getAnnotations()) {
+            if (!annotations.contains(annotation.toString())) {
+                existing.addAnnotation(annotation.clone());
+            }
+        }
+
+        MethodDeclaration setUp = existing.getMethods().stream()
+            .filter(method -> method.isAnnotationPresent("BeforeEach"))
+            .findFirst()
+            .orElse(null);
+        List<FieldDeclaration> fields = new ArrayList<>();
+        for (BodyDeclaration<?> member : generated.getMembers()) {
+            if (member instanceof FieldDeclaration field) {
+                if (existing.getFieldByName(field.getVariable(0).getNameAsString()).isEmpty()) {
+                    fields.add(field);
+                }
+            } else if (member instanceof MethodDeclaration method && method.isAnnotationPresent("BeforeEach")) {
+                if (setUp == null) {
+                    existing.addMember(method.clone());
+                    continue;
+                }
+                BlockStmt body = setUp.getBody().orElse(null);
+                if (body == null) {
+                    continue;
+                }
+                Set<String> statements = body.getStatements().stream()
+                    .map(Statement::toString)
+                    .collect(Collectors.toCollection(HashSet::new));
+                for (Statement statement : method.getBody().orElseGet(BlockStmt::new).getStatements()) {
+                    if (statements.add(statement.toString())) {
+                        body.addStatement(statement.clone());
+                    }
+                }
+            } else if (member instanceof MethodDeclaration method && !isTest(method)) {
+                if (existing.getMethodsBySignature(method.getNameAsString(), method.getParameters().stream()
+                        .map(Parameter::getTypeAsString).toArray(String[]::new)).isEmpty()) {
+                    existing.addMember(method.clone());
+                }
+            } else if (member instanceof TypeDeclaration<?> nested) {
+                boolean present = existing.getMembers().stream()
+                    .anyMatch(other -> other instanceof TypeDeclaration<?> type
+                        && type.getNameAsString().equals(nested.getNameAsString()));
+                if (!present) {
+                    existing.addMember(nested.clone());
+                }
+            }
+        }
+        // In testa alla classe: inseriti più in basso perderebbero l'indentazione
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            existing.getMembers().addFirst(fields.get(i).clone());
+        }
+    }
+
+    /**
+     * Sostituisce l'eventuale commento del test con il marcatore del metodo che esercita.
+     */
+    private void mark(MethodDeclaration test, Plan plan) {
+        String key = attribute(test, plan);
+        if (key == null) {
+            return;
+        }
+        test.setComment(new Marker(key, plan.targets().get(key).hash(), hash(test)).comment());
+    }
+
+    /**
+     * Metodo sotto test esercitato dal test: tra quelli chiamati (con lo stesso numero di
+     * argomenti) preferisce quello citato nel nome del test; senza chiamate riconosciute
+     * basta il nome del test, altrimenti il primo metodo da generare.
+     */
+    private static String attribute(MethodDeclaration test, Plan plan) {
+        List<String> candidates = plan.staleMethods().isEmpty()
+            ? List.copyOf(plan.targets().keySet())
+            : plan.staleMethods();
+        String testName = test.getNameAsString().toLowerCase();
+        List<String> called = new ArrayList<>();
+        for (MethodCallExpr call : test.findAll(MethodCallExpr.class)) {
+            for (String key : candidates) {
+                Target target = plan.targets().get(key);
+                if (target.name().equals(call.getNameAsString())
+                    && target.parameterCount() == call.getArguments().size() && !called.contains(key)) {
+                    called.add(key);
+                }
+            }
+        }
+        for (MethodReferenceExpr reference : test.findAll(MethodReferenceExpr.class)) {
+            for (String key : candidates) {
+                if (plan.targets().get(key).name().equals(reference.getIdentifier()) && !called.contains(key)) {
+                    called.add(key);
+                }
+            }
+        }
+        List<String> byName = (called.isEmpty() ? candidates : called).stream()
+            .filter(key -> testName.contains(plan.targets().get(key).name().toLowerCase()))
+            .toList();
+        if (!byName.isEmpty()) {
+            return byName.get(0);
+        }
+        if (!called.isEmpty()) {
+            return called.get(0);
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * Classe principale del codice, con la stampa che preserva la formattazione già
+     * attivata; null se il codice non è Java valido o non contiene classi.
+     */
+    private ClassOrInterfaceDeclaration parseForMerge(String code) {
+        CompilationUnit unit;
+        try {
+            unit = codeAnalyzer.parse(code);
+        } catch (IllegalArgumentException e) {
+            // Codice non valido; i limiti di analisi superati invece si propagano
+            return null;
+        }
+        LexicalPreservingPrinter.setup(unit);
+        for (TypeDeclaration<?> type : unit.getTypes()) {
+            if (type instanceof ClassOrInterfaceDeclaration declaration && !declaration.isInterface()) {
+                return declaration;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * La stampa che preserva la formattazione separa i membri aggiunti con righe fatte della
+     * sola indentazione: le svuota, lasciando intatte quelle che c'erano già in {@code original}.
+     */
+    private static String withoutIndentedBlankLines(String merged, String original) {
+        String[] before = original.split("\n", -1);
+        StringBuilder result = new StringBuilder(merged.length());
+        int next = 0;
+        for (String line : merged.split("\n", -1)) {
+            if (next < before.length && line.equals(before[next])) {
+                next++;
+                result.append(line);
+            } else {
+                result.append(line.isBlank() ? "" : line);
+            }
+            result.append('\n');
+        }
+        return result.substring(0, result.length() - 1);
+    }
+
+    private static String print(ClassOrInterfaceDeclaration type) {
+        return LexicalPreservingPrinter.print(type.findCompilationUnit().orElseThrow());
+    }
+
+    private String hash(Node node) {
+        return SourceFingerprint.sha256(codePrinter.print(node)).substring(0, HASH_LENGTH);
+    }
+
+    private static boolean isTest(MethodDeclaration method) {
+        return method.getAnnotations().stream().anyMatch(a -> TEST_ANNOTATIONS.contains(a.getNameAsString()));
+    }
+
+    private static String importKey(ImportDeclaration importDeclaration) {
+        return importDeclaration.getNameAsString() + (importDeclaration.isAsterisk() ? ".*" : "")
+            + (importDeclaration.isStatic() ? " static" : "");
+    }
+}
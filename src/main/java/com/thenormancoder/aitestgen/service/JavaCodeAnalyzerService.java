@@ -1,106 +1,147 @@
 package com.thenormancoder.aitestgen.service;
 
-import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.FieldDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.Parameter;
+import com.thenormancoder.aitestgen.cache.AnalysisCache;
+import com.thenormancoder.aitestgen.cache.CacheStats;
+import com.thenormancoder.aitestgen.cache.SingleFlightStats;
+import com.thenormancoder.aitestgen.config.AnalysisCacheProperties;
+import com.thenormancoder.aitestgen.config.AnalysisLimitsProperties;
+import com.thenormancoder.aitestgen.config.ParserProperties;
 import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import com.thenormancoder.aitestgen.exception.AnalysisLimitException;
+import com.thenormancoder.aitestgen.exception.AnalysisOverloadedException;
+import com.thenormancoder.aitestgen.exception.SourceTooLargeException;
+import com.thenormancoder.aitestgen.parser.JavaParserPool;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 public class JavaCodeAnalyzerService {
 
+    private final JavaParserPool parserPool;
+    private final AnalysisCache analysisCache;
+    private final AnalysisLimitsProperties limits;
+    private final Semaphore parsePermits;
+
+    public JavaCodeAnalyzerService() {
+        this(new JavaParserPool(ParserProperties.defaults()), new AnalysisCache(AnalysisCacheProperties.defaults()),
+            AnalysisLimitsProperties.defaults());
+    }
+
+    @Autowired
+    public JavaCodeAnalyzerService(JavaParserPool parserPool, AnalysisCache analysisCache,
+                                   AnalysisLimitsProperties limits) {
+        this.parserPool = parserPool;
+        this.analysisCache = analysisCache;
+        this.limits = limits;
+        this.parsePermits = new Semaphore(limits.effectiveMaxConcurrentParses());
+    }
+
     public CodeAnalysisResult analyzeJavaCode(String sourceCode) {
-        try {
-            JavaParser parser = new JavaParser();
-            CompilationUnit cu = parser.parse(sourceCode).getResult()
-                .orElseThrow(() -> new IllegalArgumentException("Invalid Java code"));
-
-            ClassOrInterfaceDeclaration clazz = cu.findFirst(ClassOrInterfaceDeclaration.class)
-                .orElseThrow(() -> new IllegalArgumentException("No class found in source code"));
-
-            String packageName = cu.getPackageDeclaration()
-                .map(pd -> pd.getNameAsString())
-                .orElse("");
-
-            List<String> imports = cu.getImports().stream()
-                .map(importDecl -> importDecl.getNameAsString())
-                .collect(Collectors.toList());
-
-            List<CodeAnalysisResult.MethodInfo> methods = analyzeMethods(clazz);
-            List<CodeAnalysisResult.FieldInfo> fields = analyzeFields(clazz);
-            
-            boolean hasConstructors = clazz.getConstructors().size() > 0;
-            String classType = clazz.isInterface() ? "interface" : "class";
-
-            return new CodeAnalysisResult(
-                clazz.getNameAsString(),
-                packageName,
-                methods,
-                fields,
-                imports,
-                hasConstructors,
-                classType
-            );
+        return analyzeJavaCode(sourceCode, ParseOptions.DEFAULT);
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Error analyzing Java code: " + e.getMessage(), e);
-        }
+    /**
+     * Analizza il tipo principale del sorgente (vedi {@link CompilationUnitAnalysis#primaryTypeName()}).
+     */
+    public CodeAnalysisResult analyzeJavaCode(String sourceCode, ParseOptions options) {
+        return analyzeCompilationUnit(sourceCode, options).primaryType()
+            .orElseThrow(() -> new RuntimeException("Error analyzing Java code: No class found in source code"));
+    }
+
+    /**
+     * Analizza tutti i tipi dichiarati nel sorgente, inclusi enum, record e tipi annidati.
+     * I sorgenti oltre la soglia configurata vengono analizzati in modalità scheletro.
+     *
+     * Solo i parsing effettivi (non i risultati in cache) occupano uno dei posti
+     * limitati da {@link AnalysisLimitsProperties#maxConcurrentParses()}.
+     *
+     * @throws SourceTooLargeException     se il sorgente supera la dimensione massima
+     * @throws AnalysisOverloadedException se non si libera un posto entro l'attesa configurata
+     */
+    public CompilationUnitAnalysis analyzeCompilationUnit(String sourceCode, ParseOptions options) {
+        checkSize(sourceCode);
+        ParseOptions effective = parserPool.effectiveOptions(sourceCode, options);
+        return analysisCache.getOrAnalyze(sourceCode, effective,
+            () -> withParsePermit(() -> parseAndAnalyze(sourceCode, effective)));
     }
 
-    private List<CodeAnalysisResult.MethodInfo> analyzeMethods(ClassOrInterfaceDeclaration clazz) {
-        List<CodeAnalysisResult.MethodInfo> methods = new ArrayList<>();
-        
-        for (MethodDeclaration method : clazz.getMethods()) {
-            List<CodeAnalysisResult.ParameterInfo> parameters = method.getParameters().stream()
-                .map(this::createParameterInfo)
-                .collect(Collectors.toList());
-            
-            String javadoc = method.getJavadocComment()
-                .map(jd -> jd.getContent())
-                .orElse("");
-
-            methods.add(new CodeAnalysisResult.MethodInfo(
-                method.getNameAsString(),
-                method.getTypeAsString(),
-                parameters,
-                method.isPublic(),
-                method.isStatic(),
-                javadoc
-            ));
+    /**
+     * Analizza senza consultare né popolare la cache (usato dalle scansioni di progetto,
+     * che limitano la concorrenza con il proprio pool di thread).
+     */
+    public CompilationUnitAnalysis analyzeUncached(String sourceCode, ParseOptions options) {
+        checkSize(sourceCode);
+        return parseAndAnalyze(sourceCode, parserPool.effectiveOptions(sourceCode, options));
+    }
+
+    /**
+     * AST completo del sorgente, dai parser del pool e con gli stessi limiti dell'analisi
+     * (dimensione, posti di parsing, scadenza), ma senza cache: per chi ha bisogno dei corpi
+     * dei metodi o del testo originale e non solo del riepilogo.
+     *
+     * @throws IllegalArgumentException se il sorgente non è Java valido, anche se il parser
+     *                                  ha recuperato l'errore
+     */
+    public CompilationUnit parse(String sourceCode) {
+        checkSize(sourceCode);
+        return withParsePermit(() -> parserPool.parseStrict(sourceCode, ParseOptions.DEFAULT));
+    }
+
+    /**
+     * Come {@link #parse(String)} ma con le opzioni indicate e, come l'analisi, accettando
+     * gli errori recuperati dal parser: per chi legge solo dichiarazioni e firme.
+     */
+    public CompilationUnit parseLenient(String sourceCode, ParseOptions options) {
+        checkSize(sourceCode);
+        return withParsePermit(() -> parserPool.parse(sourceCode, options));
+    }
+
+    public CacheStats cacheStats() {
+        return analysisCache.stats();
+    }
+
+    public SingleFlightStats coalescingStats() {
+        return analysisCache.coalescingStats();
+    }
+
+    private void checkSize(String sourceCode) {
+        int maxChars = limits.maxSourceChars();
+        if (maxChars > 0 && sourceCode.length() > maxChars) {
+            throw new SourceTooLargeException(sourceCode.length(), maxChars);
         }
-        
-        return methods;
     }
 
-    private List<CodeAnalysisResult.FieldInfo> analyzeFields(ClassOrInterfaceDeclaration clazz) {
-        List<CodeAnalysisResult.FieldInfo> fields = new ArrayList<>();
-        
-        for (FieldDeclaration field : clazz.getFields()) {
-            field.getVariables().forEach(variable -> {
-                fields.add(new CodeAnalysisResult.FieldInfo(
-                    variable.getNameAsString(),
-                    field.getElementType().asString(),
-                    field.isPrivate(),
-                    field.isStatic(),
-                    field.isFinal()
-                ));
-            });
+    private <T> T withParsePermit(Supplier<T> task) {
+        try {
+            if (!parsePermits.tryAcquire(limits.admissionWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new AnalysisOverloadedException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisOverloadedException();
+        }
+        try {
+            return task.get();
+        } finally {
+            parsePermits.release();
         }
-        
-        return fields;
     }
 
-    private CodeAnalysisResult.ParameterInfo createParameterInfo(Parameter parameter) {
-        return new CodeAnalysisResult.ParameterInfo(
-            parameter.getNameAsString(),
-            parameter.getTypeAsString()
-        );
+    private CompilationUnitAnalysis parseAndAnalyze(String sourceCode, ParseOptions options) {
+        try {
+            CompilationUnit cu = parserPool.parse(sourceCode, options);
+            return TypeDeclarationCollector.collect(cu, !options.skeleton());
+        } catch (AnalysisLimitException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error analyzing Java code: " + e.getMessage(), e);
+        }
     }
-}
\ No newline at end of file
+}
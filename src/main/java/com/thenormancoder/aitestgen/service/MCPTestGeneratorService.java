@@ -1,5 +1,7 @@
 package com.thenormancoder.aitestgen.service;
 
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.GenerationStats;
 import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
 import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
 import com.thenormancoder.aitestgen.dto.TestExportRequest;
@@ -21,60 +23,35 @@ import java.util.Map;
 @Service
 public class MCPTestGeneratorService {
 
-    public MCPTestGeneratorService() {
+    private final JavaCodeAnalyzerService codeAnalyzer;
+
+    public MCPTestGeneratorService(JavaCodeAnalyzerService codeAnalyzer) {
+        this.codeAnalyzer = codeAnalyzer;
     }
 
     /**
-     * Genera test utilizzando il MCP server
+     * Genera test utilizzando il MCP server. Finché l'integrazione non è disponibile
+     * restituisce lo scheletro del template offline costruito dall'analisi.
      */
     public TestGenerationResponse generateTestsWithMCP(TestGenerationRequest request) {
-        String mockGeneratedCode = String.format("""
-            package %s;
-            
-            import org.junit.jupiter.api.Test;
-            import org.junit.jupiter.api.BeforeEach;
-            import static org.assertj.core.api.Assertions.assertThat;
-            
-            class %sTest {
-            
-                private %s %s;
-                
-                @BeforeEach
-                void setUp() {
-                    %s = new %s();
-                }
-                
-                @Test
-                void testGeneratedWithMCP() {
-                    assertThat(%s).isNotNull();
-                }
-                
-                @Test
-                void testMCPAdvancedFeatures() {
-                    assertThat(true).isTrue();
-                }
-            }
-            """, 
-            request.packageName(),
-            request.className(),
-            request.className(),
-            request.className().toLowerCase(),
-            request.className().toLowerCase(),
-            request.className(),
-            request.className().toLowerCase()
-        );
-        
+        long start = System.nanoTime();
+        CodeAnalysisResult analysis = codeAnalyzer.analyzeJavaCode(request.sourceCode());
+        String packageName = request.packageName() != null ? request.packageName() : analysis.packageName();
+        TestTemplateEngine.Rendered rendered = TestTemplateEngine.render(analysis, packageName, request.testType());
+
         return new TestGenerationResponse(
-            mockGeneratedCode,
-            List.of("testGeneratedWithMCP", "testMCPAdvancedFeatures"),
-            request.className() + "Test",
-            95.0,
+            rendered.code(),
+            rendered.testMethods(),
+            analysis.className() + "Test",
+            CoverageEstimator.estimate(analysis, rendered.code()).coverage(),
             LocalDateTime.now(),
             List.of(
                 "Use standalone MCP server with AI assistants for real integration",
                 "Spring AI MCP client will be available in future versions",
-                "Current implementation shows MCP endpoint structure"
-            )
+                "Current implementation returns the offline template scaffold"
+            ),
+            GenerationStats.template((System.nanoTime() - start) / 1_000_000, "MCP integration not available"),
+            null
         );
     }
 
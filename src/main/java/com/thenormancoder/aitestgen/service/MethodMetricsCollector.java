@@ -0,0 +1,184 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.LocalRecordDeclarationStmt;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visitor che misura il corpo di un metodo: complessità ciclomatica, rami e throw.
+ * Le lambda contano per il metodo che le contiene; classi locali e anonime no, perché
+ * i loro metodi non vengono eseguiti chiamando quello che le dichiara.
+ *
+ * Un'istanza è monouso e non è thread-safe.
+ */
+final class MethodMetricsCollector extends VoidVisitorAdapter<Void> {
+
+    private int complexity = 1;
+    private int branches;
+    private final List<CodeAnalysisResult.ThrowSite> throwSites = new ArrayList<>();
+
+    static CodeAnalysisResult.MethodMetrics measure(BlockStmt body) {
+        MethodMetricsCollector collector = new MethodMetricsCollector();
+        body.accept(collector, null);
+        return CodeAnalysisResult.MethodMetrics.of(collector.complexity, collector.branches, collector.throwSites);
+    }
+
+    @Override
+    public void visit(IfStmt n, Void arg) {
+        decision();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ConditionalExpr n, Void arg) {
+        decision();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ForStmt n, Void arg) {
+        // for (;;) non ha condizione e quindi nessun ramo
+        if (n.getCompare().isPresent()) {
+            decision();
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ForEachStmt n, Void arg) {
+        decision();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(WhileStmt n, Void arg) {
+        decision();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(DoStmt n, Void arg) {
+        decision();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(BinaryExpr n, Void arg) {
+        if (n.getOperator() == BinaryExpr.Operator.AND || n.getOperator() == BinaryExpr.Operator.OR) {
+            decision();
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchEntry n, Void arg) {
+        // Un cammino e un ramo per etichetta; il default (esplicito o implicito) è il ramo
+        // in più contato dallo switch
+        complexity += n.getLabels().size();
+        branches += n.getLabels().isEmpty() ? 0 : n.getLabels().size();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchStmt n, Void arg) {
+        branches++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchExpr n, Void arg) {
+        branches++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(CatchClause n, Void arg) {
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ThrowStmt n, Void arg) {
+        String exceptionType = n.getExpression() instanceof ObjectCreationExpr creation
+            ? creation.getType().getNameAsString()
+            : sourceText(n.getExpression());
+        throwSites.add(new CodeAnalysisResult.ThrowSite(
+            exceptionType,
+            n.getBegin().map(position -> position.line).orElse(0),
+            condition(n)
+        ));
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ObjectCreationExpr n, Void arg) {
+        // Argomenti sì, corpo della classe anonima no
+        n.getScope().ifPresent(scope -> scope.accept(this, arg));
+        n.getArguments().forEach(argument -> argument.accept(this, arg));
+    }
+
+    @Override
+    public void visit(LocalClassDeclarationStmt n, Void arg) {
+    }
+
+    @Override
+    public void visit(LocalRecordDeclarationStmt n, Void arg) {
+    }
+
+    private void decision() {
+        complexity++;
+        branches += 2;
+    }
+
+    /**
+     * Condizione dell'if più vicino che contiene il throw, senza uscire dal metodo o dalla lambda.
+     */
+    private static String condition(Node node) {
+        Node current = node;
+        while (current.getParentNode().isPresent()) {
+            Node parent = current.getParentNode().get();
+            if (parent instanceof IfStmt ifStmt) {
+                if (ifStmt.getThenStmt() == current) {
+                    return sourceText(ifStmt.getCondition());
+                }
+                if (ifStmt.getElseStmt().orElse(null) == current) {
+                    return "!(" + sourceText(ifStmt.getCondition()) + ")";
+                }
+            }
+            if (parent instanceof BodyDeclaration || parent instanceof LambdaExpr) {
+                return null;
+            }
+            current = parent;
+        }
+        return null;
+    }
+
+    /**
+     * Testo originale dai token, molto più economico della stampa dell'AST.
+     */
+    private static String sourceText(Node node) {
+        return node.getTokenRange().map(TokenRange::toString).orElseGet(node::toString);
+    }
+}
@@ -0,0 +1,216 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.cache.SourceFingerprint;
+import com.thenormancoder.aitestgen.config.ProjectAnalysisProperties;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import com.thenormancoder.aitestgen.dto.ProjectAnalysisSummary;
+import com.thenormancoder.aitestgen.dto.ProjectFileAnalysis;
+import com.thenormancoder.aitestgen.index.IndexEntry;
+import com.thenormancoder.aitestgen.index.ProjectIndex;
+import com.thenormancoder.aitestgen.index.ProjectIndexStore;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import com.thenormancoder.aitestgen.project.ProjectDescriptor;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Analizza tutti i file .java delle source root di un progetto in parallelo.
+ *
+ * Il parsing è CPU-bound, quindi gira su un pool di thread fisso e limitato;
+ * i risultati vengono consegnati al chiamante man mano che i file terminano,
+ * sempre dal thread chiamante, così il listener può scrivere sullo stream
+ * della risposta senza sincronizzazione. Ogni scansione tiene in coda al più
+ * due file per thread: i successivi vengono inviati man mano che i precedenti
+ * vengono consegnati.
+ *
+ * In modalità incrementale i file invariati rispetto all'indice persistente
+ * (stessa dimensione e mtime, oppure stesso hash del contenuto) non vengono
+ * riletti né analizzati di nuovo.
+ */
+@Service
+public class ProjectAnalysisService {
+
+    private final JavaCodeAnalyzerService codeAnalyzer;
+    private final ProjectDescriptorCache projectDescriptors;
+    private final ProjectIndexStore indexStore;
+    private final ExecutorService executor;
+    private final int window;
+    private final int maxFailures;
+
+    public ProjectAnalysisService(JavaCodeAnalyzerService codeAnalyzer,
+                                  ProjectDescriptorCache projectDescriptors,
+                                  ProjectIndexStore indexStore,
+                                  ProjectAnalysisProperties properties) {
+        this.codeAnalyzer = codeAnalyzer;
+        this.projectDescriptors = projectDescriptors;
+        this.indexStore = indexStore;
+        this.maxFailures = properties.maxFailures();
+        this.window = 2 * properties.effectiveParallelism();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.effectiveParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "project-analysis-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ProjectAnalysisSummary analyzeProject(String projectPath, ParseOptions options, boolean incremental,
+                                                 Consumer<ProjectFileAnalysis> listener) throws IOException {
+        ProjectDescriptor project = projectPath != null ? projectDescriptors.descriptorFor(projectPath) : null;
+        if (project == null || !project.isValid()) {
+            throw new IllegalArgumentException("Invalid project structure. No pom.xml or build.gradle found.");
+        }
+
+        long start = System.nanoTime();
+        Path projectRoot = project.root();
+        List<Path> sourceFiles = discoverSourceFiles(project);
+        String indexVariant = options.toString();
+        ProjectIndex index = indexStore.isEnabled() ? indexStore.indexFor(projectRoot, indexVariant) : null;
+
+        CompletionService<ProjectFileAnalysis> completionService = new ExecutorCompletionService<>(executor);
+        Set<Future<ProjectFileAnalysis>> pending = new HashSet<>();
+        Iterator<Path> remaining = sourceFiles.iterator();
+
+        int analyzed = 0;
+        int reused = 0;
+        int failed = 0;
+        List<String> failures = new ArrayList<>();
+        Set<String> seenPaths = new HashSet<>();
+        try {
+            for (int i = 0; i < sourceFiles.size(); i++) {
+                while (pending.size() < window && remaining.hasNext()) {
+                    Path file = remaining.next();
+                    pending.add(completionService.submit(
+                        () -> analyzeFile(projectRoot, file, options, index, incremental)));
+                }
+                Future<ProjectFileAnalysis> completed = completionService.take();
+                pending.remove(completed);
+                ProjectFileAnalysis result = completed.get();
+                seenPaths.add(result.path());
+                if (result.isSuccessful()) {
+                    analyzed++;
+                    if (result.cached()) {
+                        reused++;
+                    }
+                } else {
+                    failed++;
+                    if (failures.size() < maxFailures) {
+                        failures.add(result.path() + ": " + result.error());
+                    }
+                }
+                listener.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Project analysis interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Project analysis failed", e.getCause());
+        } finally {
+            // Se il client si disconnette i file non ancora analizzati vengono abbandonati
+            pending.forEach(future -> future.cancel(true));
+        }
+
+        if (index != null) {
+            index.retainOnly(seenPaths);
+            indexStore.save(index, projectRoot, indexVariant);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double filesPerSecond = elapsedMillis == 0 ? sourceFiles.size() : sourceFiles.size() * 1000.0 / elapsedMillis;
+        return new ProjectAnalysisSummary(projectPath, sourceFiles.size(), analyzed, reused, failed,
+            elapsedMillis, filesPerSecond, failures);
+    }
+
+    /**
+     * File .java delle source root dichiarate nel file di build (src/main/java se assenti).
+     */
+    List<Path> discoverSourceFiles(ProjectDescriptor project) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : project.sourceRoots()) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                    .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private ProjectFileAnalysis analyzeFile(Path projectRoot, Path file, ParseOptions options,
+                                            ProjectIndex index, boolean incremental) {
+        long start = System.nanoTime();
+        // Separatore uniforme così l'indice resta valido tra sistemi operativi
+        String relativePath = projectRoot.relativize(file).toString().replace('\\', '/');
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+
+            IndexEntry entry = index != null && incremental ? index.get(relativePath) : null;
+            if (entry != null && entry.matchesAttributes(size, lastModified)) {
+                return new ProjectFileAnalysis(relativePath, index.analysis(entry), null, elapsedMillis(start), true);
+            }
+
+            byte[] content = Files.readAllBytes(file);
+            byte[] contentHash = SourceFingerprint.sha256(content);
+            if (entry != null && entry.matchesContent(contentHash)) {
+                // Solo il mtime è cambiato (checkout, touch): il risultato resta valido
+                index.put(entry.withAttributes(size, lastModified));
+                return new ProjectFileAnalysis(relativePath, index.analysis(entry), null, elapsedMillis(start), true);
+            }
+
+            // Le scansioni di progetto non passano dalla cache delle richieste singole
+            String sourceCode = new String(content, StandardCharsets.UTF_8);
+            CompilationUnitAnalysis analysis = codeAnalyzer.analyzeUncached(sourceCode, options);
+            if (index != null) {
+                index.put(relativePath, size, lastModified, contentHash, analysis);
+            }
+            return new ProjectFileAnalysis(relativePath, analysis, null, elapsedMillis(start), false);
+        } catch (IOException | RuntimeException e) {
+            if (index != null) {
+                index.remove(relativePath);
+            }
+            return new ProjectFileAnalysis(relativePath, null, rootMessage(e), elapsedMillis(start), false);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,168 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Riduce la classe da testare al contesto minimo utile per il prompt: firme di tutti
+ * i metodi, tipi dei campi, solo gli import citati, javadoc e corpi solo dei metodi
+ * sotto test. I corpi sono il testo originale del sorgente, commenti inclusi.
+ */
+final class PromptContextCompactor {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private PromptContextCompactor() {
+    }
+
+    /**
+     * @param bodies corpi dei metodi per firma, da {@link #bodies}
+     * @return il contesto compatto, oppure null se i corpi non sono disponibili (il
+     *         chiamante ripiega sulle sole firme)
+     */
+    static String compact(CodeAnalysisResult analysis, Map<String, String> bodies,
+                          List<CodeAnalysisResult.MethodInfo> methodsUnderTest) {
+        if (bodies == null) {
+            return null;
+        }
+        Map<String, String> bodiesUnderTest = new HashMap<>();
+        for (CodeAnalysisResult.MethodInfo method : methodsUnderTest) {
+            String body = bodies.get(key(method));
+            if (body != null) {
+                bodiesUnderTest.put(key(method), body);
+            }
+        }
+        return render(analysis, analysis.methods(), "compacted: bodies of the methods under test only",
+            methodsUnderTest, bodiesUnderTest);
+    }
+
+    /**
+     * Firme di {@code methods}, con la javadoc dei soli {@code javadocFor}.
+     */
+    static String signatures(CodeAnalysisResult analysis, List<CodeAnalysisResult.MethodInfo> methods,
+                             List<CodeAnalysisResult.MethodInfo> javadocFor) {
+        return render(analysis, methods, "signatures only", javadocFor, Map.of());
+    }
+
+    static String signature(CodeAnalysisResult.MethodInfo method) {
+        StringBuilder signature = new StringBuilder();
+        if (method.isPublic()) {
+            signature.append("public ");
+        }
+        if (method.isStatic()) {
+            signature.append("static ");
+        }
+        signature.append(method.returnType()).append(' ').append(method.name()).append('(');
+        for (int i = 0; i < method.parameters().size(); i++) {
+            CodeAnalysisResult.ParameterInfo parameter = method.parameters().get(i);
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameter.type()).append(' ').append(parameter.name());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static String render(CodeAnalysisResult analysis, List<CodeAnalysisResult.MethodInfo> methods,
+                                 String description, List<CodeAnalysisResult.MethodInfo> javadocFor,
+                                 Map<String, String> bodies) {
+        Set<String> withJavadoc = javadocFor.stream().map(PromptContextCompactor::key).collect(Collectors.toSet());
+        StringBuilder type = new StringBuilder();
+        type.append(analysis.classType()).append(' ').append(analysis.className()).append(" {\n");
+        for (CodeAnalysisResult.FieldInfo field : analysis.fields()) {
+            type.append("    ");
+            if (field.isPrivate()) {
+                type.append("private ");
+            }
+            if (field.isStatic()) {
+                type.append("static ");
+            }
+            if (field.isFinal()) {
+                type.append("final ");
+            }
+            type.append(field.type()).append(' ').append(field.name()).append(";\n");
+        }
+        if (analysis.hasConstructors()) {
+            type.append("    // declares explicit constructors\n");
+        }
+        for (CodeAnalysisResult.MethodInfo method : methods) {
+            String key = key(method);
+            if (withJavadoc.contains(key) && method.javadoc() != null && !method.javadoc().isBlank()) {
+                type.append("    /**").append(method.javadoc().strip()).append(" */\n");
+            }
+            type.append("    ").append(signature(method));
+            String body = bodies.get(key);
+            type.append(body != null ? " " + body + "\n" : ";\n");
+        }
+        type.append("}");
+
+        StringBuilder context = new StringBuilder("Class under test (").append(description).append("):\n");
+        if (analysis.packageName() != null && !analysis.packageName().isEmpty()) {
+            context.append("package ").append(analysis.packageName()).append(";\n");
+        }
+        // Solo gli import il cui nome semplice compare nel contesto
+        Set<String> identifiers = identifiers(type);
+        for (String importName : analysis.imports()) {
+            if (identifiers.contains(importName.substring(importName.lastIndexOf('.') + 1))) {
+                context.append("import ").append(importName).append(";\n");
+            }
+        }
+        return context.append(type).toString();
+    }
+
+    /**
+     * Corpi dei metodi dichiarati direttamente nel tipo, per firma. Si calcolano una volta
+     * per richiesta e valgono per tutti i prompt della generazione.
+     *
+     * @return null se il tipo non si trova
+     */
+    static Map<String, String> bodies(CompilationUnit cu, String className) {
+        TypeDeclaration<?> type = cu.findFirst(TypeDeclaration.class,
+            candidate -> candidate.getNameAsString().equals(className)).orElse(null);
+        if (type == null) {
+            return null;
+        }
+        Map<String, String> bodies = new HashMap<>();
+        for (MethodDeclaration method : type.getMethods()) {
+            method.getBody()
+                .flatMap(body -> body.getTokenRange())
+                .map(TokenRange::toString)
+                .ifPresent(body -> bodies.put(key(method), body));
+        }
+        return bodies;
+    }
+
+    private static Set<String> identifiers(CharSequence text) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER.matcher(text);
+        while (matcher.find()) {
+            identifiers.add(matcher.group());
+        }
+        return identifiers;
+    }
+
+    private static String key(CodeAnalysisResult.MethodInfo method) {
+        return method.name() + method.parameters().stream()
+            .map(CodeAnalysisResult.ParameterInfo::type)
+            .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static String key(MethodDeclaration method) {
+        return method.getNameAsString() + method.getParameters().stream()
+            .map(Parameter::getTypeAsString)
+            .collect(Collectors.joining(",", "(", ")"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.thenormancoder.aitestgen.cache.CacheStats;
+import com.thenormancoder.aitestgen.config.SymbolResolutionProperties;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.ResolvedAnalysisResult;
+import com.thenormancoder.aitestgen.dto.TypeResolution;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import com.thenormancoder.aitestgen.resolution.ProjectTypeSolverCache;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Risolve i tipi di campi, parametri e valori di ritorno rispetto ai sorgenti di
+ * un progetto e al JDK, per distinguere i tipi di progetto (da mockare) da quelli
+ * della libreria standard.
+ */
+@Service
+public class SymbolResolutionService {
+
+    // Per risolvere le firme bastano dichiarazioni e tipi: niente corpi né commenti
+    private static final ParseOptions RESOLUTION_OPTIONS = ParseOptions.WITHOUT_COMMENTS.withSkeleton(true);
+
+    private final JavaCodeAnalyzerService codeAnalyzer;
+    private final ProjectTypeSolverCache solverCache;
+    private final SymbolResolutionProperties properties;
+
+    public SymbolResolutionService(JavaCodeAnalyzerService codeAnalyzer,
+                                   ProjectTypeSolverCache solverCache,
+                                   SymbolResolutionProperties properties) {
+        this.codeAnalyzer = codeAnalyzer;
+        this.solverCache = solverCache;
+        this.properties = properties;
+    }
+
+    /**
+     * Analizza il sorgente e, se la risoluzione è abilitata, risolve i tipi che usa
+     * rispetto al progetto in {@code projectPath}.
+     */
+    public ResolvedAnalysisResult analyzeResolved(String sourceCode, String projectPath) {
+        CodeAnalysisResult analysis = codeAnalyzer.analyzeJavaCode(sourceCode);
+        if (!properties.enabled()) {
+            return new ResolvedAnalysisResult(analysis, Map.of(), false, 0);
+        }
+        Path projectRoot = Paths.get(projectPath);
+        if (!Files.isDirectory(projectRoot)) {
+            throw new IllegalArgumentException("Project path does not exist: " + projectPath);
+        }
+
+        long start = System.nanoTime();
+        ProjectTypeSolverCache.ProjectTypeSolver solver = solverCache.solverFor(projectRoot);
+        // Secondo parsing, con le opzioni della risoluzione: occupa un posto come l'analisi
+        CompilationUnit cu = codeAnalyzer.parseLenient(sourceCode, RESOLUTION_OPTIONS);
+        Map<String, TypeResolution> types = new LinkedHashMap<>();
+        solver.lock().lock();
+        try {
+            new JavaSymbolSolver(solver.typeSolver()).inject(cu);
+            cu.findAll(FieldDeclaration.class).forEach(field -> resolveInto(types, field.getElementType()));
+            cu.findAll(MethodDeclaration.class).forEach(method -> resolveInto(types, method.getType()));
+            cu.findAll(Parameter.class).stream()
+                // Solo parametri di metodi e costruttori, non di lambda o catch negli inizializzatori
+                .filter(parameter -> parameter.getParentNode().orElse(null) instanceof CallableDeclaration<?>)
+                .forEach(parameter -> resolveInto(types, parameter.getType()));
+            cu.findAll(RecordDeclaration.class).forEach(record ->
+                record.getParameters().forEach(component -> resolveInto(types, component.getType())));
+        } finally {
+            solver.lock().unlock();
+        }
+        long resolutionMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ResolvedAnalysisResult(analysis, types, solver.cached(), resolutionMillis);
+    }
+
+    public CacheStats solverCacheStats() {
+        return solverCache.stats();
+    }
+
+    private static void resolveInto(Map<String, TypeResolution> types, Type type) {
+        types.computeIfAbsent(type.asString(), written -> resolve(written, type));
+    }
+
+    static TypeResolution resolve(String written, Type type) {
+        if (type.isPrimitiveType() || type.isVoidType()) {
+            return new TypeResolution(written, written, TypeResolution.Origin.PRIMITIVE);
+        }
+        if (type.isVarType()) {
+            return new TypeResolution(written, null, TypeResolution.Origin.UNRESOLVED);
+        }
+        try {
+            return classify(written, type.resolve());
+        } catch (RuntimeException e) {
+            // UnsolvedSymbolException, tipi di librerie esterne o costrutti non supportati dal solver
+            return new TypeResolution(written, null, TypeResolution.Origin.UNRESOLVED);
+        }
+    }
+
+    private static TypeResolution classify(String written, ResolvedType resolved) {
+        while (resolved.isArray()) {
+            resolved = resolved.asArrayType().getComponentType();
+        }
+        if (resolved.isPrimitive() || resolved.isVoid()) {
+            return new TypeResolution(written, resolved.describe(), TypeResolution.Origin.PRIMITIVE);
+        }
+        if (resolved.isTypeVariable()) {
+            return new TypeResolution(written, resolved.describe(), TypeResolution.Origin.TYPE_VARIABLE);
+        }
+        if (!resolved.isReferenceType()) {
+            return new TypeResolution(written, null, TypeResolution.Origin.UNRESOLVED);
+        }
+        ResolvedReferenceType reference = resolved.asReferenceType();
+        // Le dichiarazioni con un AST provengono da sorgenti (progetto o file analizzato),
+        // quelle senza AST dal ReflectionTypeSolver, limitato al JDK
+        boolean fromSource = reference.getTypeDeclaration()
+            .flatMap(declaration -> declaration.toAst())
+            .isPresent();
+        return new TypeResolution(written, reference.getQualifiedName(),
+            fromSource ? TypeResolution.Origin.PROJECT : TypeResolution.Origin.JDK);
+    }
+}
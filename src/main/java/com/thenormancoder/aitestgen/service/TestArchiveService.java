@@ -0,0 +1,110 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.archive.ArchiveFormat;
+import com.thenormancoder.aitestgen.archive.TestArchiveWriter;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Genera una suite di test e la scrive in un archivio man mano che ogni classe è pronta,
+ * per chi non può indicare un progetto scrivibile sul server.
+ */
+@Service
+public class TestArchiveService {
+
+    static final String ERRORS_DIRECTORY = "aitestgen-errors/";
+    static final String SUMMARY_ENTRY = "aitestgen-summary.txt";
+
+    public record ArchiveSummary(int generated, int failed, long elapsedMillis) {}
+
+    private final TestMergeService testMergeService;
+    private final TestExportService testExportService;
+
+    public TestArchiveService(TestMergeService testMergeService, TestExportService testExportService) {
+        this.testMergeService = testMergeService;
+        this.testExportService = testExportService;
+    }
+
+    /**
+     * Genera un test per ogni classe e lo aggiunge all'archivio appena pronto, nello stesso
+     * percorso in cui verrebbe esportato. I test già scritti non vengono trattenuti, né le
+     * richieste già lette se {@code classes} le legge su richiesta: la memoria non cresce
+     * con la suite, a parte i nomi delle voci.
+     *
+     * Una classe che fallisce non interrompe le altre: il motivo finisce nella voce
+     * aitestgen-errors/&lt;n&gt;.txt, dove n è la posizione della classe nella richiesta.
+     * L'ultima voce è un riepilogo con i conteggi. Gli errori di lettura di {@code classes}
+     * fermano la suite con una voce di errore.
+     *
+     * @param projectPath progetto di cui usare la struttura delle cartelle di test; null per quella standard
+     * @throws IOException solo per errori di scrittura su {@code out}
+     */
+    public ArchiveSummary writeSuite(Iterator<TestGenerationRequest> classes, ArchiveFormat format, String projectPath,
+                                     boolean bypassCache, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        TestArchiveWriter archive = format.open(out);
+        Set<String> entries = new HashSet<>();
+        int generated = 0;
+        int failed = 0;
+        int position = 0;
+        while (true) {
+            position++;
+            TestGenerationRequest request;
+            try {
+                if (!classes.hasNext()) {
+                    break;
+                }
+                request = classes.next();
+            } catch (RuntimeException e) {
+                failed++;
+                writeError(archive, position, null, "Invalid request body: " + e.getMessage());
+                break;
+            }
+
+            String entry = null;
+            byte[] testCode = null;
+            String error;
+            try {
+                entry = testExportService.archiveEntryName(request.packageName(), request.className(), projectPath);
+                if (!entries.add(entry)) {
+                    // Due classi per la stessa voce: vince la prima, come per l'esportazione
+                    throw new IllegalArgumentException("Duplicate test class in suite");
+                }
+                testCode = testMergeService.generate(request, null, false, bypassCache)
+                    .response().generatedTestCode().getBytes(StandardCharsets.UTF_8);
+                error = null;
+            } catch (IOException | RuntimeException e) {
+                error = String.valueOf(e.getMessage());
+            }
+
+            if (error == null) {
+                archive.add(entry, testCode);
+                generated++;
+            } else {
+                failed++;
+                writeError(archive, position, request, error);
+            }
+        }
+
+        ArchiveSummary summary = new ArchiveSummary(generated, failed, (System.nanoTime() - start) / 1_000_000);
+        archive.add(SUMMARY_ENTRY, ("generated: " + summary.generated() + "\n"
+            + "failed: " + summary.failed() + "\n"
+            + "elapsedMillis: " + summary.elapsedMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+        archive.finish();
+        return summary;
+    }
+
+    private static void writeError(TestArchiveWriter archive, int position, TestGenerationRequest request,
+                                   String error) throws IOException {
+        String content = (request == null ? "" : "class: " + request.packageName() + "." + request.className() + "\n")
+            + "error: " + error + "\n";
+        archive.add(ERRORS_DIRECTORY + position + ".txt", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,149 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Unisce le classi di test generate per gruppi di metodi in un'unica classe.
+ *
+ * Il risultato dipende solo dall'ordine delle parti, non da quando sono state
+ * completate: import deduplicati e ordinati (statici in fondo), annotazioni di
+ * classe e campi presi alla prima occorrenza, un solo {@code @BeforeEach} con
+ * le istruzioni di tutte le parti senza ripetizioni, metodi di test in ordine
+ * con i nomi duplicati rinumerati. Le parti che non si riescono a parsare vengono scartate.
+ *
+ * Le parti vengono parsate dal pool dell'analizzatore, con il livello di linguaggio
+ * configurato e gli stessi limiti di dimensione e concorrenza.
+ */
+final class TestClassMerger {
+
+    record Merged(String code, List<String> testMethods, int skippedParts) {}
+
+    private static final Set<String> TEST_ANNOTATIONS = Set.of("Test", "ParameterizedTest", "RepeatedTest");
+
+    private final JavaCodeAnalyzerService codeAnalyzer;
+
+    TestClassMerger(JavaCodeAnalyzerService codeAnalyzer) {
+        this.codeAnalyzer = codeAnalyzer;
+    }
+
+    Merged merge(String packageName, String className, List<String> parts) {
+        Map<String, ImportDeclaration> imports = new TreeMap<>();
+        Map<String, AnnotationExpr> annotations = new LinkedHashMap<>();
+        Map<String, FieldDeclaration> fields = new LinkedHashMap<>();
+        Map<String, BodyDeclaration<?>> others = new LinkedHashMap<>();
+        List<MethodDeclaration> tests = new ArrayList<>();
+        Set<String> testNames = new HashSet<>();
+        MethodDeclaration setUp = null;
+        Set<String> setUpStatements = new HashSet<>();
+        int skipped = 0;
+
+        for (String part : parts) {
+            CompilationUnit cu = parse(part);
+            ClassOrInterfaceDeclaration type = cu == null ? null : primaryClass(cu);
+            if (type == null) {
+                skipped++;
+                continue;
+            }
+            for (ImportDeclaration importDeclaration : cu.getImports()) {
+                imports.putIfAbsent(importKey(importDeclaration), importDeclaration.clone());
+            }
+            for (AnnotationExpr annotation : type.getAnnotations()) {
+                annotations.putIfAbsent(annotation.toString(), annotation.clone());
+            }
+            for (BodyDeclaration<?> member : type.getMembers()) {
+                if (member instanceof FieldDeclaration field) {
+                    fields.putIfAbsent(field.getVariable(0).getNameAsString(), field.clone());
+                } else if (member instanceof MethodDeclaration method && method.isAnnotationPresent("BeforeEach")) {
+                    if (setUp == null) {
+                        setUp = method.clone();
+                        setUp.getBody().orElseGet(BlockStmt::new).getStatements()
+                            .forEach(statement -> setUpStatements.add(statement.toString()));
+                    } else {
+                        BlockStmt body = setUp.getBody().orElseGet(BlockStmt::new);
+                        for (Statement statement : method.getBody().orElseGet(BlockStmt::new).getStatements()) {
+                            if (setUpStatements.add(statement.toString())) {
+                                body.addStatement(statement.clone());
+                            }
+                        }
+                    }
+                } else if (member instanceof MethodDeclaration method && isTest(method)) {
+                    MethodDeclaration test = method.clone();
+                    String name = test.getNameAsString();
+                    for (int suffix = 2; !testNames.add(name); suffix++) {
+                        name = test.getNameAsString() + suffix;
+                    }
+                    tests.add(test.setName(name));
+                } else if (member instanceof MethodDeclaration method) {
+                    others.putIfAbsent(method.getDeclarationAsString(false, false, false), method.clone());
+                } else if (member instanceof TypeDeclaration<?> nested) {
+                    others.putIfAbsent(nested.getNameAsString(), nested.clone());
+                }
+            }
+        }
+
+        CompilationUnit merged = new CompilationUnit();
+        if (packageName != null && !packageName.isEmpty()) {
+            merged.setPackageDeclaration(packageName);
+        }
+        imports.values().stream()
+            .sorted(Comparator.comparing(ImportDeclaration::isStatic))
+            .forEach(merged::addImport);
+        ClassOrInterfaceDeclaration testClass = new ClassOrInterfaceDeclaration(new NodeList<>(), false, className);
+        annotations.values().forEach(testClass::addAnnotation);
+        fields.values().forEach(testClass::addMember);
+        if (setUp != null) {
+            testClass.addMember(setUp);
+        }
+        tests.forEach(testClass::addMember);
+        others.values().forEach(testClass::addMember);
+        merged.addType(testClass);
+
+        return new Merged(merged.toString(), tests.stream().map(MethodDeclaration::getNameAsString).toList(), skipped);
+    }
+
+    private CompilationUnit parse(String part) {
+        try {
+            return codeAnalyzer.parse(part);
+        } catch (IllegalArgumentException e) {
+            // Risposta del modello non valida: la parte viene scartata e conteggiata
+            return null;
+        }
+    }
+
+    private static ClassOrInterfaceDeclaration primaryClass(CompilationUnit cu) {
+        for (TypeDeclaration<?> type : cu.getTypes()) {
+            if (type instanceof ClassOrInterfaceDeclaration declaration && !declaration.isInterface()) {
+                return declaration;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTest(MethodDeclaration method) {
+        return method.getAnnotations().stream().anyMatch(a -> TEST_ANNOTATIONS.contains(a.getNameAsString()));
+    }
+
+    private static String importKey(ImportDeclaration importDeclaration) {
+        return importDeclaration.getNameAsString() + (importDeclaration.isAsterisk() ? ".*" : "")
+            + (importDeclaration.isStatic() ? " static" : "");
+    }
+}
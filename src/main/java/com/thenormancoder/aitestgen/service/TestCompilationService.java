@@ -0,0 +1,124 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.compile.InMemoryCompiler;
+import com.thenormancoder.aitestgen.config.CompileVerificationProperties;
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import org.springframework.stereotype.Service;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verifica che un test generato compili insieme alla classe sotto test, in memoria e
+ * senza avviare una build. Con un progetto indicato si aggiungono al classpath le sue
+ * classi già compilate, così la classe sotto test può usare le altre del progetto.
+ */
+@Service
+public class TestCompilationService {
+
+    private static final Pattern PACKAGE = Pattern.compile("(?m)^\\s*package\\s+([\\w.]+)\\s*;");
+    // A inizio riga o dopo ";", "}" o ")" (package o annotazione sulla stessa riga)
+    private static final Pattern TYPE = Pattern.compile(
+        "(?m)(?:^|[;})])\\s*(?:public\\s+)?(?:(?:final|abstract|sealed|non-sealed|static)\\s+)*(?:class|interface|enum|record)\\s+(\\w+)");
+    private static final List<String> PROJECT_CLASS_DIRECTORIES = List.of(
+        "target/classes",
+        "build/classes/java/main"
+    );
+
+    private final InMemoryCompiler compiler;
+    private final CompileVerificationProperties properties;
+
+    public TestCompilationService(InMemoryCompiler compiler, CompileVerificationProperties properties) {
+        this.compiler = compiler;
+        this.properties = properties;
+    }
+
+    public CompilationReport verify(String sourceCode, String testCode, String projectPath) {
+        return compile(sourceCode, testCode, projectPath).report();
+    }
+
+    /**
+     * Come {@link #verify}, restituendo anche le classi compilate.
+     */
+    Compiled compile(String sourceCode, String testCode, String projectPath) {
+        if (!properties.enabled() || !compiler.isAvailable()) {
+            return new Compiled(CompilationReport.skipped(), Map.of());
+        }
+        String sourceName = qualifiedName(sourceCode);
+        String testName = qualifiedName(testCode);
+        if (sourceName == null || testName == null) {
+            throw new IllegalArgumentException("Cannot determine the class name of the source or of the test");
+        }
+        InMemoryCompiler.Result result = compiler.compile(
+            List.of(new InMemoryCompiler.Source(sourceName, sourceCode), new InMemoryCompiler.Source(testName, testCode)),
+            projectClasspath(projectPath)
+        );
+
+        List<CompilationReport.CompilationDiagnostic> diagnostics = new ArrayList<>();
+        boolean testErrors = false;
+        boolean sourceErrors = false;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.diagnostics()) {
+            boolean inTest = diagnostic.getSource() != null
+                && diagnostic.getSource().toUri().getPath().endsWith("/" + testName.replace('.', '/') + ".java");
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                testErrors |= inTest;
+                sourceErrors |= !inTest;
+            }
+            if (diagnostics.size() < properties.maxDiagnostics()) {
+                diagnostics.add(new CompilationReport.CompilationDiagnostic(
+                    diagnostic.getKind().name(),
+                    inTest ? "TEST" : "SOURCE",
+                    diagnostic.getLineNumber(),
+                    diagnostic.getColumnNumber(),
+                    diagnostic.getMessage(Locale.ROOT)
+                ));
+            }
+        }
+        CompilationReport.Status status;
+        if (result.success()) {
+            status = CompilationReport.Status.PASSED;
+        } else if (testErrors && !sourceErrors) {
+            status = CompilationReport.Status.FAILED;
+        } else {
+            status = CompilationReport.Status.INCONCLUSIVE;
+        }
+        return new Compiled(new CompilationReport(status, diagnostics, result.compileMillis()), result.classes());
+    }
+
+    record Compiled(CompilationReport report, Map<String, byte[]> classes) {}
+
+    static List<Path> projectClasspath(String projectPath) {
+        if (projectPath == null || projectPath.isBlank()) {
+            return List.of();
+        }
+        List<Path> classpath = new ArrayList<>();
+        for (String directory : PROJECT_CLASS_DIRECTORIES) {
+            classpath.add(Paths.get(projectPath).resolve(directory));
+        }
+        return classpath;
+    }
+
+    /**
+     * Nome qualificato del primo tipo dichiarato, che per sorgenti di una sola classe
+     * pubblica coincide con quello che il compilatore si aspetta nel nome del file.
+     */
+    static String qualifiedName(String code) {
+        if (code == null) {
+            return null;
+        }
+        Matcher type = TYPE.matcher(code);
+        if (!type.find()) {
+            return null;
+        }
+        Matcher packageName = PACKAGE.matcher(code);
+        return packageName.find() ? packageName.group(1) + "." + type.group(1) : type.group(1);
+    }
+}
@@ -0,0 +1,155 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.config.TestExecutionProperties;
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import com.thenormancoder.aitestgen.dto.TestExecutionReport;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.execution.TestRunner;
+import com.thenormancoder.aitestgen.execution.TestRunnerUnavailableException;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compila ed esegue in memoria un test generato e ne misura la copertura reale sulla
+ * classe sotto test, al posto della stima ricavata dal codice del test.
+ *
+ * Test e classe sotto test arrivano dal chiamante e girano nel processo del server: si
+ * eseguono solo con {@code aitestgen.test-execution.enabled=true} e su richiesta esplicita.
+ * I messaggi dei test falliti tornano al chiamante accorciati e senza i valori delle
+ * variabili d'ambiente del server, nel caso un test riesca comunque a leggerli.
+ */
+@Service
+public class TestExecutionService {
+
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final String REDACTED = "[redacted]";
+    // Valori brevi (0, true, C.UTF-8) comparirebbero ovunque senza essere segreti
+    private static final int MIN_SECRET_LENGTH = 8;
+    private static final List<String> ENVIRONMENT_VALUES = System.getenv().values().stream()
+        .filter(value -> value.length() >= MIN_SECRET_LENGTH)
+        .distinct()
+        // I valori più lunghi prima, così uno contenuto in un altro non lo spezza
+        .sorted(Comparator.comparingInt(String::length).reversed())
+        .toList();
+
+    private final TestCompilationService compilationService;
+    private final TestRunner runner;
+    private final TestExecutionProperties properties;
+
+    public TestExecutionService(TestCompilationService compilationService, TestRunner runner,
+                                TestExecutionProperties properties) {
+        this.compilationService = compilationService;
+        this.runner = runner;
+        this.properties = properties;
+    }
+
+    /**
+     * Se il test non va eseguito viene comunque compilato: l'esito della compilazione
+     * resta disponibile per chi decide se esportarlo.
+     *
+     * @param run true se il chiamante ha chiesto l'esecuzione; senza {@code enabled} non basta
+     */
+    public TestExecutionReport execute(String sourceCode, String testCode, String projectPath, boolean run) {
+        TestCompilationService.Compiled compiled = compilationService.compile(sourceCode, testCode, projectPath);
+        CompilationReport compilation = compiled.report();
+        if (!run || !properties.enabled() || compilation.status() == CompilationReport.Status.SKIPPED) {
+            return TestExecutionReport.notRun(TestExecutionReport.Status.SKIPPED, compilation, List.of());
+        }
+        if (compilation.status() != CompilationReport.Status.PASSED) {
+            return TestExecutionReport.notRun(TestExecutionReport.Status.NOT_COMPILED, compilation, List.of());
+        }
+
+        String testClass = TestCompilationService.qualifiedName(testCode);
+        TestRunner.Result result;
+        try {
+            result = runner.run(compiled.classes(), testClass, TestCompilationService.projectClasspath(projectPath));
+        } catch (TestRunnerUnavailableException e) {
+            return TestExecutionReport.notRun(TestExecutionReport.Status.SKIPPED, compilation, List.of(
+                new TestExecutionReport.TestFailure(testClass, e.getMessage())));
+        }
+        if (!result.violations().isEmpty()) {
+            List<TestExecutionReport.TestFailure> failures = result.violations().stream()
+                .map(call -> new TestExecutionReport.TestFailure(testClass, "Call not allowed in generated tests: " + call))
+                .toList();
+            return TestExecutionReport.notRun(TestExecutionReport.Status.REJECTED, compilation, failures);
+        }
+        if (result.timedOut()) {
+            String outcome = result.abandoned()
+                ? "the test ignored the interrupt and its thread was abandoned, still running"
+                : "the test was interrupted";
+            return TestExecutionReport.notRun(TestExecutionReport.Status.TIMED_OUT, compilation, List.of(
+                new TestExecutionReport.TestFailure(testClass,
+                    "Execution exceeded " + properties.timeout() + ": " + outcome)));
+        }
+
+        TestExecutionSummary summary = result.summary();
+        List<TestExecutionReport.TestFailure> failures = new ArrayList<>();
+        for (TestExecutionSummary.Failure failure : summary.getFailures()) {
+            if (failures.size() >= properties.maxFailures()) {
+                break;
+            }
+            Throwable exception = failure.getException();
+            failures.add(new TestExecutionReport.TestFailure(
+                sanitize(failure.getTestIdentifier().getDisplayName()),
+                sanitize(exception.getMessage() != null ? exception.getMessage() : exception.toString())
+            ));
+        }
+        TestRunner.Coverage coverage = result.coverage();
+        return new TestExecutionReport(
+            summary.getTotalFailureCount() == 0 ? TestExecutionReport.Status.PASSED : TestExecutionReport.Status.FAILED,
+            compilation,
+            summary.getTestsFoundCount(),
+            summary.getTestsSucceededCount(),
+            summary.getTestsFailedCount(),
+            summary.getTestsSkippedCount() + summary.getTestsAbortedCount(),
+            failures,
+            percentage(coverage.coveredLines(), coverage.totalLines()),
+            percentage(coverage.coveredBranches(), coverage.totalBranches()),
+            coverage.coveredLines(),
+            coverage.totalLines(),
+            coverage.coveredBranches(),
+            coverage.totalBranches(),
+            result.executionMillis()
+        );
+    }
+
+    /**
+     * Esegue il test della risposta e ne sostituisce la copertura stimata con quella
+     * misurata. Se il test non si può eseguire resta la stima, con l'esito del tentativo.
+     *
+     * @param run true se il chiamante ha chiesto l'esecuzione
+     */
+    public TestGenerationResponse measure(TestGenerationResponse response, String sourceCode, String projectPath,
+                                          boolean run) {
+        if (!run || !properties.enabled()) {
+            return response;
+        }
+        try {
+            return response.withExecution(execute(sourceCode, response.generatedTestCode(), projectPath, true));
+        } catch (RuntimeException e) {
+            // Nome della classe non determinabile o errore del launcher: resta la stima
+            return response;
+        }
+    }
+
+    /**
+     * Toglie dal testo prodotto dal test i valori dell'ambiente del server e lo accorcia.
+     */
+    static String sanitize(String message) {
+        String sanitized = message;
+        for (String value : ENVIRONMENT_VALUES) {
+            sanitized = sanitized.replace(value, REDACTED);
+        }
+        return sanitized.length() <= MAX_MESSAGE_LENGTH
+            ? sanitized
+            : sanitized.substring(0, MAX_MESSAGE_LENGTH) + "... (truncated)";
+    }
+
+    private static double percentage(int covered, int total) {
+        return total == 0 ? 0.0 : Math.round(1000.0 * covered / total) / 10.0;
+    }
+}
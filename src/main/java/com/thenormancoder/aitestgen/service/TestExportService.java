@@ -1,61 +1,230 @@
 package com.thenormancoder.aitestgen.service;
 
+import com.thenormancoder.aitestgen.cache.CacheStats;
+import com.thenormancoder.aitestgen.cache.SourceFingerprint;
+import com.thenormancoder.aitestgen.dto.TestBatchExportRequest;
+import com.thenormancoder.aitestgen.dto.TestExportResult;
+import com.thenormancoder.aitestgen.project.ProjectDescriptor;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectType;
 import org.springframework.stereotype.Service;
 
+import javax.lang.model.SourceVersion;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class TestExportService {
 
-    public void exportTestToFile(String testCode, String packageName, String className, String projectPath) throws IOException {
-        Path testPath = buildTestFilePath(packageName, className, projectPath);
-        
-        // Crea le directory se non esistono
-        Files.createDirectories(testPath.getParent());
-        
-        // Scrive il file di test
-        Files.writeString(testPath, testCode, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    private final ProjectDescriptorCache projectDescriptors;
+
+    public TestExportService(ProjectDescriptorCache projectDescriptors) {
+        this.projectDescriptors = projectDescriptors;
+    }
+
+    /**
+     * Scrive il test solo se il contenuto è cambiato, in modo atomico.
+     *
+     * @throws IllegalArgumentException se la classe o il package non sono nomi Java validi
+     */
+    public TestExportResult.Status exportTestToFile(String testCode, String packageName, String className, String projectPath) throws IOException {
+        checkNames(packageName, className);
+        ProjectDescriptor project = projectDescriptors.descriptorFor(projectPath);
+        return write(project, project.testFile(packageName, className), testCode.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Esporta più test nello stesso progetto. Ogni directory di package viene creata una
+     * sola volta per progetto (vedi {@link ProjectDescriptor#ensureDirectory}); un file che fallisce non interrompe gli altri e viene riportato come FAILED,
+     * come quelli con nomi di classe o package non validi, che finirebbero fuori dalla test root.
+     */
+    public TestExportResult exportAll(TestBatchExportRequest request) {
+        long start = System.nanoTime();
+        ProjectDescriptor project = projectDescriptors.descriptorFor(request.projectPath());
+        List<TestExportResult.ExportedFile> files = new ArrayList<>(request.files().size());
+        Set<Path> targets = new HashSet<>();
+        Map<Path, String> directoryErrors = new HashMap<>();
+        int written = 0;
+        int unchanged = 0;
+        int failed = 0;
+
+        for (TestBatchExportRequest.TestFile file : request.files()) {
+            Path target = validNames(file.packageName(), file.className())
+                ? project.testFile(file.packageName(), file.className())
+                : null;
+            String error = null;
+            TestExportResult.Status status = TestExportResult.Status.FAILED;
+            if (target == null) {
+                error = "Invalid class or package name";
+            } else if (file.testCode() == null) {
+                error = "Missing test code";
+            } else if (!targets.add(target)) {
+                // Due test per lo stesso file: vince il primo, l'altro lo sovrascriverebbe
+                error = "Duplicate target file in batch";
+            } else {
+                Path directory = target.getParent();
+                if (!directoryErrors.containsKey(directory)) {
+                    try {
+                        project.ensureDirectory(directory);
+                    } catch (IOException e) {
+                        directoryErrors.put(directory, "Cannot create directory: " + e.getMessage());
+                    }
+                }
+                error = directoryErrors.get(directory);
+                if (error == null) {
+                    try {
+                        status = write(project, target, file.testCode().getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        error = "Write failed: " + e.getMessage();
+                    }
+                }
+            }
+
+            if (status == TestExportResult.Status.UNCHANGED) {
+                unchanged++;
+            } else if (status == TestExportResult.Status.FAILED) {
+                failed++;
+            } else {
+                written++;
+            }
+            files.add(new TestExportResult.ExportedFile(file.className(), target == null ? null : target.toString(),
+                status, error));
+        }
+        return new TestExportResult(files, written, unchanged, failed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Crea la cartella del package solo la prima volta per progetto; se è stata cancellata
+     * dopo, la scrittura fallisce e viene ritentata dopo averla ricreata.
+     */
+    private TestExportResult.Status write(ProjectDescriptor project, Path target, byte[] content) throws IOException {
+        Path directory = target.getParent();
+        project.ensureDirectory(directory);
+        try {
+            return writeIfChanged(target, content);
+        } catch (NoSuchFileException e) {
+            project.forgetDirectory(directory);
+            project.ensureDirectory(directory);
+            return writeIfChanged(target, content);
+        }
+    }
+
+    /**
+     * Un file con lo stesso contenuto non viene toccato, così IDE e build incrementali non
+     * lo vedono cambiare. Altrimenti il contenuto va in un file temporaneo nella stessa
+     * directory, rinominato sul target: chi legge vede il file vecchio o quello nuovo,
+     * mai uno scritto a metà.
+     */
+    private TestExportResult.Status writeIfChanged(Path target, byte[] content) throws IOException {
+        // Un solo stat: esistenza e dimensione insieme
+        long existingSize = -1;
+        try {
+            existingSize = Files.readAttributes(target, BasicFileAttributes.class).size();
+        } catch (NoSuchFileException e) {
+            // File nuovo
+        }
+        boolean exists = existingSize >= 0;
+        // La dimensione diversa basta a escludere l'uguaglianza senza leggere il file
+        if (existingSize == content.length
+            && MessageDigest.isEqual(SourceFingerprint.sha256(Files.readAllBytes(target)), SourceFingerprint.sha256(content))) {
+            return TestExportResult.Status.UNCHANGED;
+        }
+
+        // CREATE_NEW invece di createTempFile, che su POSIX creerebbe il file con permessi 0600
+        Path temporary = target.resolveSibling("." + target.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // Su disco prima del rename, altrimenti un crash può lasciare il target vuoto
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // File system senza rename atomico: resta la sostituzione semplice
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return exists ? TestExportResult.Status.UPDATED : TestExportResult.Status.CREATED;
+    }
+
+    /**
+     * @throws IllegalArgumentException se la classe o il package non sono nomi Java validi
+     */
     public Path buildTestFilePath(String packageName, String className, String projectPath) {
-        String testFileName = className + "Test.java";
-        
-        // Costruisce il path seguendo la struttura Maven standard
-        Path basePath = Paths.get(projectPath, "src", "test", "java");
-        
-        if (packageName != null && !packageName.isEmpty()) {
-            String[] packageParts = packageName.split("\\.");
-            for (String part : packageParts) {
-                basePath = basePath.resolve(part);
+        checkNames(packageName, className);
+        return projectDescriptors.descriptorFor(projectPath).testFile(packageName, className);
+    }
+
+    /**
+     * Percorso del test dentro un archivio: quello di {@link #buildTestFilePath} relativo
+     * alla radice del progetto, con separatori "/". Senza un progetto valido, o se la test
+     * root è fuori dal progetto, vale la struttura standard (src/test/java).
+     *
+     * @throws IllegalArgumentException se la classe o il package non sono nomi Java validi
+     */
+    public String archiveEntryName(String packageName, String className, String projectPath) {
+        checkNames(packageName, className);
+        if (projectPath != null) {
+            ProjectDescriptor project = projectDescriptors.descriptorFor(projectPath);
+            Path relative = project.root().relativize(project.testFile(packageName, className));
+            if (project.isValid() && !relative.startsWith("..")) {
+                return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
             }
         }
-        
-        return basePath.resolve(testFileName);
+        ProjectDescriptor standard = new ProjectDescriptor(Path.of(""), ProjectType.UNKNOWN,
+            List.of(Path.of("src", "main", "java")), List.of(Path.of("src", "test", "java")));
+        Path relative = standard.testFile(packageName, className);
+        return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Package (anche assente) e nome semplice di classe validi: nessun separatore o ".."
+     * può portare il file del test fuori dalla test root.
+     */
+    private static boolean validNames(String packageName, String className) {
+        boolean validPackage = packageName == null || packageName.isEmpty() || SourceVersion.isName(packageName);
+        return className != null && SourceVersion.isName(className) && !className.contains(".") && validPackage;
+    }
+
+    private static void checkNames(String packageName, String className) {
+        if (!validNames(packageName, className)) {
+            throw new IllegalArgumentException("Invalid class or package name: " + packageName + "." + className);
+        }
     }
 
     public boolean isValidProjectStructure(String projectPath) {
-        Path pomPath = Paths.get(projectPath, "pom.xml");
-        Path buildGradlePath = Paths.get(projectPath, "build.gradle");
-        Path buildGradleKtsPath = Paths.get(projectPath, "build.gradle.kts");
-        
-        return Files.exists(pomPath) || Files.exists(buildGradlePath) || Files.exists(buildGradleKtsPath);
+        return projectDescriptors.descriptorFor(projectPath).isValid();
     }
 
     public ProjectType detectProjectType(String projectPath) {
-        if (Files.exists(Paths.get(projectPath, "pom.xml"))) {
-            return ProjectType.MAVEN;
-        } else if (Files.exists(Paths.get(projectPath, "build.gradle")) || 
-                   Files.exists(Paths.get(projectPath, "build.gradle.kts"))) {
-            return ProjectType.GRADLE;
-        }
-        return ProjectType.UNKNOWN;
+        return projectDescriptors.descriptorFor(projectPath).buildType();
     }
 
-    public enum ProjectType {
-        MAVEN, GRADLE, UNKNOWN
+    public CacheStats projectDescriptorStats() {
+        return projectDescriptors.stats();
     }
-}
\ No newline at end of file
+}
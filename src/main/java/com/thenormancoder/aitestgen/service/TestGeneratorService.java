@@ -1,53 +1,583 @@
 package com.thenormancoder.aitestgen.service;
 
+import com.thenormancoder.aitestgen.cache.GeneratedTestCache;
+import com.thenormancoder.aitestgen.cache.SingleFlight;
+import com.thenormancoder.aitestgen.cache.SingleFlightStats;
+import com.thenormancoder.aitestgen.cache.SourceFingerprint;
+import com.thenormancoder.aitestgen.cache.TieredCacheStats;
+import com.thenormancoder.aitestgen.config.GenerationProperties;
 import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.GenerationStats;
 import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
 import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.exception.AnalysisLimitException;
+import com.thenormancoder.aitestgen.llm.LlmClient;
+import com.thenormancoder.aitestgen.llm.LlmRequest;
+import com.thenormancoder.aitestgen.llm.LlmResponse;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 public class TestGeneratorService {
 
+    private static final Pattern CODE_BLOCK = Pattern.compile("```(?:java)?\\s*\\n(.*?)```", Pattern.DOTALL);
+    private static final Pattern CLASS_NAME = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern ACCESSOR = Pattern.compile("(get|is|set)[A-Z]\\w*");
+    private static final Set<String> OBJECT_METHODS = Set.of("equals", "hashCode", "toString");
+    // Da incrementare quando cambiano prompt o post-elaborazione, per non riusare risposte vecchie
+    private static final String CACHE_KEY_VERSION = "v3";
+
     private final JavaCodeAnalyzerService codeAnalyzer;
+    private final LlmClient llmClient;
+    private final GenerationProperties properties;
+    private final GeneratedTestCache testCache;
+    private final ExecutorService fanOutExecutor;
+    private final SingleFlight<String, TestGenerationResponse> inFlight = new SingleFlight<>();
 
-    public TestGeneratorService(JavaCodeAnalyzerService codeAnalyzer) {
+    public TestGeneratorService(JavaCodeAnalyzerService codeAnalyzer, LlmClient llmClient,
+                                GenerationProperties properties, GeneratedTestCache testCache) {
         this.codeAnalyzer = codeAnalyzer;
+        this.llmClient = llmClient;
+        this.properties = properties;
+        this.testCache = testCache;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fanOutExecutor = Executors.newFixedThreadPool(Math.max(1, properties.fanOutParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "test-generation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public TestGenerationResponse generateTests(TestGenerationRequest request) {
+        return generateTests(request, false);
+    }
+
+    /**
+     * Genera i test con il modello linguistico; se il modello non è configurato o la
+     * chiamata fallisce ripiega sul template di base, riportandone il motivo nelle statistiche.
+     *
+     * Le risposte del modello vengono messe in cache; con {@code bypassCache} la cache
+     * non viene consultata ma il nuovo risultato la aggiorna. I risultati da template
+     * non vengono mai memorizzati.
+     */
+    public TestGenerationResponse generateTests(TestGenerationRequest request, boolean bypassCache) {
+        return generateTests(request, bypassCache, GenerationListener.NONE);
+    }
+
+    /**
+     * Come {@link #generateTests(TestGenerationRequest, boolean)}, notificando l'analisi e
+     * ogni metodo di test appena il modello lo completa. Per risultati in cache o da
+     * template i metodi vengono notificati tutti insieme alla fine.
+     */
+    public TestGenerationResponse generateTests(TestGenerationRequest request, boolean bypassCache,
+                                                GenerationListener listener) {
         CodeAnalysisResult analysis = codeAnalyzer.analyzeJavaCode(request.sourceCode());
-        
-        String generatedCode = generateBasicTest(analysis, request);
-        List<String> testMethods = List.of("testBasicFunctionality");
-        List<String> suggestions = List.of("Consider using AI integration for better test generation");
-        
+        listener.onAnalysis(analysis);
+        return generateTests(analysis, request, List.of(), bypassCache, listener);
+    }
+
+    /**
+     * Genera test solo per i metodi indicati (chiavi di {@link IncrementalTestMerger#methodKey}),
+     * descrivendo comunque l'intera classe al modello. Copertura e suggerimenti riguardano
+     * solo quei metodi; le chiavi che non corrispondono a nessun metodo vengono ignorate.
+     */
+    public TestGenerationResponse generateTestsFor(TestGenerationRequest request, Collection<String> methodKeys,
+                                                   boolean bypassCache) {
+        CodeAnalysisResult analysis = codeAnalyzer.analyzeJavaCode(request.sourceCode());
+        List<CodeAnalysisResult.MethodInfo> targets = analysis.methods().stream()
+            .filter(method -> methodKeys.contains(IncrementalTestMerger.methodKey(method)))
+            .toList();
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("None of the requested methods exists in the source");
+        }
+        return generateTests(analysis, request, targets, bypassCache, GenerationListener.NONE);
+    }
+
+    /**
+     * @param targets metodi per cui generare i test; vuota = l'intera classe
+     */
+    private TestGenerationResponse generateTests(CodeAnalysisResult analysis, TestGenerationRequest request,
+                                                 List<CodeAnalysisResult.MethodInfo> targets, boolean bypassCache,
+                                                 GenerationListener listener) {
+        // Richieste identiche concorrenti condividono una sola generazione; chi attende
+        // riceve i metodi tutti insieme, come per un risultato in cache. Un errore del
+        // listener di chi genera (client disconnesso) non deve cambiare il risultato condiviso:
+        // la generazione prosegue senza notifiche e l'errore arriva solo a quel chiamante
+        AtomicBoolean leader = new AtomicBoolean();
+        IsolatedListener isolated = new IsolatedListener(listener);
+        TestGenerationResponse response = inFlight.execute(cacheKey(analysis, request, targets) + "|" + bypassCache, () -> {
+            leader.set(true);
+            return generate(analysis, request, targets, bypassCache, isolated);
+        });
+        isolated.rethrowFailure();
+        boolean streamed = leader.get() && "LLM".equals(response.generationStats().engine())
+            && !response.generationStats().cached();
+        if (!streamed) {
+            new TestMethodStreamParser(listener::onTestMethod).feed(response.generatedTestCode());
+        }
+        return response;
+    }
+
+    public SingleFlightStats coalescingStats() {
+        return inFlight.stats();
+    }
+
+    private TestGenerationResponse generate(CodeAnalysisResult analysis, TestGenerationRequest request,
+                                            List<CodeAnalysisResult.MethodInfo> targets, boolean bypassCache,
+                                            IsolatedListener listener) {
+        // Template, stima e suggerimenti vedono solo i metodi richiesti
+        CodeAnalysisResult underTest = restrictTo(analysis, targets);
+        if (!properties.enabled()) {
+            return generateFromTemplate(underTest, request, "LLM generation disabled");
+        }
+        if (!llmClient.isAvailable()) {
+            return generateFromTemplate(underTest, request, "No chat model configured");
+        }
+        if (properties.templateForTrivialClasses() && isTrivial(underTest, request)) {
+            return generateFromTemplate(underTest, request, "Trivial class: accessors only");
+        }
+        String cacheKey = cacheKey(analysis, request, targets);
+        if (!bypassCache) {
+            TestGenerationResponse cached = testCache.get(cacheKey);
+            if (cached != null) {
+                return withCachedStats(cached);
+            }
+        }
+        TestGenerationResponse response;
+        try {
+            response = generateWithLlm(analysis, underTest, request, targets, listener);
+        } catch (RuntimeException e) {
+            String reason = "LLM call failed: " + e.getMessage();
+            // I metodi già inviati in streaming non fanno parte del risultato del template
+            listener.onFallback(reason);
+            return generateFromTemplate(underTest, request, reason);
+        }
+        testCache.put(cacheKey, response);
+        return response;
+    }
+
+    public TieredCacheStats testCacheStats() {
+        return testCache.stats();
+    }
+
+    /**
+     * Chiave della cache: impronta dell'analisi e del sorgente normalizzato (i corpi dei
+     * metodi finiscono nel prompt quando rientrano nel budget), tipo di test, livello di
+     * copertura e impostazioni del modello. Una generazione parziale aggiunge i metodi richiesti.
+     */
+    String cacheKey(CodeAnalysisResult analysis, TestGenerationRequest request) {
+        return cacheKey(analysis, request, List.of());
+    }
+
+    private String cacheKey(CodeAnalysisResult analysis, TestGenerationRequest request,
+                            List<CodeAnalysisResult.MethodInfo> targets) {
+        // toString dei record è deterministico e include tutte le componenti annidate
+        String version = targets.isEmpty() ? CACHE_KEY_VERSION : CACHE_KEY_VERSION + " " + String.join(" ",
+            targets.stream().map(IncrementalTestMerger::methodKey).toList());
+        return SourceFingerprint.sha256(String.join("\n",
+            version,
+            analysis.toString(),
+            SourceFingerprint.of(request.sourceCode()),
+            String.valueOf(request.packageName()),
+            String.valueOf(request.testType()),
+            String.valueOf(request.coverageLevel()),
+            properties.model(),
+            String.valueOf(properties.temperature()),
+            String.valueOf(properties.maxPromptTokens()),
+            String.valueOf(properties.maxCompletionTokens())
+        ));
+    }
+
+    private static TestGenerationResponse withCachedStats(TestGenerationResponse cached) {
+        return new TestGenerationResponse(
+            cached.generatedTestCode(),
+            cached.testMethods(),
+            cached.testClassName(),
+            cached.estimatedCoverage(),
+            cached.generatedAt(),
+            cached.suggestions(),
+            cached.generationStats().asCached(),
+            null
+        );
+    }
+
+    private TestGenerationResponse generateWithLlm(CodeAnalysisResult analysis, CodeAnalysisResult underTest,
+                                                   TestGenerationRequest request,
+                                                   List<CodeAnalysisResult.MethodInfo> targets,
+                                                   IsolatedListener listener) {
+        Map<String, String> bodies = methodBodies(analysis, request.sourceCode());
+        List<List<CodeAnalysisResult.MethodInfo>> groups = methodGroups(underTest);
+        if (groups.size() > 1) {
+            return generateFanOut(analysis, underTest, request, groups, bodies, listener);
+        }
+        TestPromptBuilder.TestPrompt prompt = TestPromptBuilder.build(analysis, request, properties.maxPromptTokens(),
+            targets, bodies);
+        LlmRequest llmRequest = new LlmRequest(
+            prompt.systemPrompt(),
+            prompt.userPrompt(),
+            properties.model(),
+            properties.temperature(),
+            properties.maxCompletionTokens()
+        );
+
+        long start = System.nanoTime();
+        LlmResponse completion = !listener.notifies()
+            ? llmClient.complete(llmRequest)
+            : llmClient.stream(llmRequest, new TestMethodStreamParser(listener::onTestMethod)::feed);
+        long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String code = extractCode(completion.content());
+        List<String> testMethods = testMethodNames(code);
+        if (testMethods.isEmpty()) {
+            throw new IllegalStateException("Model response contains no @Test methods");
+        }
+
+        CoverageEstimator.Estimate estimate = CoverageEstimator.estimate(underTest, code);
+        List<String> suggestions = new ArrayList<>();
+        if (prompt.contextMode() != TestPromptBuilder.ContextMode.FULL_SOURCE
+            && prompt.contextMode() != TestPromptBuilder.ContextMode.COMPACT) {
+            suggestions.add("Source was reduced to " + prompt.contextMode()
+                + " to fit the prompt budget: review tests of methods with complex bodies");
+        }
+        addThrowSuggestions(estimate, suggestions);
+        suggestions.add("Review generated assertions against the intended behaviour before committing");
+
+        Matcher className = CLASS_NAME.matcher(code);
         return new TestGenerationResponse(
-            generatedCode,
+            code,
             testMethods,
+            className.find() ? className.group(1) : analysis.className() + "Test",
+            estimate.coverage(),
+            LocalDateTime.now(),
+            suggestions,
+            new GenerationStats(
+                "LLM",
+                properties.model(),
+                completion.promptTokens() >= 0 ? completion.promptTokens() : prompt.estimatedTokens(),
+                completion.completionTokens(),
+                latencyMillis,
+                prompt.contextMode().name(),
+                prompt.compressionRatio(),
+                null,
+                false
+            ),
+            null
+        );
+    }
+
+    /**
+     * Generazione a gruppi di metodi: una chiamata al modello per gruppo, al più
+     * {@code fanOutParallelism} contemporanee, poi un'unica classe unita con
+     * {@link TestClassMerger}. I gruppi completati vengono raccolti (e notificati al
+     * listener) sul thread chiamante; un gruppo fallito viene segnalato nei suggerimenti.
+     */
+    private TestGenerationResponse generateFanOut(CodeAnalysisResult analysis, CodeAnalysisResult underTest,
+                                                  TestGenerationRequest request,
+                                                  List<List<CodeAnalysisResult.MethodInfo>> groups,
+                                                  Map<String, String> bodies, IsolatedListener listener) {
+        long start = System.nanoTime();
+        CompletionService<GroupResult> completionService = new ExecutorCompletionService<>(fanOutExecutor);
+        List<Future<GroupResult>> futures = new ArrayList<>(groups.size());
+        // Rapporto di compressione rispetto all'invio del sorgente completo in ogni chiamata
+        long sourceTokens = 0;
+        long contextTokens = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            int index = i;
+            TestPromptBuilder.TestPrompt prompt = TestPromptBuilder.build(analysis, request,
+                properties.maxPromptTokens(), groups.get(i), bodies);
+            sourceTokens += prompt.sourceTokens();
+            contextTokens += prompt.contextTokens();
+            futures.add(completionService.submit(() -> generateGroup(index, prompt)));
+        }
+
+        String[] parts = new String[groups.size()];
+        long promptTokens = 0;
+        long completionTokens = 0;
+        List<String> suggestions = new ArrayList<>();
+        String firstError = null;
+        try {
+            for (int i = 0; i < groups.size(); i++) {
+                GroupResult result = completionService.take().get();
+                if (result.error() != null) {
+                    firstError = firstError == null ? result.error() : firstError;
+                    suggestions.add("Tests for " + String.join(", ", groups.get(result.index()).stream()
+                        .map(CodeAnalysisResult.MethodInfo::name).distinct().toList())
+                        + " could not be generated: " + result.error());
+                    continue;
+                }
+                parts[result.index()] = extractCode(result.response().content());
+                new TestMethodStreamParser(listener::onTestMethod).feed(parts[result.index()]);
+                promptTokens += result.response().promptTokens() >= 0
+                    ? result.response().promptTokens() : result.estimatedPromptTokens();
+                completionTokens = completionTokens < 0 || result.response().completionTokens() < 0
+                    ? -1 : completionTokens + result.response().completionTokens();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Test generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Test generation failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        List<String> generated = new ArrayList<>();
+        for (String part : parts) {
+            if (part != null) {
+                generated.add(part);
+            }
+        }
+        if (generated.isEmpty()) {
+            throw new IllegalStateException(firstError);
+        }
+        String packageName = request.packageName() != null ? request.packageName() : analysis.packageName();
+        TestClassMerger.Merged merged = new TestClassMerger(codeAnalyzer).merge(packageName, analysis.className() + "Test", generated);
+        if (merged.testMethods().isEmpty()) {
+            throw new IllegalStateException("Model responses contain no @Test methods");
+        }
+        if (merged.skippedParts() > 0) {
+            suggestions.add(merged.skippedParts() + " generated parts were not valid Java and were discarded");
+        }
+        suggestions.add("Generated in " + groups.size() + " parallel tasks of up to "
+            + properties.methodsPerTask() + " methods each");
+        CoverageEstimator.Estimate estimate = CoverageEstimator.estimate(underTest, merged.code());
+        addThrowSuggestions(estimate, suggestions);
+        suggestions.add("Review generated assertions against the intended behaviour before committing");
+
+        return new TestGenerationResponse(
+            merged.code(),
+            merged.testMethods(),
+            analysis.className() + "Test",
+            estimate.coverage(),
+            LocalDateTime.now(),
+            suggestions,
+            new GenerationStats(
+                "LLM",
+                properties.model(),
+                promptTokens,
+                completionTokens,
+                (System.nanoTime() - start) / 1_000_000,
+                "FAN_OUT",
+                TestPromptBuilder.TestPrompt.compressionRatio(sourceTokens, contextTokens),
+                null,
+                false
+            ),
+            null
+        );
+    }
+
+    /**
+     * Corpi dei metodi per il contesto compatto, letti una sola volta per richiesta (anche
+     * con più gruppi) con un parsing soggetto ai limiti di analisi. Null se il sorgente non
+     * si parsa o un limite lo impedisce: il prompt ripiega sulle firme.
+     */
+    private Map<String, String> methodBodies(CodeAnalysisResult analysis, String source) {
+        if (source == null || source.isBlank()) {
+            return null;
+        }
+        try {
+            return PromptContextCompactor.bodies(codeAnalyzer.parse(source), analysis.className());
+        } catch (IllegalArgumentException | AnalysisLimitException e) {
+            // L'analisi è già riuscita: meglio un prompt con le sole firme che nessun test
+            return null;
+        }
+    }
+
+    private GroupResult generateGroup(int index, TestPromptBuilder.TestPrompt prompt) {
+        try {
+            LlmResponse response = llmClient.complete(new LlmRequest(
+                prompt.systemPrompt(),
+                prompt.userPrompt(),
+                properties.model(),
+                properties.temperature(),
+                properties.maxCompletionTokens()
+            ));
+            return new GroupResult(index, response, prompt.estimatedTokens(), null);
+        } catch (RuntimeException e) {
+            return new GroupResult(index, null, prompt.estimatedTokens(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Metodi pubblici in ordine di dichiarazione, a gruppi di {@code methodsPerTask};
+     * gli overload restano nello stesso gruppo. Lista vuota se la classe è sotto la soglia.
+     */
+    List<List<CodeAnalysisResult.MethodInfo>> methodGroups(CodeAnalysisResult analysis) {
+        List<CodeAnalysisResult.MethodInfo> publicMethods = analysis.methods().stream()
+            .filter(CodeAnalysisResult.MethodInfo::isPublic)
+            .toList();
+        if (properties.fanOutMinMethods() <= 0 || publicMethods.size() < properties.fanOutMinMethods()) {
+            return List.of();
+        }
+        int perTask = Math.max(1, properties.methodsPerTask());
+        List<List<CodeAnalysisResult.MethodInfo>> groups = new ArrayList<>();
+        List<CodeAnalysisResult.MethodInfo> current = new ArrayList<>();
+        for (CodeAnalysisResult.MethodInfo method : publicMethods) {
+            boolean overload = !current.isEmpty() && current.get(current.size() - 1).name().equals(method.name());
+            if (current.size() >= perTask && !overload) {
+                groups.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(method);
+        }
+        groups.add(current);
+        return groups;
+    }
+
+    /**
+     * L'analisi con i soli metodi indicati; invariata se la lista è vuota.
+     */
+    private static CodeAnalysisResult restrictTo(CodeAnalysisResult analysis, List<CodeAnalysisResult.MethodInfo> targets) {
+        if (targets.isEmpty()) {
+            return analysis;
+        }
+        return new CodeAnalysisResult(analysis.className(), analysis.packageName(), targets, analysis.fields(),
+            analysis.imports(), analysis.hasConstructors(), analysis.classType(), analysis.constructors(),
+            analysis.isAbstract());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    private record GroupResult(int index, LlmResponse response, int estimatedPromptTokens, String error) {}
+
+    private TestGenerationResponse generateFromTemplate(CodeAnalysisResult analysis, TestGenerationRequest request,
+                                                        String fallbackReason) {
+        long start = System.nanoTime();
+        String packageName = request.packageName() != null ? request.packageName() : analysis.packageName();
+        TestTemplateEngine.Rendered rendered = TestTemplateEngine.render(analysis, packageName, request.testType());
+        List<String> suggestions = List.of(
+            "Generated from the offline template: replace the placeholder assertions with expected values",
+            "Enable the chat model for behaviour-specific tests and edge cases"
+        );
+
+        return new TestGenerationResponse(
+            rendered.code(),
+            rendered.testMethods(),
             analysis.className() + "Test",
-            85.0,
+            CoverageEstimator.estimate(analysis, rendered.code()).coverage(),
             LocalDateTime.now(),
-            suggestions
+            suggestions,
+            GenerationStats.template((System.nanoTime() - start) / 1_000_000, fallbackReason),
+            null
         );
     }
 
-    private String generateBasicTest(CodeAnalysisResult analysis, TestGenerationRequest request) {
-        StringBuilder testCode = new StringBuilder();
-        
-        testCode.append("package ").append(analysis.packageName()).append(";\n\n");
-        testCode.append("import org.junit.jupiter.api.Test;\n");
-        testCode.append("import static org.assertj.core.api.Assertions.assertThat;\n\n");
-        testCode.append("class ").append(analysis.className()).append("Test {\n\n");
-        testCode.append("    @Test\n");
-        testCode.append("    void testBasicFunctionality() {\n");
-        testCode.append("        assertThat(true).isTrue();\n");
-        testCode.append("    }\n");
-        testCode.append("}\n");
-        
-        return testCode.toString();
-    }
-}
\ No newline at end of file
+    /**
+     * Con copertura BASIC il modello non aggiunge nulla a una classe fatta solo di
+     * accessor (get/is/set, accessor dei record, equals/hashCode/toString).
+     */
+    static boolean isTrivial(CodeAnalysisResult analysis, TestGenerationRequest request) {
+        if (request.coverageLevel() != TestGenerationRequest.CoverageLevel.BASIC) {
+            return false;
+        }
+        Set<String> fieldNames = analysis.fields().stream()
+            .map(CodeAnalysisResult.FieldInfo::name)
+            .collect(Collectors.toSet());
+        return analysis.methods().stream()
+            .filter(CodeAnalysisResult.MethodInfo::isPublic)
+            .allMatch(method -> ACCESSOR.matcher(method.name()).matches()
+                || OBJECT_METHODS.contains(method.name())
+                || (method.parameters().isEmpty() && fieldNames.contains(method.name())));
+    }
+
+    static String extractCode(String content) {
+        if (content == null) {
+            return "";
+        }
+        Matcher block = CODE_BLOCK.matcher(content);
+        return (block.find() ? block.group(1) : content).strip() + "\n";
+    }
+
+    static List<String> testMethodNames(String code) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = TestMethodStreamParser.TEST_METHOD.matcher(code);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    /**
+     * Un suggerimento per ogni throw che nessun test si aspetta, al più tre.
+     */
+    private static void addThrowSuggestions(CoverageEstimator.Estimate estimate, List<String> suggestions) {
+        List<CoverageEstimator.UnexercisedThrow> unexercised = estimate.unexercisedThrows();
+        for (int i = 0; i < Math.min(3, unexercised.size()); i++) {
+            suggestions.add(unexercised.get(i).describe());
+        }
+        if (unexercised.size() > 3) {
+            suggestions.add((unexercised.size() - 3) + " more error paths have no test expecting them");
+        }
+    }
+
+    /**
+     * Listener del chiamante che genera: il primo errore viene conservato e le notifiche
+     * successive ignorate, così non interrompe la generazione condivisa con chi attende.
+     */
+    private static final class IsolatedListener implements GenerationListener {
+
+        private final GenerationListener delegate;
+        // Le notifiche in streaming possono arrivare dal thread del client del modello
+        private volatile RuntimeException failure;
+
+        IsolatedListener(GenerationListener delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * false se il listener non riceve notifiche: il modello può rispondere senza streaming.
+         */
+        boolean notifies() {
+            return delegate != GenerationListener.NONE && failure == null;
+        }
+
+        @Override
+        public void onTestMethod(String name, String source) {
+            if (failure == null) {
+                try {
+                    delegate.onTestMethod(name, source);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        @Override
+        public void onFallback(String reason) {
+            if (failure == null) {
+                try {
+                    delegate.onFallback(reason);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.GenerationStats;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.dto.TestMergeReport;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generazione per l'esportazione con unione incrementale (vedi {@link IncrementalTestMerger}):
+ * se il test esiste già si generano test solo per i metodi nuovi o cambiati, e nessuno se
+ * non è cambiato nulla, invece di rigenerare l'intera classe.
+ */
+@Service
+public class TestMergeService {
+
+    public record MergedGeneration(TestGenerationResponse response, TestMergeReport merge) {}
+
+    private final JavaCodeAnalyzerService codeAnalyzer;
+    private final TestGeneratorService testGeneratorService;
+    private final TestExportService testExportService;
+
+    public TestMergeService(JavaCodeAnalyzerService codeAnalyzer,
+                            TestGeneratorService testGeneratorService,
+                            TestExportService testExportService) {
+        this.codeAnalyzer = codeAnalyzer;
+        this.testGeneratorService = testGeneratorService;
+        this.testExportService = testExportService;
+    }
+
+    /**
+     * Genera il test da esportare in {@code projectPath}. Con {@code mergeExisting} il test
+     * già presente viene unito, altrimenti si genera l'intera classe; in entrambi i casi i
+     * test generati portano i marcatori che rendono possibili le unioni successive. Senza
+     * unione, se il codice generato non si può marcare viene restituito così com'è.
+     *
+     * @throws IllegalStateException se il test esistente non è Java valido, o in modalità
+     *                               unione se non lo è il codice generato
+     */
+    public MergedGeneration generate(TestGenerationRequest request, String projectPath, boolean mergeExisting,
+                                     boolean bypassCache) throws IOException {
+        long start = System.nanoTime();
+        CodeAnalysisResult analysis = codeAnalyzer.analyzeJavaCode(request.sourceCode());
+        List<String> targetKeys = TestPromptBuilder.methodsUnderTest(analysis).stream()
+            .map(IncrementalTestMerger::methodKey)
+            .toList();
+        String existingCode = null;
+        if (mergeExisting) {
+            Path testFile = testExportService.buildTestFilePath(request.packageName(), request.className(), projectPath);
+            existingCode = Files.isRegularFile(testFile) ? Files.readString(testFile) : null;
+        }
+
+        IncrementalTestMerger merger = new IncrementalTestMerger(codeAnalyzer);
+        IncrementalTestMerger.Plan plan = merger.plan(request.sourceCode(), analysis.className(), targetKeys, existingCode);
+        if (existingCode != null && plan.existing() == null) {
+            throw new IllegalStateException("Existing test cannot be parsed: fix it or export without merging");
+        }
+        if (plan.existing() == null) {
+            TestGenerationResponse generated = testGeneratorService.generateTests(request, bypassCache);
+            IncrementalTestMerger.Merged merged;
+            try {
+                merged = merger.merge(plan, generated.generatedTestCode());
+            } catch (IllegalStateException e) {
+                if (mergeExisting) {
+                    throw e;
+                }
+                // Come prima delle unioni incrementali: si esporta il codice del modello, che
+                // la verifica di compilazione valuterà, solo senza marcatori
+                return new MergedGeneration(generated, new TestMergeReport(false, plan.staleMethods(),
+                    generated.testMethods(), List.of(), 0));
+            }
+            return new MergedGeneration(withCode(generated, merged.code()), report(plan, merged, false));
+        }
+
+        TestGenerationResponse generated = plan.staleMethods().isEmpty()
+            ? null
+            : testGeneratorService.generateTestsFor(request, plan.staleMethods(), bypassCache);
+        IncrementalTestMerger.Merged merged = merger.merge(plan, generated == null ? null : generated.generatedTestCode());
+        List<String> suggestions = new ArrayList<>();
+        if (generated == null) {
+            suggestions.add("No method under test changed since the last export: nothing was generated");
+        } else {
+            suggestions.addAll(generated.suggestions());
+        }
+        TestGenerationResponse response = new TestGenerationResponse(
+            merged.code(),
+            merged.testMethods(),
+            plan.existing().getNameAsString(),
+            CoverageEstimator.estimate(analysis, merged.code()).coverage(),
+            LocalDateTime.now(),
+            suggestions,
+            generated == null ? GenerationStats.none((System.nanoTime() - start) / 1_000_000) : generated.generationStats(),
+            null
+        );
+        return new MergedGeneration(response, report(plan, merged, true));
+    }
+
+    private static TestGenerationResponse withCode(TestGenerationResponse response, String code) {
+        return new TestGenerationResponse(code, response.testMethods(), response.testClassName(),
+            response.estimatedCoverage(), response.generatedAt(), response.suggestions(), response.generationStats(),
+            response.execution());
+    }
+
+    private static TestMergeReport report(IncrementalTestMerger.Plan plan, IncrementalTestMerger.Merged merged,
+                                          boolean existingFile) {
+        return new TestMergeReport(existingFile, plan.staleMethods(), merged.addedTests(), merged.removedTests(),
+            merged.preservedTests());
+    }
+}
@@ -0,0 +1,91 @@
+package com.thenormancoder.aitestgen.service;
+
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Riconosce i metodi {@code @Test} nel testo prodotto a frammenti dal modello e li
+ * notifica appena si chiude la graffa del loro corpo. Stringhe, caratteri e
+ * commenti vengono saltati nel conteggio delle graffe.
+ */
+final class TestMethodStreamParser {
+
+    static final Pattern TEST_METHOD = Pattern.compile(
+        "@Test\\b(?:\\s*@\\w+(?:\\([^)]*\\))?)*\\s*(?:public\\s+|protected\\s+)?void\\s+(\\w+)\\s*\\(");
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final BiConsumer<String, String> onMethod;
+    private int scanFrom;
+
+    TestMethodStreamParser(BiConsumer<String, String> onMethod) {
+        this.onMethod = onMethod;
+    }
+
+    void feed(String chunk) {
+        buffer.append(chunk);
+        // Un metodo può completarsi solo con una graffa chiusa
+        if (chunk.indexOf('}') >= 0) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        Matcher matcher = TEST_METHOD.matcher(buffer);
+        while (matcher.find(scanFrom)) {
+            int bodyStart = buffer.indexOf("{", matcher.end());
+            if (bodyStart < 0) {
+                return;
+            }
+            int bodyEnd = matchingBrace(bodyStart);
+            if (bodyEnd < 0) {
+                return;
+            }
+            onMethod.accept(matcher.group(1), buffer.substring(matcher.start(), bodyEnd + 1));
+            scanFrom = bodyEnd + 1;
+        }
+    }
+
+    private int matchingBrace(int open) {
+        int depth = 0;
+        int i = open;
+        int length = buffer.length();
+        while (i < length) {
+            char c = buffer.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipLiteral(i, c);
+                continue;
+            }
+            if (c == '/' && i + 1 < length && buffer.charAt(i + 1) == '/') {
+                int end = buffer.indexOf("\n", i);
+                i = end < 0 ? length : end;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && buffer.charAt(i + 1) == '*') {
+                int end = buffer.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private int skipLiteral(int start, char quote) {
+        int length = buffer.length();
+        if (quote == '"' && start + 2 < length && buffer.charAt(start + 1) == '"' && buffer.charAt(start + 2) == '"') {
+            int end = buffer.indexOf("\"\"\"", start + 3);
+            return end < 0 ? length : end + 3;
+        }
+        int i = start + 1;
+        while (i < length && buffer.charAt(i) != quote && buffer.charAt(i) != '\n') {
+            i += buffer.charAt(i) == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,185 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.llm.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Costruisce il prompt di generazione a partire dall'analisi, rispettando un budget di token.
+ *
+ * Il contesto sulla classe è il più piccolo che resti utile: il contesto compatto di
+ * {@link PromptContextCompactor} (corpi dei soli metodi sotto test), oppure il sorgente
+ * completo se non è più grande. Se non entra nel budget si degrada a firme con la
+ * javadoc dei metodi sotto test, poi firme senza javadoc, infine solo i metodi che
+ * entrano (prima i pubblici) con l'indicazione di quelli omessi.
+ */
+public final class TestPromptBuilder {
+
+    public enum ContextMode {
+        FULL_SOURCE,
+        COMPACT,
+        SIGNATURES,
+        SIGNATURES_WITHOUT_JAVADOC,
+        TRUNCATED
+    }
+
+    /**
+     * @param sourceTokens  token stimati del sorgente completo della classe
+     * @param contextTokens token stimati del contesto effettivamente inviato al suo posto
+     */
+    public record TestPrompt(String systemPrompt, String userPrompt, ContextMode contextMode, int estimatedTokens,
+                             int sourceTokens, int contextTokens) {
+
+        /**
+         * @return token del sorgente completo diviso token del contesto inviato; 0 se non calcolabile
+         */
+        public double compressionRatio() {
+            return compressionRatio(sourceTokens, contextTokens);
+        }
+
+        public static double compressionRatio(long sourceTokens, long contextTokens) {
+            return sourceTokens <= 0 || contextTokens <= 0
+                ? 0
+                : Math.round(100.0 * sourceTokens / contextTokens) / 100.0;
+        }
+    }
+
+    private static final String SYSTEM_PROMPT = """
+        You are an expert Java test engineer. Write a single compilable JUnit 5 test class \
+        using AssertJ assertions. Each test method must be annotated with @Test and test one behaviour. \
+        Reply with the complete test class only, inside one ```java code block.""";
+
+    private TestPromptBuilder() {
+    }
+
+    /**
+     * @param methodBodies corpi dei metodi per il contesto compatto
+     *                     ({@link PromptContextCompactor#bodies}); null se non disponibili
+     */
+    public static TestPrompt build(CodeAnalysisResult analysis, TestGenerationRequest request, int maxPromptTokens,
+                                   Map<String, String> methodBodies) {
+        return build(analysis, request, maxPromptTokens, List.of(), methodBodies);
+    }
+
+    /**
+     * Prompt per un sottoinsieme di metodi (generazione a gruppi): la classe viene
+     * descritta per intero ma si chiedono test solo per {@code targetMethods}. Il
+     * sorgente completo non viene mai incluso, per non ripeterlo in ogni chiamata.
+     */
+    public static TestPrompt build(CodeAnalysisResult analysis, TestGenerationRequest request, int maxPromptTokens,
+                                   List<CodeAnalysisResult.MethodInfo> targetMethods,
+                                   Map<String, String> methodBodies) {
+        String task = task(analysis, request);
+        if (!targetMethods.isEmpty()) {
+            task += "\nWrite tests only for these methods (the others are listed for context): "
+                + String.join(", ", targetMethods.stream().map(PromptContextCompactor::signature).toList()) + ".";
+        }
+        int contextBudget = maxPromptTokens - TokenEstimator.estimate(SYSTEM_PROMPT) - TokenEstimator.estimate(task);
+        String source = request.sourceCode();
+        int sourceTokens = source == null ? 0 : TokenEstimator.estimate(source);
+        List<CodeAnalysisResult.MethodInfo> underTest = targetMethods.isEmpty()
+            ? methodsUnderTest(analysis)
+            : targetMethods;
+
+        String compact = PromptContextCompactor.compact(analysis, methodBodies, underTest);
+        if (targetMethods.isEmpty() && source != null) {
+            String full = "Class under test:\n```java\n" + source + "\n```";
+            int fullTokens = TokenEstimator.estimate(full);
+            if (fullTokens <= contextBudget && (compact == null || fullTokens <= TokenEstimator.estimate(compact))) {
+                return prompt(task, full, ContextMode.FULL_SOURCE, sourceTokens);
+            }
+        }
+        if (compact != null && TokenEstimator.estimate(compact) <= contextBudget) {
+            return prompt(task, compact, ContextMode.COMPACT, sourceTokens);
+        }
+        String signatures = PromptContextCompactor.signatures(analysis, analysis.methods(), underTest);
+        if (TokenEstimator.estimate(signatures) <= contextBudget) {
+            return prompt(task, signatures, ContextMode.SIGNATURES, sourceTokens);
+        }
+        signatures = PromptContextCompactor.signatures(analysis, analysis.methods(), List.of());
+        if (TokenEstimator.estimate(signatures) <= contextBudget) {
+            return prompt(task, signatures, ContextMode.SIGNATURES_WITHOUT_JAVADOC, sourceTokens);
+        }
+        return prompt(task, truncated(analysis, contextBudget), ContextMode.TRUNCATED, sourceTokens);
+    }
+
+    private static TestPrompt prompt(String task, String context, ContextMode mode, int sourceTokens) {
+        String userPrompt = task + "\n\n" + context;
+        int tokens = TokenEstimator.estimate(SYSTEM_PROMPT) + TokenEstimator.estimate(userPrompt);
+        return new TestPrompt(SYSTEM_PROMPT, userPrompt, mode, tokens, sourceTokens, TokenEstimator.estimate(context));
+    }
+
+    /**
+     * Metodi pubblici; se non ce ne sono (ad esempio metodi di interfaccia senza
+     * modificatore) tutti i metodi.
+     */
+    static List<CodeAnalysisResult.MethodInfo> methodsUnderTest(CodeAnalysisResult analysis) {
+        List<CodeAnalysisResult.MethodInfo> publicMethods = analysis.methods().stream()
+            .filter(CodeAnalysisResult.MethodInfo::isPublic)
+            .toList();
+        return publicMethods.isEmpty() ? analysis.methods() : publicMethods;
+    }
+
+    private static String task(CodeAnalysisResult analysis, TestGenerationRequest request) {
+        String packageName = request.packageName() != null ? request.packageName() : analysis.packageName();
+        StringBuilder task = new StringBuilder();
+        task.append("Generate the test class ").append(analysis.className()).append("Test");
+        if (packageName != null && !packageName.isEmpty()) {
+            task.append(" in package ").append(packageName);
+        }
+        task.append(" for the ").append(analysis.classType()).append(' ').append(analysis.className()).append(".\n");
+        task.append(switch (request.testType() == null ? TestGenerationRequest.TestType.UNIT_TEST : request.testType()) {
+            case UNIT_TEST -> "Write isolated unit tests; do not start any framework context.";
+            case INTEGRATION_TEST -> "Write integration tests that exercise collaborators together.";
+            case MOCK_TEST -> "Mock every collaborator with Mockito (@ExtendWith(MockitoExtension.class), @Mock, @InjectMocks).";
+        }).append('\n');
+        task.append(switch (request.coverageLevel() == null ? TestGenerationRequest.CoverageLevel.BASIC : request.coverageLevel()) {
+            case BASIC -> "Cover the main behaviour of each public method.";
+            case COMPREHENSIVE -> "Cover every public method, including edge cases and error paths.";
+            case EDGE_CASES -> "Focus on boundary values, null inputs and exceptions.";
+        });
+        return task.toString();
+    }
+
+    private static String truncated(CodeAnalysisResult analysis, int contextBudget) {
+        List<CodeAnalysisResult.MethodInfo> ordered = new ArrayList<>(analysis.methods().size());
+        analysis.methods().stream().filter(CodeAnalysisResult.MethodInfo::isPublic).forEach(ordered::add);
+        analysis.methods().stream().filter(method -> !method.isPublic()).forEach(ordered::add);
+
+        // La nota sui metodi omessi viene riservata subito; se nemmeno lo scheletro della
+        // classe entra nel budget si invia comunque il prompt minimo
+        int base = TokenEstimator.estimate(PromptContextCompactor.signatures(analysis, List.of(), List.of()))
+            + TokenEstimator.estimate(omittedNote(ordered.size()));
+        List<CodeAnalysisResult.MethodInfo> kept = new ArrayList<>();
+        int used = base;
+        for (CodeAnalysisResult.MethodInfo method : ordered) {
+            int cost = TokenEstimator.estimate(PromptContextCompactor.signature(method)) + 2;
+            if (used + cost > contextBudget) {
+                break;
+            }
+            kept.add(method);
+            used += cost;
+        }
+        // Gli import citati dai metodi tenuti non sono nella stima: si scartano metodi finché serve
+        String context = truncatedContext(analysis, kept, ordered.size());
+        while (!kept.isEmpty() && TokenEstimator.estimate(context) > contextBudget) {
+            kept.remove(kept.size() - 1);
+            context = truncatedContext(analysis, kept, ordered.size());
+        }
+        return context;
+    }
+
+    private static String truncatedContext(CodeAnalysisResult analysis, List<CodeAnalysisResult.MethodInfo> kept,
+                                           int total) {
+        int omitted = total - kept.size();
+        return PromptContextCompactor.signatures(analysis, kept, List.of()) + (omitted > 0 ? omittedNote(omitted) : "");
+    }
+
+    private static String omittedNote(int omitted) {
+        return "\n// " + omitted + " further methods omitted to fit the context budget";
+    }
+}
@@ -0,0 +1,357 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generazione deterministica, senza modello, di uno scheletro di test dall'analisi:
+ * costruzione dell'oggetto in {@code @BeforeEach}, un test per metodo pubblico con
+ * argomenti tipizzati e, per {@code MOCK_TEST}, un {@code @Mock} per ogni dipendenza
+ * del costruttore. I template sono compilati una volta in segmenti fissi e segnaposto,
+ * così ogni generazione si riduce a concatenare stringhe in un solo buffer.
+ */
+final class TestTemplateEngine {
+
+    record Rendered(String code, List<String> testMethods) {}
+
+    private static final Template MOCK_FIELD = Template.compile("""
+
+            @Mock
+            private {{type}} {{name}};
+        """, "type", "name");
+
+    private static final Template SUBJECT_FIELD = Template.compile("""
+
+            private {{type}} {{name}};
+        """, "type", "name");
+
+    private static final Template SET_UP = Template.compile("""
+
+            @BeforeEach
+            void setUp() {
+                {{name}} = new {{type}}({{arguments}});
+            }
+        """, "name", "type", "arguments");
+
+    private static final Template RESULT_TEST = Template.compile("""
+
+            @Test
+            void {{test}}() {
+                var result = {{target}}.{{method}}({{arguments}});
+
+                assertThat(result).isNotNull();
+            }
+        """, "test", "target", "method", "arguments");
+
+    private static final Template VOID_TEST = Template.compile("""
+
+            @Test
+            void {{test}}() {
+                assertThatCode(() -> {{target}}.{{method}}({{arguments}})).doesNotThrowAnyException();
+            }
+        """, "test", "target", "method", "arguments");
+
+    private static final Template TYPE_TEST = Template.compile("""
+
+            @Test
+            void {{test}}() {
+                assertThat({{type}}.class).isNotNull();
+            }
+        """, "test", "type");
+
+    private TestTemplateEngine() {
+    }
+
+    static Rendered render(CodeAnalysisResult analysis, String packageName, TestGenerationRequest.TestType testType) {
+        boolean mocks = testType == TestGenerationRequest.TestType.MOCK_TEST;
+        String className = analysis.className();
+        String subject = decapitalize(simpleName(className));
+        Rendering rendering = new Rendering(mocks);
+        rendering.mockNames.add(subject);
+
+        StringBuilder body = new StringBuilder(1024);
+        CodeAnalysisResult.ConstructorInfo constructor = constructor(analysis, mocks);
+        boolean instance = constructor != null || (instantiable(analysis) && !analysis.hasConstructors());
+        if (instance) {
+            String arguments = constructor == null ? "" : rendering.constructorArguments(constructor, body);
+            SUBJECT_FIELD.render(body, className, subject);
+            SET_UP.render(body, subject, className, arguments);
+            rendering.imports.add("org.junit.jupiter.api.BeforeEach");
+        }
+
+        List<String> testMethods = new ArrayList<>();
+        Set<String> usedNames = new HashSet<>();
+        for (CodeAnalysisResult.MethodInfo method : analysis.methods()) {
+            if (!method.isPublic() || (!method.isStatic() && !instance)) {
+                continue;
+            }
+            String test = uniqueName("should" + capitalize(method.name()), usedNames);
+            String target = method.isStatic() ? className : subject;
+            String arguments = rendering.arguments(method.parameters());
+            if ("void".equals(method.returnType())) {
+                VOID_TEST.render(body, test, target, method.name(), arguments);
+                rendering.staticImports.add("org.assertj.core.api.Assertions.assertThatCode");
+            } else {
+                RESULT_TEST.render(body, test, target, method.name(), arguments);
+                rendering.staticImports.add("org.assertj.core.api.Assertions.assertThat");
+            }
+            testMethods.add(test);
+        }
+        if (testMethods.isEmpty()) {
+            // Nulla da invocare (interfaccia, enum, classe senza costruttori accessibili)
+            String test = "should" + simpleName(className) + "BeDeclared";
+            TYPE_TEST.render(body, test, className);
+            rendering.staticImports.add("org.assertj.core.api.Assertions.assertThat");
+            testMethods.add(test);
+        }
+        return new Rendered(rendering.assemble(analysis, packageName, body), testMethods);
+    }
+
+    /**
+     * Costruttore non privato da usare: il più ricco per i test con mock (iniezione
+     * delle dipendenze), il più semplice altrimenti.
+     */
+    private static CodeAnalysisResult.ConstructorInfo constructor(CodeAnalysisResult analysis, boolean mocks) {
+        if (!instantiable(analysis)) {
+            return null;
+        }
+        CodeAnalysisResult.ConstructorInfo chosen = null;
+        for (CodeAnalysisResult.ConstructorInfo candidate : analysis.constructors()) {
+            if (candidate.isPrivate()) {
+                continue;
+            }
+            if (chosen == null
+                || (mocks && candidate.parameters().size() > chosen.parameters().size())
+                || (!mocks && candidate.parameters().size() < chosen.parameters().size())) {
+                chosen = candidate;
+            }
+        }
+        return chosen;
+    }
+
+    private static boolean instantiable(CodeAnalysisResult analysis) {
+        // Una classe astratta non si istanzia: se ne testano solo i metodi statici
+        return ("class".equals(analysis.classType()) && !analysis.isAbstract())
+            || "record".equals(analysis.classType());
+    }
+
+    private static String uniqueName(String name, Set<String> usedNames) {
+        String unique = name;
+        for (int i = 2; !usedNames.add(unique); i++) {
+            unique = name + i;
+        }
+        return unique;
+    }
+
+    private static String simpleName(String type) {
+        int generic = type.indexOf('<');
+        String raw = generic >= 0 ? type.substring(0, generic) : type;
+        return raw.substring(raw.lastIndexOf('.') + 1);
+    }
+
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String decapitalize(String name) {
+        return name.isEmpty() ? name : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Stato di una singola generazione: import richiesti e nomi dei mock.
+     */
+    private static final class Rendering {
+        final boolean mocks;
+        final Set<String> imports = new TreeSet<>();
+        final Set<String> staticImports = new TreeSet<>();
+        final Set<String> referencedTypes = new HashSet<>();
+        final Set<String> mockNames = new HashSet<>();
+
+        Rendering(boolean mocks) {
+            this.mocks = mocks;
+            imports.add("org.junit.jupiter.api.Test");
+        }
+
+        /**
+         * Con i mock ogni dipendenza non banale diventa un campo {@code @Mock}
+         * (scritto in {@code body}); gli altri argomenti sono valori di esempio.
+         */
+        String constructorArguments(CodeAnalysisResult.ConstructorInfo constructor, StringBuilder body) {
+            StringBuilder arguments = new StringBuilder();
+            for (CodeAnalysisResult.ParameterInfo parameter : constructor.parameters()) {
+                if (!arguments.isEmpty()) {
+                    arguments.append(", ");
+                }
+                String value = sampleValue(parameter.type());
+                if (value == null && mocks && !typeVariable(parameter.type())) {
+                    String name = uniqueName(parameter.name(), mockNames);
+                    MOCK_FIELD.render(body, parameter.type(), name);
+                    referencedTypes.add(simpleName(parameter.type()));
+                    imports.add("org.mockito.Mock");
+                    value = name;
+                }
+                arguments.append(value != null ? value : typedNull(parameter.type()));
+            }
+            return arguments.toString();
+        }
+
+        String arguments(List<CodeAnalysisResult.ParameterInfo> parameters) {
+            StringBuilder arguments = new StringBuilder();
+            for (CodeAnalysisResult.ParameterInfo parameter : parameters) {
+                if (!arguments.isEmpty()) {
+                    arguments.append(", ");
+                }
+                String value = sampleValue(parameter.type());
+                if (value == null && mocks && !typeVariable(parameter.type())) {
+                    String raw = simpleName(parameter.type());
+                    referencedTypes.add(raw);
+                    staticImports.add("org.mockito.Mockito.mock");
+                    value = "mock(" + raw + ".class)";
+                }
+                arguments.append(value != null ? value : typedNull(parameter.type()));
+            }
+            return arguments.toString();
+        }
+
+        /**
+         * Valore di esempio per i tipi noti; null per gli altri.
+         */
+        String sampleValue(String type) {
+            String raw = type.endsWith("...") ? type.substring(0, type.length() - 3) + "[]" : type;
+            if (raw.endsWith("[]")) {
+                String element = raw.substring(0, raw.indexOf('['));
+                int generic = element.indexOf('<');
+                int dimensions = (raw.length() - element.length()) / 2;
+                referencedTypes.add(simpleName(element));
+                return "new " + (generic >= 0 ? element.substring(0, generic) : element) + "[0]" + "[]".repeat(dimensions - 1);
+            }
+            return switch (simpleName(raw)) {
+                case "int", "Integer" -> "1";
+                // Un int letterale non si converte in Short o Byte, né sceglie l'overload giusto
+                case "short", "Short" -> "(short) 1";
+                case "byte", "Byte" -> "(byte) 1";
+                case "long", "Long" -> "1L";
+                case "double", "Double", "Number" -> "1.0";
+                case "float", "Float" -> "1.0f";
+                case "boolean", "Boolean" -> "true";
+                case "char", "Character" -> "'a'";
+                case "String", "CharSequence", "Object" -> "\"value\"";
+                case "List", "Collection", "Iterable" -> importing("java.util.List", "List.of()");
+                case "Set" -> importing("java.util.Set", "Set.of()");
+                case "Map" -> importing("java.util.Map", "Map.of()");
+                case "Optional" -> importing("java.util.Optional", "Optional.empty()");
+                case "BigDecimal" -> importing("java.math.BigDecimal", "BigDecimal.ONE");
+                case "BigInteger" -> importing("java.math.BigInteger", "BigInteger.ONE");
+                default -> null;
+            };
+        }
+
+        /**
+         * {@code null} con il cast al tipo del parametro, che sceglie l'overload giusto quando
+         * più metodi accettano un riferimento nella stessa posizione.
+         */
+        String typedNull(String type) {
+            if (typeVariable(type)) {
+                return "null";
+            }
+            // Tipo grezzo: gli argomenti generici possono riferire variabili di tipo fuori scope
+            int generic = type.indexOf('<');
+            String raw = generic >= 0 ? type.substring(0, generic) : type;
+            referencedTypes.add(simpleName(raw));
+            return "(" + raw + ") null";
+        }
+
+        private String importing(String importName, String value) {
+            imports.add(importName);
+            return value;
+        }
+
+        String assemble(CodeAnalysisResult analysis, String packageName, StringBuilder body) {
+            if (mocks) {
+                imports.add("org.junit.jupiter.api.extension.ExtendWith");
+                imports.add("org.mockito.junit.jupiter.MockitoExtension");
+            }
+            // Import della classe sotto test per i tipi usati da mock e argomenti
+            for (String importName : analysis.imports()) {
+                if (referencedTypes.contains(importName.substring(importName.lastIndexOf('.') + 1))) {
+                    imports.add(importName);
+                }
+            }
+            StringBuilder code = new StringBuilder(body.length() + 512);
+            if (packageName != null && !packageName.isEmpty()) {
+                code.append("package ").append(packageName).append(";\n\n");
+            }
+            for (String importName : imports) {
+                code.append("import ").append(importName).append(";\n");
+            }
+            if (!staticImports.isEmpty()) {
+                code.append('\n');
+            }
+            for (String importName : staticImports) {
+                code.append("import static ").append(importName).append(";\n");
+            }
+            code.append('\n');
+            if (mocks) {
+                code.append("@ExtendWith(MockitoExtension.class)\n");
+            }
+            code.append("class ").append(simpleName(analysis.className())).append("Test {\n");
+            code.append(body);
+            return code.append("}\n").toString();
+        }
+
+        private static boolean typeVariable(String type) {
+            // Convenzione per le variabili di tipo: una o due lettere maiuscole (T, K, V, E1)
+            return type.length() <= 2 && Character.isUpperCase(type.charAt(0));
+        }
+    }
+
+    /**
+     * Template compilato: segmenti di testo fisso alternati a segnaposto {@code {{nome}}},
+     * risolti una volta in indici degli argomenti di {@link #render}.
+     */
+    static final class Template {
+        private final String[] literals;
+        private final int[] slots;
+
+        private Template(String[] literals, int[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+        }
+
+        static Template compile(String text, String... names) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int open = text.indexOf("{{", position);
+                if (open < 0) {
+                    literals.add(text.substring(position));
+                    break;
+                }
+                int close = text.indexOf("}}", open);
+                String name = text.substring(open + 2, close);
+                int slot = List.of(names).indexOf(name);
+                if (slot < 0) {
+                    throw new IllegalArgumentException("Unknown template placeholder: " + name);
+                }
+                literals.add(text.substring(position, open));
+                slots.add(slot);
+                position = close + 2;
+            }
+            return new Template(literals.toArray(String[]::new), slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        void render(StringBuilder out, String... values) {
+            for (int i = 0; i < slots.length; i++) {
+                out.append(literals[i]).append(values[slots[i]]);
+            }
+            out.append(literals[slots.length]);
+        }
+    }
+}
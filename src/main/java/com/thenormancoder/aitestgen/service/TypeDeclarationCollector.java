@@ -0,0 +1,249 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.CompactConstructorDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.comments.JavadocComment;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Visitor che raccoglie in un solo attraversamento package, import e tutti i
+ * tipi dichiarati nel file (classi, interfacce, enum, record, annotation, anche
+ * annidati). Non scende nei corpi di metodi, costruttori, inizializzatori e
+ * costanti enum: classi locali e anonime non fanno parte dell'API da testare.
+ * I corpi dei metodi vengono solo misurati ({@link MethodMetricsCollector}).
+ *
+ * Un'istanza è monouso e non è thread-safe.
+ */
+final class TypeDeclarationCollector extends VoidVisitorAdapter<Void> {
+
+    private String packageName = "";
+    private final List<String> imports = new ArrayList<>();
+    private List<String> sharedImports;
+    private final List<CodeAnalysisResult> types = new ArrayList<>();
+    private final Deque<TypeBuilder> openTypes = new ArrayDeque<>();
+    private String primaryTypeName;
+    private boolean primaryIsPublic;
+    private final boolean measureBodies;
+
+    private TypeDeclarationCollector(boolean measureBodies) {
+        this.measureBodies = measureBodies;
+    }
+
+    /**
+     * @param measureBodies se false (corpi scartati dall'analisi scheletro) i metodi non
+     *                      hanno metriche
+     */
+    static CompilationUnitAnalysis collect(CompilationUnit cu, boolean measureBodies) {
+        TypeDeclarationCollector collector = new TypeDeclarationCollector(measureBodies);
+        cu.accept(collector, null);
+        return new CompilationUnitAnalysis(collector.packageName, collector.imports, collector.types,
+            collector.primaryTypeName);
+    }
+
+    @Override
+    public void visit(PackageDeclaration n, Void arg) {
+        packageName = n.getNameAsString();
+    }
+
+    @Override
+    public void visit(ImportDeclaration n, Void arg) {
+        imports.add(n.getNameAsString());
+    }
+
+    @Override
+    public void visit(ClassOrInterfaceDeclaration n, Void arg) {
+        TypeBuilder type = enterType(n, n.isInterface() ? "interface" : "class");
+        super.visit(n, arg);
+        exitType(type);
+    }
+
+    @Override
+    public void visit(EnumDeclaration n, Void arg) {
+        TypeBuilder type = enterType(n, "enum");
+        super.visit(n, arg);
+        exitType(type);
+    }
+
+    @Override
+    public void visit(RecordDeclaration n, Void arg) {
+        TypeBuilder type = enterType(n, "record");
+        // I componenti del record sono campi privati e finali con costruttore canonico implicito
+        for (Parameter component : n.getParameters()) {
+            type.fields.add(new CodeAnalysisResult.FieldInfo(
+                component.getNameAsString(), component.getTypeAsString(), true, false, true));
+        }
+        type.hasConstructors = true;
+        type.addConstructor(new CodeAnalysisResult.ConstructorInfo(parameters(n.getParameters()), false));
+        n.getMembers().forEach(member -> member.accept(this, arg));
+        exitType(type);
+    }
+
+    @Override
+    public void visit(AnnotationDeclaration n, Void arg) {
+        TypeBuilder type = enterType(n, "annotation");
+        n.getMembers().forEach(member -> member.accept(this, arg));
+        exitType(type);
+    }
+
+    @Override
+    public void visit(MethodDeclaration n, Void arg) {
+        TypeBuilder type = openTypes.peek();
+        if (type == null) {
+            return;
+        }
+        List<CodeAnalysisResult.ParameterInfo> parameters = parameters(n.getParameters());
+        String javadoc = n.getJavadocComment()
+            .map(JavadocComment::getContent)
+            .orElse("");
+        type.methods.add(new CodeAnalysisResult.MethodInfo(
+            n.getNameAsString(),
+            n.getTypeAsString(),
+            parameters,
+            n.isPublic(),
+            n.isStatic(),
+            javadoc,
+            measureBodies ? n.getBody().map(MethodMetricsCollector::measure).orElse(null) : null
+        ));
+    }
+
+    @Override
+    public void visit(FieldDeclaration n, Void arg) {
+        TypeBuilder type = openTypes.peek();
+        if (type == null) {
+            return;
+        }
+        String elementType = n.getElementType().asString();
+        for (VariableDeclarator variable : n.getVariables()) {
+            type.fields.add(new CodeAnalysisResult.FieldInfo(
+                variable.getNameAsString(), elementType, n.isPrivate(), n.isStatic(), n.isFinal()));
+        }
+    }
+
+    @Override
+    public void visit(ConstructorDeclaration n, Void arg) {
+        markConstructor();
+        TypeBuilder type = openTypes.peek();
+        if (type != null) {
+            type.addConstructor(new CodeAnalysisResult.ConstructorInfo(parameters(n.getParameters()), n.isPrivate()));
+        }
+    }
+
+    @Override
+    public void visit(CompactConstructorDeclaration n, Void arg) {
+        markConstructor();
+    }
+
+    @Override
+    public void visit(InitializerDeclaration n, Void arg) {
+    }
+
+    @Override
+    public void visit(EnumConstantDeclaration n, Void arg) {
+    }
+
+    @Override
+    public void visit(AnnotationMemberDeclaration n, Void arg) {
+    }
+
+    private static List<CodeAnalysisResult.ParameterInfo> parameters(List<Parameter> declared) {
+        List<CodeAnalysisResult.ParameterInfo> parameters = new ArrayList<>(declared.size());
+        for (Parameter parameter : declared) {
+            parameters.add(new CodeAnalysisResult.ParameterInfo(parameter.getNameAsString(), parameter.getTypeAsString()));
+        }
+        return parameters;
+    }
+
+    private void markConstructor() {
+        TypeBuilder type = openTypes.peek();
+        if (type != null) {
+            type.hasConstructors = true;
+        }
+    }
+
+    private TypeBuilder enterType(TypeDeclaration<?> declaration, String kind) {
+        TypeBuilder outer = openTypes.peek();
+        String name = outer == null
+            ? declaration.getNameAsString()
+            : outer.name + "." + declaration.getNameAsString();
+        if (outer == null && (primaryTypeName == null || (!primaryIsPublic && declaration.isPublic()))) {
+            primaryTypeName = name;
+            primaryIsPublic = declaration.isPublic();
+        }
+        // Si riserva la posizione ora per mantenere l'ordine di dichiarazione (esterno prima dell'interno)
+        types.add(null);
+        TypeBuilder type = new TypeBuilder(name, kind, declaration.hasModifier(Modifier.Keyword.ABSTRACT),
+            types.size() - 1);
+        openTypes.push(type);
+        return type;
+    }
+
+    private void exitType(TypeBuilder type) {
+        openTypes.pop();
+        if (sharedImports == null) {
+            // Gli import precedono sempre i tipi: una sola copia immutabile condivisa da tutti
+            sharedImports = List.copyOf(imports);
+        }
+        types.set(type.position, new CodeAnalysisResult(
+            type.name,
+            packageName,
+            type.methods,
+            type.fields,
+            sharedImports,
+            type.hasConstructors,
+            type.kind,
+            type.constructors,
+            type.isAbstract
+        ));
+    }
+
+    private static final class TypeBuilder {
+        final String name;
+        final String kind;
+        final boolean isAbstract;
+        final int position;
+        final List<CodeAnalysisResult.MethodInfo> methods = new ArrayList<>();
+        final List<CodeAnalysisResult.FieldInfo> fields = new ArrayList<>();
+        final List<CodeAnalysisResult.ConstructorInfo> constructors = new ArrayList<>();
+        boolean hasConstructors;
+
+        TypeBuilder(String name, String kind, boolean isAbstract, int position) {
+            this.name = name;
+            this.kind = kind;
+            this.isAbstract = isAbstract;
+            this.position = position;
+        }
+
+        void addConstructor(CodeAnalysisResult.ConstructorInfo constructor) {
+            // Il costruttore canonico di un record può essere anche dichiarato esplicitamente
+            List<String> types = constructor.parameters().stream().map(CodeAnalysisResult.ParameterInfo::type).toList();
+            boolean duplicate = constructors.stream().anyMatch(existing ->
+                existing.parameters().stream().map(CodeAnalysisResult.ParameterInfo::type).toList().equals(types));
+            if (!duplicate) {
+                constructors.add(constructor);
+            }
+        }
+    }
+}
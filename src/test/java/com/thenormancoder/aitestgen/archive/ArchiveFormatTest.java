@@ -0,0 +1,113 @@
+package com.thenormancoder.aitestgen.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveFormatTest {
+
+    private static final String SHORT = "src/test/java/com/example/CalculatorTest.java";
+    // Oltre i 100 byte del nome ustar: va diviso tra prefisso e nome
+    private static final String LONG = "src/test/java/com/example/" + "deeply/nested/".repeat(6) + "ParserTest.java";
+    // Non ASCII: solo un header PAX lo rappresenta
+    private static final String UNICODE = "src/test/java/com/example/CalcolatriceÀTest.java";
+
+    @Test
+    void shouldStreamZipEntries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestArchiveWriter writer = ArchiveFormat.fromName("zip").open(out);
+        writer.add(SHORT, "class CalculatorTest {}".getBytes(StandardCharsets.UTF_8));
+        // La prima voce è già completa sullo stream prima della fine dell'archivio
+        ZipInputStream partial = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8);
+        assertThat(partial.getNextEntry().getName()).isEqualTo(SHORT);
+        writer.add(UNICODE, "class CalcolatriceÀTest {}".getBytes(StandardCharsets.UTF_8));
+        writer.finish();
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(entries).containsEntry(SHORT, "class CalculatorTest {}");
+        assertThat(entries).containsEntry(UNICODE, "class CalcolatriceÀTest {}");
+    }
+
+    @Test
+    void shouldWriteTarGzReadableEntryByEntry() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestArchiveWriter writer = ArchiveFormat.fromName("tgz").open(out);
+        writer.add(SHORT, "class CalculatorTest {}".getBytes(StandardCharsets.UTF_8));
+        // Con il flush sincrono la prima voce è già decomprimibile prima della fine dell'archivio
+        InputStream partial = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(readTarName(partial.readNBytes(512))).isEqualTo(SHORT);
+        writer.add(LONG, "class ParserTest {}".getBytes(StandardCharsets.UTF_8));
+        writer.add(UNICODE, new byte[1024]);
+        writer.finish();
+
+        Map<String, Integer> entries = readTar(out.toByteArray());
+        assertThat(entries).containsEntry(SHORT, 23);
+        assertThat(entries).containsEntry(LONG, 19);
+        assertThat(entries).containsEntry(UNICODE, 1024);
+        assertThat(entries).hasSize(3);
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> ArchiveFormat.fromName("rar"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("rar");
+    }
+
+    /**
+     * Nomi e dimensioni delle voci di un tar.gz, con prefissi ustar e percorsi PAX.
+     */
+    private static Map<String, Integer> readTar(byte[] archive) throws Exception {
+        Map<String, Integer> entries = new LinkedHashMap<>();
+        try (InputStream tar = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            String paxPath = null;
+            while (true) {
+                byte[] header = tar.readNBytes(512);
+                if (header.length < 512 || header[0] == 0) {
+                    break;
+                }
+                int size = Integer.parseInt(field(header, 124, 12).trim(), 8);
+                byte[] content = tar.readNBytes(size);
+                tar.readNBytes((512 - size % 512) % 512);
+                if (header[156] == 'x') {
+                    String record = new String(content, StandardCharsets.UTF_8);
+                    paxPath = record.substring(record.indexOf("path=") + 5, record.length() - 1);
+                } else {
+                    entries.put(paxPath != null ? paxPath : readTarName(header), size);
+                    paxPath = null;
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String readTarName(byte[] header) {
+        String prefix = field(header, 345, 155);
+        String name = field(header, 0, 100);
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.thenormancoder.aitestgen.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntryWhenFull() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, Long.MAX_VALUE, Duration.ZERO, v -> 1);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+        assertThat(cache.stats().evictions()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldEvictByWeight() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 10, Duration.ZERO, String::length);
+
+        cache.put("first", "123456");
+        cache.put("second", "123456");
+
+        assertThat(cache.get("first")).isNull();
+        assertThat(cache.get("second")).isEqualTo("123456");
+        assertThat(cache.stats().weight()).isEqualTo(6L);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, Duration.ofSeconds(1), v -> 1, now::get);
+
+        cache.put("key", "value");
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        assertThat(cache.get("key")).isEqualTo("value");
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.stats().size()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldNotifyEvictedEntriesButNotInvalidatedOnes() {
+        AtomicLong now = new AtomicLong();
+        List<String> evicted = new ArrayList<>();
+        BoundedCache<String, String> cache = new BoundedCache<>(2, 100, Duration.ofSeconds(1), v -> 1,
+            (key, value) -> evicted.add(key + "=" + value), now::get);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertThat(cache.invalidate("b")).isEqualTo("B");
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("c");
+
+        assertThat(evicted).containsExactly("a=A", "c=C");
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, Duration.ZERO, v -> 1);
+
+        cache.getOrCompute("key", k -> "value");
+        cache.getOrCompute("key", k -> "other");
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1L);
+        assertThat(stats.misses()).isEqualTo(1L);
+        assertThat(stats.hitRatio()).isEqualTo(0.5);
+    }
+}
@@ -0,0 +1,101 @@
+package com.thenormancoder.aitestgen.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void shouldShareOneComputationBetweenConcurrentCallers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<String> results = runConcurrently(singleFlight, () -> {
+            computations.incrementAndGet();
+            await(release);
+            return "result";
+        }, release);
+
+        assertThat(results).hasSize(CALLERS).allMatch("result"::equals);
+        assertThat(computations.get()).isEqualTo(1);
+        assertThat(singleFlight.stats().coalesced()).isEqualTo((long) CALLERS - 1);
+        assertThat(singleFlight.stats().inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldPropagateFailureToEveryWaiterWithoutCachingIt() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<String> results = runConcurrently(singleFlight, () -> {
+            computations.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("boom");
+        }, release);
+
+        assertThat(results).hasSize(CALLERS).allMatch("IllegalStateException: boom"::equals);
+        assertThat(computations.get()).isEqualTo(1);
+
+        // Il fallimento non resta associato alla chiave
+        assertThat(singleFlight.execute("key", () -> "retry")).isEqualTo("retry");
+        assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalArgumentException("again");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(computations.get()).isEqualTo(1);
+    }
+
+    private List<String> runConcurrently(SingleFlight<String, String> singleFlight, Supplier<String> task,
+                                         CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return singleFlight.execute("key", task);
+                    } catch (RuntimeException e) {
+                        return e.getClass().getSimpleName() + ": " + e.getMessage();
+                    }
+                }));
+            }
+            // Rilascia il calcolo solo quando tutti gli altri chiamanti sono in attesa
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (singleFlight.stats().coalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.thenormancoder.aitestgen.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SourceFingerprintTest {
+
+    @Test
+    void shouldProduceSameFingerprintForEquivalentSources() {
+        String unix = "public class A {\n    void run() {}\n}\n";
+        String windows = "public class A {   \r\n    void run() {}\r\n}\r\n\r\n";
+
+        assertThat(SourceFingerprint.of(unix)).isEqualTo(SourceFingerprint.of(windows));
+        assertThat(SourceFingerprint.of(unix)).isNotEqualTo(SourceFingerprint.of("public class B {}"));
+    }
+}
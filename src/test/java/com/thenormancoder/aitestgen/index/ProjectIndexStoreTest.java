@@ -0,0 +1,171 @@
+package com.thenormancoder.aitestgen.index;
+
+import com.thenormancoder.aitestgen.config.ProjectIndexProperties;
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectIndexStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRoundTripEntriesThroughIndexFile() throws Exception {
+        ProjectIndexStore store = new ProjectIndexStore(new ProjectIndexProperties(true, tempDir.toString(), 16));
+        Path indexFile = tempDir.resolve("project.idx");
+
+        ProjectIndex index = new ProjectIndex();
+        index.put("src/main/java/com/example/Calculator.java", 120, 1_700_000_000_000L, new byte[32], sampleAnalysis());
+        store.write(index, indexFile);
+
+        ProjectIndex reloaded = store.load(indexFile);
+
+        assertThat(reloaded.size()).isEqualTo(1);
+        assertThat(reloaded.isDirty()).isFalse();
+        IndexEntry entry = reloaded.get("src/main/java/com/example/Calculator.java");
+        assertThat(entry.matchesAttributes(120, 1_700_000_000_000L)).isTrue();
+        assertThat(reloaded.analysis(entry)).isEqualTo(sampleAnalysis());
+    }
+
+    @Test
+    void shouldKeepChangesMadeWhileSaving() {
+        ProjectIndex index = new ProjectIndex();
+        index.put("A.java", 1, 1, new byte[32], sampleAnalysis());
+        long written = index.version();
+
+        // Voce aggiunta da una scansione concorrente mentre la versione letta viene scritta
+        index.put("B.java", 1, 1, new byte[32], sampleAnalysis());
+        index.markClean(written);
+
+        assertThat(index.isDirty()).isTrue();
+        index.markClean(index.version());
+        assertThat(index.isDirty()).isFalse();
+    }
+
+    @Test
+    void shouldBoundLoadedIndexesAndSaveEvictedOnes() throws Exception {
+        ProjectIndexStore store = new ProjectIndexStore(new ProjectIndexProperties(true, tempDir.toString(), 1));
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+
+        ProjectIndex index = store.indexFor(first, "DEFAULT");
+        assertThat(store.indexFor(first, "DEFAULT")).isSameAs(index);
+        index.put("A.java", 1, 1, new byte[32], sampleAnalysis());
+        store.indexFor(second, "DEFAULT");
+        store.save(index, first, "DEFAULT");
+
+        ProjectIndex reloaded = store.indexFor(first, "DEFAULT");
+        assertThat(reloaded).isNotSameAs(index);
+        assertThat(reloaded.get("A.java")).isNotNull();
+        assertThat(index.isDirty()).isFalse();
+    }
+
+    @Test
+    void shouldShareSymbolsAcrossEntries() {
+        ProjectIndex index = new ProjectIndex();
+
+        index.put("A.java", 1, 1, new byte[32], sampleAnalysis());
+        int symbolsAfterFirst = index.symbolCount();
+        index.put("B.java", 1, 1, new byte[32], sampleAnalysis());
+
+        assertThat(index.symbolCount()).isEqualTo(symbolsAfterFirst);
+        assertThat(index.analysis(index.get("B.java"))).isEqualTo(sampleAnalysis());
+    }
+
+    @Test
+    void shouldIgnoreIndexWithUnknownVersion() throws Exception {
+        ProjectIndexStore store = new ProjectIndexStore(new ProjectIndexProperties(true, tempDir.toString(), 16));
+        Path indexFile = tempDir.resolve("stale.idx");
+        Files.write(indexFile, new byte[] {0x41, 0x54, 0x47, 0x49, 0, 0, 0, 99, 0, 0, 0, 1});
+
+        assertThat(store.load(indexFile).size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldDiscardIndexWithImpossibleLengths() throws Exception {
+        ProjectIndexStore store = new ProjectIndexStore(new ProjectIndexProperties(true, tempDir.toString(), 16));
+        Path hugeString = tempDir.resolve("huge.idx");
+        // Un simbolo che dichiara Integer.MAX_VALUE byte
+        Files.write(hugeString, indexFile(out -> {
+            out.writeInt(1);
+            out.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        }));
+        Path negativeCount = tempDir.resolve("negative.idx");
+        Files.write(negativeCount, indexFile(out -> out.writeInt(-1)));
+        Path malformedVarint = tempDir.resolve("varint.idx");
+        Files.write(malformedVarint, indexFile(out -> {
+            out.writeInt(1);
+            out.write(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+        }));
+
+        assertThat(store.load(hugeString).size()).isEqualTo(0);
+        assertThat(store.load(negativeCount).size()).isEqualTo(0);
+        assertThat(store.load(malformedVarint).size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldDiscardIndexReferencingUnknownSymbols() throws Exception {
+        ProjectIndexStore store = new ProjectIndexStore(new ProjectIndexProperties(true, tempDir.toString(), 16));
+        Path indexFile = tempDir.resolve("symbols.idx");
+        Files.write(indexFile, indexFile(out -> {
+            out.writeInt(1);
+            IndexCodec.writeString(out, "com.example");
+            out.writeInt(1);
+            IndexCodec.writeString(out, "A.java");
+            out.writeLong(1);
+            out.writeLong(1);
+            out.write(new byte[32]);
+            // package = simbolo 1, tipo principale = simbolo 999 inesistente
+            IndexCodec.writeInts(out, new int[] {1, 999, 0, 0});
+        }));
+
+        assertThat(store.load(indexFile).size()).isEqualTo(0);
+    }
+
+    private static byte[] indexFile(IndexBody body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(ProjectIndexStore.MAGIC);
+            out.writeInt(ProjectIndexStore.VERSION);
+            body.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface IndexBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static CompilationUnitAnalysis sampleAnalysis() {
+        CodeAnalysisResult calculator = new CodeAnalysisResult(
+            "Calculator",
+            "com.example",
+            List.of(new CodeAnalysisResult.MethodInfo("add", "int",
+                List.of(new CodeAnalysisResult.ParameterInfo("a", "int"), new CodeAnalysisResult.ParameterInfo("b", "int")),
+                true, false, "Somma", CodeAnalysisResult.MethodMetrics.of(2, 2,
+                    List.of(new CodeAnalysisResult.ThrowSite("IllegalArgumentException", 9, "b == 0"))))),
+            List.of(new CodeAnalysisResult.FieldInfo("value", "int", true, false, false)),
+            List.of("java.util.List"),
+            true,
+            "class",
+            List.of(new CodeAnalysisResult.ConstructorInfo(
+                List.of(new CodeAnalysisResult.ParameterInfo("value", "int")), false)),
+            true
+        );
+        CodeAnalysisResult operation = new CodeAnalysisResult("Calculator.Operation", "com.example",
+            List.of(), List.of(), List.of("java.util.List"), false, "enum", List.of(), false);
+        return new CompilationUnitAnalysis("com.example", List.of("java.util.List"),
+            List.of(calculator, operation), "Calculator");
+    }
+}
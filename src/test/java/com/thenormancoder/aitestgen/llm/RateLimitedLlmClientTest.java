@@ -0,0 +1,177 @@
+package com.thenormancoder.aitestgen.llm;
+
+import com.thenormancoder.aitestgen.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitedLlmClientTest {
+
+    private static final LlmRequest REQUEST = new LlmRequest("system", "user", "gpt-4", 0.3, 100);
+
+    @Test
+    void shouldBackOffAndRetryWhenProviderReturns429() {
+        ThrottlingStub stub = new ThrottlingStub(2);
+        RateLimitedLlmClient client = new RateLimitedLlmClient(stub,
+            properties(0, 0, 8, Duration.ofSeconds(5), 3, Duration.ofMillis(50)));
+
+        long start = System.nanoTime();
+        LlmResponse response = client.complete(REQUEST);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(response.content()).isEqualTo("ok");
+        assertThat(stub.calls.get()).isEqualTo(3);
+        // Backoff esponenziale: 50 ms dopo il primo 429, 100 ms dopo il secondo
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(150);
+
+        RateLimiterStats stats = client.stats();
+        assertThat(stats.throttled()).isEqualTo(2L);
+        assertThat(stats.retries()).isEqualTo(2L);
+        assertThat(stats.admitted()).isEqualTo(3L);
+        assertThat(stats.concurrencyLimit()).isEqualTo(2);
+        assertThat(stats.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxRetries() {
+        ThrottlingStub stub = new ThrottlingStub(Integer.MAX_VALUE);
+        RateLimitedLlmClient client = new RateLimitedLlmClient(stub,
+            properties(0, 0, 4, Duration.ofSeconds(5), 1, Duration.ofMillis(10)));
+
+        assertThatThrownBy(() -> client.complete(REQUEST)).isInstanceOf(LlmRateLimitedException.class);
+        assertThat(stub.calls.get()).isEqualTo(2);
+        assertThat(client.stats().inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldTimeOutQueuedCallsWhenConcurrencyIsExhausted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        LlmClient blocking = new StubClient() {
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new LlmResponse("ok", 10, 10);
+            }
+        };
+        RateLimitedLlmClient client = new RateLimitedLlmClient(blocking,
+            properties(0, 0, 1, Duration.ofMillis(100), 0, Duration.ofMillis(10)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<LlmResponse> first = executor.submit(() -> client.complete(REQUEST));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> client.complete(REQUEST))
+                .isInstanceOf(LlmRateLimitedException.class)
+                .hasMessageContaining("Timed out");
+            assertThat(client.stats().queueTimeouts()).isEqualTo(1L);
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).content()).isEqualTo("ok");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldLimitRequestsPerMinute() {
+        ThrottlingStub stub = new ThrottlingStub(0);
+        RateLimitedLlmClient client = new RateLimitedLlmClient(stub,
+            properties(2, 0, 4, Duration.ofMillis(100), 0, Duration.ofMillis(10)));
+
+        client.complete(REQUEST);
+        client.complete(REQUEST);
+
+        assertThatThrownBy(() -> client.complete(REQUEST)).isInstanceOf(LlmRateLimitedException.class);
+        assertThat(stub.calls.get()).isEqualTo(2);
+        assertThat(client.stats().availableRequests()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldLimitConcurrentCallsToTheAdaptiveLimit() throws Exception {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        LlmClient slow = new StubClient() {
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                current.decrementAndGet();
+                return new LlmResponse("ok", -1, -1);
+            }
+        };
+        RateLimitedLlmClient client = new RateLimitedLlmClient(slow,
+            properties(0, 0, 2, Duration.ofSeconds(5), 0, Duration.ofMillis(10)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<LlmResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> client.complete(REQUEST)));
+            }
+            for (Future<LlmResponse> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+        assertThat(client.stats().admitted()).isEqualTo(16L);
+    }
+
+    private static RateLimitProperties properties(int requestsPerMinute, int tokensPerMinute, int concurrency,
+                                                  Duration queueTimeout, int maxRetries, Duration backoff) {
+        // maxConcurrency pari all'iniziale: il limite può solo scendere durante il test
+        return new RateLimitProperties(true, requestsPerMinute, tokensPerMinute, concurrency, concurrency,
+            Duration.ofSeconds(30), queueTimeout, maxRetries, backoff);
+    }
+
+    private abstract static class StubClient implements LlmClient {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+    }
+
+    /**
+     * Provider locale che risponde 429 alle prime {@code failures} chiamate.
+     */
+    private static class ThrottlingStub extends StubClient {
+        private final int failures;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        ThrottlingStub(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public LlmResponse complete(LlmRequest request) {
+            if (calls.incrementAndGet() <= failures) {
+                throw new LlmRateLimitedException("429 - rate_limit_exceeded");
+            }
+            return new LlmResponse("ok", 10, 10);
+        }
+    }
+}
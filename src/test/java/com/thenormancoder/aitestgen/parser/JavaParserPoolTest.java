@@ -0,0 +1,67 @@
+package com.thenormancoder.aitestgen.parser;
+
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.thenormancoder.aitestgen.config.ParserProperties;
+import com.thenormancoder.aitestgen.exception.AnalysisTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JavaParserPoolTest {
+
+    private static final String SOURCE = "public class Calculator { public int add(int a, int b) { return a + b; } }";
+
+    @Test
+    void shouldParseWithinDeadline() {
+        JavaParserPool pool = new JavaParserPool(ParserProperties.defaults());
+
+        CompilationUnit cu = pool.parse(SOURCE, ParseOptions.DEFAULT);
+
+        assertThat(cu.getType(0).getNameAsString()).isEqualTo("Calculator");
+    }
+
+    @Test
+    void shouldCancelParseAfterDeadline() {
+        JavaParserPool pool = new JavaParserPool(withTimeout(Duration.ofNanos(1)));
+
+        assertThrows(AnalysisTimeoutException.class, () -> pool.parse(SOURCE, ParseOptions.DEFAULT));
+        // Il parser restituito al pool resta utilizzabile
+        assertThrows(AnalysisTimeoutException.class, () -> pool.parse(SOURCE, ParseOptions.DEFAULT));
+    }
+
+    @Test
+    void shouldCancelSlowParseOfASmallSource() {
+        // Il sorgente sta in un solo blocco del lexer: la scadenza non viene mai controllata in lettura
+        JavaParserPool pool = new JavaParserPool(withTimeout(Duration.ofMillis(200)), (parser, provider) -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                // Come il parser reale, il parsing lento ignora l'interruzione
+            }
+            return parser.parse(ParseStart.COMPILATION_UNIT, provider);
+        });
+
+        long start = System.nanoTime();
+        assertThrows(AnalysisTimeoutException.class, () -> pool.parse(SOURCE, ParseOptions.DEFAULT));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isLessThan(2_000L);
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldRejectPathologicalNesting() {
+        JavaParserPool pool = new JavaParserPool(ParserProperties.defaults());
+        String nested = "class Deep { int x = " + "(".repeat(100_000) + "1" + ")".repeat(100_000) + "; }";
+
+        assertThrows(IllegalArgumentException.class, () -> pool.parse(nested, ParseOptions.DEFAULT));
+    }
+
+    private static ParserProperties withTimeout(Duration timeout) {
+        return new ParserProperties(ParserConfiguration.LanguageLevel.JAVA_17, true, 0, 200_000, timeout);
+    }
+}
@@ -0,0 +1,72 @@
+package com.thenormancoder.aitestgen.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkeletonSourceTest {
+
+    @Test
+    void shouldElideMethodAndInitializerBodies() {
+        String source = """
+            public class Service {
+                static { System.out.println("}"); }
+
+                /** Somma */
+                public int add(int a, int b) throws IllegalStateException {
+                    if (a > b) { return a + b; }
+                    return '{' + b;
+                }
+            }
+            """;
+
+        String skeleton = SkeletonSource.elideBodies(source);
+
+        assertThat(skeleton).contains("/** Somma */");
+        assertThat(skeleton).contains("public int add(int a, int b) throws IllegalStateException {");
+        assertThat(skeleton).doesNotContain("return", "println");
+        assertThat(skeleton.lines().count()).isEqualTo(source.lines().count());
+    }
+
+    @Test
+    void shouldKeepFieldInitializersAndNestedTypes() {
+        String source = """
+            public class Holder {
+                private final Runnable task = () -> { run(); };
+                private final int[] values = {1, 2, 3};
+
+                enum Mode {
+                    FAST { int weight() { return 1; } };
+                    int weight() { return 0; }
+                }
+
+                record Point(int x, int y) {
+                    int sum() { return x + y; }
+                }
+            }
+            """;
+
+        String skeleton = SkeletonSource.elideBodies(source);
+
+        assertThat(skeleton).contains("() -> { run(); }", "{1, 2, 3}", "enum Mode {", "record Point(int x, int y) {");
+        assertThat(skeleton).contains("int sum() {}");
+        assertThat(skeleton).doesNotContain("return x + y");
+    }
+
+    @Test
+    void shouldIgnoreBracesInsideTextBlocksAndComments() {
+        String source = "class Q {\n"
+            + "    String sql() {\n"
+            + "        // } commento\n"
+            + "        return \"\"\"\n"
+            + "            { \"\"\" ;\n"
+            + "    }\n"
+            + "    void after() { }\n"
+            + "}\n";
+
+        String skeleton = SkeletonSource.elideBodies(source);
+
+        assertThat(skeleton).contains("String sql() {", "void after() {}");
+        assertThat(skeleton).doesNotContain("commento");
+    }
+}
@@ -0,0 +1,107 @@
+package com.thenormancoder.aitestgen.project;
+
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectDescriptorCacheTest {
+
+    @TempDir
+    Path projectDir;
+
+    private final ProjectFileWatcher fileWatcher = new ProjectFileWatcher();
+    private final ProjectDescriptorCache cache = new ProjectDescriptorCache(
+        new ProjectDescriptorProperties(8, Duration.ZERO, false), fileWatcher);
+
+    @AfterEach
+    void closeWatcher() throws Exception {
+        fileWatcher.close();
+    }
+
+    @Test
+    void shouldReadCustomMavenRootsAndCacheDescriptor() throws Exception {
+        Files.writeString(projectDir.resolve("pom.xml"), """
+            <project>
+              <build>
+                <!-- <testSourceDirectory>commented</testSourceDirectory> -->
+                <sourceDirectory>${project.basedir}/src</sourceDirectory>
+                <testSourceDirectory>test</testSourceDirectory>
+                <plugins>
+                  <plugin><configuration><sourceDirectory>src/main/antlr4</sourceDirectory></configuration></plugin>
+                </plugins>
+              </build>
+            </project>
+            """);
+
+        ProjectDescriptor descriptor = cache.descriptorFor(projectDir);
+
+        Path root = projectDir.toAbsolutePath().normalize();
+        assertThat(descriptor.buildType()).isEqualTo(ProjectType.MAVEN);
+        assertThat(descriptor.sourceRoots()).containsExactly(root.resolve("src"));
+        assertThat(descriptor.testFile("com.example", "Calculator"))
+            .isEqualTo(root.resolve("test/com/example/CalculatorTest.java"));
+        assertThat(cache.descriptorFor(projectDir.toString())).isSameAs(descriptor);
+    }
+
+    @Test
+    void shouldReadGradleSourceSetsInDottedAndNestedForm() throws Exception {
+        Files.writeString(projectDir.resolve("build.gradle.kts"), """
+            plugins { java }
+            sourceSets {
+                main {
+                    java.srcDir("$projectDir/generated") // codice generato
+                }
+                getByName("test") {
+                    java {
+                        setSrcDirs(listOf(
+                            "tests/unit",
+                            "tests/it"
+                        ))
+                    }
+                }
+            }
+            tasks.test { useJUnitPlatform() }
+            """);
+
+        ProjectDescriptor descriptor = cache.descriptorFor(projectDir);
+
+        Path root = projectDir.toAbsolutePath().normalize();
+        assertThat(descriptor.buildType()).isEqualTo(ProjectType.GRADLE);
+        assertThat(descriptor.sourceRoots()).containsExactly(root.resolve("src/main/java"), root.resolve("generated"));
+        assertThat(descriptor.testRoots()).containsExactly(root.resolve("tests/unit"), root.resolve("tests/it"));
+        assertThat(descriptor.testDirectory(null)).isEqualTo(root.resolve("tests/unit"));
+    }
+
+    @Test
+    void shouldNotCacheMissingProject() {
+        ProjectDescriptor descriptor = cache.descriptorFor(projectDir.resolve("missing"));
+
+        assertThat(descriptor.isValid()).isFalse();
+        assertThat(cache.stats().size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldStopWatchingEvictedProjects() throws Exception {
+        ProjectDescriptorCache watching = new ProjectDescriptorCache(
+            new ProjectDescriptorProperties(1, Duration.ZERO, true), fileWatcher);
+        Path first = Files.createDirectories(projectDir.resolve("first")).toAbsolutePath().normalize();
+        Path second = Files.createDirectories(projectDir.resolve("second")).toAbsolutePath().normalize();
+        Files.writeString(first.resolve("pom.xml"), "<project/>");
+        Files.writeString(second.resolve("pom.xml"), "<project/>");
+
+        watching.descriptorFor(first);
+        assertThat(fileWatcher.isWatching(first)).isTrue();
+        watching.descriptorFor(second);
+
+        assertThat(watching.stats().evictions()).isEqualTo(1L);
+        assertThat(fileWatcher.isWatching(first)).isFalse();
+        assertThat(fileWatcher.isWatching(second)).isTrue();
+    }
+}
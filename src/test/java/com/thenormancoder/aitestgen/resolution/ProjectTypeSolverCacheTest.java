@@ -0,0 +1,141 @@
+package com.thenormancoder.aitestgen.resolution;
+
+import com.thenormancoder.aitestgen.config.ParserProperties;
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import com.thenormancoder.aitestgen.config.SymbolResolutionProperties;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectTypeSolverCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final ProjectFileWatcher fileWatcher = new ProjectFileWatcher();
+
+    @AfterEach
+    void closeWatcher() throws Exception {
+        fileWatcher.close();
+    }
+
+    @Test
+    void shouldReuseSolverOfTheSameProject() throws Exception {
+        Path project = project("first", "src/main/java");
+        ProjectTypeSolverCache cache = cache(8, false);
+
+        ProjectTypeSolverCache.ProjectTypeSolver first = cache.solverFor(project);
+        ProjectTypeSolverCache.ProjectTypeSolver second = cache.solverFor(project);
+
+        assertThat(first.cached()).isFalse();
+        assertThat(second.cached()).isTrue();
+        assertThat(second.typeSolver()).isSameAs(first.typeSolver());
+        assertThat(cache.stats().hits()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldUseSourceRootsDeclaredInTheBuildFile() throws Exception {
+        Path project = project("custom", "src");
+        Files.writeString(project.resolve("pom.xml"), """
+            <project>
+              <build>
+                <sourceDirectory>src</sourceDirectory>
+              </build>
+            </project>
+            """);
+        ProjectTypeSolverCache cache = cache(8, true);
+
+        ProjectTypeSolverCache.ProjectTypeSolver solver = cache.solverFor(project);
+
+        assertThat(solver.sourceRoots()).containsExactly(project.resolve("src"));
+        assertThat(fileWatcher.isWatching(project.resolve("src"))).isTrue();
+        assertThat(fileWatcher.isWatching(project.resolve("src/main/java"))).isFalse();
+    }
+
+    @Test
+    void shouldBuildSolverOnceForConcurrentRequests() throws Exception {
+        Path project = project("shared", "src/main/java");
+        ProjectTypeSolverCache cache = cache(8, false);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ProjectTypeSolverCache.ProjectTypeSolver>> solvers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                solvers.add(executor.submit(() -> {
+                    start.await();
+                    return cache.solverFor(project);
+                }));
+            }
+            start.countDown();
+
+            Object typeSolver = solvers.get(0).get().typeSolver();
+            for (Future<ProjectTypeSolverCache.ProjectTypeSolver> solver : solvers) {
+                assertThat(solver.get().typeSolver()).isSameAs(typeSolver);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldInvalidateSolverWhenASourceFileChanges() throws Exception {
+        Path project = project("watched", "src/main/java");
+        ProjectTypeSolverCache cache = cache(8, true);
+        ProjectTypeSolverCache.ProjectTypeSolver first = cache.solverFor(project);
+
+        Files.writeString(project.resolve("src/main/java/com/example/Other.java"),
+            "package com.example;\n\npublic class Other {}\n");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (cache.stats().size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        ProjectTypeSolverCache.ProjectTypeSolver rebuilt = cache.solverFor(project);
+        assertThat(rebuilt.cached()).isFalse();
+        assertThat(rebuilt.typeSolver()).isNotSameAs(first.typeSolver());
+    }
+
+    @Test
+    void shouldStopWatchingEvictedProjects() throws Exception {
+        Path first = project("first", "src/main/java");
+        Path second = project("second", "src/main/java");
+        ProjectTypeSolverCache cache = cache(1, true);
+
+        cache.solverFor(first);
+        assertThat(fileWatcher.isWatching(first.resolve("src/main/java"))).isTrue();
+        cache.solverFor(second);
+
+        assertThat(cache.stats().evictions()).isEqualTo(1L);
+        assertThat(fileWatcher.isWatching(first.resolve("src/main/java"))).isFalse();
+        assertThat(fileWatcher.isWatching(second.resolve("src/main/java"))).isTrue();
+    }
+
+    private ProjectTypeSolverCache cache(int maxProjects, boolean watchFiles) {
+        return new ProjectTypeSolverCache(ParserProperties.defaults(),
+            new SymbolResolutionProperties(true, maxProjects, Duration.ZERO, watchFiles),
+            new ProjectDescriptorCache(new ProjectDescriptorProperties(8, Duration.ZERO, false), fileWatcher),
+            fileWatcher);
+    }
+
+    private Path project(String name, String sourceRoot) throws Exception {
+        Path project = directory.resolve(name).toAbsolutePath().normalize();
+        Path source = project.resolve(sourceRoot).resolve("com/example/Service.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "package com.example;\n\npublic class Service {}\n");
+        return project;
+    }
+}
@@ -0,0 +1,153 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thenormancoder.aitestgen.cache.GeneratedTestCache;
+import com.thenormancoder.aitestgen.compile.InMemoryCompiler;
+import com.thenormancoder.aitestgen.config.BatchGenerationProperties;
+import com.thenormancoder.aitestgen.config.CompileVerificationProperties;
+import com.thenormancoder.aitestgen.config.GenerationProperties;
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import com.thenormancoder.aitestgen.config.TestCacheProperties;
+import com.thenormancoder.aitestgen.config.TestExecutionProperties;
+import com.thenormancoder.aitestgen.dto.BatchGenerationResponse;
+import com.thenormancoder.aitestgen.dto.TestExportRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.execution.TestRunner;
+import com.thenormancoder.aitestgen.llm.LlmClient;
+import com.thenormancoder.aitestgen.llm.LlmRequest;
+import com.thenormancoder.aitestgen.llm.LlmResponse;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchGenerationServiceTest {
+
+    private static final String MODEL_REPLY = """
+        ```java
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+
+        class CalculatorTest {
+            @Test
+            void shouldAdd() {
+                new Calculator().add(1, 2);
+            }
+        }
+        ```
+        """;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Test
+    void shouldGenerateConcurrentlyAndReportEachItem() {
+        BatchGenerationService service = service(new BatchGenerationProperties(2, 10));
+        String missingProject = directory.resolve("missing").toString();
+        List<TestExportRequest> items = new ArrayList<>();
+        // Classi diverse: richieste identiche contemporanee verrebbero unite in una sola chiamata
+        for (int i = 0; i < 4; i++) {
+            items.add(item("Calculator" + i, null));
+        }
+        items.add(new TestExportRequest(null, "Empty", "com.example", TestGenerationRequest.TestType.UNIT_TEST,
+            TestGenerationRequest.CoverageLevel.BASIC, null));
+        items.add(item("Calculator", missingProject));
+        items.add(item("Calculator", missingProject));
+
+        BatchGenerationResponse response = service.generateAll(items, false, true, false);
+
+        assertThat(response.items()).extracting(BatchGenerationResponse.ItemResult::index)
+            .containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(response.items()).extracting(BatchGenerationResponse.ItemResult::status).containsExactly(
+            BatchGenerationResponse.Status.SUCCEEDED, BatchGenerationResponse.Status.SUCCEEDED,
+            BatchGenerationResponse.Status.SUCCEEDED, BatchGenerationResponse.Status.SUCCEEDED,
+            BatchGenerationResponse.Status.FAILED, BatchGenerationResponse.Status.FAILED,
+            BatchGenerationResponse.Status.FAILED);
+        assertThat(response.items().get(0).response().testMethods()).containsExactly("shouldAdd");
+        assertThat(response.items().get(4).error()).isEqualTo("Missing source code");
+        assertThat(response.items().get(5).error()).startsWith("Invalid project structure");
+        assertThat(response.items().get(6).error()).isEqualTo("Duplicate target file in batch");
+        assertThat(response.succeeded()).isEqualTo(4);
+        assertThat(response.failed()).isEqualTo(3);
+        // Mai più chiamate al modello contemporanee del parallelismo configurato
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectBatchOverLimit() {
+        BatchGenerationService service = service(new BatchGenerationProperties(2, 1));
+
+        assertThatThrownBy(() -> service.generateAll(List.of(item("A", null), item("B", null)), false, false, false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("at most 1");
+    }
+
+    private BatchGenerationService service(BatchGenerationProperties properties) {
+        LlmClient slowModel = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return new LlmResponse(MODEL_REPLY, 100, 50);
+            }
+        };
+        GeneratedTestCache cache = new GeneratedTestCache(
+            new TestCacheProperties(true, 100, 1 << 20, directory.resolve("cache").toString(), 1 << 20),
+            new ObjectMapper().findAndRegisterModules()
+        );
+        TestGeneratorService generator = new TestGeneratorService(new JavaCodeAnalyzerService(), slowModel,
+            GenerationProperties.defaults(), cache);
+        TestExportService exportService = new TestExportService(new ProjectDescriptorCache(
+            new ProjectDescriptorProperties(8, Duration.ZERO, false), new ProjectFileWatcher()));
+        TestExecutionProperties noExecution = new TestExecutionProperties(false, 1, Duration.ofSeconds(1),
+            Duration.ofSeconds(1), 1, 1);
+        TestExecutionService execution = new TestExecutionService(
+            new TestCompilationService(new InMemoryCompiler(CompileVerificationProperties.defaults()),
+                CompileVerificationProperties.defaults()),
+            new TestRunner(noExecution), noExecution);
+        TestMergeService mergeService = new TestMergeService(new JavaCodeAnalyzerService(), generator, exportService);
+        GenerateAndExportService generateAndExport = new GenerateAndExportService(mergeService, execution, exportService);
+        return new BatchGenerationService(generator, generateAndExport, execution, exportService, properties);
+    }
+
+    private static TestExportRequest item(String className, String projectPath) {
+        return new TestExportRequest("""
+            package com.example;
+
+            public class %s {
+                public int add(int a, int b) {
+                    return a + b;
+                }
+
+                public int divide(int a, int b) {
+                    return a / b;
+                }
+            }
+            """.formatted(className), className, "com.example", TestGenerationRequest.TestType.UNIT_TEST,
+            TestGenerationRequest.CoverageLevel.COMPREHENSIVE, projectPath);
+    }
+}
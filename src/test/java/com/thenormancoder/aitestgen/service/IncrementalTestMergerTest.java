@@ -0,0 +1,134 @@
+package com.thenormancoder.aitestgen.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalTestMergerTest {
+
+    private static final List<String> TARGETS = List.of("add(int,int)", "divide(int,int)");
+
+    private static final String SOURCE = """
+        package com.example;
+
+        public class Calculator {
+            public int add(int a, int b) {
+                return a + b;
+            }
+
+            public int divide(int a, int b) {
+                if (b == 0) throw new IllegalArgumentException("Cannot divide by zero");
+                return a / b;
+            }
+        }
+        """;
+
+    private static final String GENERATED = """
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+        import static org.junit.jupiter.api.Assertions.*;
+
+        class CalculatorTest {
+            private final Calculator calculator = new Calculator();
+
+            @Test
+            void shouldAddNumbers() {
+                assertEquals(3, calculator.add(1, 2));
+            }
+
+            @Test
+            void shouldDivideNumbers() {
+                assertEquals(2, calculator.divide(4, 2));
+            }
+        }
+        """;
+
+    // Test scritto a mano, con una formattazione che nessun printer produrrebbe
+    private static final String HANDWRITTEN = """
+            @Test   void   handWritten()  {  assertEquals( 0 , calculator.add(0,0) ) ; }  // mio
+        }
+        """;
+
+    private final IncrementalTestMerger merger = new IncrementalTestMerger(new JavaCodeAnalyzerService());
+
+    @Test
+    void shouldMarkEveryTestOfAFullGeneration() {
+        IncrementalTestMerger.Plan plan = merger.plan(SOURCE, "Calculator", TARGETS, null);
+
+        IncrementalTestMerger.Merged merged = merger.merge(plan, GENERATED);
+
+        assertThat(plan.staleMethods()).containsExactly("add(int,int)", "divide(int,int)");
+        assertThat(merged.code()).contains("// aitestgen: add(int,int) source=");
+        assertThat(merged.code()).contains("// aitestgen: divide(int,int) source=");
+    }
+
+    @Test
+    void shouldGenerateNothingWhenNoMethodChanged() {
+        String existing = withHandwrittenTest(exported(SOURCE));
+
+        IncrementalTestMerger.Plan plan = merger.plan(SOURCE, "Calculator", TARGETS, existing);
+        IncrementalTestMerger.Merged merged = merger.merge(plan, null);
+
+        assertThat(plan.staleMethods()).isEmpty();
+        assertThat(merged.code()).isEqualTo(existing);
+        assertThat(merged.preservedTests()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReplaceOnlyTestsOfChangedMethodAndKeepHandwrittenOnes() {
+        String existing = withHandwrittenTest(exported(SOURCE));
+        String changed = SOURCE.replace("return a / b;", "return Math.floorDiv(a, b);");
+
+        IncrementalTestMerger.Plan plan = merger.plan(changed, "Calculator", TARGETS, existing);
+        IncrementalTestMerger.Merged merged = merger.merge(plan, """
+            package com.example;
+
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            class CalculatorTest {
+                private final Calculator calculator = new Calculator();
+
+                @Test
+                void shouldDivideNegativeNumbers() {
+                    assertEquals(-3, calculator.divide(-5, 2));
+                }
+            }
+            """);
+
+        assertThat(plan.staleMethods()).containsExactly("divide(int,int)");
+        assertThat(merged.removedTests()).containsExactly("shouldDivideNumbers");
+        assertThat(merged.addedTests()).containsExactly("shouldDivideNegativeNumbers");
+        assertThat(merged.testMethods()).containsExactly("shouldAddNumbers", "handWritten", "shouldDivideNegativeNumbers");
+        assertThat(merged.code()).contains(HANDWRITTEN.lines().findFirst().orElseThrow());
+        assertThat(merged.code()).contains("// aitestgen: divide(int,int) source=");
+
+        // Dopo l'unione non resta nulla da rigenerare
+        assertThat(merger.plan(changed, "Calculator", TARGETS, merged.code()).staleMethods()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepGeneratedTestEditedByHand() {
+        String existing = exported(SOURCE).replace("assertEquals(2, calculator.divide(4, 2));",
+            "assertEquals(5, calculator.divide(10, 2));");
+        String changed = SOURCE.replace("return a / b;", "return Math.floorDiv(a, b);");
+
+        IncrementalTestMerger.Plan plan = merger.plan(changed, "Calculator", TARGETS, existing);
+
+        assertThat(plan.staleMethods()).containsExactly("divide(int,int)");
+        assertThat(plan.obsoleteTests()).isEmpty();
+        assertThat(plan.preservedTests()).isEqualTo(1);
+    }
+
+    private String exported(String source) {
+        return merger.merge(merger.plan(source, "Calculator", TARGETS, null), GENERATED).code();
+    }
+
+    private static String withHandwrittenTest(String code) {
+        int end = code.lastIndexOf('}');
+        return code.substring(0, end) + "\n" + HANDWRITTEN;
+    }
+}
@@ -1,9 +1,23 @@
 package com.thenormancoder.aitestgen.service;
 
+import com.github.javaparser.ast.CompilationUnit;
+import com.thenormancoder.aitestgen.cache.AnalysisCache;
+import com.thenormancoder.aitestgen.config.AnalysisCacheProperties;
+import com.thenormancoder.aitestgen.config.AnalysisLimitsProperties;
+import com.thenormancoder.aitestgen.config.ParserProperties;
 import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import com.thenormancoder.aitestgen.exception.AnalysisOverloadedException;
+import com.thenormancoder.aitestgen.exception.SourceTooLargeException;
+import com.thenormancoder.aitestgen.parser.JavaParserPool;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -105,4 +119,196 @@ class JavaCodeAnalyzerServiceTest {
         assertThat(result.classType()).isEqualTo("interface");
         assertThat(result.methods()).hasSize(2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSkipJavadocWhenCommentsAreDisabled() {
+        String sourceCode = """
+            public class Documented {
+                /** Somma due numeri */
+                public int add(int a, int b) {
+                    return a + b;
+                }
+            }
+            """;
+
+        CodeAnalysisResult withComments = analyzer.analyzeJavaCode(sourceCode);
+        CodeAnalysisResult withoutComments = analyzer.analyzeJavaCode(sourceCode, ParseOptions.WITHOUT_COMMENTS);
+
+        assertThat(withComments.methods().get(0).javadoc()).contains("Somma due numeri");
+        assertThat(withoutComments.methods().get(0).javadoc()).isEmpty();
+    }
+
+    @Test
+    void shouldReuseParsersAcrossCalls() {
+        for (int i = 0; i < 10; i++) {
+            CodeAnalysisResult result = analyzer.analyzeJavaCode("public class Repeated" + i + " { void run() {} }");
+            assertThat(result.className()).isEqualTo("Repeated" + i);
+        }
+    }
+
+    @Test
+    void shouldServeRepeatedSourceFromCache() {
+        String sourceCode = "public class Cached { public void run() {} }";
+
+        CodeAnalysisResult first = analyzer.analyzeJavaCode(sourceCode);
+        CodeAnalysisResult second = analyzer.analyzeJavaCode(sourceCode + "\n\n");
+
+        assertThat(second).isSameAs(first);
+        assertThat(analyzer.cacheStats().hits()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldCollectAllTypesInCompilationUnit() {
+        String sourceCode = """
+            package com.example;
+
+            import java.util.List;
+
+            enum Status { ACTIVE, INACTIVE }
+
+            public class Order {
+                private Status status;
+
+                public Status getStatus() {
+                    return status;
+                }
+
+                public record Line(String sku, int quantity) {
+                    public int total(int price) {
+                        return quantity * price;
+                    }
+                }
+
+                interface Listener {
+                    void onChange(Order order);
+                }
+            }
+            """;
+
+        CompilationUnitAnalysis result = analyzer.analyzeCompilationUnit(sourceCode, ParseOptions.DEFAULT);
+
+        assertThat(result.types().stream().map(CodeAnalysisResult::className).toList())
+            .containsExactly("Status", "Order", "Order.Line", "Order.Listener");
+        assertThat(result.primaryTypeName()).isEqualTo("Order");
+
+        CodeAnalysisResult line = result.types().get(2);
+        assertThat(line.classType()).isEqualTo("record");
+        assertThat(line.hasConstructors()).isTrue();
+        assertThat(line.fields()).hasSize(2);
+        assertThat(line.methods()).hasSize(1);
+        assertThat(line.imports()).containsExactly("java.util.List");
+
+        assertThat(analyzer.analyzeJavaCode(sourceCode).className()).isEqualTo("Order");
+        assertThat(analyzer.analyzeJavaCode(sourceCode).methods()).hasSize(1);
+    }
+
+    @Test
+    void shouldAnalyzeEnumWithoutCountingConstantBodies() {
+        String sourceCode = """
+            public enum Operation {
+                PLUS {
+                    int apply(int a, int b) { return a + b; }
+                };
+
+                abstract int apply(int a, int b);
+
+                public static Operation parse(String symbol) {
+                    return PLUS;
+                }
+            }
+            """;
+
+        CodeAnalysisResult result = analyzer.analyzeJavaCode(sourceCode);
+
+        assertThat(result.classType()).isEqualTo("enum");
+        assertThat(result.methods()).hasSize(2);
+    }
+
+    @Test
+    void shouldMeasureComplexityBranchesAndThrowSites() {
+        String sourceCode = """
+            public class Orders {
+                public int total(java.util.List<Integer> amounts, boolean discounted) {
+                    if (amounts == null || amounts.isEmpty()) {
+                        throw new IllegalArgumentException("No amounts");
+                    }
+                    int total = 0;
+                    for (int amount : amounts) {
+                        total += amount > 100 ? amount - 10 : amount;
+                    }
+                    Runnable audit = new Runnable() {
+                        public void run() {
+                            if (total < 0) throw new IllegalStateException();
+                        }
+                    };
+                    return switch (total) {
+                        case 0 -> 0;
+                        case 1, 2 -> 1;
+                        default -> discounted ? total / 2 : total;
+                    };
+                }
+
+                public abstract static class Rule {
+                    abstract boolean applies();
+                }
+            }
+            """;
+
+        CodeAnalysisResult.MethodMetrics metrics = analyzer.analyzeJavaCode(sourceCode).methods().get(0).metrics();
+
+        // if, ||, for-each, ?: due volte, tre etichette case; la classe anonima non conta
+        assertThat(metrics.cyclomaticComplexity()).isEqualTo(9);
+        assertThat(metrics.branches()).isEqualTo(14);
+        assertThat(metrics.throwSites()).containsExactly(new CodeAnalysisResult.ThrowSite(
+            "IllegalArgumentException", 4, "amounts == null || amounts.isEmpty()"));
+        assertThat(metrics.testPriority()).isEqualTo(10);
+        assertThat(analyzer.analyzeCompilationUnit(sourceCode, ParseOptions.DEFAULT).types().get(1)
+            .methods().get(0).metrics()).isNull();
+        assertThat(analyzer.analyzeJavaCode(sourceCode, ParseOptions.SKELETON).methods().get(0).metrics()).isNull();
+    }
+
+    @Test
+    void shouldRejectSourceOverSizeLimit() {
+        JavaCodeAnalyzerService limited = new JavaCodeAnalyzerService(
+            new JavaParserPool(ParserProperties.defaults()),
+            new AnalysisCache(AnalysisCacheProperties.defaults()),
+            new AnalysisLimitsProperties(100, 1, Duration.ZERO)
+        );
+        String sourceCode = "public class Big { " + "int f;".repeat(50) + " }";
+
+        assertThrows(SourceTooLargeException.class, () -> limited.analyzeJavaCode(sourceCode));
+    }
+
+    @Test
+    void shouldTakeAParsePermitForLenientParses() throws Exception {
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JavaParserPool blockingPool = new JavaParserPool(ParserProperties.defaults()) {
+            @Override
+            public CompilationUnit parse(String sourceCode, ParseOptions options) {
+                parsing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.parse(sourceCode, options);
+            }
+        };
+        JavaCodeAnalyzerService limited = new JavaCodeAnalyzerService(blockingPool,
+            new AnalysisCache(AnalysisCacheProperties.defaults()),
+            new AnalysisLimitsProperties(0, 1, Duration.ofMillis(50)));
+        String sourceCode = "public class Resolved { int f; }";
+
+        CompletableFuture<CompilationUnit> first = CompletableFuture.supplyAsync(
+            () -> limited.parseLenient(sourceCode, ParseOptions.SKELETON));
+        parsing.await();
+        try {
+            assertThrows(AnalysisOverloadedException.class,
+                () -> limited.parseLenient(sourceCode, ParseOptions.SKELETON));
+        } finally {
+            release.countDown();
+        }
+        assertThat(first.get().getType(0).getNameAsString()).isEqualTo("Resolved");
+    }
+}
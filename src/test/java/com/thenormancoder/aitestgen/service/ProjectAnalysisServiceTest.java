@@ -0,0 +1,194 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.config.ProjectAnalysisProperties;
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import com.thenormancoder.aitestgen.config.ProjectIndexProperties;
+import com.thenormancoder.aitestgen.dto.CompilationUnitAnalysis;
+import com.thenormancoder.aitestgen.dto.ProjectAnalysisSummary;
+import com.thenormancoder.aitestgen.dto.ProjectFileAnalysis;
+import com.thenormancoder.aitestgen.index.ProjectIndexStore;
+import com.thenormancoder.aitestgen.parser.ParseOptions;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProjectAnalysisServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger parses = new AtomicInteger();
+    private final List<ProjectAnalysisService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(ProjectAnalysisService::shutdown);
+    }
+
+    @Test
+    void shouldDeliverEachFileOnTheCallingThreadAsItCompletes() throws Exception {
+        Path project = project();
+        // Scoperto per primo ma analizzato per ultimo: viene consegnato dopo gli altri
+        source(project, "Alpha", "// slow\npublic class Alpha {}");
+        source(project, "Beta", "public class Beta {}");
+        source(project, "Gamma", "public class Gamma {}");
+        ProjectAnalysisService service = service(2, 100, false);
+        Thread caller = Thread.currentThread();
+        List<String> delivered = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        ProjectAnalysisSummary summary = service.analyzeProject(project.toString(), ParseOptions.DEFAULT, false,
+            result -> {
+                delivered.add(result.path());
+                threads.add(Thread.currentThread());
+            });
+
+        assertThat(delivered).hasSize(3);
+        assertThat(delivered.get(2)).isEqualTo("src/main/java/com/example/Alpha.java");
+        assertThat(threads).containsOnly(caller);
+        assertThat(summary.totalFiles()).isEqualTo(3);
+        assertThat(summary.analyzedFiles()).isEqualTo(3);
+        assertThat(summary.failedFiles()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldKeepAtMostTwoFilesPerThreadInFlight() throws Exception {
+        Path project = project();
+        for (int i = 0; i < 10; i++) {
+            source(project, "Type" + i, "public class Type" + i + " {}");
+        }
+        ProjectAnalysisService service = service(1, 100, false);
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        service.analyzeProject(project.toString(), ParseOptions.DEFAULT, false, result -> {
+            // Un client lento: senza finestra tutti i file verrebbero analizzati nel frattempo
+            sleep(20);
+            maxAhead.accumulateAndGet(parses.get() - delivered.incrementAndGet(), Math::max);
+        });
+
+        assertThat(delivered.get()).isEqualTo(10);
+        assertThat(maxAhead.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldReportPerFileFailuresUpToTheConfiguredLimit() throws Exception {
+        Path project = project();
+        source(project, "Valid", "public class Valid {}");
+        for (int i = 0; i < 3; i++) {
+            source(project, "Broken" + i, "// broken\npublic class Broken" + i + " {}");
+        }
+        ProjectAnalysisService service = service(2, 2, false);
+        List<ProjectFileAnalysis> results = new ArrayList<>();
+
+        ProjectAnalysisSummary summary = service.analyzeProject(project.toString(), ParseOptions.DEFAULT, false,
+            results::add);
+
+        assertThat(summary.analyzedFiles()).isEqualTo(1);
+        assertThat(summary.failedFiles()).isEqualTo(3);
+        assertThat(summary.failures()).hasSize(2);
+        summary.failures().forEach(failure -> assertThat(failure).contains("Broken"));
+        // Tutti i file vengono comunque consegnati, anche oltre il limite del riepilogo
+        assertThat(results).extracting(ProjectFileAnalysis::isSuccessful)
+            .containsExactlyInAnyOrder(true, false, false, false);
+    }
+
+    @Test
+    void shouldReuseIndexedFilesUntilTheirContentChanges() throws Exception {
+        Path project = project();
+        source(project, "First", "public class First {}");
+        Path second = source(project, "Second", "public class Second {}");
+        ProjectAnalysisService service = service(2, 100, true);
+
+        ProjectAnalysisSummary initial = service.analyzeProject(project.toString(), ParseOptions.DEFAULT, true,
+            result -> {});
+        assertThat(initial.reusedFiles()).isEqualTo(0);
+        assertThat(parses.get()).isEqualTo(2);
+
+        // Un altro servizio sullo stesso indice su disco, come dopo un riavvio
+        ProjectAnalysisService restarted = service(2, 100, true);
+        Files.setLastModifiedTime(second, FileTime.fromMillis(Files.getLastModifiedTime(second).toMillis() + 5_000));
+        List<ProjectFileAnalysis> results = new ArrayList<>();
+        ProjectAnalysisSummary reused = restarted.analyzeProject(project.toString(), ParseOptions.DEFAULT, true,
+            results::add);
+        assertThat(reused.reusedFiles()).isEqualTo(2);
+        assertThat(parses.get()).isEqualTo(2);
+        assertThat(results).extracting(ProjectFileAnalysis::cached).containsOnly(true);
+        assertThat(results).extracting(ProjectFileAnalysis::analysis)
+            .extracting(CompilationUnitAnalysis::primaryTypeName)
+            .containsExactlyInAnyOrder("First", "Second");
+
+        Files.writeString(second, "package com.example;\n\npublic class Second { int changed; }\n");
+        ProjectAnalysisSummary changed = restarted.analyzeProject(project.toString(), ParseOptions.DEFAULT, true,
+            result -> {});
+        assertThat(changed.reusedFiles()).isEqualTo(1);
+        assertThat(parses.get()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRejectDirectoryWithoutBuildFile() {
+        ProjectAnalysisService service = service(1, 100, false);
+
+        assertThatThrownBy(() -> service.analyzeProject(directory.toString(), ParseOptions.DEFAULT, false,
+            result -> {}))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Invalid project structure");
+    }
+
+    private ProjectAnalysisService service(int parallelism, int maxFailures, boolean index) {
+        JavaCodeAnalyzerService countingAnalyzer = new JavaCodeAnalyzerService() {
+            @Override
+            public CompilationUnitAnalysis analyzeUncached(String sourceCode, ParseOptions options) {
+                parses.incrementAndGet();
+                if (sourceCode.contains("// slow")) {
+                    sleep(300);
+                }
+                if (sourceCode.contains("// broken")) {
+                    throw new IllegalArgumentException("Invalid Java code");
+                }
+                return super.analyzeUncached(sourceCode, options);
+            }
+        };
+        ProjectAnalysisService service = new ProjectAnalysisService(countingAnalyzer,
+            new ProjectDescriptorCache(new ProjectDescriptorProperties(8, Duration.ZERO, false), new ProjectFileWatcher()),
+            new ProjectIndexStore(new ProjectIndexProperties(index, directory.resolve("index").toString(), 16)),
+            new ProjectAnalysisProperties(parallelism, maxFailures));
+        services.add(service);
+        return service;
+    }
+
+    private Path project() throws Exception {
+        Path project = directory.resolve("project");
+        Files.createDirectories(project);
+        Files.writeString(project.resolve("pom.xml"), "<project/>");
+        return project;
+    }
+
+    private static Path source(Path project, String className, String body) throws Exception {
+        Path file = project.resolve("src/main/java/com/example/" + className + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "package com.example;\n\n" + body + "\n");
+        return file;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
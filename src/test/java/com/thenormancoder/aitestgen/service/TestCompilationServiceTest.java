@@ -0,0 +1,85 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.compile.InMemoryCompiler;
+import com.thenormancoder.aitestgen.config.CompileVerificationProperties;
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestCompilationServiceTest {
+
+    private static final String SOURCE = """
+        package com.example;
+
+        public class Calculator {
+            public int add(int a, int b) {
+                return a + b;
+            }
+        }
+        """;
+
+    private static final String TEST = """
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+
+        import static org.assertj.core.api.Assertions.assertThat;
+
+        class CalculatorTest {
+            @Test
+            void shouldAdd() {
+                assertThat(new Calculator().%s(1, 2)).isEqualTo(3);
+            }
+        }
+        """;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    void shouldCompileTestTogetherWithClassUnderTest() {
+        TestCompilationService service = service();
+
+        CompilationReport report = service.verify(SOURCE, TEST.formatted("add"), null);
+
+        assertThat(report.status()).isEqualTo(CompilationReport.Status.PASSED);
+        assertThat(report.diagnostics()).isEmpty();
+    }
+
+    @Test
+    void shouldReportDiagnosticsOfBrokenTest() {
+        TestCompilationService service = service();
+
+        CompilationReport report = service.verify(SOURCE, TEST.formatted("sum"), null);
+
+        assertThat(report.status()).isEqualTo(CompilationReport.Status.FAILED);
+        CompilationReport.CompilationDiagnostic diagnostic = report.diagnostics().get(0);
+        assertThat(diagnostic.kind()).isEqualTo("ERROR");
+        assertThat(diagnostic.origin()).isEqualTo("TEST");
+        assertThat(diagnostic.line()).isEqualTo(10L);
+        assertThat(diagnostic.message()).contains("sum");
+    }
+
+    @Test
+    void shouldBeInconclusiveWhenClassUnderTestMissesDependencies() {
+        TestCompilationService service = service();
+        String source = SOURCE.replace("public int add", "private com.example.missing.Store store;\n    public int add");
+
+        CompilationReport report = service.verify(source, TEST.formatted("add"), null);
+
+        assertThat(report.status()).isEqualTo(CompilationReport.Status.INCONCLUSIVE);
+        assertThat(report.diagnostics().get(0).origin()).isEqualTo("SOURCE");
+    }
+
+    private TestCompilationService service() {
+        CompileVerificationProperties properties = new CompileVerificationProperties(true, 1, Duration.ofSeconds(5),
+            List.of(), cacheDirectory.toString(), 50);
+        return new TestCompilationService(new InMemoryCompiler(properties), properties);
+    }
+}
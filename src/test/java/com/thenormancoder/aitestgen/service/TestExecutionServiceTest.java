@@ -0,0 +1,214 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.compile.InMemoryCompiler;
+import com.thenormancoder.aitestgen.config.CompileVerificationProperties;
+import com.thenormancoder.aitestgen.config.TestExecutionProperties;
+import com.thenormancoder.aitestgen.dto.CompilationReport;
+import com.thenormancoder.aitestgen.dto.TestExecutionReport;
+import com.thenormancoder.aitestgen.execution.TestRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestExecutionServiceTest {
+
+    private static final String SOURCE = """
+        package com.example;
+
+        public class Calculator {
+            public int add(int a, int b) {
+                return a + b;
+            }
+
+            public int divide(int a, int b) {
+                if (b == 0) {
+                    throw new IllegalArgumentException("Cannot divide by zero");
+                }
+                return a / b;
+            }
+        }
+        """;
+
+    private static final String TEST = """
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+
+        import static org.assertj.core.api.Assertions.assertThat;
+
+        class CalculatorTest {
+            @Test
+            void shouldAdd() {
+                %s
+            }
+        }
+        """;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private TestRunner runner;
+
+    @Test
+    void shouldMeasureLineAndBranchCoverage() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+
+        TestExecutionReport report = service.execute(SOURCE,
+            TEST.formatted("assertThat(new Calculator().add(1, 2)).isEqualTo(3);"), null, true);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.PASSED);
+        assertThat(report.testsFound()).isEqualTo(1L);
+        assertThat(report.testsSucceeded()).isEqualTo(1L);
+        // Costruttore e add eseguiti, le tre righe di divide no
+        assertThat(report.coveredLines()).isEqualTo(2);
+        assertThat(report.totalLines()).isEqualTo(5);
+        assertThat(report.lineCoverage()).isEqualTo(40.0);
+        assertThat(report.totalBranches()).isEqualTo(2);
+        assertThat(report.branchCoverage()).isEqualTo(0.0);
+    }
+
+    @Test
+    void shouldReportFailedAssertions() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+
+        TestExecutionReport report = service.execute(SOURCE,
+            TEST.formatted("assertThat(new Calculator().divide(4, 0)).isEqualTo(2);"), null, true);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.FAILED);
+        assertThat(report.testsFailed()).isEqualTo(1L);
+        assertThat(report.failures().get(0).message()).contains("Cannot divide by zero");
+        assertThat(report.coveredBranches()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlyCompileWhenExecutionIsNotRequested() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+
+        TestExecutionReport report = service.execute(SOURCE,
+            TEST.formatted("assertThat(new Calculator().add(1, 2)).isEqualTo(3);"), null, false);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.SKIPPED);
+        assertThat(report.compilation().status()).isEqualTo(CompilationReport.Status.PASSED);
+        assertThat(report.testsFound()).isZero();
+    }
+
+    @Test
+    void shouldRejectDisallowedCallsInTheTest() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+
+        TestExecutionReport report = service.execute(SOURCE, TEST.formatted("System.exit(0);"), null, true);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.REJECTED);
+        assertThat(report.failures().get(0).message()).contains("java.lang.System.exit");
+    }
+
+    @Test
+    void shouldRejectDisallowedCallsInTheClassUnderTest() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+        // Anche la classe sotto test arriva dal chiamante
+        String source = SOURCE.replace("return a + b;",
+            "new java.io.File(\"target\").delete();\n        return a + b;");
+
+        TestExecutionReport report = service.execute(source,
+            TEST.formatted("assertThat(new Calculator().add(1, 2)).isEqualTo(3);"), null, true);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.REJECTED);
+        assertThat(report.failures()).extracting(TestExecutionReport.TestFailure::message).containsExactly(
+            "Call not allowed in generated tests: java.io.File.<init>",
+            "Call not allowed in generated tests: java.io.File.delete");
+    }
+
+    @Test
+    void shouldRejectReadingFilesAndSystemProperties() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+
+        TestExecutionReport fileRead = service.execute(SOURCE, TEST.formatted("""
+            try {
+                assertThat(new String(new java.io.FileInputStream("/proc/self/environ").readAllBytes())).isEmpty();
+            } catch (java.io.IOException e) {
+            }
+            """), null, true);
+        TestExecutionReport scanner = service.execute(SOURCE, TEST.formatted("""
+            try {
+                assertThat(new java.util.Scanner(java.nio.file.Path.of("/etc/hostname")).next()).isEmpty();
+            } catch (java.io.IOException e) {
+            }
+            """), null, true);
+        TestExecutionReport property = service.execute(SOURCE,
+            TEST.formatted("assertThat(System.getProperty(\"user.home\")).isEmpty();"), null, true);
+
+        assertThat(fileRead.status()).isEqualTo(TestExecutionReport.Status.REJECTED);
+        assertThat(fileRead.failures()).extracting(TestExecutionReport.TestFailure::message)
+            .contains("Call not allowed in generated tests: java.io.FileInputStream.<init>");
+        assertThat(scanner.failures()).extracting(TestExecutionReport.TestFailure::message)
+            .containsExactly("Call not allowed in generated tests: java.util.Scanner.<init>");
+        assertThat(property.failures()).extracting(TestExecutionReport.TestFailure::message)
+            .containsExactly("Call not allowed in generated tests: java.lang.System.getProperty");
+    }
+
+    @Test
+    void shouldRedactEnvironmentValuesAndTruncateFailureMessages() {
+        TestExecutionService service = service(Duration.ofSeconds(10));
+        // Un valore dell'ambiente del server che arriva comunque nel messaggio del test
+        String secret = System.getenv("PATH");
+
+        TestExecutionReport leaked = service.execute(SOURCE,
+            TEST.formatted("assertThat(\"" + secret.replace("\\", "\\\\") + "\").isEmpty();"), null, true);
+        TestExecutionReport verbose = service.execute(SOURCE,
+            TEST.formatted("assertThat(\"x\".repeat(5_000)).isEmpty();"), null, true);
+
+        assertThat(leaked.status()).isEqualTo(TestExecutionReport.Status.FAILED);
+        assertThat(leaked.failures().get(0).message()).contains("[redacted]").doesNotContain(secret);
+        assertThat(verbose.failures().get(0).message().length()).isLessThan(600);
+        assertThat(verbose.failures().get(0).message()).endsWith("... (truncated)");
+    }
+
+    @Test
+    void shouldInterruptTestsExceedingTheTimeout() {
+        TestExecutionService service = service(Duration.ofMillis(500));
+
+        TestExecutionReport report = service.execute(SOURCE, TEST.formatted(
+            "while (!Thread.currentThread().isInterrupted()) { new Calculator().add(1, 1); }"), null, true);
+
+        assertThat(report.status()).isEqualTo(TestExecutionReport.Status.TIMED_OUT);
+        assertThat(report.failures().get(0).message()).endsWith("the test was interrupted");
+        assertThat(runner.abandonedRuns()).isZero();
+    }
+
+    @Test
+    void shouldSuspendExecutionWhileAbandonedTestsAreRunning() throws InterruptedException {
+        TestExecutionService service = service(Duration.ofMillis(300));
+        // Ignora l'interruzione ma termina da solo, per non lasciare un thread attivo dopo il test
+        String busyLoop = "long end = System.nanoTime() + 2_000_000_000L; while (System.nanoTime() < end) { }";
+        String passing = TEST.formatted("assertThat(new Calculator().add(1, 2)).isEqualTo(3);");
+
+        TestExecutionReport timedOut = service.execute(SOURCE, TEST.formatted(busyLoop), null, true);
+        TestExecutionReport suspended = service.execute(SOURCE, passing, null, true);
+
+        assertThat(timedOut.status()).isEqualTo(TestExecutionReport.Status.TIMED_OUT);
+        assertThat(timedOut.failures().get(0).message()).contains("thread was abandoned");
+        assertThat(suspended.status()).isEqualTo(TestExecutionReport.Status.SKIPPED);
+        assertThat(suspended.failures().get(0).message()).startsWith("Test execution suspended");
+
+        // Quando il test abbandonato termina l'esecuzione riprende
+        for (int i = 0; i < 100 && runner.abandonedRuns() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(runner.abandonedRuns()).isZero();
+        assertThat(service.execute(SOURCE, passing, null, true).status()).isEqualTo(TestExecutionReport.Status.PASSED);
+    }
+
+    private TestExecutionService service(Duration timeout) {
+        CompileVerificationProperties compile = new CompileVerificationProperties(true, 1, Duration.ofSeconds(5),
+            List.of(), cacheDirectory.toString(), 50);
+        TestExecutionProperties execution = new TestExecutionProperties(true, 1, Duration.ofSeconds(5), timeout, 20, 1);
+        runner = new TestRunner(execution);
+        return new TestExecutionService(new TestCompilationService(new InMemoryCompiler(compile), compile),
+            runner, execution);
+    }
+}
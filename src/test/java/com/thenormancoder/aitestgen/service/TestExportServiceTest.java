@@ -0,0 +1,93 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import com.thenormancoder.aitestgen.dto.TestBatchExportRequest;
+import com.thenormancoder.aitestgen.dto.TestExportResult;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestExportServiceTest {
+
+    @TempDir
+    Path projectDir;
+
+    private final TestExportService exportService = new TestExportService(
+        new ProjectDescriptorCache(new ProjectDescriptorProperties(8, Duration.ZERO, false), new ProjectFileWatcher()));
+
+    @Test
+    void shouldSkipUnchangedFilesAndReplaceChangedOnes() throws Exception {
+        TestExportResult first = exportService.exportAll(new TestBatchExportRequest(projectDir.toString(), List.of(
+            new TestBatchExportRequest.TestFile("com.example", "Calculator", "class CalculatorTest {}"),
+            new TestBatchExportRequest.TestFile("com.example", "Parser", "class ParserTest {}")
+        )));
+
+        assertThat(first.files()).extracting(TestExportResult.ExportedFile::status)
+            .containsExactly(TestExportResult.Status.CREATED, TestExportResult.Status.CREATED);
+        Path calculatorTest = projectDir.resolve("src/test/java/com/example/CalculatorTest.java");
+        Path parserTest = projectDir.resolve("src/test/java/com/example/ParserTest.java");
+        FileTime untouched = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(calculatorTest, untouched);
+
+        TestExportResult second = exportService.exportAll(new TestBatchExportRequest(projectDir.toString(), List.of(
+            new TestBatchExportRequest.TestFile("com.example", "Calculator", "class CalculatorTest {}"),
+            new TestBatchExportRequest.TestFile("com.example", "Parser", "class ParserTest { int x; }"),
+            new TestBatchExportRequest.TestFile("com.example", "Parser", "class ParserTest {}")
+        )));
+
+        assertThat(second.files()).extracting(TestExportResult.ExportedFile::status).containsExactly(
+            TestExportResult.Status.UNCHANGED, TestExportResult.Status.UPDATED, TestExportResult.Status.FAILED);
+        assertThat(second.written()).isEqualTo(1);
+        assertThat(second.unchanged()).isEqualTo(1);
+        assertThat(second.failed()).isEqualTo(1);
+        assertThat(Files.getLastModifiedTime(calculatorTest)).isEqualTo(untouched);
+        assertThat(Files.readString(parserTest)).isEqualTo("class ParserTest { int x; }");
+        try (Stream<Path> files = Files.list(parserTest.getParent())) {
+            // Nessun file temporaneo rimasto accanto ai test
+            assertThat(files.map(path -> path.getFileName().toString()).toList())
+                .containsExactlyInAnyOrder("CalculatorTest.java", "ParserTest.java");
+        }
+    }
+
+    @Test
+    void shouldRejectNamesThatLeaveTheTestRoot() {
+        TestExportResult result = exportService.exportAll(new TestBatchExportRequest(projectDir.toString(), List.of(
+            new TestBatchExportRequest.TestFile("../../../../etc", "x", "class xTest {}"),
+            new TestBatchExportRequest.TestFile("com.example", "../Calculator", "class CalculatorTest {}"),
+            new TestBatchExportRequest.TestFile("com.example", "Calculator", "class CalculatorTest {}")
+        )));
+
+        assertThat(result.files()).extracting(TestExportResult.ExportedFile::status).containsExactly(
+            TestExportResult.Status.FAILED, TestExportResult.Status.FAILED, TestExportResult.Status.CREATED);
+        assertThat(result.files().get(0).error()).isEqualTo("Invalid class or package name");
+        assertThat(result.files().get(0).filePath()).isNull();
+        assertThat(Files.exists(projectDir.resolve("src/test/java/com/CalculatorTest.java"))).isFalse();
+        assertThatThrownBy(() -> exportService.exportTestToFile("class xTest {}", "../../../../etc", "x",
+            projectDir.toString()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldNameArchiveEntriesWithProjectLayout() throws Exception {
+        Files.writeString(projectDir.resolve("pom.xml"),
+            "<project><build><testSourceDirectory>test</testSourceDirectory></build></project>");
+
+        assertThat(exportService.archiveEntryName("com.example", "Calculator", null))
+            .isEqualTo("src/test/java/com/example/CalculatorTest.java");
+        assertThat(exportService.archiveEntryName("com.example", "Calculator", projectDir.toString()))
+            .isEqualTo("test/com/example/CalculatorTest.java");
+        assertThatThrownBy(() -> exportService.archiveEntryName("com.example", "../Calculator", null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,495 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ast.CompilationUnit;
+import com.thenormancoder.aitestgen.cache.GeneratedTestCache;
+import com.thenormancoder.aitestgen.config.GenerationProperties;
+import com.thenormancoder.aitestgen.config.TestCacheProperties;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.dto.TestGenerationResponse;
+import com.thenormancoder.aitestgen.llm.LlmClient;
+import com.thenormancoder.aitestgen.llm.LlmRequest;
+import com.thenormancoder.aitestgen.llm.LlmResponse;
+import com.thenormancoder.aitestgen.llm.TokenEstimator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestGeneratorServiceTest {
+
+    private static final String SOURCE = """
+        package com.example;
+
+        public class Calculator {
+            /** Somma due numeri. */
+            public int add(int a, int b) {
+                return a + b;
+            }
+
+            public int divide(int a, int b) {
+                if (b == 0) throw new IllegalArgumentException("Cannot divide by zero");
+                return a / b;
+            }
+        }
+        """;
+
+    private static final String MODEL_REPLY = """
+        Here are the tests:
+        ```java
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+        import static org.assertj.core.api.Assertions.assertThat;
+
+        class CalculatorTest {
+            @Test
+            void shouldAdd() {
+                assertThat(new Calculator().add(1, 2)).isEqualTo(3);
+            }
+
+            @Test
+            @DisplayName("division")
+            void shouldDivide() {
+                assertThat(new Calculator().divide(4, 2)).isEqualTo(2);
+            }
+        }
+        ```
+        """;
+
+    private final List<LlmRequest> requests = new ArrayList<>();
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    void shouldGenerateWithModelAndRecordUsage() {
+        TestGeneratorService service = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+
+        TestGenerationResponse response = service.generateTests(request(TestGenerationRequest.TestType.UNIT_TEST));
+
+        assertThat(response.generatedTestCode()).startsWith("package com.example;").doesNotContain("```");
+        assertThat(response.testMethods()).containsExactly("shouldAdd", "shouldDivide");
+        assertThat(response.testClassName()).isEqualTo("CalculatorTest");
+        // add ha un solo cammino, divide due (b == 0) ma una sola chiamata
+        assertThat(response.estimatedCoverage()).isEqualTo(66.7);
+        assertThat(response.suggestions()).contains(
+            "No test expects IllegalArgumentException thrown by divide (line 10, when b == 0)");
+        assertThat(response.generationStats().engine()).isEqualTo("LLM");
+        assertThat(response.generationStats().promptTokens()).isEqualTo(120);
+        assertThat(response.generationStats().completionTokens()).isEqualTo(80);
+        assertThat(response.generationStats().contextMode()).isEqualTo("FULL_SOURCE");
+        assertThat(requests.get(0).userPrompt()).contains("public int divide(int a, int b)");
+        assertThat(requests.get(0).maxCompletionTokens()).isEqualTo(2000);
+    }
+
+    @Test
+    void shouldNotifyTestMethodsWhileStreaming() {
+        List<String> events = new ArrayList<>();
+        LlmClient streaming = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                throw new AssertionError("streaming expected");
+            }
+
+            @Override
+            public LlmResponse stream(LlmRequest request, java.util.function.Consumer<String> onChunk) {
+                for (String line : MODEL_REPLY.split("(?<=\n)")) {
+                    events.add("chunk");
+                    onChunk.accept(line);
+                }
+                return new LlmResponse(MODEL_REPLY, -1, -1);
+            }
+        };
+        TestGeneratorService service = service(GenerationProperties.defaults(), streaming);
+
+        service.generateTests(request(TestGenerationRequest.TestType.UNIT_TEST), false, new GenerationListener() {
+            @Override
+            public void onAnalysis(com.thenormancoder.aitestgen.dto.CodeAnalysisResult analysis) {
+                events.add("analysis");
+            }
+
+            @Override
+            public void onTestMethod(String name, String source) {
+                events.add(name);
+            }
+        });
+
+        assertThat(events.get(0)).isEqualTo("analysis");
+        // Il primo metodo arriva prima della fine della risposta
+        assertThat(events.indexOf("shouldAdd")).isLessThan(events.lastIndexOf("chunk"));
+        assertThat(events).containsSubsequence("shouldAdd", "shouldDivide");
+    }
+
+    @Test
+    void shouldAnnounceTheTemplateFallbackAfterAPartialStream() {
+        List<String> events = new ArrayList<>();
+        LlmClient interrupted = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                throw new AssertionError("streaming expected");
+            }
+
+            @Override
+            public LlmResponse stream(LlmRequest request, java.util.function.Consumer<String> onChunk) {
+                // La connessione cade dopo il primo metodo completo
+                String partial = MODEL_REPLY.substring(0, MODEL_REPLY.indexOf("@DisplayName"));
+                for (String line : partial.split("(?<=\n)")) {
+                    onChunk.accept(line);
+                }
+                throw new IllegalStateException("connection reset");
+            }
+        };
+        TestGeneratorService service = service(GenerationProperties.defaults(), interrupted);
+
+        TestGenerationResponse response = service.generateTests(request(TestGenerationRequest.TestType.UNIT_TEST),
+            false, new GenerationListener() {
+                @Override
+                public void onTestMethod(String name, String source) {
+                    events.add(name);
+                }
+
+                @Override
+                public void onFallback(String reason) {
+                    events.add("fallback: " + reason);
+                }
+            });
+
+        assertThat(response.generationStats().engine()).isEqualTo("TEMPLATE");
+        assertThat(events).containsExactly("shouldAdd", "fallback: LLM call failed: connection reset",
+            "shouldAdd", "shouldDivide");
+    }
+
+    @Test
+    void shouldNotLetAFailingListenerChangeTheSharedResult() throws Exception {
+        AtomicReference<TestGeneratorService> service = new AtomicReference<>();
+        LlmClient streaming = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                throw new AssertionError("only the streaming leader calls the model");
+            }
+
+            @Override
+            public LlmResponse stream(LlmRequest request, java.util.function.Consumer<String> onChunk) {
+                // Attende che la seconda richiesta si unisca a questa generazione
+                for (int i = 0; i < 200 && service.get().coalescingStats().coalesced() == 0; i++) {
+                    sleep(10);
+                }
+                for (String line : MODEL_REPLY.split("(?<=\n)")) {
+                    onChunk.accept(line);
+                }
+                return new LlmResponse(MODEL_REPLY, 120, 80);
+            }
+        };
+        service.set(service(GenerationProperties.defaults(), streaming));
+        GenerationListener disconnected = new GenerationListener() {
+            @Override
+            public void onTestMethod(String name, String source) {
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }
+        };
+
+        CompletableFuture<TestGenerationResponse> leader = CompletableFuture.supplyAsync(() ->
+            service.get().generateTests(request(TestGenerationRequest.TestType.UNIT_TEST), false, disconnected));
+        while (service.get().coalescingStats().inFlight() == 0) {
+            Thread.sleep(5);
+        }
+        TestGenerationResponse waiter = service.get().generateTests(request(TestGenerationRequest.TestType.UNIT_TEST));
+
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(UncheckedIOException.class);
+        assertThat(service.get().coalescingStats().coalesced()).isEqualTo(1);
+        assertThat(waiter.generationStats().engine()).isEqualTo("LLM");
+        assertThat(waiter.testMethods()).containsExactly("shouldAdd", "shouldDivide");
+        // Il risultato del modello è in cache come per una generazione senza errori
+        assertThat(service.get().generateTests(request(TestGenerationRequest.TestType.UNIT_TEST))
+            .generationStats().cached()).isTrue();
+    }
+
+    @Test
+    void shouldFanOutLargeClassesAndMergeDeterministically() {
+        StringBuilder source = new StringBuilder("package com.example;\npublic class Wide {\n");
+        for (int i = 1; i <= 9; i++) {
+            source.append("    public int m").append(i).append("() { return ").append(i).append("; }\n");
+        }
+        source.append("}\n");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        LlmClient perMethodModel = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                String targets = request.userPrompt().substring(request.userPrompt().indexOf("these methods"));
+                StringBuilder tests = new StringBuilder();
+                int first = 0;
+                for (int i = 1; i <= 9; i++) {
+                    if (targets.contains("int m" + i + "()") && targets.indexOf("int m" + i + "()") < targets.indexOf('.')) {
+                        first = first == 0 ? i : first;
+                        tests.append("@Test void shouldReturn").append(i).append("() { assertThat(wide.m")
+                            .append(i).append("()).isEqualTo(").append(i).append("); }\n");
+                    }
+                }
+                // I gruppi successivi terminano prima: l'ordine finale non deve dipenderne
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    sleep(300 - 80L * first / 3);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return new LlmResponse("""
+                    ```java
+                    package com.example;
+                    import org.junit.jupiter.api.BeforeEach;
+                    import org.junit.jupiter.api.Test;
+                    import static org.assertj.core.api.Assertions.assertThat;
+                    class WideTest {
+                        private Wide wide;
+                        @BeforeEach
+                        void setUp() {
+                            wide = new Wide();
+                        }
+                        @Test void smoke() { assertThat(wide).isNotNull(); }
+                    """ + tests + "}\n```", 50, 40);
+            }
+        };
+        String wide = source.toString();
+        AtomicInteger parses = new AtomicInteger();
+        JavaCodeAnalyzerService countingAnalyzer = new JavaCodeAnalyzerService() {
+            @Override
+            public CompilationUnit parse(String sourceCode) {
+                // Le risposte del modello vengono parsate per l'unione: si contano solo i parsing della classe
+                if (sourceCode.equals(wide)) {
+                    parses.incrementAndGet();
+                }
+                return super.parse(sourceCode);
+            }
+        };
+        TestGeneratorService service = service(GenerationProperties.defaults(), perMethodModel, countingAnalyzer);
+
+        TestGenerationResponse response = service.generateTests(new TestGenerationRequest(wide,
+            "Wide", "com.example", TestGenerationRequest.TestType.UNIT_TEST, TestGenerationRequest.CoverageLevel.BASIC));
+
+        assertThat(response.testMethods()).containsExactly("smoke", "shouldReturn1", "shouldReturn2", "shouldReturn3",
+            "smoke2", "shouldReturn4", "shouldReturn5", "shouldReturn6", "smoke3", "shouldReturn7", "shouldReturn8",
+            "shouldReturn9");
+        String code = response.generatedTestCode();
+        assertThat(code.split("@BeforeEach", -1).length - 1).isEqualTo(1);
+        assertThat(code.split("import org.junit.jupiter.api.Test;", -1).length - 1).isEqualTo(1);
+        assertThat(code.split("wide = new Wide\\(\\);", -1).length - 1).isEqualTo(1);
+        assertThat(response.estimatedCoverage()).isEqualTo(100.0);
+        assertThat(response.generationStats().contextMode()).isEqualTo("FAN_OUT");
+        assertThat(response.generationStats().promptTokens()).isEqualTo(150);
+        // Un solo parsing completo per i corpi del contesto, non uno per gruppo
+        assertThat(parses.get()).isEqualTo(1);
+        // I gruppi vengono chiesti al modello in parallelo, non uno dopo l'altro
+        assertThat(maxRunning.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void shouldReduceContextToFitPromptBudget() {
+        GenerationProperties tight = new GenerationProperties(true, "gpt-4", 0.3, 220, 500, 8, 3, 4, true);
+        TestGeneratorService service = service(tight, stubModel(MODEL_REPLY));
+
+        TestGenerationResponse response = service.generateTests(request(TestGenerationRequest.TestType.MOCK_TEST));
+
+        String prompt = requests.get(0).systemPrompt() + requests.get(0).userPrompt();
+        assertThat(TokenEstimator.estimate(prompt)).isLessThanOrEqualTo(220);
+        assertThat(requests.get(0).userPrompt()).doesNotContain("return a + b").contains("divide(int a, int b)");
+        assertThat(response.generationStats().contextMode()).isNotEqualTo("FULL_SOURCE");
+    }
+
+    @Test
+    void shouldSendCompactContextWithBodiesOfMethodsUnderTestOnly() {
+        String source = """
+            package com.example;
+
+            import java.math.BigDecimal;
+            import java.util.concurrent.ConcurrentHashMap;
+
+            public class Calculator {
+                private final BigDecimal scale = BigDecimal.ONE;
+
+                /** Somma due numeri. */
+                public int add(int a, int b) {
+                    return a + b;
+                }
+
+                /**
+                 * Normalizza il risultato: dettagli interni che non servono a chi scrive i test
+                 * dei metodi pubblici, con una descrizione volutamente lunga.
+                 */
+                private int normalize(int value) {
+                    ConcurrentHashMap<Integer, Integer> memo = new ConcurrentHashMap<>();
+                    int result = value;
+                    for (int i = 0; i < 10; i++) {
+                        result = memo.computeIfAbsent(result, v -> Math.floorMod(v * 31 + 7, 1_000_003));
+                    }
+                    return result;
+                }
+            }
+            """;
+        TestGeneratorService service = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+
+        TestGenerationResponse response = service.generateTests(new TestGenerationRequest(source, "Calculator",
+            "com.example", TestGenerationRequest.TestType.UNIT_TEST, TestGenerationRequest.CoverageLevel.BASIC));
+
+        String prompt = requests.get(0).userPrompt();
+        assertThat(response.generationStats().contextMode()).isEqualTo("COMPACT");
+        assertThat(prompt)
+            .contains("return a + b", "Somma due numeri", "    int normalize(int value);", "import java.math.BigDecimal;")
+            .doesNotContain("computeIfAbsent", "Normalizza", "ConcurrentHashMap");
+        assertThat(response.generationStats().compressionRatio()).isGreaterThan(1.5);
+    }
+
+    @Test
+    void shouldSkipModelForTrivialClassesWithBasicCoverage() {
+        String source = """
+            package com.example;
+
+            public record Point(int x, int y) {
+                public int x() {
+                    return x;
+                }
+            }
+            """;
+        TestGeneratorService service = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+
+        TestGenerationResponse response = service.generateTests(new TestGenerationRequest(source, "Point",
+            "com.example", TestGenerationRequest.TestType.UNIT_TEST, TestGenerationRequest.CoverageLevel.BASIC));
+
+        assertThat(requests).isEmpty();
+        assertThat(response.generationStats().engine()).isEqualTo("TEMPLATE");
+        assertThat(response.generatedTestCode()).contains("point = new Point(1, 1);", "var result = point.x();");
+    }
+
+    @Test
+    void shouldFallBackToTemplateWhenModelFails() {
+        LlmClient failing = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                throw new IllegalStateException("timeout");
+            }
+        };
+        TestGeneratorService service = service(GenerationProperties.defaults(), failing);
+
+        TestGenerationResponse response = service.generateTests(request(TestGenerationRequest.TestType.UNIT_TEST));
+
+        assertThat(response.testMethods()).containsExactly("shouldAdd", "shouldDivide");
+        assertThat(response.generationStats().engine()).isEqualTo("TEMPLATE");
+        assertThat(response.generationStats().fallbackReason()).contains("timeout");
+    }
+
+    @Test
+    void shouldServeRepeatedRequestsFromCache() {
+        TestGeneratorService service = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+        TestGenerationRequest request = request(TestGenerationRequest.TestType.UNIT_TEST);
+
+        TestGenerationResponse first = service.generateTests(request);
+        TestGenerationResponse second = service.generateTests(request);
+
+        assertThat(requests).hasSize(1);
+        assertThat(second.generatedTestCode()).isEqualTo(first.generatedTestCode());
+        assertThat(second.generationStats().cached()).isTrue();
+        assertThat(service.testCacheStats().memory().hits()).isEqualTo(1);
+
+        service.generateTests(request, true);
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void shouldReuseCachedTestsFromDiskAfterRestart() {
+        TestGenerationRequest request = request(TestGenerationRequest.TestType.UNIT_TEST);
+        service(GenerationProperties.defaults(), stubModel(MODEL_REPLY)).generateTests(request);
+
+        TestGeneratorService restarted = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+        TestGenerationResponse response = restarted.generateTests(request);
+
+        assertThat(requests).hasSize(1);
+        assertThat(response.testMethods()).containsExactly("shouldAdd", "shouldDivide");
+        assertThat(restarted.testCacheStats().disk().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotShareCacheEntriesAcrossTestTypes() {
+        TestGeneratorService service = service(GenerationProperties.defaults(), stubModel(MODEL_REPLY));
+
+        service.generateTests(request(TestGenerationRequest.TestType.UNIT_TEST));
+        service.generateTests(request(TestGenerationRequest.TestType.MOCK_TEST));
+
+        assertThat(requests).hasSize(2);
+    }
+
+    private TestGeneratorService service(GenerationProperties properties, LlmClient client) {
+        return service(properties, client, new JavaCodeAnalyzerService());
+    }
+
+    private TestGeneratorService service(GenerationProperties properties, LlmClient client,
+                                         JavaCodeAnalyzerService analyzer) {
+        GeneratedTestCache cache = new GeneratedTestCache(
+            new TestCacheProperties(true, 100, 1 << 20, cacheDirectory.toString(), 1 << 20),
+            new ObjectMapper().findAndRegisterModules()
+        );
+        return new TestGeneratorService(analyzer, client, properties, cache);
+    }
+
+    private LlmClient stubModel(String reply) {
+        return new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                requests.add(request);
+                return new LlmResponse(reply, 120, 80);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TestGenerationRequest request(TestGenerationRequest.TestType testType) {
+        return new TestGenerationRequest(SOURCE, "Calculator", "com.example", testType,
+            TestGenerationRequest.CoverageLevel.COMPREHENSIVE);
+    }
+}
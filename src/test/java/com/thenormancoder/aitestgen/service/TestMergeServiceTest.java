@@ -0,0 +1,121 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thenormancoder.aitestgen.cache.AnalysisCache;
+import com.thenormancoder.aitestgen.cache.GeneratedTestCache;
+import com.thenormancoder.aitestgen.config.AnalysisCacheProperties;
+import com.thenormancoder.aitestgen.config.AnalysisLimitsProperties;
+import com.thenormancoder.aitestgen.config.GenerationProperties;
+import com.thenormancoder.aitestgen.config.ParserProperties;
+import com.thenormancoder.aitestgen.config.ProjectDescriptorProperties;
+import com.thenormancoder.aitestgen.config.TestCacheProperties;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import com.thenormancoder.aitestgen.exception.SourceTooLargeException;
+import com.thenormancoder.aitestgen.llm.LlmClient;
+import com.thenormancoder.aitestgen.llm.LlmRequest;
+import com.thenormancoder.aitestgen.llm.LlmResponse;
+import com.thenormancoder.aitestgen.parser.JavaParserPool;
+import com.thenormancoder.aitestgen.project.ProjectDescriptorCache;
+import com.thenormancoder.aitestgen.project.ProjectFileWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestMergeServiceTest {
+
+    private static final String SOURCE = """
+        package com.example;
+
+        public class Calculator {
+            public int add(int a, int b) {
+                return a + b;
+            }
+        }
+        """;
+
+    // Ha un metodo @Test ma non è Java valido: non si può marcare
+    private static final String INVALID_REPLY = """
+        ```java
+        package com.example;
+
+        import org.junit.jupiter.api.Test;
+
+        class CalculatorTest {
+            @Test
+            void shouldAdd() {
+                int sum = ;
+            }
+        }
+        ```
+        """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldExportUnmarkedCodeWhenGeneratedTestCannotBeMarked() throws Exception {
+        TestMergeService service = service(INVALID_REPLY, AnalysisLimitsProperties.defaults());
+
+        TestMergeService.MergedGeneration merged = service.generate(request(), directory.toString(), false, false);
+
+        assertThat(merged.response().generatedTestCode()).contains("int sum = ;").doesNotContain("aitestgen:");
+        assertThat(merged.merge().addedTests()).containsExactly("shouldAdd");
+    }
+
+    @Test
+    void shouldRejectGeneratedTestThatCannotBeMergedInMergeMode() {
+        TestMergeService service = service(INVALID_REPLY, AnalysisLimitsProperties.defaults());
+
+        assertThatThrownBy(() -> service.generate(request(), directory.toString(), true, false))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("not valid Java");
+    }
+
+    @Test
+    void shouldApplyAnalysisLimitsToTheExistingTest() throws Exception {
+        Files.writeString(directory.resolve("pom.xml"), "<project/>");
+        Path existing = directory.resolve("src/test/java/com/example/CalculatorTest.java");
+        Files.createDirectories(existing.getParent());
+        Files.writeString(existing, "package com.example;\n\nclass CalculatorTest {\n" + "    // padding\n".repeat(100)
+            + "}\n");
+        TestMergeService service = service(INVALID_REPLY, new AnalysisLimitsProperties(1_000, 0, Duration.ofMillis(100)));
+
+        assertThatThrownBy(() -> service.generate(request(), directory.toString(), true, false))
+            .isInstanceOf(SourceTooLargeException.class);
+    }
+
+    private TestMergeService service(String reply, AnalysisLimitsProperties limits) {
+        LlmClient model = new LlmClient() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public LlmResponse complete(LlmRequest request) {
+                return new LlmResponse(reply, 100, 50);
+            }
+        };
+        JavaCodeAnalyzerService analyzer = new JavaCodeAnalyzerService(new JavaParserPool(ParserProperties.defaults()),
+            new AnalysisCache(AnalysisCacheProperties.defaults()), limits);
+        GeneratedTestCache cache = new GeneratedTestCache(
+            new TestCacheProperties(true, 100, 1 << 20, directory.resolve("cache").toString(), 1 << 20),
+            new ObjectMapper().findAndRegisterModules()
+        );
+        TestGeneratorService generator = new TestGeneratorService(analyzer, model, GenerationProperties.defaults(), cache);
+        TestExportService exportService = new TestExportService(new ProjectDescriptorCache(
+            new ProjectDescriptorProperties(8, Duration.ZERO, false), new ProjectFileWatcher()));
+        return new TestMergeService(analyzer, generator, exportService);
+    }
+
+    private static TestGenerationRequest request() {
+        return new TestGenerationRequest(SOURCE, "Calculator", "com.example", TestGenerationRequest.TestType.UNIT_TEST,
+            TestGenerationRequest.CoverageLevel.BASIC);
+    }
+}
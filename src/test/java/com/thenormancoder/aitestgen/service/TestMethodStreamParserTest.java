@@ -0,0 +1,60 @@
+package com.thenormancoder.aitestgen.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestMethodStreamParserTest {
+
+    private static final String CODE = """
+        class CalculatorTest {
+            @Test
+            void shouldIgnoreBracesInLiterals() {
+                assertThat("}{").isNotEmpty(); // }
+                char c = '}';
+                /* { */
+            }
+
+            @Test
+            @DisplayName("nested")
+            void shouldHandleNestedBlocks() {
+                if (true) { assertThat(1).isOne(); }
+            }
+        }
+        """;
+
+    @Test
+    void shouldEmitEachMethodAsSoonAsItsBodyCloses() {
+        List<String> names = new ArrayList<>();
+        List<Integer> emittedAt = new ArrayList<>();
+        int[] fed = {0};
+        TestMethodStreamParser parser = new TestMethodStreamParser((name, source) -> {
+            names.add(name);
+            emittedAt.add(fed[0]);
+        });
+
+        // Un carattere alla volta, come un modello che produce token molto piccoli
+        for (char c : CODE.toCharArray()) {
+            fed[0]++;
+            parser.feed(String.valueOf(c));
+        }
+
+        assertThat(names).containsExactly("shouldIgnoreBracesInLiterals", "shouldHandleNestedBlocks");
+        // Il primo metodo viene notificato prima che arrivi il testo del secondo
+        assertThat(emittedAt.get(0)).isLessThan(CODE.indexOf("@DisplayName"));
+    }
+
+    @Test
+    void shouldEmitFullMethodSource() {
+        List<String> sources = new ArrayList<>();
+        TestMethodStreamParser parser = new TestMethodStreamParser((name, source) -> sources.add(source));
+
+        parser.feed(CODE);
+
+        assertThat(sources).hasSize(2);
+        assertThat(sources.get(1)).startsWith("@Test").contains("@DisplayName(\"nested\")").endsWith("isOne(); }\n    }");
+    }
+}
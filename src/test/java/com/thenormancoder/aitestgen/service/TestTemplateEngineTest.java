@@ -0,0 +1,145 @@
+package com.thenormancoder.aitestgen.service;
+
+import com.thenormancoder.aitestgen.dto.CodeAnalysisResult;
+import com.thenormancoder.aitestgen.dto.TestGenerationRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestTemplateEngineTest {
+
+    private static final String SOURCE = """
+        package com.example.orders;
+
+        import com.example.payments.PaymentGateway;
+        import java.math.BigDecimal;
+        import java.util.List;
+
+        public class OrderService {
+            private final PaymentGateway gateway;
+            private final int retries;
+
+            public OrderService(PaymentGateway gateway, int retries) {
+                this.gateway = gateway;
+                this.retries = retries;
+            }
+
+            OrderService() {
+                this(null, 0);
+            }
+
+            public BigDecimal total(List<String> items, BigDecimal discount) {
+                return BigDecimal.ZERO;
+            }
+
+            public void cancel(String orderId) {
+            }
+
+            public void cancel(long orderId) {
+            }
+
+            public static boolean isValid(String orderId) {
+                return orderId != null;
+            }
+        }
+        """;
+
+    private final JavaCodeAnalyzerService analyzer = new JavaCodeAnalyzerService();
+
+    @Test
+    void shouldMockConstructorDependenciesForMockTests() {
+        CodeAnalysisResult analysis = analyzer.analyzeJavaCode(SOURCE);
+
+        TestTemplateEngine.Rendered rendered = TestTemplateEngine.render(analysis, "com.example.orders",
+            TestGenerationRequest.TestType.MOCK_TEST);
+
+        assertThat(rendered.testMethods()).containsExactly("shouldTotal", "shouldCancel", "shouldCancel2", "shouldIsValid");
+        assertThat(rendered.code())
+            .startsWith("package com.example.orders;")
+            .contains(
+                "import com.example.payments.PaymentGateway;",
+                "@ExtendWith(MockitoExtension.class)",
+                "    @Mock\n    private PaymentGateway gateway;",
+                "orderService = new OrderService(gateway, 1);",
+                "var result = orderService.total(List.of(), BigDecimal.ONE);",
+                "assertThatCode(() -> orderService.cancel(1L)).doesNotThrowAnyException();",
+                "OrderService.isValid(\"value\")"
+            );
+    }
+
+    @Test
+    void shouldUseSimplestConstructorWithoutMocks() {
+        CodeAnalysisResult analysis = analyzer.analyzeJavaCode(SOURCE);
+
+        String code = TestTemplateEngine.render(analysis, "com.example.orders",
+            TestGenerationRequest.TestType.UNIT_TEST).code();
+
+        assertThat(code)
+            .contains("orderService = new OrderService();")
+            .doesNotContain("@Mock", "Mockito", "PaymentGateway");
+    }
+
+    @Test
+    void shouldCastNarrowIntegerArguments() {
+        CodeAnalysisResult analysis = analyzer.analyzeJavaCode("""
+            package com.example;
+
+            public class Packet {
+                public int checksum(short length, Byte flags) {
+                    return length + flags;
+                }
+            }
+            """);
+
+        String code = TestTemplateEngine.render(analysis, "com.example", TestGenerationRequest.TestType.UNIT_TEST).code();
+
+        assertThat(code).contains("packet.checksum((short) 1, (byte) 1)");
+    }
+
+    @Test
+    void shouldNotInstantiateAbstractClasses() {
+        CodeAnalysisResult analysis = analyzer.analyzeJavaCode("""
+            package com.example;
+
+            public abstract class Shape {
+                public abstract double area();
+
+                public static Shape unit() {
+                    return null;
+                }
+            }
+            """);
+
+        TestTemplateEngine.Rendered rendered = TestTemplateEngine.render(analysis, "com.example",
+            TestGenerationRequest.TestType.UNIT_TEST);
+
+        assertThat(analysis.isAbstract()).isTrue();
+        assertThat(rendered.testMethods()).containsExactly("shouldUnit");
+        assertThat(rendered.code()).doesNotContain("new Shape(", "@BeforeEach");
+    }
+
+    @Test
+    void shouldCastNullArgumentsToTheParameterType() {
+        CodeAnalysisResult analysis = analyzer.analyzeJavaCode("""
+            package com.example;
+
+            import java.util.function.Supplier;
+
+            public class Notifier<T> {
+                public void send(Supplier<T> message, T payload) {
+                }
+
+                public void send(Runnable callback, T payload) {
+                }
+            }
+            """);
+
+        String code = TestTemplateEngine.render(analysis, "com.example", TestGenerationRequest.TestType.UNIT_TEST).code();
+
+        assertThat(code).contains(
+            "import java.util.function.Supplier;",
+            "notifier.send((Supplier) null, null)",
+            "notifier.send((Runnable) null, null)"
+        );
+    }
+}